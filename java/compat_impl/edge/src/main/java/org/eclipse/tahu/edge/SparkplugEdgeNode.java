@@ -25,6 +25,7 @@ import org.eclipse.tahu.SparkplugParsingException;
 import org.eclipse.tahu.edge.api.MetricHandler;
 import org.eclipse.tahu.edge.sim.DataSimulator;
 import org.eclipse.tahu.edge.sim.RandomDataSimulator;
+import org.eclipse.tahu.json.JsonCodec;
 import org.eclipse.tahu.message.DefaultBdSeqManager;
 import org.eclipse.tahu.message.PayloadDecoder;
 import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
@@ -53,8 +54,6 @@ import org.eclipse.tahu.util.TopicUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 public class SparkplugEdgeNode implements Runnable, MetricHandler, ClientCallback, CommandCallback {
 
 	private static Logger logger = LoggerFactory.getLogger(SparkplugEdgeNode.class.getName());
@@ -273,8 +272,7 @@ public class SparkplugEdgeNode implements Runnable, MetricHandler, ClientCallbac
 		if (rawTopic.startsWith("spBv1.0/STATE/")) {
 			try {
 				logger.info("Got STATE message: {} :: {}", rawTopic, new String(message.getPayload()));
-				ObjectMapper mapper = new ObjectMapper();
-				StatePayload statePayload = mapper.readValue(message.getPayload(), StatePayload.class);
+				StatePayload statePayload = JsonCodec.fromStateBytes(message.getPayload());
 				edgeClient.handleStateMessage(topic.getHostApplicationId(), statePayload);
 			} catch (Exception e) {
 				logger.error("Failed to handle STATE message with topic={} and payload={}", rawTopic,
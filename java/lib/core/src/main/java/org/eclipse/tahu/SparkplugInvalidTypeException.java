@@ -28,4 +28,13 @@ public class SparkplugInvalidTypeException extends SparkplugException {
 	public SparkplugInvalidTypeException(Class<?> type) {
 		super("Invalid type " + type);
 	}
+
+	/**
+	 * An Exception for handling values that are not valid for their type
+	 *
+	 * @param message the message
+	 */
+	public SparkplugInvalidTypeException(String message) {
+		super(message);
+	}
 }
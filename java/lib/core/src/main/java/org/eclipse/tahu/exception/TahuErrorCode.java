@@ -26,5 +26,6 @@ public enum TahuErrorCode {
 	NOT_SUPPORTED,
 	NOT_SUPPORTED_TYPE,
 	NULL_FIELD,
-	PARSE_ERROR
+	PARSE_ERROR,
+	RESOURCE_EXHAUSTED
 }
@@ -30,12 +30,13 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
 /**
- * A JSON deserializer for {@link DataSet} instances.
+ * A JSON deserializer for {@link DataSet} instances. It reads the tokens of the {@link JsonParser} directly. The rows
+ * may appear before the types, so row values are held as their JSON scalars until the whole object has been read.
  */
 public class DataSetDeserializer extends StdDeserializer<DataSet> {
 
@@ -43,10 +44,17 @@ public class DataSetDeserializer extends StdDeserializer<DataSet> {
 
 	private static final Logger logger = LoggerFactory.getLogger(DataSetDeserializer.class.getName());
 
-	private static final String FIELD_SIZE = "numberOfColumns";
-	private static final String FIELD_TYPES = "types";
-	private static final String FIELD_NAMES = "columnNames";
-	private static final String FIELD_ROWS = "rows";
+	static final String FIELD_SIZE = "numberOfColumns";
+	static final String FIELD_TYPES = "types";
+	static final String FIELD_NAMES = "columnNames";
+	static final String FIELD_ROWS = "rows";
+
+	/**
+	 * Constructor.
+	 */
+	protected DataSetDeserializer() {
+		super(DataSet.class);
+	}
 
 	/**
 	 * Constructor.
@@ -60,34 +68,45 @@ public class DataSetDeserializer extends StdDeserializer<DataSet> {
 	@Override
 	public DataSet deserialize(JsonParser parser, DeserializationContext context)
 			throws IOException, JsonProcessingException {
-		JsonNode node = parser.getCodec().readTree(parser);
-		long size = (Long) node.get(FIELD_SIZE).numberValue();
-		DataSetBuilder builder = new DataSetBuilder(size);
-		JsonNode namesNode = node.get(FIELD_NAMES);
-		if (namesNode.isArray()) {
-			for (JsonNode nameNode : namesNode) {
-				builder.addColumnName(nameNode.textValue());
-			}
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = parser.nextToken();
 		}
-		JsonNode typesNode = node.get(FIELD_TYPES);
-		List<DataSetDataType> typesList = new ArrayList<DataSetDataType>();
-		if (typesNode.isArray()) {
-			for (JsonNode typeNode : typesNode) {
-				typesList.add(DataSetDataType.valueOf(typeNode.textValue()));
+
+		long size = 0;
+		List<String> names = new ArrayList<String>();
+		List<DataSetDataType> types = new ArrayList<DataSetDataType>();
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+			String fieldName = parser.getCurrentName();
+			token = parser.nextToken();
+			if (FIELD_SIZE.equals(fieldName)) {
+				size = _parseLongPrimitive(parser, context);
+			} else if (FIELD_NAMES.equals(fieldName) && token == JsonToken.START_ARRAY) {
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					names.add(parser.getValueAsString());
+				}
+			} else if (FIELD_TYPES.equals(fieldName) && token == JsonToken.START_ARRAY) {
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					types.add(DataSetDataType.valueOf(parser.getText()));
+				}
+			} else if (FIELD_ROWS.equals(fieldName) && token == JsonToken.START_ARRAY) {
+				while (parser.nextToken() == JsonToken.START_ARRAY) {
+					rows.add(readRow(parser, context));
+				}
+			} else {
+				parser.skipChildren();
 			}
-			builder.addTypes(typesList);
 		}
-		JsonNode rowsNode = node.get(FIELD_ROWS);
-		if (rowsNode.isArray()) {
-			for (JsonNode rowNode : rowsNode) {
-				List<Value<?>> values = new ArrayList<Value<?>>();
-				for (int i = 0; i < size; i++) {
-					JsonNode value = rowNode.get(i);
-					DataSetDataType type = typesList.get(i);
-					values.add(getValueFromNode(value, type));
-				}
-				builder.addRow(new Row(values));
+
+		DataSetBuilder builder = new DataSetBuilder(size).addColumnNames(names).addTypes(types);
+		for (Object[] row : rows) {
+			List<Value<?>> values = new ArrayList<Value<?>>(row.length);
+			for (int i = 0; i < size; i++) {
+				DataSetDataType type = types.get(i);
+				values.add(getValue(i < row.length ? row[i] : null, type));
 			}
+			builder.addRow(new Row(values));
 		}
 		try {
 			return builder.createDataSet();
@@ -97,36 +116,89 @@ public class DataSetDeserializer extends StdDeserializer<DataSet> {
 		return null;
 	}
 
+	/*
+	 * Reads the scalars of a row array as a Boolean, Number, String or null
+	 */
+	private Object[] readRow(JsonParser parser, DeserializationContext context) throws IOException {
+		List<Object> row = new ArrayList<Object>();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			switch (token) {
+				case VALUE_TRUE:
+					row.add(Boolean.TRUE);
+					break;
+				case VALUE_FALSE:
+					row.add(Boolean.FALSE);
+					break;
+				case VALUE_NUMBER_INT:
+				case VALUE_NUMBER_FLOAT:
+					row.add(parser.getNumberValue());
+					break;
+				case VALUE_STRING:
+					row.add(parser.getText());
+					break;
+				case VALUE_NULL:
+					row.add(null);
+					break;
+				default:
+					return (Object[]) context.handleUnexpectedToken(Object[].class, parser);
+			}
+		}
+		return row.toArray();
+	}
+
 	/*
 	 * Creates and returns a Value instance
 	 */
-	private Value<?> getValueFromNode(JsonNode nodeValue, DataSetDataType type) {
+	private Value<?> getValue(Object value, DataSetDataType type) {
+		if (value == null) {
+			return new Value<Object>(type, null);
+		}
 		switch (type) {
 			case Boolean:
-				return new Value<Boolean>(type, (boolean) nodeValue.asBoolean());
+				return new Value<Boolean>(type,
+						value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(value.toString()));
 			case DateTime:
-				return new Value<Date>(type, new Date(nodeValue.asLong()));
+				return new Value<Date>(type, new Date(toNumber(value).longValue()));
 			case Double:
-				return new Value<Double>(type, nodeValue.asDouble());
+				return new Value<Double>(type, toNumber(value).doubleValue());
 			case Float:
-				return new Value<Float>(type, (float) nodeValue.asDouble());
+				return new Value<Float>(type, toNumber(value).floatValue());
+			case Int8:
+				return new Value<Byte>(type, toNumber(value).byteValue());
 			case Int16:
 			case UInt8:
-				return new Value<Byte>(type, (byte) nodeValue.asInt());
+				return new Value<Short>(type, toNumber(value).shortValue());
 			case UInt16:
 			case Int32:
-				return new Value<Integer>(type, nodeValue.asInt());
+				return new Value<Integer>(type, toNumber(value).intValue());
 			case UInt32:
 			case Int64:
-				return new Value<Long>(type, (long) nodeValue.asLong());
+				return new Value<Long>(type, toNumber(value).longValue());
 			case Text:
 			case String:
-				return new Value<String>(type, nodeValue.asText());
+				return new Value<String>(type, value.toString());
 			case UInt64:
-				return new Value<BigInteger>(type, BigInteger.valueOf(nodeValue.asLong()));
+				Number number = toNumber(value);
+				return new Value<BigInteger>(type,
+						number instanceof BigInteger ? (BigInteger) number : BigInteger.valueOf(number.longValue()));
 			case Unknown:
 			default:
 				return null;
 		}
 	}
+
+	private Number toNumber(Object value) {
+		if (value instanceof Number) {
+			return (Number) value;
+		} else if (value instanceof Boolean) {
+			return (Boolean) value ? 1 : 0;
+		}
+		String text = value.toString().trim();
+		try {
+			return new BigInteger(text);
+		} catch (NumberFormatException e) {
+			return Double.valueOf(text);
+		}
+	}
 }
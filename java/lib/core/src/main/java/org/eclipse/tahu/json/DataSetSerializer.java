@@ -0,0 +1,162 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.json;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.tahu.message.model.ColumnarDataSet;
+import org.eclipse.tahu.message.model.DataSet;
+import org.eclipse.tahu.message.model.DataSetDataType;
+import org.eclipse.tahu.message.model.Row;
+import org.eclipse.tahu.message.model.Value;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Serializes a {@link DataSet} instance directly to the {@link JsonGenerator} without building a {@link List} per
+ * row. A {@link ColumnarDataSet} is written straight from its columns.
+ */
+public class DataSetSerializer extends StdSerializer<DataSet> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor.
+	 */
+	protected DataSetSerializer() {
+		super(DataSet.class);
+	}
+
+	@Override
+	public void serialize(DataSet value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+		generator.writeStartObject();
+		generator.writeFieldName(DataSetDeserializer.FIELD_ROWS);
+		if (value instanceof ColumnarDataSet && ((ColumnarDataSet) value).isColumnar()) {
+			writeRows((ColumnarDataSet) value, generator, provider);
+		} else if (value.getRows() == null) {
+			generator.writeNull();
+		} else {
+			generator.writeStartArray();
+			for (Row row : value.getRows()) {
+				generator.writeStartArray();
+				for (Value<?> rowValue : row.getValues()) {
+					writeValue(rowValue.getValue(), generator, provider);
+				}
+				generator.writeEndArray();
+			}
+			generator.writeEndArray();
+		}
+
+		generator.writeNumberField(DataSetDeserializer.FIELD_SIZE, value.getNumOfColumns());
+		generator.writeFieldName(DataSetDeserializer.FIELD_NAMES);
+		if (value.getColumnNames() == null) {
+			generator.writeNull();
+		} else {
+			generator.writeStartArray();
+			for (String columnName : value.getColumnNames()) {
+				generator.writeString(columnName);
+			}
+			generator.writeEndArray();
+		}
+		generator.writeFieldName(DataSetDeserializer.FIELD_TYPES);
+		if (value.getTypes() == null) {
+			generator.writeNull();
+		} else {
+			generator.writeStartArray();
+			for (DataSetDataType type : value.getTypes()) {
+				generator.writeString(type.name());
+			}
+			generator.writeEndArray();
+		}
+		generator.writeEndObject();
+	}
+
+	private void writeRows(ColumnarDataSet dataSet, JsonGenerator generator, SerializerProvider provider)
+			throws IOException {
+		int columns = (int) dataSet.getNumOfColumns();
+		generator.writeStartArray();
+		for (int row = 0; row < dataSet.getRowCount(); row++) {
+			generator.writeStartArray();
+			for (int column = 0; column < columns; column++) {
+				if (dataSet.isNull(row, column)) {
+					generator.writeNull();
+					continue;
+				}
+				switch (dataSet.getColumnType(column)) {
+					case Int8:
+					case Int16:
+					case UInt8:
+					case Int32:
+					case UInt16:
+						generator.writeNumber(dataSet.getInt(row, column));
+						break;
+					case Int64:
+					case UInt32:
+						generator.writeNumber(dataSet.getLong(row, column));
+						break;
+					case Float:
+						generator.writeNumber(dataSet.getFloat(row, column));
+						break;
+					case Double:
+						generator.writeNumber(dataSet.getDouble(row, column));
+						break;
+					case Boolean:
+						generator.writeBoolean(dataSet.getBoolean(row, column));
+						break;
+					case String:
+					case Text:
+						generator.writeString(dataSet.getString(row, column));
+						break;
+					default:
+						// UInt64 and DateTime are written the same way as their boxed values
+						writeValue(dataSet.getValue(row, column), generator, provider);
+				}
+			}
+			generator.writeEndArray();
+		}
+		generator.writeEndArray();
+	}
+
+	/*
+	 * Writes a boxed row value the same way Jackson would write it as an Object
+	 */
+	private void writeValue(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+		if (value == null) {
+			generator.writeNull();
+		} else if (value instanceof String) {
+			generator.writeString((String) value);
+		} else if (value instanceof Boolean) {
+			generator.writeBoolean((Boolean) value);
+		} else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			generator.writeNumber(((Number) value).intValue());
+		} else if (value instanceof Long) {
+			generator.writeNumber((Long) value);
+		} else if (value instanceof Double) {
+			generator.writeNumber((Double) value);
+		} else if (value instanceof Float) {
+			generator.writeNumber((Float) value);
+		} else if (value instanceof BigInteger) {
+			generator.writeNumber((BigInteger) value);
+		} else if (value instanceof Date) {
+			provider.defaultSerializeDateValue((Date) value, generator);
+		} else {
+			provider.defaultSerializeValue(value, generator);
+		}
+	}
+}
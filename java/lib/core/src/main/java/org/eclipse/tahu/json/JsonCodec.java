@@ -0,0 +1,101 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.json;
+
+import java.io.IOException;
+import java.text.DateFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.tahu.message.model.StatePayload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Shared JSON readers and writers for Sparkplug objects.
+ *
+ * The underlying {@link ObjectMapper} is configured once, with the {@link DeserializerModule} registered, and is never
+ * exposed. The {@link ObjectReader} and {@link ObjectWriter} instances handed out are immutable and thread safe, so
+ * the (de)serializers Jackson builds for each type are created once and reused for every message.
+ */
+public class JsonCodec {
+
+	private static final ObjectMapper MAPPER =
+			new ObjectMapper().registerModule(new DeserializerModule(new DeserializerModifier()));
+
+	private static final ObjectWriter WRITER = MAPPER.writer();
+
+	private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+	private JsonCodec() {
+	}
+
+	/**
+	 * Returns the shared {@link ObjectWriter}.
+	 *
+	 * @return the shared {@link ObjectWriter}
+	 */
+	public static ObjectWriter getWriter() {
+		return WRITER;
+	}
+
+	/**
+	 * Returns an {@link ObjectWriter} that writes all {@link java.util.Date} Objects with the supplied
+	 * {@link DateFormat}.
+	 *
+	 * @param dateFormat the {@link DateFormat} to use
+	 * @return an {@link ObjectWriter} sharing the configuration of the shared {@link ObjectWriter}
+	 */
+	public static ObjectWriter getWriter(DateFormat dateFormat) {
+		return WRITER.with(dateFormat);
+	}
+
+	/**
+	 * Returns the shared {@link ObjectReader} for a type.
+	 *
+	 * @param type the type to read
+	 * @return the shared {@link ObjectReader} for the type
+	 */
+	public static ObjectReader getReader(Class<?> type) {
+		ObjectReader reader = READERS.get(type);
+		if (reader == null) {
+			reader = READERS.computeIfAbsent(type, MAPPER::readerFor);
+		}
+		return reader;
+	}
+
+	/**
+	 * Serializes a {@link StatePayload} in to UTF-8 JSON bytes.
+	 *
+	 * @param statePayload the {@link StatePayload} to serialize
+	 * @return the UTF-8 JSON bytes
+	 * @throws IOException if the {@link StatePayload} can not be serialized
+	 */
+	public static byte[] toStateBytes(StatePayload statePayload) throws IOException {
+		return WRITER.writeValueAsBytes(statePayload);
+	}
+
+	/**
+	 * Deserializes a {@link StatePayload} from JSON bytes.
+	 *
+	 * @param bytes the JSON bytes
+	 * @return the {@link StatePayload}
+	 * @throws IOException if the bytes are not a valid {@link StatePayload}
+	 */
+	public static StatePayload fromStateBytes(byte[] bytes) throws IOException {
+		return getReader(StatePayload.class).readValue(bytes);
+	}
+}
@@ -0,0 +1,66 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.json;
+
+import java.io.IOException;
+
+import org.eclipse.tahu.message.model.StatePayload;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Deserializes a {@link StatePayload} instance from the tokens of the {@link JsonParser}.
+ */
+public class StatePayloadDeserializer extends StdDeserializer<StatePayload> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final String FIELD_ONLINE = "online";
+	static final String FIELD_TIMESTAMP = "timestamp";
+
+	/**
+	 * Constructor.
+	 */
+	protected StatePayloadDeserializer() {
+		super(StatePayload.class);
+	}
+
+	@Override
+	public StatePayload deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = parser.nextToken();
+		}
+
+		StatePayload statePayload = new StatePayload();
+		for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+			String fieldName = parser.getCurrentName();
+			token = parser.nextToken();
+			if (FIELD_ONLINE.equals(fieldName)) {
+				statePayload.setOnline(token == JsonToken.VALUE_NULL ? null : _parseBooleanPrimitive(parser, context));
+			} else if (FIELD_TIMESTAMP.equals(fieldName)) {
+				statePayload.setTimestamp(token == JsonToken.VALUE_NULL ? null : _parseLongPrimitive(parser, context));
+			} else {
+				context.handleUnknownProperty(parser, this, StatePayload.class, fieldName);
+			}
+		}
+		if (token != JsonToken.END_OBJECT) {
+			return (StatePayload) context.handleUnexpectedToken(StatePayload.class, parser);
+		}
+		return statePayload;
+	}
+}
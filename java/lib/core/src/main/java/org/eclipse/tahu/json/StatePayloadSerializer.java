@@ -0,0 +1,56 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.json;
+
+import java.io.IOException;
+
+import org.eclipse.tahu.message.model.StatePayload;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Serializes a {@link StatePayload} instance directly to the {@link JsonGenerator}.
+ */
+public class StatePayloadSerializer extends StdSerializer<StatePayload> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor.
+	 */
+	protected StatePayloadSerializer() {
+		super(StatePayload.class);
+	}
+
+	@Override
+	public void serialize(StatePayload value, JsonGenerator generator, SerializerProvider provider)
+			throws IOException {
+		generator.writeStartObject();
+		generator.writeFieldName(StatePayloadDeserializer.FIELD_ONLINE);
+		if (value.isOnline() == null) {
+			generator.writeNull();
+		} else {
+			generator.writeBoolean(value.isOnline());
+		}
+		generator.writeFieldName(StatePayloadDeserializer.FIELD_TIMESTAMP);
+		if (value.getTimestamp() == null) {
+			generator.writeNull();
+		} else {
+			generator.writeNumber(value.getTimestamp());
+		}
+		generator.writeEndObject();
+	}
+}
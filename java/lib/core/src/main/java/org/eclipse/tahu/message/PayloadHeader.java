@@ -0,0 +1,50 @@
+/********************************************************************************
+ * Copyright (c) 2014-2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message;
+
+import java.util.Date;
+
+/**
+ * The top level timestamp and sequence number of a Sparkplug B payload, read without decoding any metrics. See
+ * {@link SparkplugBStreamingPayloadDecoder#peekHeader(byte[])}.
+ */
+public class PayloadHeader {
+
+	private final Date timestamp;
+	private final Long seq;
+
+	public PayloadHeader(Date timestamp, Long seq) {
+		this.timestamp = timestamp;
+		this.seq = seq;
+	}
+
+	public Date getTimestamp() {
+		return timestamp;
+	}
+
+	public Long getSeq() {
+		return seq;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("PayloadHeader [timestamp=");
+		builder.append(timestamp);
+		builder.append(", seq=");
+		builder.append(seq);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,95 @@
+/********************************************************************************
+ * Copyright (c) 2014-2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message;
+
+import org.eclipse.tahu.message.model.MetricDataType;
+
+/**
+ * A callback interface for consuming a Sparkplug B payload one metric at a time without building
+ * {@link org.eclipse.tahu.message.model.Metric} or {@link org.eclipse.tahu.message.model.SparkplugBPayload} objects.
+ * See {@link SparkplugBStreamingPayloadDecoder#visit}.
+ *
+ * Absent timestamps, sequence numbers and aliases are reported as -1 and absent names as null.
+ */
+public interface PayloadVisitor {
+
+	/**
+	 * Called before any metrics are visited
+	 *
+	 * @param timestamp the payload timestamp in epoch milliseconds or -1 if not present
+	 * @param seq the payload sequence number or -1 if not present
+	 */
+	public void onPayloadStart(long timestamp, long seq);
+
+	/**
+	 * Called for Int8, Int16, Int32, Int64, UInt8, UInt16, UInt32, UInt64 and DateTime metrics. UInt64 values are
+	 * delivered as their raw unsigned 64 bits and DateTime values as epoch milliseconds.
+	 *
+	 * @param alias the metric alias or -1 if not present
+	 * @param name the metric name or null if not present
+	 * @param dataType the {@link MetricDataType} of the metric
+	 * @param timestamp the metric timestamp in epoch milliseconds or -1 if not present
+	 * @param value the metric value
+	 */
+	public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, long value);
+
+	/**
+	 * Called for Float and Double metrics
+	 *
+	 * @param alias the metric alias or -1 if not present
+	 * @param name the metric name or null if not present
+	 * @param dataType the {@link MetricDataType} of the metric
+	 * @param timestamp the metric timestamp in epoch milliseconds or -1 if not present
+	 * @param value the metric value
+	 */
+	public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, double value);
+
+	/**
+	 * Called for Boolean metrics
+	 *
+	 * @param alias the metric alias or -1 if not present
+	 * @param name the metric name or null if not present
+	 * @param dataType the {@link MetricDataType} of the metric
+	 * @param timestamp the metric timestamp in epoch milliseconds or -1 if not present
+	 * @param value the metric value
+	 */
+	public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, boolean value);
+
+	/**
+	 * Called for all other metrics with the same value object the {@link SparkplugBPayloadDecoder} would have set on the
+	 * {@link org.eclipse.tahu.message.model.Metric}
+	 *
+	 * @param alias the metric alias or -1 if not present
+	 * @param name the metric name or null if not present
+	 * @param dataType the {@link MetricDataType} of the metric
+	 * @param timestamp the metric timestamp in epoch milliseconds or -1 if not present
+	 * @param value the metric value
+	 */
+	public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, Object value);
+
+	/**
+	 * Called for metrics with the 'is_null' flag set
+	 *
+	 * @param alias the metric alias or -1 if not present
+	 * @param name the metric name or null if not present
+	 * @param dataType the {@link MetricDataType} of the metric
+	 * @param timestamp the metric timestamp in epoch milliseconds or -1 if not present
+	 */
+	public void onNullMetric(long alias, String name, MetricDataType dataType, long timestamp);
+
+	/**
+	 * Called after all metrics have been visited
+	 */
+	public void onPayloadComplete();
+}
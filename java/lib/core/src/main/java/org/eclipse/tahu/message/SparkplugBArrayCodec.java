@@ -0,0 +1,335 @@
+/********************************************************************************
+ * Copyright (c) 2014-2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Converts the little endian 'bytes_value' representation of the Sparkplug B array types to and from their Java array
+ * values without creating intermediate collections.
+ */
+final class SparkplugBArrayCodec {
+
+	private static final Logger logger = LoggerFactory.getLogger(SparkplugBArrayCodec.class.getName());
+
+	private SparkplugBArrayCodec() {
+	}
+
+	/**
+	 * Decodes an array {@link MetricDataType} value from a slice of a byte array
+	 *
+	 * @param dataType the array {@link MetricDataType}
+	 * @param bytes the source bytes
+	 * @param offset the offset of the value in the source bytes
+	 * @param length the length of the value in the source bytes
+	 * @return the decoded array value
+	 * @throws Exception if the {@link MetricDataType} is not an array type
+	 */
+	static Object decodeArray(MetricDataType dataType, byte[] bytes, int offset, int length) throws Exception {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+		switch (dataType) {
+			case Int8Array:
+				Byte[] int8Array = new Byte[length];
+				for (int i = 0; i < int8Array.length; i++) {
+					int8Array[i] = buffer.get();
+				}
+				return int8Array;
+			case Int16Array:
+				Short[] int16Array = new Short[length / 2];
+				for (int i = 0; i < int16Array.length; i++) {
+					int16Array[i] = buffer.getShort();
+				}
+				return int16Array;
+			case Int32Array:
+				Integer[] int32Array = new Integer[length / 4];
+				for (int i = 0; i < int32Array.length; i++) {
+					int32Array[i] = buffer.getInt();
+				}
+				return int32Array;
+			case Int64Array:
+				Long[] int64Array = new Long[length / 8];
+				for (int i = 0; i < int64Array.length; i++) {
+					int64Array[i] = buffer.getLong();
+				}
+				return int64Array;
+			case UInt8Array:
+				Short[] uInt8Array = new Short[length];
+				for (int i = 0; i < uInt8Array.length; i++) {
+					byte value = buffer.get();
+					uInt8Array[i] = value >= 0 ? (short) value : (short) (0x10000 + value);
+				}
+				return uInt8Array;
+			case UInt16Array:
+				Integer[] uInt16Array = new Integer[length / 2];
+				for (int i = 0; i < uInt16Array.length; i++) {
+					uInt16Array[i] = Short.toUnsignedInt(buffer.getShort());
+				}
+				return uInt16Array;
+			case UInt32Array:
+				Long[] uInt32Array = new Long[length / 4];
+				for (int i = 0; i < uInt32Array.length; i++) {
+					uInt32Array[i] = Integer.toUnsignedLong(buffer.getInt());
+				}
+				return uInt32Array;
+			case UInt64Array:
+				BigInteger[] uInt64Array = new BigInteger[length / 8];
+				for (int i = 0; i < uInt64Array.length; i++) {
+					uInt64Array[i] = new BigInteger(Long.toUnsignedString(buffer.getLong()));
+				}
+				return uInt64Array;
+			case FloatArray:
+				Float[] floatArray = new Float[length / 4];
+				for (int i = 0; i < floatArray.length; i++) {
+					floatArray[i] = buffer.getFloat();
+				}
+				return floatArray;
+			case DoubleArray:
+				Double[] doubleArray = new Double[length / 8];
+				for (int i = 0; i < doubleArray.length; i++) {
+					doubleArray[i] = buffer.getDouble();
+				}
+				return doubleArray;
+			case BooleanArray:
+				// The first 4 bytes is the number of booleans in the array
+				int numberOfBooleans = buffer.getInt();
+				Boolean[] booleanArray = new Boolean[numberOfBooleans];
+				for (int i = 0; i < numberOfBooleans; i++) {
+					byte nextByte = bytes[offset + 4 + (i >> 3)];
+					booleanArray[i] = (nextByte & (1 << (7 - (i & 7)))) != 0;
+				}
+				return booleanArray;
+			case StringArray:
+				List<String> stringList = new ArrayList<>();
+				int start = offset;
+				int end = offset + length;
+				for (int i = offset; i < end; i++) {
+					if (bytes[i] == (byte) 0) {
+						stringList.add(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+						start = i + 1;
+					}
+				}
+				return stringList.toArray(new String[0]);
+			case DateTimeArray:
+				Date[] dateTimeArray = new Date[length / 8];
+				for (int i = 0; i < dateTimeArray.length; i++) {
+					dateTimeArray[i] = new Date(buffer.getLong());
+				}
+				return dateTimeArray;
+			default:
+				throw new Exception("Failed to decode: " + dataType + " is not an array MetricDataType");
+		}
+	}
+
+	/**
+	 * Returns the number of bytes the array {@link MetricDataType} value occupies in its 'bytes_value' representation
+	 *
+	 * @param dataType the array {@link MetricDataType}
+	 * @param value the array value
+	 * @return the encoded length in bytes
+	 * @throws Exception if the {@link MetricDataType} is not an array type
+	 */
+	static int encodedArrayLength(MetricDataType dataType, Object value) throws Exception {
+		switch (dataType) {
+			case Int8Array:
+			case UInt8Array:
+				return ((Object[]) value).length;
+			case Int16Array:
+			case UInt16Array:
+				return ((Object[]) value).length * 2;
+			case Int32Array:
+			case UInt32Array:
+			case FloatArray:
+				return ((Object[]) value).length * 4;
+			case Int64Array:
+			case UInt64Array:
+			case DoubleArray:
+			case DateTimeArray:
+				return ((Object[]) value).length * 8;
+			case BooleanArray:
+				return 4 + (((Boolean[]) value).length + 7) / 8;
+			case StringArray:
+				int length = 0;
+				for (String string : (String[]) value) {
+					length += (string != null ? utf8Length(string) : 0) + 1;
+				}
+				return length;
+			default:
+				throw new Exception("Failed to encode: " + dataType + " is not an array MetricDataType");
+		}
+	}
+
+	/**
+	 * Writes the 'bytes_value' representation of an array {@link MetricDataType} value without its tag or length
+	 * prefix. Null elements are written as 0, false, an empty string or the start of the epoch.
+	 *
+	 * @param dataType the array {@link MetricDataType}
+	 * @param value the array value
+	 * @param name the metric name, used for logging
+	 * @param output the {@link CodedOutputStream} to write to
+	 * @throws Exception if the {@link MetricDataType} is not an array type or the value can not be written
+	 */
+	static void encodeArray(MetricDataType dataType, Object value, String name, CodedOutputStream output)
+			throws Exception {
+		boolean hasNullElements = false;
+		switch (dataType) {
+			case Int8Array:
+				for (Byte element : (Byte[]) value) {
+					hasNullElements |= element == null;
+					output.writeRawByte(element != null ? element : 0);
+				}
+				break;
+			case Int16Array:
+				for (Short element : (Short[]) value) {
+					hasNullElements |= element == null;
+					writeShort(output, element != null ? element : 0);
+				}
+				break;
+			case Int32Array:
+				for (Integer element : (Integer[]) value) {
+					hasNullElements |= element == null;
+					output.writeFixed32NoTag(element != null ? element : 0);
+				}
+				break;
+			case Int64Array:
+				for (Long element : (Long[]) value) {
+					hasNullElements |= element == null;
+					output.writeFixed64NoTag(element != null ? element : 0L);
+				}
+				break;
+			case UInt8Array:
+				for (Short element : (Short[]) value) {
+					hasNullElements |= element == null;
+					output.writeRawByte(element != null ? (byte) (element & 0xffff) : 0);
+				}
+				break;
+			case UInt16Array:
+				for (Integer element : (Integer[]) value) {
+					hasNullElements |= element == null;
+					writeShort(output, element != null ? element : 0);
+				}
+				break;
+			case UInt32Array:
+				for (Long element : (Long[]) value) {
+					hasNullElements |= element == null;
+					output.writeFixed32NoTag(element != null ? (int) (long) element : 0);
+				}
+				break;
+			case UInt64Array:
+				for (BigInteger element : (BigInteger[]) value) {
+					hasNullElements |= element == null;
+					output.writeFixed64NoTag(element != null ? bigIntegerToUnsignedLong(element) : 0L);
+				}
+				break;
+			case FloatArray:
+				for (Float element : (Float[]) value) {
+					hasNullElements |= element == null;
+					output.writeFloatNoTag(element != null ? element : 0);
+				}
+				break;
+			case DoubleArray:
+				for (Double element : (Double[]) value) {
+					hasNullElements |= element == null;
+					output.writeDoubleNoTag(element != null ? element : 0);
+				}
+				break;
+			case BooleanArray:
+				Boolean[] booleanArray = (Boolean[]) value;
+				// The first 4 bytes is the number of booleans in the array
+				output.writeFixed32NoTag(booleanArray.length);
+				for (int i = 0; i < booleanArray.length; i += 8) {
+					byte nextByte = 0;
+					for (int bit = 0; bit < 8 && i + bit < booleanArray.length; bit++) {
+						Boolean element = booleanArray[i + bit];
+						hasNullElements |= element == null;
+						if (element != null && element) {
+							nextByte |= (128 >> bit);
+						}
+					}
+					output.writeRawByte(nextByte);
+				}
+				break;
+			case StringArray:
+				for (String element : (String[]) value) {
+					hasNullElements |= element == null;
+					if (element != null) {
+						output.writeRawBytes(element.getBytes(StandardCharsets.UTF_8));
+					}
+					output.writeRawByte((byte) 0);
+				}
+				break;
+			case DateTimeArray:
+				for (Date element : (Date[]) value) {
+					hasNullElements |= element == null;
+					output.writeFixed64NoTag(element != null ? element.getTime() : 0L);
+				}
+				break;
+			default:
+				throw new Exception("Failed to encode: " + dataType + " is not an array MetricDataType");
+		}
+		if (hasNullElements) {
+			logger.warn("SparkplugB doesn't support 'null' elements in the {} {}. All such elements will be set to "
+					+ "their default value.", name, dataType);
+		}
+	}
+
+	private static void writeShort(CodedOutputStream output, int value) throws IOException {
+		output.writeRawByte((byte) value);
+		output.writeRawByte((byte) (value >> 8));
+	}
+
+	static long bigIntegerToUnsignedLong(BigInteger bigInteger) {
+		BigInteger bref = BigInteger.ONE.shiftLeft(64);
+		if (bigInteger.compareTo(BigInteger.ZERO) < 0)
+			bigInteger = bigInteger.add(bref);
+		if (bigInteger.compareTo(bref) >= 0 || bigInteger.compareTo(BigInteger.ZERO) < 0)
+			throw new RuntimeException("Out of range: " + bigInteger);
+		return bigInteger.longValue();
+	}
+
+	/**
+	 * Returns the number of bytes needed to encode the {@link String} as UTF-8
+	 */
+	static int utf8Length(String string) {
+		int length = 0;
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+					&& Character.isLowSurrogate(string.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				// Unpaired surrogates are replaced by a single byte '?' by String.getBytes
+				length += Character.isSurrogate(c) ? 1 : 3;
+			}
+		}
+		return length;
+	}
+}
@@ -20,12 +20,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.tahu.SparkplugInvalidTypeException;
 import org.eclipse.tahu.message.model.DataSet.DataSetBuilder;
+import org.eclipse.tahu.message.model.CompactPropertyMap;
 import org.eclipse.tahu.message.model.DataSetDataType;
 import org.eclipse.tahu.message.model.File;
 import org.eclipse.tahu.message.model.MetaData.MetaDataBuilder;
@@ -138,7 +138,7 @@ public class SparkplugBPayloadDecoder implements PayloadDecoder<SparkplugBPayloa
 										.description(protoMetric.getMetadata().getDescription()).createMetaData()
 								: null)
 						.properties(protoMetric.hasProperties()
-								? new PropertySetBuilder().addProperties(convertProperties(protoMetric.getProperties()))
+								? new PropertySetBuilder(convertProperties(protoMetric.getProperties()))
 										.createPropertySet()
 								: null)
 						.createMetric();
@@ -146,8 +146,8 @@ public class SparkplugBPayloadDecoder implements PayloadDecoder<SparkplugBPayloa
 
 	private Map<String, PropertyValue> convertProperties(SparkplugBProto.Payload.PropertySet decodedPropSet)
 			throws SparkplugInvalidTypeException, Exception {
-		Map<String, PropertyValue> map = new HashMap<String, PropertyValue>();
 		List<String> keys = decodedPropSet.getKeysList();
+		Map<String, PropertyValue> map = new CompactPropertyMap(keys.size());
 		List<SparkplugBProto.Payload.PropertyValue> values = decodedPropSet.getValuesList();
 		for (int i = 0; i < keys.size(); i++) {
 			SparkplugBProto.Payload.PropertyValue value = values.get(i);
@@ -195,14 +195,12 @@ public class SparkplugBPayloadDecoder implements PayloadDecoder<SparkplugBPayloa
 			case Text:
 				return value.getStringValue();
 			case PropertySet:
-				return new PropertySetBuilder().addProperties(convertProperties(value.getPropertysetValue()))
-						.createPropertySet();
+				return new PropertySetBuilder(convertProperties(value.getPropertysetValue())).createPropertySet();
 			case PropertySetList:
 				List<PropertySet> propertySetList = new ArrayList<PropertySet>();
 				List<SparkplugBProto.Payload.PropertySet> list = value.getPropertysetsValue().getPropertysetList();
 				for (SparkplugBProto.Payload.PropertySet decodedPropSet : list) {
-					propertySetList.add(new PropertySetBuilder().addProperties(convertProperties(decodedPropSet))
-							.createPropertySet());
+					propertySetList.add(new PropertySetBuilder(convertProperties(decodedPropSet)).createPropertySet());
 				}
 				return propertySetList;
 			case Unknown:
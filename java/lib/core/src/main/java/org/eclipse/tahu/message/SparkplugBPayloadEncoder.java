@@ -23,6 +23,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.tahu.message.model.ColumnarDataSet;
 import org.eclipse.tahu.message.model.DataSet;
 import org.eclipse.tahu.message.model.DataSetDataType;
 import org.eclipse.tahu.message.model.File;
@@ -125,8 +126,8 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 		}
 
 		// Set the timestamp
-		if (metric.getTimestamp() != null) {
-			builder.setTimestamp(metric.getTimestamp().getTime());
+		if (metric.hasTimestamp()) {
+			builder.setTimestamp(metric.getTimestampMillis());
 		}
 
 		// Set isHistorical
@@ -321,15 +322,15 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 			metricBuilder.setDatatype(metric.getDataType().toIntValue());
 		}
 
-		if (metric.getValue() == null) {
+		if (!metric.hasValue()) {
 			metricBuilder.setIsNull(true);
 		} else {
 			switch (metric.getDataType()) {
 				case Boolean:
-					metricBuilder.setBooleanValue(toBoolean(metric.getValue()));
+					metricBuilder.setBooleanValue(metric.getBooleanValue());
 					break;
 				case DateTime:
-					metricBuilder.setLongValue(((Date) metric.getValue()).getTime());
+					metricBuilder.setLongValue(metric.getLongValue());
 					break;
 				case File:
 					metricBuilder.setBytesValue(ByteString.copyFrom(((File) metric.getValue()).getBytes()));
@@ -339,31 +340,23 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 					metricBuilder.setMetadata(metaDataBuilder);
 					break;
 				case Float:
-					metricBuilder.setFloatValue((Float) metric.getValue());
+					metricBuilder.setFloatValue((float) metric.getDoubleValue());
 					break;
 				case Double:
-					metricBuilder.setDoubleValue((Double) metric.getValue());
+					metricBuilder.setDoubleValue(metric.getDoubleValue());
 					break;
 				case Int8:
-					metricBuilder.setIntValue((Byte) metric.getValue());
-					break;
 				case Int16:
-					metricBuilder.setIntValue((Short) metric.getValue());
-					break;
 				case Int32:
-					metricBuilder.setIntValue((Integer) metric.getValue());
+				case UInt16:
+					metricBuilder.setIntValue((int) metric.getLongValue());
 					break;
 				case Int64:
-					metricBuilder.setLongValue((Long) metric.getValue());
+				case UInt32:
+					metricBuilder.setLongValue(metric.getLongValue());
 					break;
 				case UInt8:
-					metricBuilder.setIntValue(Short.toUnsignedInt((Short) metric.getValue()));
-					break;
-				case UInt16:
-					metricBuilder.setIntValue((int) Integer.toUnsignedLong((Integer) metric.getValue()));
-					break;
-				case UInt32:
-					metricBuilder.setLongValue(Long.parseUnsignedLong(Long.toUnsignedString((Long) metric.getValue())));
+					metricBuilder.setIntValue(Short.toUnsignedInt((short) metric.getLongValue()));
 					break;
 				case UInt64:
 					metricBuilder.setLongValue(bigIntegerToUnsignedLong((BigInteger) metric.getValue()));
@@ -402,19 +395,23 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 					}
 
 					// Dataset rows
-					List<Row> rows = dataSet.getRows();
-					if (rows != null && !rows.isEmpty()) {
-						for (Row row : rows) {
-							SparkplugBProto.Payload.DataSet.Row.Builder protoRowBuilder =
-									SparkplugBProto.Payload.DataSet.Row.newBuilder();
-							List<Value<?>> values = row.getValues();
-							if (values != null && !values.isEmpty()) {
-								for (Value<?> value : values) {
-									// Add the converted element
-									protoRowBuilder.addElements(convertDataSetValue(value));
+					if (dataSet instanceof ColumnarDataSet) {
+						addColumnarDataSetRows((ColumnarDataSet) dataSet, dataSetBuilder);
+					} else {
+						List<Row> rows = dataSet.getRows();
+						if (rows != null && !rows.isEmpty()) {
+							for (Row row : rows) {
+								SparkplugBProto.Payload.DataSet.Row.Builder protoRowBuilder =
+										SparkplugBProto.Payload.DataSet.Row.newBuilder();
+								List<Value<?>> values = row.getValues();
+								if (values != null && !values.isEmpty()) {
+									for (Value<?> value : values) {
+										// Add the converted element
+										protoRowBuilder.addElements(convertDataSetValue(value));
+									}
+
+									dataSetBuilder.addRows(protoRowBuilder);
 								}
-
-								dataSetBuilder.addRows(protoRowBuilder);
 							}
 						}
 					}
@@ -813,6 +810,55 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 		return metricBuilder;
 	}
 
+	/*
+	 * Adds the rows of a ColumnarDataSet straight from its columns without creating a Value per cell
+	 */
+	private void addColumnarDataSetRows(ColumnarDataSet dataSet,
+			SparkplugBProto.Payload.DataSet.Builder dataSetBuilder) {
+		int numOfColumns = (int) dataSet.getNumOfColumns();
+		for (int row = 0; numOfColumns > 0 && row < dataSet.getRowCount(); row++) {
+			SparkplugBProto.Payload.DataSet.Row.Builder protoRowBuilder =
+					SparkplugBProto.Payload.DataSet.Row.newBuilder();
+			for (int column = 0; column < numOfColumns; column++) {
+				SparkplugBProto.Payload.DataSet.DataSetValue.Builder protoValueBuilder =
+						SparkplugBProto.Payload.DataSet.DataSetValue.newBuilder();
+				if (!dataSet.isNull(row, column)) {
+					switch (dataSet.getColumnType(column)) {
+						case UInt8:
+							protoValueBuilder.setIntValue(Short.toUnsignedInt((short) dataSet.getInt(row, column)));
+							break;
+						case Int8:
+						case Int16:
+						case Int32:
+						case UInt16:
+							protoValueBuilder.setIntValue(dataSet.getInt(row, column));
+							break;
+						case Int64:
+						case UInt32:
+						case UInt64:
+						case DateTime:
+							protoValueBuilder.setLongValue(dataSet.getLong(row, column));
+							break;
+						case Float:
+							protoValueBuilder.setFloatValue(dataSet.getFloat(row, column));
+							break;
+						case Double:
+							protoValueBuilder.setDoubleValue(dataSet.getDouble(row, column));
+							break;
+						case Boolean:
+							protoValueBuilder.setBooleanValue(dataSet.getBoolean(row, column));
+							break;
+						default:
+							// String and Text
+							protoValueBuilder.setStringValue(dataSet.getString(row, column));
+					}
+				}
+				protoRowBuilder.addElements(protoValueBuilder);
+			}
+			dataSetBuilder.addRows(protoRowBuilder);
+		}
+	}
+
 	private SparkplugBProto.Payload.DataSet.DataSetValue.Builder convertDataSetValue(Value<?> value) throws Exception {
 		SparkplugBProto.Payload.DataSet.DataSetValue.Builder protoValueBuilder =
 				SparkplugBProto.Payload.DataSet.DataSetValue.newBuilder();
@@ -0,0 +1,1290 @@
+/********************************************************************************
+ * Copyright (c) 2014-2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tahu.SparkplugException;
+import org.eclipse.tahu.SparkplugInvalidTypeException;
+import org.eclipse.tahu.message.model.ColumnarDataSet;
+import org.eclipse.tahu.message.model.CompactPropertyMap;
+import org.eclipse.tahu.message.model.DataSet;
+import org.eclipse.tahu.message.model.DataSetDataType;
+import org.eclipse.tahu.message.model.File;
+import org.eclipse.tahu.message.model.MetaData;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.Parameter;
+import org.eclipse.tahu.message.model.ParameterDataType;
+import org.eclipse.tahu.message.model.PropertyDataType;
+import org.eclipse.tahu.message.model.PropertySet;
+import org.eclipse.tahu.message.model.PropertySet.PropertySetBuilder;
+import org.eclipse.tahu.message.model.PropertyValue;
+import org.eclipse.tahu.message.model.Row;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.Template;
+import org.eclipse.tahu.message.model.Value;
+import org.eclipse.tahu.model.MetricDataTypeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * A {@link PayloadDecoder} implementation for decoding Sparkplug B payloads that reads the protobuf wire format
+ * directly with a {@link CodedInputStream}. Unlike the {@link SparkplugBPayloadDecoder} no intermediate
+ * {@link org.eclipse.tahu.protobuf.SparkplugBProto} messages are created - each {@link Metric} is built in a single
+ * pass over the bytes. The resulting {@link SparkplugBPayload} is equivalent to the one produced by the
+ * {@link SparkplugBPayloadDecoder}.
+ *
+ * In lazy mode the {@link DataSet}, {@link Template}, {@link File}, bytes and array values and the
+ * {@link PropertySet}s of each {@link Metric} are not decoded up front. The {@link Metric} retains the payload bytes
+ * and decodes them on the first call to {@link Metric#getValue()} or {@link Metric#getProperties()}, so metrics that
+ * are never read cost little more than a scan of their fields. Template members without a datatype are resolved
+ * against the {@link MetricDataTypeMap} at the time the value is first read.
+ */
+public class SparkplugBStreamingPayloadDecoder implements PayloadDecoder<SparkplugBPayload> {
+
+	private static final Logger logger = LoggerFactory.getLogger(SparkplugBStreamingPayloadDecoder.class.getName());
+
+	// Payload field numbers
+	static final int PAYLOAD_TIMESTAMP = 1;
+	static final int PAYLOAD_METRICS = 2;
+	static final int PAYLOAD_SEQ = 3;
+	static final int PAYLOAD_UUID = 4;
+	static final int PAYLOAD_BODY = 5;
+
+	// Metric field numbers
+	static final int METRIC_NAME = 1;
+	static final int METRIC_ALIAS = 2;
+	static final int METRIC_TIMESTAMP = 3;
+	static final int METRIC_DATATYPE = 4;
+	static final int METRIC_IS_HISTORICAL = 5;
+	static final int METRIC_IS_TRANSIENT = 6;
+	static final int METRIC_IS_NULL = 7;
+	static final int METRIC_METADATA = 8;
+	static final int METRIC_PROPERTIES = 9;
+	static final int METRIC_INT_VALUE = 10;
+	static final int METRIC_LONG_VALUE = 11;
+	static final int METRIC_FLOAT_VALUE = 12;
+	static final int METRIC_DOUBLE_VALUE = 13;
+	static final int METRIC_BOOLEAN_VALUE = 14;
+	static final int METRIC_STRING_VALUE = 15;
+	static final int METRIC_BYTES_VALUE = 16;
+	static final int METRIC_DATASET_VALUE = 17;
+	static final int METRIC_TEMPLATE_VALUE = 18;
+
+	private final boolean lazy;
+
+	/**
+	 * Default Constructor
+	 */
+	public SparkplugBStreamingPayloadDecoder() {
+		this(false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param lazy whether or not length delimited {@link Metric} values and {@link PropertySet}s are decoded on first
+	 *            access rather than up front
+	 */
+	public SparkplugBStreamingPayloadDecoder(boolean lazy) {
+		super();
+		this.lazy = lazy;
+	}
+
+	@Override
+	public SparkplugBPayload buildFromByteArray(byte[] bytes, MetricDataTypeMap metricDataTypeMap) throws Exception {
+		CodedInputStream input = CodedInputStream.newInstance(bytes);
+		Date timestamp = null;
+		Long seq = null;
+		String uuid = null;
+		byte[] body = null;
+		List<Metric> metrics = new ArrayList<Metric>();
+
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+				case PAYLOAD_TIMESTAMP:
+					timestamp = new Date(input.readUInt64());
+					break;
+				case PAYLOAD_METRICS:
+					int length = input.readRawVarint32();
+					int offset = input.getTotalBytesRead();
+					input.skipRawBytes(length);
+					metrics.add(decodeMetric(bytes, offset, length, metricDataTypeMap, null));
+					break;
+				case PAYLOAD_SEQ:
+					seq = input.readUInt64();
+					break;
+				case PAYLOAD_UUID:
+					uuid = input.readString();
+					break;
+				case PAYLOAD_BODY:
+					body = input.readByteArray();
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+
+		return new SparkplugBPayload(timestamp, metrics, seq, uuid, body);
+	}
+
+	/**
+	 * Reads only the top level timestamp and sequence number of the supplied payload bytes. The metrics are skipped
+	 * without being decoded which makes this suitable for ordering decisions ahead of a full decode.
+	 *
+	 * @param bytes the bytes representing the payload
+	 * @return the {@link PayloadHeader} of the payload
+	 * @throws IOException if the payload can not be parsed
+	 */
+	public static PayloadHeader peekHeader(byte[] bytes) throws IOException {
+		CodedInputStream input = CodedInputStream.newInstance(bytes);
+		Date timestamp = null;
+		Long seq = null;
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+				case PAYLOAD_TIMESTAMP:
+					timestamp = new Date(input.readUInt64());
+					break;
+				case PAYLOAD_SEQ:
+					seq = input.readUInt64();
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+		return new PayloadHeader(timestamp, seq);
+	}
+
+	/**
+	 * Walks the supplied payload bytes and pushes each {@link Metric} to the {@link PayloadVisitor} without building
+	 * any {@link Metric} or {@link SparkplugBPayload} instances. Numeric, {@link Date} and boolean values are delivered
+	 * as primitives. {@link PropertySet}s are skipped.
+	 *
+	 * @param bytes the bytes representing the payload
+	 * @param metricDataTypeMap the {@link MetricDataTypeMap} to be used in decoding
+	 * @param visitor the {@link PayloadVisitor} to notify
+	 * @throws Exception if the payload can not be decoded
+	 */
+	public void visit(byte[] bytes, MetricDataTypeMap metricDataTypeMap, PayloadVisitor visitor) throws Exception {
+		// The payload timestamp and seq follow the metrics on the wire so they are located first
+		PayloadHeader header = peekHeader(bytes);
+		visitor.onPayloadStart(header.getTimestamp() != null ? header.getTimestamp().getTime() : -1,
+				header.getSeq() != null ? header.getSeq() : -1);
+
+		MetricFields fields = new MetricFields();
+		CodedInputStream input = CodedInputStream.newInstance(bytes);
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			if (WireFormat.getTagFieldNumber(tag) == PAYLOAD_METRICS) {
+				int length = input.readRawVarint32();
+				int offset = input.getTotalBytesRead();
+				input.skipRawBytes(length);
+				visitMetric(bytes, offset, length, metricDataTypeMap, fields, visitor);
+			} else {
+				input.skipField(tag);
+			}
+		}
+		visitor.onPayloadComplete();
+	}
+
+	private void visitMetric(byte[] bytes, int offset, int length, MetricDataTypeMap metricDataTypeMap,
+			MetricFields fields, PayloadVisitor visitor) throws Exception {
+		scanMetric(bytes, offset, length, fields, false);
+		MetricDataType dataType = resolveDataType(fields, metricDataTypeMap, null);
+		if (dataType == null) {
+			return;
+		}
+
+		long alias = fields.alias != null ? fields.alias : -1;
+		long timestamp = fields.hasTimestamp ? fields.timestamp : -1;
+		if (fields.isNull) {
+			visitor.onNullMetric(alias, fields.name, dataType, timestamp);
+			return;
+		}
+
+		switch (dataType) {
+			case Boolean:
+				visitor.onMetric(alias, fields.name, dataType, timestamp, fields.value(METRIC_BOOLEAN_VALUE) != 0);
+				break;
+			case Float:
+				visitor.onMetric(alias, fields.name, dataType, timestamp,
+						(double) Float.intBitsToFloat((int) fields.value(METRIC_FLOAT_VALUE)));
+				break;
+			case Double:
+				visitor.onMetric(alias, fields.name, dataType, timestamp,
+						Double.longBitsToDouble(fields.value(METRIC_DOUBLE_VALUE)));
+				break;
+			case Int8:
+				visitor.onMetric(alias, fields.name, dataType, timestamp, (byte) fields.value(METRIC_INT_VALUE));
+				break;
+			case Int16:
+			case UInt8:
+				visitor.onMetric(alias, fields.name, dataType, timestamp, (short) fields.value(METRIC_INT_VALUE));
+				break;
+			case Int32:
+			case UInt16:
+				visitor.onMetric(alias, fields.name, dataType, timestamp, (int) fields.value(METRIC_INT_VALUE));
+				break;
+			case UInt32:
+				visitor.onMetric(alias, fields.name, dataType, timestamp,
+						fields.valueField == METRIC_INT_VALUE ? Integer.toUnsignedLong((int) fields.rawValue)
+								: fields.value(METRIC_LONG_VALUE));
+				break;
+			case Int64:
+			case UInt64:
+			case DateTime:
+				visitor.onMetric(alias, fields.name, dataType, timestamp, fields.value(METRIC_LONG_VALUE));
+				break;
+			default:
+				visitor.onMetric(alias, fields.name, dataType, timestamp,
+						decodeValue(bytes, fields, dataType, metricDataTypeMap, null));
+		}
+	}
+
+	/**
+	 * Decodes a single Metric message occupying the given slice of the array.
+	 */
+	private Metric decodeMetric(byte[] bytes, int offset, int length, MetricDataTypeMap metricDataTypeMap,
+			String prefix) throws Exception {
+		MetricFields fields = new MetricFields();
+		scanMetric(bytes, offset, length, fields, !lazy);
+		MetricDataType dataType = resolveDataType(fields, metricDataTypeMap, prefix);
+		if (dataType == null) {
+			return null;
+		}
+
+		// Only length delimited values are worth deferring - everything else is already in the scanned fields
+		boolean deferValue = lazy && !fields.isNull && fields.valueLength > 0;
+		boolean primitiveValue = !fields.isNull && isPrimitive(dataType);
+		Object value = null;
+		if (!fields.isNull && !deferValue && !primitiveValue) {
+			logger.trace("For metricName={} and alias={} - handling metric type in decoder: {}", fields.name,
+					fields.alias, dataType);
+			value = decodeValue(bytes, fields, dataType, metricDataTypeMap, prefix);
+		}
+
+		Metric metric;
+		if (deferValue || fields.propertiesLength > 0) {
+			metric = new Metric(fields.name, fields.alias, null, dataType, fields.isHistorical, fields.isTransient,
+					fields.metaData, null, value,
+					new DeferredMetricFields(bytes, fields, dataType, metricDataTypeMap, prefix, deferValue));
+		} else {
+			metric = new Metric(fields.name, fields.alias, null, dataType, fields.isHistorical, fields.isTransient,
+					fields.metaData, fields.properties, value);
+		}
+		if (fields.hasTimestamp) {
+			metric.setTimestampMillis(fields.timestamp);
+		}
+		if (primitiveValue) {
+			setPrimitiveValue(metric, fields, dataType);
+		}
+		return metric;
+	}
+
+	/**
+	 * Whether or not values of the {@link MetricDataType} are set on the {@link Metric} without boxing
+	 */
+	private static boolean isPrimitive(MetricDataType dataType) {
+		switch (dataType) {
+			case Boolean:
+			case Float:
+			case Double:
+			case Int8:
+			case Int16:
+			case Int32:
+			case Int64:
+			case UInt8:
+			case UInt16:
+			case UInt32:
+			case DateTime:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void setPrimitiveValue(Metric metric, MetricFields fields, MetricDataType dataType)
+			throws SparkplugInvalidTypeException {
+		switch (dataType) {
+			case Boolean:
+				metric.setBooleanValue(fields.value(METRIC_BOOLEAN_VALUE) != 0);
+				break;
+			case Float:
+				metric.setDoubleValue(Float.intBitsToFloat((int) fields.value(METRIC_FLOAT_VALUE)));
+				break;
+			case Double:
+				metric.setDoubleValue(Double.longBitsToDouble(fields.value(METRIC_DOUBLE_VALUE)));
+				break;
+			case Int8:
+				metric.setLongValue((byte) fields.value(METRIC_INT_VALUE));
+				break;
+			case Int16:
+			case UInt8:
+				metric.setLongValue((short) fields.value(METRIC_INT_VALUE));
+				break;
+			case Int32:
+			case UInt16:
+				metric.setLongValue((int) fields.value(METRIC_INT_VALUE));
+				break;
+			case UInt32:
+				metric.setLongValue(uInt32Value(fields));
+				break;
+			default:
+				// Int64 and DateTime
+				metric.setLongValue(fields.value(METRIC_LONG_VALUE));
+		}
+	}
+
+	private long uInt32Value(MetricFields fields) {
+		if (fields.valueField == METRIC_INT_VALUE) {
+			return Integer.toUnsignedLong((int) fields.rawValue);
+		} else {
+			if (fields.valueField != METRIC_LONG_VALUE) {
+				logger.error("Invalid value for UInt32 datatype");
+			}
+			return fields.value(METRIC_LONG_VALUE);
+		}
+	}
+
+	/**
+	 * Reads the fields of a single Metric message occupying the given slice of the array into the supplied
+	 * {@link MetricFields}. Length delimited values are only located, not decoded.
+	 */
+	private void scanMetric(byte[] bytes, int offset, int length, MetricFields fields, boolean decodeProperties)
+			throws Exception {
+		fields.reset();
+		CodedInputStream input = CodedInputStream.newInstance(bytes, offset, length);
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			int field = WireFormat.getTagFieldNumber(tag);
+			switch (field) {
+				case METRIC_NAME:
+					fields.name = input.readString();
+					break;
+				case METRIC_ALIAS:
+					fields.alias = input.readUInt64();
+					break;
+				case METRIC_TIMESTAMP:
+					fields.hasTimestamp = true;
+					fields.timestamp = input.readUInt64();
+					break;
+				case METRIC_DATATYPE:
+					fields.protoDataType = input.readUInt32();
+					break;
+				case METRIC_IS_HISTORICAL:
+					fields.isHistorical = input.readBool();
+					break;
+				case METRIC_IS_TRANSIENT:
+					fields.isTransient = input.readBool();
+					break;
+				case METRIC_IS_NULL:
+					fields.isNull = input.readBool();
+					break;
+				case METRIC_METADATA:
+					fields.metaData = decodeMetaData(input);
+					break;
+				case METRIC_PROPERTIES:
+					if (decodeProperties) {
+						fields.properties = new PropertySetBuilder(decodePropertySet(input)).createPropertySet();
+					} else {
+						// Located including the length prefix so it can be decoded later with decodePropertySet
+						fields.propertiesOffset = offset + input.getTotalBytesRead();
+						input.skipField(tag);
+						fields.propertiesLength = offset + input.getTotalBytesRead() - fields.propertiesOffset;
+					}
+					break;
+				case METRIC_INT_VALUE:
+					fields.valueField = field;
+					fields.rawValue = input.readUInt32();
+					break;
+				case METRIC_LONG_VALUE:
+					fields.valueField = field;
+					fields.rawValue = input.readUInt64();
+					break;
+				case METRIC_FLOAT_VALUE:
+					fields.valueField = field;
+					fields.rawValue = input.readRawLittleEndian32();
+					break;
+				case METRIC_DOUBLE_VALUE:
+					fields.valueField = field;
+					fields.rawValue = input.readRawLittleEndian64();
+					break;
+				case METRIC_BOOLEAN_VALUE:
+					fields.valueField = field;
+					fields.rawValue = input.readBool() ? 1 : 0;
+					break;
+				case METRIC_STRING_VALUE:
+					fields.valueField = field;
+					fields.stringValue = input.readString();
+					break;
+				case METRIC_BYTES_VALUE:
+				case METRIC_DATASET_VALUE:
+				case METRIC_TEMPLATE_VALUE:
+					fields.valueField = field;
+					fields.valueLength = input.readRawVarint32();
+					fields.valueOffset = offset + input.getTotalBytesRead();
+					input.skipRawBytes(fields.valueLength);
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+	}
+
+	/**
+	 * Resolves the {@link MetricDataType} of a scanned metric, falling back to the {@link MetricDataTypeMap} when the
+	 * datatype was stripped from the payload. Returns null if it can not be resolved.
+	 */
+	private MetricDataType resolveDataType(MetricFields fields, MetricDataTypeMap metricDataTypeMap, String prefix) {
+		MetricDataType dataType = MetricDataType.fromInteger(fields.protoDataType);
+		if (dataType == MetricDataType.Unknown) {
+			if (metricDataTypeMap != null && !metricDataTypeMap.isEmpty()) {
+				if (fields.name != null) {
+					dataType = metricDataTypeMap
+							.getMetricDataType(prefix != null ? prefix + fields.name : fields.name);
+				} else if (fields.alias != null) {
+					dataType = metricDataTypeMap.getMetricDataType(fields.alias);
+				} else {
+					logger.error("Failed to decode the payload on metric with no name or alias");
+					return null;
+				}
+				if (dataType == null) {
+					logger.error("Failed to decode the payload - no datatype found for metric name={} alias={}",
+							fields.name, fields.alias);
+				}
+			} else {
+				logger.error("Failed to decode the payload on metric datatype: name={} alias={}", fields.name,
+						fields.alias);
+				return null;
+			}
+		}
+		return dataType;
+	}
+
+	private Object decodeValue(byte[] bytes, MetricFields fields, MetricDataType dataType,
+			MetricDataTypeMap metricDataTypeMap, String prefix) throws Exception {
+		// Length delimited values not present on the wire decode from an empty slice like protobuf defaults
+		int bytesLength = fields.valueField == METRIC_BYTES_VALUE ? fields.valueLength : 0;
+		int dataSetLength = fields.valueField == METRIC_DATASET_VALUE ? fields.valueLength : 0;
+		int templateLength = fields.valueField == METRIC_TEMPLATE_VALUE ? fields.valueLength : 0;
+		switch (dataType) {
+			case Boolean:
+				return fields.value(METRIC_BOOLEAN_VALUE) != 0;
+			case DateTime:
+				return new Date(fields.value(METRIC_LONG_VALUE));
+			case File:
+				String fileName = fields.metaData != null ? fields.metaData.getFileName() : "";
+				return new File(fileName, copyOf(bytes, fields.valueOffset, bytesLength));
+			case Float:
+				return Float.intBitsToFloat((int) fields.value(METRIC_FLOAT_VALUE));
+			case Double:
+				return Double.longBitsToDouble(fields.value(METRIC_DOUBLE_VALUE));
+			case Int8:
+				return (byte) fields.value(METRIC_INT_VALUE);
+			case Int16:
+			case UInt8:
+				return (short) fields.value(METRIC_INT_VALUE);
+			case Int32:
+			case UInt16:
+				return (int) fields.value(METRIC_INT_VALUE);
+			case UInt32:
+				return uInt32Value(fields);
+			case Int64:
+				return fields.value(METRIC_LONG_VALUE);
+			case UInt64:
+				return new BigInteger(Long.toUnsignedString(fields.value(METRIC_LONG_VALUE)));
+			case String:
+			case Text:
+			case UUID:
+				return fields.valueField == METRIC_STRING_VALUE ? fields.stringValue : "";
+			case Bytes:
+				return copyOf(bytes, fields.valueOffset, bytesLength);
+			case DataSet:
+				return decodeDataSet(bytes, fields.valueOffset, dataSetLength);
+			case Template:
+				String name = fields.name != null ? fields.name : "";
+				return decodeTemplate(bytes, fields.valueOffset, templateLength, metricDataTypeMap,
+						prefix != null ? prefix + name + "/" : name + "/");
+			case Unknown:
+				throw new Exception("Failed to decode: Unknown MetricDataType " + fields.protoDataType);
+			default:
+				return SparkplugBArrayCodec.decodeArray(dataType, bytes, fields.valueOffset, bytesLength);
+		}
+	}
+
+	private MetaData decodeMetaData(CodedInputStream input) throws IOException {
+		// Absent fields default to the protobuf defaults to match the SparkplugBPayloadDecoder
+		boolean isMultiPart = false;
+		String contentType = "";
+		long size = 0;
+		long seq = 0;
+		String fileName = "";
+		String fileType = "";
+		String md5 = "";
+		String description = "";
+
+		int limit = input.pushLimit(input.readRawVarint32());
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+				case 1:
+					isMultiPart = input.readBool();
+					break;
+				case 2:
+					contentType = input.readString();
+					break;
+				case 3:
+					size = input.readUInt64();
+					break;
+				case 4:
+					seq = input.readUInt64();
+					break;
+				case 5:
+					fileName = input.readString();
+					break;
+				case 6:
+					fileType = input.readString();
+					break;
+				case 7:
+					md5 = input.readString();
+					break;
+				case 8:
+					description = input.readString();
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+		input.popLimit(limit);
+		return new MetaData(isMultiPart, contentType, size, seq, fileName, fileType, md5, description);
+	}
+
+	private Map<String, PropertyValue> decodePropertySet(CodedInputStream input) throws Exception {
+		List<String> keys = new ArrayList<String>();
+		List<PropertyValue> values = new ArrayList<PropertyValue>();
+
+		int limit = input.pushLimit(input.readRawVarint32());
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+				case 1:
+					keys.add(input.readString());
+					break;
+				case 2:
+					values.add(decodePropertyValue(input));
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+		input.popLimit(limit);
+
+		Map<String, PropertyValue> map = new CompactPropertyMap(keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			map.put(keys.get(i), values.get(i));
+		}
+		return map;
+	}
+
+	private PropertyValue decodePropertyValue(CodedInputStream input) throws Exception {
+		int protoType = 0;
+		boolean isNull = false;
+		int valueField = 0;
+		long rawValue = 0;
+		String stringValue = null;
+		PropertySet propertySet = null;
+		List<PropertySet> propertySetList = null;
+
+		int limit = input.pushLimit(input.readRawVarint32());
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			int field = WireFormat.getTagFieldNumber(tag);
+			switch (field) {
+				case 1:
+					protoType = input.readUInt32();
+					break;
+				case 2:
+					isNull = input.readBool();
+					break;
+				case 3:
+					valueField = field;
+					rawValue = input.readUInt32();
+					break;
+				case 4:
+					valueField = field;
+					rawValue = input.readUInt64();
+					break;
+				case 5:
+					valueField = field;
+					rawValue = input.readRawLittleEndian32();
+					break;
+				case 6:
+					valueField = field;
+					rawValue = input.readRawLittleEndian64();
+					break;
+				case 7:
+					valueField = field;
+					rawValue = input.readBool() ? 1 : 0;
+					break;
+				case 8:
+					valueField = field;
+					stringValue = input.readString();
+					break;
+				case 9:
+					valueField = field;
+					propertySet = new PropertySetBuilder(decodePropertySet(input)).createPropertySet();
+					break;
+				case 10:
+					valueField = field;
+					propertySetList = decodePropertySetList(input);
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+		input.popLimit(limit);
+
+		PropertyDataType type = PropertyDataType.fromInteger(protoType);
+		if (isNull) {
+			return new PropertyValue(type, null);
+		}
+		Object value;
+		switch (type) {
+			case Boolean:
+				value = value(valueField, 7, rawValue) != 0;
+				break;
+			case DateTime:
+				value = new Date(value(valueField, 4, rawValue));
+				break;
+			case Float:
+				value = Float.intBitsToFloat((int) value(valueField, 5, rawValue));
+				break;
+			case Double:
+				value = Double.longBitsToDouble(value(valueField, 6, rawValue));
+				break;
+			case Int8:
+				value = (byte) value(valueField, 3, rawValue);
+				break;
+			case Int16:
+			case UInt8:
+				value = (short) value(valueField, 3, rawValue);
+				break;
+			case Int32:
+			case UInt16:
+				value = (int) value(valueField, 3, rawValue);
+				break;
+			case UInt32:
+				if (valueField == 3) {
+					value = Integer.toUnsignedLong((int) rawValue);
+				} else {
+					if (valueField != 4) {
+						logger.error("Invalid value for UInt32 datatype");
+					}
+					value = value(valueField, 4, rawValue);
+				}
+				break;
+			case Int64:
+				value = value(valueField, 4, rawValue);
+				break;
+			case UInt64:
+				value = new BigInteger(Long.toUnsignedString(value(valueField, 4, rawValue)));
+				break;
+			case String:
+			case Text:
+				value = valueField == 8 ? stringValue : "";
+				break;
+			case PropertySet:
+				value = propertySet != null ? propertySet : new PropertySetBuilder().createPropertySet();
+				break;
+			case PropertySetList:
+				value = propertySetList != null ? propertySetList : new ArrayList<PropertySet>();
+				break;
+			case Unknown:
+			default:
+				throw new Exception("Failed to decode: Unknown PropertyDataType " + type);
+		}
+		return new PropertyValue(type, value);
+	}
+
+	private List<PropertySet> decodePropertySetList(CodedInputStream input) throws Exception {
+		List<PropertySet> propertySetList = new ArrayList<PropertySet>();
+		int limit = input.pushLimit(input.readRawVarint32());
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			if (WireFormat.getTagFieldNumber(tag) == 1) {
+				propertySetList.add(new PropertySetBuilder(decodePropertySet(input)).createPropertySet());
+			} else {
+				input.skipField(tag);
+			}
+		}
+		input.popLimit(limit);
+		return propertySetList;
+	}
+
+	private DataSet decodeDataSet(byte[] bytes, int offset, int length) throws Exception {
+		CodedInputStream input = CodedInputStream.newInstance(bytes, offset, length);
+		long numOfColumns = 0;
+		List<String> columnNames = new ArrayList<String>();
+		List<DataSetDataType> types = new ArrayList<DataSetDataType>();
+
+		// Rows are located in the first pass and decoded once all of the column types are known
+		int[] rowOffsets = new int[16];
+		int[] rowLengths = new int[16];
+		int numOfRows = 0;
+
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+				case 1:
+					numOfColumns = input.readUInt64();
+					break;
+				case 2:
+					columnNames.add(input.readString());
+					break;
+				case 3:
+					if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+						int limit = input.pushLimit(input.readRawVarint32());
+						while (input.getBytesUntilLimit() > 0) {
+							types.add(DataSetDataType.fromInteger(input.readUInt32()));
+						}
+						input.popLimit(limit);
+					} else {
+						types.add(DataSetDataType.fromInteger(input.readUInt32()));
+					}
+					break;
+				case 4:
+					if (numOfRows == rowOffsets.length) {
+						rowOffsets = Arrays.copyOf(rowOffsets, numOfRows * 2);
+						rowLengths = Arrays.copyOf(rowLengths, numOfRows * 2);
+					}
+					rowLengths[numOfRows] = input.readRawVarint32();
+					rowOffsets[numOfRows] = offset + input.getTotalBytesRead();
+					input.skipRawBytes(rowLengths[numOfRows]);
+					numOfRows++;
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+
+		if (columnNames.size() != numOfColumns) {
+			throw new SparkplugException("Invalid number of columns in data set column names: " + columnNames.size()
+					+ " vs expected " + numOfColumns);
+		}
+		if (types.size() != numOfColumns) {
+			throw new SparkplugException(
+					"Invalid number of columns in data set types: " + types.size() + " vs expected: " + numOfColumns);
+		}
+
+		DataSetValueFields fields = new DataSetValueFields();
+		if (!types.contains(DataSetDataType.Unknown)) {
+			// Decode straight in to primitive columns
+			ColumnarDataSet dataSet = new ColumnarDataSet(columnNames, types, numOfRows);
+			for (int i = 0; i < numOfRows; i++) {
+				decodeDataSetRow(bytes, rowOffsets[i], rowLengths[i], dataSet, fields);
+			}
+			return dataSet;
+		}
+
+		List<Row> rows = new ArrayList<Row>(numOfRows);
+		for (int i = 0; i < numOfRows; i++) {
+			Row row = decodeDataSetRow(bytes, rowOffsets[i], rowLengths[i], types, fields);
+			if (row.getValues().size() != numOfColumns) {
+				throw new SparkplugException("Invalid number of columns in data set row: " + row.getValues().size()
+						+ " vs expected: " + numOfColumns);
+			}
+			rows.add(row);
+		}
+		return new DataSet(numOfColumns, columnNames, types, rows);
+	}
+
+	private void decodeDataSetRow(byte[] bytes, int offset, int length, ColumnarDataSet dataSet,
+			DataSetValueFields fields) throws Exception {
+		CodedInputStream input = CodedInputStream.newInstance(bytes, offset, length);
+		int numOfColumns = (int) dataSet.getNumOfColumns();
+		int column = 0;
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			if (WireFormat.getTagFieldNumber(tag) == 1) {
+				if (column >= numOfColumns) {
+					throw new SparkplugException("Invalid number of columns in data set row: " + (column + 1)
+							+ " vs expected: " + numOfColumns);
+				}
+				readDataSetValue(input, fields);
+				appendDataSetValue(dataSet, dataSet.getColumnType(column++), fields);
+			} else {
+				input.skipField(tag);
+			}
+		}
+		if (column != numOfColumns) {
+			throw new SparkplugException(
+					"Invalid number of columns in data set row: " + column + " vs expected: " + numOfColumns);
+		}
+	}
+
+	private Row decodeDataSetRow(byte[] bytes, int offset, int length, List<DataSetDataType> types,
+			DataSetValueFields fields) throws Exception {
+		CodedInputStream input = CodedInputStream.newInstance(bytes, offset, length);
+		List<Value<?>> values = new ArrayList<Value<?>>(types.size());
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			if (WireFormat.getTagFieldNumber(tag) == 1) {
+				if (values.size() >= types.size()) {
+					throw new SparkplugException("Invalid number of columns in data set row: " + (values.size() + 1)
+							+ " vs expected: " + types.size());
+				}
+				readDataSetValue(input, fields);
+				values.add(decodeDataSetValue(types.get(values.size()), fields));
+			} else {
+				input.skipField(tag);
+			}
+		}
+		return new Row(values);
+	}
+
+	/*
+	 * Reads a DataSetValue message in to the reusable fields holder
+	 */
+	private void readDataSetValue(CodedInputStream input, DataSetValueFields fields) throws IOException {
+		fields.valueField = 0;
+		fields.rawValue = 0;
+		fields.stringValue = null;
+
+		int limit = input.pushLimit(input.readRawVarint32());
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			int field = WireFormat.getTagFieldNumber(tag);
+			switch (field) {
+				case 1:
+					fields.valueField = field;
+					fields.rawValue = input.readUInt32();
+					break;
+				case 2:
+					fields.valueField = field;
+					fields.rawValue = input.readUInt64();
+					break;
+				case 3:
+					fields.valueField = field;
+					fields.rawValue = input.readRawLittleEndian32();
+					break;
+				case 4:
+					fields.valueField = field;
+					fields.rawValue = input.readRawLittleEndian64();
+					break;
+				case 5:
+					fields.valueField = field;
+					fields.rawValue = input.readBool() ? 1 : 0;
+					break;
+				case 6:
+					fields.valueField = field;
+					fields.stringValue = input.readString();
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+		input.popLimit(limit);
+	}
+
+	/*
+	 * Appends a DataSetValue to a ColumnarDataSet applying the same null handling as decodeDataSetValue
+	 */
+	private void appendDataSetValue(ColumnarDataSet dataSet, DataSetDataType type, DataSetValueFields fields) {
+		int valueField = fields.valueField;
+		long rawValue = fields.rawValue;
+		switch (type) {
+			case Boolean:
+				if (valueField == 5) {
+					dataSet.appendBoolean(rawValue != 0);
+					return;
+				}
+				break;
+			case DateTime:
+				if (valueField == 2 && rawValue != Long.MIN_VALUE) {
+					dataSet.appendLong(rawValue);
+					return;
+				}
+				break;
+			case Float:
+				if (valueField == 3) {
+					dataSet.appendFloat(Float.intBitsToFloat((int) rawValue));
+					return;
+				}
+				break;
+			case Double:
+				if (valueField == 4) {
+					dataSet.appendDouble(Double.longBitsToDouble(rawValue));
+					return;
+				}
+				break;
+			case Int8:
+				if (valueField == 1) {
+					dataSet.appendInt((byte) rawValue);
+					return;
+				}
+				break;
+			case UInt8:
+			case Int16:
+				if (valueField == 1) {
+					dataSet.appendInt((short) rawValue);
+					return;
+				}
+				break;
+			case UInt16:
+			case Int32:
+				if (valueField == 1) {
+					dataSet.appendInt((int) rawValue);
+					return;
+				}
+				break;
+			case UInt32:
+				if (valueField == 1) {
+					dataSet.appendLong(Integer.toUnsignedLong((int) rawValue));
+					return;
+				} else if (valueField == 2) {
+					dataSet.appendLong(rawValue);
+					return;
+				}
+				break;
+			case Int64:
+			case UInt64:
+				if (valueField == 2) {
+					dataSet.appendLong(rawValue);
+					return;
+				}
+				break;
+			default:
+				// String and Text
+				if (valueField == 6 && !"null".equals(fields.stringValue)) {
+					dataSet.appendString(fields.stringValue);
+					return;
+				}
+		}
+		dataSet.appendNull();
+	}
+
+	private Value<?> decodeDataSetValue(DataSetDataType type, DataSetValueFields fields) throws Exception {
+		int valueField = fields.valueField;
+		long rawValue = fields.rawValue;
+		String stringValue = fields.stringValue;
+
+		switch (type) {
+			case Boolean:
+				return new Value<Boolean>(type, valueField == 5 ? rawValue != 0 : null);
+			case DateTime:
+				return new Value<Date>(type,
+						valueField == 2 && rawValue != Long.MIN_VALUE ? new Date(rawValue) : null);
+			case Float:
+				return new Value<Float>(type, valueField == 3 ? Float.intBitsToFloat((int) rawValue) : null);
+			case Double:
+				return new Value<Double>(type, valueField == 4 ? Double.longBitsToDouble(rawValue) : null);
+			case Int8:
+				return new Value<Byte>(type, valueField == 1 ? (byte) rawValue : null);
+			case UInt8:
+			case Int16:
+				return new Value<Short>(type, valueField == 1 ? (short) rawValue : null);
+			case UInt16:
+			case Int32:
+				return new Value<Integer>(type, valueField == 1 ? (int) rawValue : null);
+			case UInt32:
+				if (valueField == 1) {
+					return new Value<Long>(type, Integer.toUnsignedLong((int) rawValue));
+				} else if (valueField == 2) {
+					return new Value<Long>(type, rawValue);
+				} else {
+					return new Value<Long>(type, null);
+				}
+			case Int64:
+				return new Value<Long>(type, valueField == 2 ? rawValue : null);
+			case UInt64:
+				return new Value<BigInteger>(type,
+						valueField == 2 ? new BigInteger(Long.toUnsignedString(rawValue)) : null);
+			case String:
+			case Text:
+				return new Value<String>(type,
+						valueField == 6 && !"null".equals(stringValue) ? stringValue : null);
+			case Unknown:
+			default:
+				logger.error("Unknown DataSetDataType: " + type);
+				throw new Exception("Failed to decode");
+		}
+	}
+
+	private Template decodeTemplate(byte[] bytes, int offset, int length, MetricDataTypeMap metricDataTypeMap,
+			String prefix) throws Exception {
+		CodedInputStream input = CodedInputStream.newInstance(bytes, offset, length);
+		String version = "";
+		String templateRef = "";
+		boolean isDefinition = false;
+		List<Metric> metrics = new ArrayList<Metric>();
+		List<Parameter> parameters = new ArrayList<Parameter>();
+
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+				case 1:
+					version = input.readString();
+					break;
+				case 2:
+					int metricLength = input.readRawVarint32();
+					int metricOffset = offset + input.getTotalBytesRead();
+					input.skipRawBytes(metricLength);
+					metrics.add(decodeMetric(bytes, metricOffset, metricLength, metricDataTypeMap, prefix));
+					break;
+				case 3:
+					parameters.add(decodeParameter(input));
+					break;
+				case 4:
+					templateRef = input.readString();
+					break;
+				case 5:
+					isDefinition = input.readBool();
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+		return new Template(version, templateRef, isDefinition, metrics, parameters);
+	}
+
+	private Parameter decodeParameter(CodedInputStream input) throws Exception {
+		String name = "";
+		int protoType = 0;
+		int valueField = 0;
+		long rawValue = 0;
+		String stringValue = null;
+
+		int limit = input.pushLimit(input.readRawVarint32());
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			int field = WireFormat.getTagFieldNumber(tag);
+			switch (field) {
+				case 1:
+					name = input.readString();
+					break;
+				case 2:
+					protoType = input.readUInt32();
+					break;
+				case 3:
+					valueField = field;
+					rawValue = input.readUInt32();
+					break;
+				case 4:
+					valueField = field;
+					rawValue = input.readUInt64();
+					break;
+				case 5:
+					valueField = field;
+					rawValue = input.readRawLittleEndian32();
+					break;
+				case 6:
+					valueField = field;
+					rawValue = input.readRawLittleEndian64();
+					break;
+				case 7:
+					valueField = field;
+					rawValue = input.readBool() ? 1 : 0;
+					break;
+				case 8:
+					valueField = field;
+					stringValue = input.readString();
+					break;
+				default:
+					input.skipField(tag);
+			}
+		}
+		input.popLimit(limit);
+
+		Object value;
+		switch (MetricDataType.fromInteger(protoType)) {
+			case Boolean:
+				value = value(valueField, 7, rawValue) != 0;
+				break;
+			case DateTime:
+				value = new Date(value(valueField, 4, rawValue));
+				break;
+			case Float:
+				value = Float.intBitsToFloat((int) value(valueField, 5, rawValue));
+				break;
+			case Double:
+				value = Double.longBitsToDouble(value(valueField, 6, rawValue));
+				break;
+			case Int8:
+				value = (byte) value(valueField, 3, rawValue);
+				break;
+			case Int16:
+			case UInt8:
+				value = (short) value(valueField, 3, rawValue);
+				break;
+			case Int32:
+			case UInt16:
+				value = (int) value(valueField, 3, rawValue);
+				break;
+			case UInt32:
+				if (valueField == 3) {
+					value = Integer.toUnsignedLong((int) rawValue);
+				} else {
+					if (valueField != 4) {
+						logger.error("Invalid value for UInt32 datatype");
+					}
+					value = value(valueField, 4, rawValue);
+				}
+				break;
+			case Int64:
+				value = value(valueField, 4, rawValue);
+				break;
+			case UInt64:
+				value = new BigInteger(Long.toUnsignedString(value(valueField, 4, rawValue)));
+				break;
+			case String:
+			case Text:
+				value = valueField == 8 ? stringValue : "";
+				break;
+			case Unknown:
+			default:
+				throw new Exception("Failed to decode: Unknown Parameter Type " + protoType);
+		}
+		return new Parameter(name, ParameterDataType.fromInteger(protoType), value);
+	}
+
+	/**
+	 * The fields of a single Metric message. The value is only captured here and converted once the datatype is known
+	 * since protobuf does not guarantee the field order on the wire.
+	 */
+	private static final class MetricFields {
+		private String name;
+		private Long alias;
+		private boolean hasTimestamp;
+		private long timestamp;
+		private int protoDataType;
+		private Boolean isHistorical;
+		private Boolean isTransient;
+		private boolean isNull;
+		private MetaData metaData;
+		private PropertySet properties;
+		private int valueField;
+		private long rawValue;
+		private String stringValue;
+		private int valueOffset;
+		private int valueLength;
+		private int propertiesOffset;
+		private int propertiesLength;
+
+		private void reset() {
+			name = null;
+			alias = null;
+			hasTimestamp = false;
+			timestamp = 0;
+			protoDataType = 0;
+			isHistorical = null;
+			isTransient = null;
+			isNull = false;
+			metaData = null;
+			properties = null;
+			valueField = 0;
+			rawValue = 0;
+			stringValue = null;
+			valueOffset = 0;
+			valueLength = 0;
+			propertiesOffset = 0;
+			propertiesLength = 0;
+		}
+
+		private long value(int expectedField) {
+			return SparkplugBStreamingPayloadDecoder.value(valueField, expectedField, rawValue);
+		}
+	}
+
+	/**
+	 * Decodes the deferred value and {@link PropertySet} of a {@link Metric} from the retained payload bytes. The
+	 * {@link Metric} drops its reference once both have been decoded which releases the payload bytes.
+	 */
+	private final class DeferredMetricFields implements Metric.DeferredFields {
+		private final MetricFields fields;
+		private final MetricDataType dataType;
+		private final MetricDataTypeMap metricDataTypeMap;
+		private final String prefix;
+		private final boolean valueDeferred;
+		private final byte[] bytes;
+
+		private DeferredMetricFields(byte[] bytes, MetricFields fields, MetricDataType dataType,
+				MetricDataTypeMap metricDataTypeMap, String prefix, boolean valueDeferred) {
+			this.bytes = bytes;
+			this.fields = fields;
+			this.dataType = dataType;
+			this.metricDataTypeMap = metricDataTypeMap;
+			this.prefix = prefix;
+			this.valueDeferred = valueDeferred;
+		}
+
+		@Override
+		public boolean isValueDeferred() {
+			return valueDeferred;
+		}
+
+		@Override
+		public boolean isPropertiesDeferred() {
+			return fields.propertiesLength > 0;
+		}
+
+		@Override
+		public Object decodeValue() throws Exception {
+			logger.trace("For metricName={} and alias={} - handling deferred metric type in decoder: {}", fields.name,
+					fields.alias, dataType);
+			return SparkplugBStreamingPayloadDecoder.this.decodeValue(bytes, fields, dataType, metricDataTypeMap,
+					prefix);
+		}
+
+		@Override
+		public PropertySet decodeProperties() throws Exception {
+			CodedInputStream input =
+					CodedInputStream.newInstance(bytes, fields.propertiesOffset, fields.propertiesLength);
+			return new PropertySetBuilder(decodePropertySet(input)).createPropertySet();
+		}
+	}
+
+	/**
+	 * The value of a single DataSetValue message. One instance is reused for every value of a DataSet.
+	 */
+	private static final class DataSetValueFields {
+		private int valueField;
+		private long rawValue;
+		private String stringValue;
+	}
+
+	/**
+	 * Returns the raw value if it was read from the expected oneof field, otherwise the protobuf default of zero
+	 */
+	private static long value(int valueField, int expectedField, long rawValue) {
+		return valueField == expectedField ? rawValue : 0L;
+	}
+
+	private static byte[] copyOf(byte[] bytes, int offset, int length) {
+		byte[] copy = new byte[length];
+		System.arraycopy(bytes, offset, copy, 0, length);
+		return copy;
+	}
+}
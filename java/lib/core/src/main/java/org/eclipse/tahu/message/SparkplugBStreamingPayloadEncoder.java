@@ -0,0 +1,1197 @@
+/********************************************************************************
+ * Copyright (c) 2014-2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message;
+
+import static org.eclipse.tahu.message.SparkplugBArrayCodec.bigIntegerToUnsignedLong;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tahu.message.model.ColumnarDataSet;
+import org.eclipse.tahu.message.model.CompactPropertyMap;
+import org.eclipse.tahu.message.model.DataSet;
+import org.eclipse.tahu.message.model.DataSetDataType;
+import org.eclipse.tahu.message.model.File;
+import org.eclipse.tahu.message.model.MetaData;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.Parameter;
+import org.eclipse.tahu.message.model.ParameterDataType;
+import org.eclipse.tahu.message.model.PropertyDataType;
+import org.eclipse.tahu.message.model.PropertySet;
+import org.eclipse.tahu.message.model.PropertyValue;
+import org.eclipse.tahu.message.model.Row;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.Template;
+import org.eclipse.tahu.message.model.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * A {@link PayloadEncoder} implementation for encoding Sparkplug B payloads that writes the protobuf wire format
+ * directly through a {@link CodedOutputStream} rather than building a {@link org.eclipse.tahu.protobuf.SparkplugBProto}
+ * message tree. The output is byte for byte identical to the {@link SparkplugBPayloadEncoder}.
+ *
+ * Encoding is done in two passes. The first computes the length of every nested message once, in the order they will
+ * be written, into a thread local pooled array. The second writes the payload into a buffer of exactly that size or
+ * into a caller supplied {@link ByteBuffer} or byte array. Instances are stateless and may be shared between threads.
+ */
+public class SparkplugBStreamingPayloadEncoder implements PayloadEncoder<SparkplugBPayload> {
+
+	private static final Logger logger = LoggerFactory.getLogger(SparkplugBStreamingPayloadEncoder.class.getName());
+
+	private static final ThreadLocal<Sizes> SIZES = ThreadLocal.withInitial(Sizes::new);
+
+	// The most sizes a thread keeps pooled between payloads - larger arrays are dropped once the payload is encoded
+	private static final int MAX_POOLED_SIZES = 4096;
+
+	/**
+	 * Default Constructor
+	 */
+	public SparkplugBStreamingPayloadEncoder() {
+		super();
+	}
+
+	@Override
+	public byte[] getBytes(SparkplugBPayload payload, boolean stripDataTypes) throws IOException {
+		Sizes sizes = SIZES.get();
+		try {
+			byte[] bytes = new byte[computeSizes(sizes, payload, stripDataTypes)];
+			CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+			write(sizes, output, payload, stripDataTypes);
+			output.checkNoSpaceLeft();
+			return bytes;
+		} finally {
+			sizes.release();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes the encoded payload will occupy
+	 *
+	 * @param payload the {@link SparkplugBPayload} to encode
+	 * @param stripDataTypes whether or not to strip the datatypes from the metrics
+	 * @return the encoded size in bytes
+	 */
+	public int getSerializedSize(SparkplugBPayload payload, boolean stripDataTypes) {
+		Sizes sizes = SIZES.get();
+		try {
+			return computeSizes(sizes, payload, stripDataTypes);
+		} finally {
+			sizes.release();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes each metric adds to the encoded payload, including its field tag and length prefix.
+	 * The encoded size of a payload is the encoded size of the payload without its metrics plus the sum of these.
+	 *
+	 * @param payload the {@link SparkplugBPayload} to size the metrics of
+	 * @param stripDataTypes whether or not to strip the datatypes from the metrics
+	 * @return the encoded size in bytes of each metric, in order, with 0 for a null metric
+	 */
+	public int[] getSerializedMetricSizes(SparkplugBPayload payload, boolean stripDataTypes) {
+		Sizes sizes = SIZES.get();
+		List<Metric> metrics = payload.getMetrics();
+		int[] metricSizes = new int[metrics.size()];
+		try {
+			for (int i = 0; i < metricSizes.length; i++) {
+				Metric metric = metrics.get(i);
+				if (metric == null) {
+					continue;
+				}
+				try {
+					sizes.reset();
+					metricSizes[i] = computeMessageSize(2, sizeOfMetric(sizes, metric, stripDataTypes));
+				} catch (Exception e) {
+					logger.error("Failed to size metric: {}", metric.getName(), e);
+					throw new RuntimeException(e);
+				}
+			}
+		} finally {
+			sizes.release();
+		}
+		return metricSizes;
+	}
+
+	/**
+	 * Encodes a single metric as it appears in an encoded payload, including its field tag and length prefix. An
+	 * encoded payload is its timestamp, then its encoded metrics in order, then its seq, UUID and body.
+	 *
+	 * @param metric the {@link Metric} to encode
+	 * @param stripDataTypes whether or not to strip the datatype from the metric
+	 * @return the encoded metric
+	 * @throws IOException if the metric can not be encoded
+	 */
+	public byte[] getMetricBytes(Metric metric, boolean stripDataTypes) throws IOException {
+		Sizes sizes = SIZES.get();
+		sizes.reset();
+		byte[] bytes;
+		try {
+			bytes = new byte[computeMessageSize(2, sizeOfMetric(sizes, metric, stripDataTypes))];
+			CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+			writeMetric(sizes, output, 2, metric, stripDataTypes);
+			output.checkNoSpaceLeft();
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			logger.error("Failed to encode metric: {}", metric.getName(), e);
+			throw new RuntimeException(e);
+		} finally {
+			sizes.release();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Encodes the payload into the supplied array starting at the given offset
+	 *
+	 * @param payload the {@link SparkplugBPayload} to encode
+	 * @param stripDataTypes whether or not to strip the datatypes from the metrics
+	 * @param buffer the array to write to
+	 * @param offset the offset in the array to start writing at
+	 * @return the number of bytes written
+	 * @throws IOException if the payload does not fit in the remaining space of the array
+	 */
+	public int writeTo(SparkplugBPayload payload, boolean stripDataTypes, byte[] buffer, int offset)
+			throws IOException {
+		Sizes sizes = SIZES.get();
+		try {
+			int size = computeSizes(sizes, payload, stripDataTypes);
+			write(sizes, CodedOutputStream.newInstance(buffer, offset, buffer.length - offset), payload,
+					stripDataTypes);
+			return size;
+		} finally {
+			sizes.release();
+		}
+	}
+
+	/**
+	 * Encodes the payload into the supplied {@link ByteBuffer} at its current position. The position is advanced by the
+	 * number of bytes written.
+	 *
+	 * @param payload the {@link SparkplugBPayload} to encode
+	 * @param stripDataTypes whether or not to strip the datatypes from the metrics
+	 * @param buffer the {@link ByteBuffer} to write to
+	 * @return the number of bytes written
+	 * @throws IOException if the payload does not fit in the remaining space of the {@link ByteBuffer}
+	 */
+	public int writeTo(SparkplugBPayload payload, boolean stripDataTypes, ByteBuffer buffer) throws IOException {
+		Sizes sizes = SIZES.get();
+		try {
+			int size = computeSizes(sizes, payload, stripDataTypes);
+			CodedOutputStream output = CodedOutputStream.newInstance(buffer);
+			write(sizes, output, payload, stripDataTypes);
+			output.flush();
+			return size;
+		} finally {
+			sizes.release();
+		}
+	}
+
+	private int computeSizes(Sizes sizes, SparkplugBPayload payload, boolean stripDataTypes) {
+		sizes.reset();
+		int size = 0;
+		if (payload.getTimestamp() != null) {
+			size += CodedOutputStream.computeUInt64Size(1, payload.getTimestamp().getTime());
+		}
+		for (Metric metric : payload.getMetrics()) {
+			if (metric == null) {
+				continue;
+			}
+			try {
+				size += computeMessageSize(2, sizeOfMetric(sizes, metric, stripDataTypes));
+			} catch (Exception e) {
+				logger.error("Failed to add metric: {}", metric.getName(), e);
+				throw new RuntimeException(e);
+			}
+		}
+		if (payload.getSeq() != null) {
+			size += CodedOutputStream.computeUInt64Size(3, payload.getSeq());
+		}
+		if (payload.getUuid() != null) {
+			size += CodedOutputStream.computeStringSize(4, payload.getUuid());
+		}
+		if (payload.getBody() != null) {
+			size += CodedOutputStream.computeByteArraySize(5, payload.getBody());
+		}
+		return size;
+	}
+
+	private void write(Sizes sizes, CodedOutputStream output, SparkplugBPayload payload, boolean stripDataTypes)
+			throws IOException {
+		if (payload.getTimestamp() != null) {
+			output.writeUInt64(1, payload.getTimestamp().getTime());
+		}
+		for (Metric metric : payload.getMetrics()) {
+			if (metric == null) {
+				logger.warn("Not adding NULL metric");
+				continue;
+			}
+			try {
+				writeMetric(sizes, output, 2, metric, stripDataTypes);
+			} catch (IOException e) {
+				throw e;
+			} catch (Exception e) {
+				logger.error("Failed to add metric: {}", metric.getName(), e);
+				throw new RuntimeException(e);
+			}
+		}
+		if (payload.getSeq() != null) {
+			output.writeUInt64(3, payload.getSeq());
+		}
+		if (payload.getUuid() != null) {
+			output.writeString(4, payload.getUuid());
+		}
+		if (payload.getBody() != null) {
+			output.writeByteArray(5, payload.getBody());
+		}
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------
+	// Sizing pass - every nested message reserves its slot before its children so the write pass reads them in order
+	// ---------------------------------------------------------------------------------------------------------------
+
+	private int sizeOfMetric(Sizes sizes, Metric metric, boolean stripDataTypes) throws Exception {
+		int slot = sizes.reserve();
+		int size = 0;
+		boolean hasValue = metric.hasValue();
+		if (metric.hasName()) {
+			size += CodedOutputStream.computeStringSize(1, metric.getName());
+		}
+		if (metric.hasAlias()) {
+			size += CodedOutputStream.computeUInt64Size(2, metric.getAlias());
+		}
+		if (metric.hasTimestamp()) {
+			size += CodedOutputStream.computeUInt64Size(3, metric.getTimestampMillis());
+		}
+		if (!stripDataTypes) {
+			size += CodedOutputStream.computeUInt32Size(4, metric.getDataType().toIntValue());
+		}
+		if (metric.getIsHistorical() != null) {
+			size += CodedOutputStream.computeBoolSize(5, metric.isHistorical());
+		}
+		if (metric.getIsTransient() != null) {
+			size += CodedOutputStream.computeBoolSize(6, metric.isTransient());
+		}
+		if (!hasValue || metric.getIsNull() != null) {
+			size += CodedOutputStream.computeBoolSize(7, true);
+		}
+		if (hasMetaData(metric)) {
+			size += computeMessageSize(8, sizeOfMetaData(sizes, metric));
+		}
+		if (metric.getProperties() != null) {
+			size += computeMessageSize(9, sizeOfPropertySet(sizes, metric.getProperties()));
+		}
+		if (hasValue) {
+			size += sizeOfMetricValue(sizes, metric, stripDataTypes);
+		}
+		return sizes.set(slot, size);
+	}
+
+	private int sizeOfMetricValue(Sizes sizes, Metric metric, boolean stripDataTypes) throws Exception {
+		// Numeric, DateTime and Boolean values are read without boxing
+		switch (metric.getDataType()) {
+			case Boolean:
+				return CodedOutputStream.computeBoolSize(14, metric.getBooleanValue());
+			case DateTime:
+				return CodedOutputStream.computeUInt64Size(11, metric.getLongValue());
+			case Float:
+				return CodedOutputStream.computeFloatSize(12, (float) metric.getDoubleValue());
+			case Double:
+				return CodedOutputStream.computeDoubleSize(13, metric.getDoubleValue());
+			case Int8:
+			case Int16:
+			case Int32:
+			case UInt8:
+			case UInt16:
+				return CodedOutputStream.computeUInt32Size(10, metricIntValue(metric));
+			case Int64:
+			case UInt32:
+			case UInt64:
+				return CodedOutputStream.computeUInt64Size(11, metricLongValue(metric));
+			default:
+				return sizeOfMetricObjectValue(sizes, metric, metric.getValue(), stripDataTypes);
+		}
+	}
+
+	private int sizeOfMetricObjectValue(Sizes sizes, Metric metric, Object value, boolean stripDataTypes)
+			throws Exception {
+		switch (metric.getDataType()) {
+			case File:
+				return CodedOutputStream.computeByteArraySize(16, ((File) value).getBytes());
+			case String:
+			case Text:
+			case UUID:
+				return CodedOutputStream.computeStringSize(15, (String) value);
+			case Bytes:
+				return CodedOutputStream.computeByteArraySize(16, (byte[]) value);
+			case DataSet:
+				return computeMessageSize(17, sizeOfDataSet(sizes, (DataSet) value));
+			case Template:
+				return computeMessageSize(18, sizeOfTemplate(sizes, (Template) value, stripDataTypes));
+			case Int8Array:
+			case Int16Array:
+			case Int32Array:
+			case Int64Array:
+			case UInt8Array:
+			case UInt16Array:
+			case UInt32Array:
+			case UInt64Array:
+			case FloatArray:
+			case DoubleArray:
+			case BooleanArray:
+			case StringArray:
+			case DateTimeArray:
+				int slot = sizes.reserve();
+				return computeMessageSize(16,
+						sizes.set(slot, SparkplugBArrayCodec.encodedArrayLength(metric.getDataType(), value)));
+			case Unknown:
+			default:
+				logger.error("Unsupported MetricDataType: {} for the {} metric", metric.getDataType(),
+						metric.getName());
+				throw new Exception("Failed to encode");
+		}
+	}
+
+	private int sizeOfMetaData(Sizes sizes, Metric metric) {
+		int slot = sizes.reserve();
+		MetaData metaData = metric.getMetaData();
+		int size = 0;
+		if (metaData != null && metaData.isMultiPart() != null) {
+			size += CodedOutputStream.computeBoolSize(1, metaData.isMultiPart());
+		}
+		if (metaData != null && metaData.getContentType() != null) {
+			size += CodedOutputStream.computeStringSize(2, metaData.getContentType());
+		}
+		if (metaData != null && metaData.getSize() != null) {
+			size += CodedOutputStream.computeUInt64Size(3, metaData.getSize());
+		}
+		if (metaData != null && metaData.getSeq() != null) {
+			size += CodedOutputStream.computeUInt64Size(4, metaData.getSeq());
+		}
+		String fileName = fileName(metric);
+		if (fileName != null) {
+			size += CodedOutputStream.computeStringSize(5, fileName);
+		}
+		if (metaData != null && metaData.getFileType() != null) {
+			size += CodedOutputStream.computeStringSize(6, metaData.getFileType());
+		}
+		if (metaData != null && metaData.getMd5() != null) {
+			size += CodedOutputStream.computeStringSize(7, metaData.getMd5());
+		}
+		if (metaData != null && metaData.getDescription() != null) {
+			size += CodedOutputStream.computeStringSize(8, metaData.getDescription());
+		}
+		return sizes.set(slot, size);
+	}
+
+	private int sizeOfPropertySet(Sizes sizes, PropertySet propertySet) throws Exception {
+		int slot = sizes.reserve();
+		int size = 0;
+		Map<String, PropertyValue> map = propertySet.getPropertyMap();
+		if (map instanceof CompactPropertyMap) {
+			// Index the arrays directly rather than allocating iterators and entries
+			CompactPropertyMap compactMap = (CompactPropertyMap) map;
+			for (int i = 0; i < compactMap.size(); i++) {
+				size += CodedOutputStream.computeStringSize(1, compactMap.getKey(i));
+				size += computeMessageSize(2, sizeOfPropertyValue(sizes, compactMap.getKey(i), compactMap.getValue(i)));
+			}
+			return sizes.set(slot, size);
+		}
+		for (String key : map.keySet()) {
+			size += CodedOutputStream.computeStringSize(1, key);
+		}
+		for (Map.Entry<String, PropertyValue> entry : map.entrySet()) {
+			size += computeMessageSize(2, sizeOfPropertyValue(sizes, entry.getKey(), entry.getValue()));
+		}
+		return sizes.set(slot, size);
+	}
+
+	private int sizeOfPropertyValue(Sizes sizes, String key, PropertyValue propertyValue) throws Exception {
+		int slot = sizes.reserve();
+		PropertyDataType type = propertyValue.getType();
+		Object value = propertyValue.getValue();
+		int size = CodedOutputStream.computeUInt32Size(1, type.toIntValue());
+		if (value == null) {
+			size += CodedOutputStream.computeBoolSize(2, true);
+		} else {
+			switch (type) {
+				case Boolean:
+					size += CodedOutputStream.computeBoolSize(7, (Boolean) value);
+					break;
+				case DateTime:
+					size += CodedOutputStream.computeUInt64Size(4, ((Date) value).getTime());
+					break;
+				case Double:
+					size += CodedOutputStream.computeDoubleSize(6, (Double) value);
+					break;
+				case Float:
+					size += CodedOutputStream.computeFloatSize(5, (Float) value);
+					break;
+				case Int8:
+				case Int16:
+				case Int32:
+				case UInt8:
+				case UInt16:
+					size += CodedOutputStream.computeUInt32Size(3, intValue(type, value));
+					break;
+				case Int64:
+				case UInt32:
+				case UInt64:
+					size += CodedOutputStream.computeUInt64Size(4, longValue(type, value));
+					break;
+				case String:
+				case Text:
+					size += CodedOutputStream.computeStringSize(8, (String) value);
+					break;
+				case PropertySet:
+					size += computeMessageSize(9, sizeOfPropertySet(sizes, (PropertySet) value));
+					break;
+				case PropertySetList:
+					int listSlot = sizes.reserve();
+					int listSize = 0;
+					for (Object obj : (List<?>) value) {
+						listSize += computeMessageSize(1, sizeOfPropertySet(sizes, (PropertySet) obj));
+					}
+					size += computeMessageSize(10, sizes.set(listSlot, listSize));
+					break;
+				case Unknown:
+				default:
+					logger.error("Unsupported PropertyDataType: '{}' for the '{}' property", type, key);
+					throw new Exception("Failed to convert value " + type);
+			}
+		}
+		return sizes.set(slot, size);
+	}
+
+	private int sizeOfDataSet(Sizes sizes, DataSet dataSet) throws Exception {
+		int slot = sizes.reserve();
+		int size = CodedOutputStream.computeUInt64Size(1, dataSet.getNumOfColumns());
+		List<String> columnNames = dataSet.getColumnNames();
+		if (columnNames != null) {
+			for (String name : columnNames) {
+				size += CodedOutputStream.computeStringSize(2, name);
+			}
+		}
+		List<DataSetDataType> columnTypes = dataSet.getTypes();
+		if (columnTypes != null) {
+			for (DataSetDataType type : columnTypes) {
+				size += CodedOutputStream.computeUInt32Size(3, type.toIntValue());
+			}
+		}
+		if (dataSet instanceof ColumnarDataSet && ((ColumnarDataSet) dataSet).isColumnar()) {
+			ColumnarDataSet columnarDataSet = (ColumnarDataSet) dataSet;
+			int numOfColumns = (int) columnarDataSet.getNumOfColumns();
+			for (int row = 0; numOfColumns > 0 && row < columnarDataSet.getRowCount(); row++) {
+				int rowSlot = sizes.reserve();
+				int rowSize = 0;
+				for (int column = 0; column < numOfColumns; column++) {
+					rowSize += computeMessageSize(1, sizeOfDataSetValue(columnarDataSet, row, column));
+				}
+				size += computeMessageSize(4, sizes.set(rowSlot, rowSize));
+			}
+			return sizes.set(slot, size);
+		}
+		List<Row> rows = dataSet.getRows();
+		if (rows != null) {
+			for (Row row : rows) {
+				List<Value<?>> values = row.getValues();
+				if (values != null && !values.isEmpty()) {
+					int rowSlot = sizes.reserve();
+					int rowSize = 0;
+					for (Value<?> value : values) {
+						rowSize += computeMessageSize(1, sizeOfDataSetValue(value));
+					}
+					size += computeMessageSize(4, sizes.set(rowSlot, rowSize));
+				}
+			}
+		}
+		return sizes.set(slot, size);
+	}
+
+	private int sizeOfDataSetValue(ColumnarDataSet dataSet, int row, int column) {
+		if (dataSet.isNull(row, column)) {
+			return 0;
+		}
+		switch (dataSet.getColumnType(column)) {
+			case Int8:
+			case Int16:
+			case Int32:
+			case UInt8:
+			case UInt16:
+				return CodedOutputStream.computeUInt32Size(1, columnIntValue(dataSet, row, column));
+			case Int64:
+			case UInt32:
+			case UInt64:
+			case DateTime:
+				return CodedOutputStream.computeUInt64Size(2, dataSet.getLong(row, column));
+			case Float:
+				return CodedOutputStream.computeFloatSize(3, dataSet.getFloat(row, column));
+			case Double:
+				return CodedOutputStream.computeDoubleSize(4, dataSet.getDouble(row, column));
+			case Boolean:
+				return CodedOutputStream.computeBoolSize(5, dataSet.getBoolean(row, column));
+			default:
+				// String and Text
+				return CodedOutputStream.computeStringSize(6, dataSet.getString(row, column));
+		}
+	}
+
+	private int sizeOfDataSetValue(Value<?> value) throws Exception {
+		// DataSetValues are small enough that their size is recomputed rather than reserving a slot
+		DataSetDataType type = value.getType();
+		Object object = value.getValue();
+		switch (type) {
+			case Int8:
+			case Int16:
+			case Int32:
+			case UInt8:
+			case UInt16:
+				return object == null ? 0 : CodedOutputStream.computeUInt32Size(1, intValue(type, object));
+			case Int64:
+			case UInt32:
+			case UInt64:
+				return object == null ? 0 : CodedOutputStream.computeUInt64Size(2, longValue(type, object));
+			case Float:
+				return object == null ? 0 : CodedOutputStream.computeFloatSize(3, (Float) object);
+			case Double:
+				return object == null ? 0 : CodedOutputStream.computeDoubleSize(4, (Double) object);
+			case Boolean:
+				return object == null ? 0 : CodedOutputStream.computeBoolSize(5, toBoolean(object));
+			case String:
+			case Text:
+				return object == null ? 0 : CodedOutputStream.computeStringSize(6, (String) object);
+			case DateTime:
+				return object == null ? 0 : CodedOutputStream.computeUInt64Size(2, ((Date) object).getTime());
+			default:
+				logger.error("Unknown DataSetDataType DataType: " + type);
+				throw new Exception("Failed to convert value " + type);
+		}
+	}
+
+	private int sizeOfTemplate(Sizes sizes, Template template, boolean stripDataTypes) throws Exception {
+		int slot = sizes.reserve();
+		int size = 0;
+		if (template.getVersion() != null) {
+			size += CodedOutputStream.computeStringSize(1, template.getVersion());
+		}
+		if (template.getMetrics() != null) {
+			for (Metric metric : template.getMetrics()) {
+				size += computeMessageSize(2, sizeOfMetric(sizes, metric, stripDataTypes));
+			}
+		}
+		if (template.getParameters() != null) {
+			for (Parameter parameter : template.getParameters()) {
+				size += computeMessageSize(3, sizeOfParameter(sizes, parameter));
+			}
+		}
+		if (template.getTemplateRef() != null) {
+			size += CodedOutputStream.computeStringSize(4, template.getTemplateRef());
+		}
+		size += CodedOutputStream.computeBoolSize(5, template.isDefinition());
+		return sizes.set(slot, size);
+	}
+
+	private int sizeOfParameter(Sizes sizes, Parameter parameter) throws Exception {
+		int slot = sizes.reserve();
+		ParameterDataType type = parameter.getType();
+		int size = CodedOutputStream.computeStringSize(1, parameter.getName())
+				+ CodedOutputStream.computeUInt32Size(2, type.toIntValue());
+		Object value = parameterValue(parameter);
+		if (value != null) {
+			switch (type) {
+				case Boolean:
+					size += CodedOutputStream.computeBoolSize(7, toBoolean(value));
+					break;
+				case DateTime:
+					size += CodedOutputStream.computeUInt64Size(4, ((Date) value).getTime());
+					break;
+				case Double:
+					size += CodedOutputStream.computeDoubleSize(6, (Double) value);
+					break;
+				case Float:
+					size += CodedOutputStream.computeFloatSize(5, (Float) value);
+					break;
+				case Int8:
+				case Int16:
+				case Int32:
+				case UInt8:
+				case UInt16:
+					size += CodedOutputStream.computeUInt32Size(3, intValue(type, value));
+					break;
+				case Int64:
+				case UInt32:
+				case UInt64:
+					size += CodedOutputStream.computeUInt64Size(4, longValue(type, value));
+					break;
+				case Text:
+				case String:
+					size += CodedOutputStream.computeStringSize(8, (String) value);
+					break;
+				case Unknown:
+				default:
+					logger.error("Unknown Type: {}", type);
+					throw new Exception("Failed to encode");
+			}
+		}
+		return sizes.set(slot, size);
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------
+	// Write pass
+	// ---------------------------------------------------------------------------------------------------------------
+
+	private void writeMetric(Sizes sizes, CodedOutputStream output, int field, Metric metric, boolean stripDataTypes)
+			throws Exception {
+		writeMessageHeader(output, field, sizes.next());
+		boolean hasValue = metric.hasValue();
+		if (metric.hasName()) {
+			output.writeString(1, metric.getName());
+		}
+		if (metric.hasAlias()) {
+			output.writeUInt64(2, metric.getAlias());
+		}
+		if (metric.hasTimestamp()) {
+			output.writeUInt64(3, metric.getTimestampMillis());
+		}
+		if (!stripDataTypes) {
+			output.writeUInt32(4, metric.getDataType().toIntValue());
+		}
+		if (metric.getIsHistorical() != null) {
+			output.writeBool(5, metric.isHistorical());
+		}
+		if (metric.getIsTransient() != null) {
+			output.writeBool(6, metric.isTransient());
+		}
+		if (metric.getIsNull() != null) {
+			output.writeBool(7, metric.isNull());
+		} else if (!hasValue) {
+			output.writeBool(7, true);
+		}
+		if (hasMetaData(metric)) {
+			writeMetaData(sizes, output, metric);
+		}
+		if (metric.getProperties() != null) {
+			writePropertySet(sizes, output, 9, metric.getProperties());
+		}
+		if (hasValue) {
+			writeMetricValue(sizes, output, metric, stripDataTypes);
+		}
+	}
+
+	private void writeMetricValue(Sizes sizes, CodedOutputStream output, Metric metric, boolean stripDataTypes)
+			throws Exception {
+		switch (metric.getDataType()) {
+			case Boolean:
+				output.writeBool(14, metric.getBooleanValue());
+				break;
+			case DateTime:
+				output.writeUInt64(11, metric.getLongValue());
+				break;
+			case Float:
+				output.writeFloat(12, (float) metric.getDoubleValue());
+				break;
+			case Double:
+				output.writeDouble(13, metric.getDoubleValue());
+				break;
+			case Int8:
+			case Int16:
+			case Int32:
+			case UInt8:
+			case UInt16:
+				output.writeUInt32(10, metricIntValue(metric));
+				break;
+			case Int64:
+			case UInt32:
+			case UInt64:
+				output.writeUInt64(11, metricLongValue(metric));
+				break;
+			default:
+				writeMetricObjectValue(sizes, output, metric, metric.getValue(), stripDataTypes);
+		}
+	}
+
+	private void writeMetricObjectValue(Sizes sizes, CodedOutputStream output, Metric metric, Object value,
+			boolean stripDataTypes) throws Exception {
+		switch (metric.getDataType()) {
+			case File:
+				output.writeByteArray(16, ((File) value).getBytes());
+				break;
+			case String:
+			case Text:
+			case UUID:
+				output.writeString(15, (String) value);
+				break;
+			case Bytes:
+				output.writeByteArray(16, (byte[]) value);
+				break;
+			case DataSet:
+				writeDataSet(sizes, output, (DataSet) value);
+				break;
+			case Template:
+				writeTemplate(sizes, output, (Template) value, stripDataTypes);
+				break;
+			default:
+				// Only the array types remain since the sizing pass rejected everything else
+				writeMessageHeader(output, 16, sizes.next());
+				SparkplugBArrayCodec.encodeArray(metric.getDataType(), value, metric.getName(), output);
+		}
+	}
+
+	private void writeMetaData(Sizes sizes, CodedOutputStream output, Metric metric) throws IOException {
+		writeMessageHeader(output, 8, sizes.next());
+		MetaData metaData = metric.getMetaData();
+		if (metaData != null && metaData.isMultiPart() != null) {
+			output.writeBool(1, metaData.isMultiPart());
+		}
+		if (metaData != null && metaData.getContentType() != null) {
+			output.writeString(2, metaData.getContentType());
+		}
+		if (metaData != null && metaData.getSize() != null) {
+			output.writeUInt64(3, metaData.getSize());
+		}
+		if (metaData != null && metaData.getSeq() != null) {
+			output.writeUInt64(4, metaData.getSeq());
+		}
+		String fileName = fileName(metric);
+		if (fileName != null) {
+			output.writeString(5, fileName);
+		}
+		if (metaData != null && metaData.getFileType() != null) {
+			output.writeString(6, metaData.getFileType());
+		}
+		if (metaData != null && metaData.getMd5() != null) {
+			output.writeString(7, metaData.getMd5());
+		}
+		if (metaData != null && metaData.getDescription() != null) {
+			output.writeString(8, metaData.getDescription());
+		}
+	}
+
+	private void writePropertySet(Sizes sizes, CodedOutputStream output, int field, PropertySet propertySet)
+			throws IOException {
+		writeMessageHeader(output, field, sizes.next());
+		Map<String, PropertyValue> map = propertySet.getPropertyMap();
+		if (map instanceof CompactPropertyMap) {
+			CompactPropertyMap compactMap = (CompactPropertyMap) map;
+			for (int i = 0; i < compactMap.size(); i++) {
+				output.writeString(1, compactMap.getKey(i));
+			}
+			for (int i = 0; i < compactMap.size(); i++) {
+				writePropertyValue(sizes, output, compactMap.getValue(i));
+			}
+			return;
+		}
+		for (String key : map.keySet()) {
+			output.writeString(1, key);
+		}
+		for (PropertyValue propertyValue : map.values()) {
+			writePropertyValue(sizes, output, propertyValue);
+		}
+	}
+
+	private void writePropertyValue(Sizes sizes, CodedOutputStream output, PropertyValue propertyValue)
+			throws IOException {
+		writeMessageHeader(output, 2, sizes.next());
+		PropertyDataType type = propertyValue.getType();
+		Object value = propertyValue.getValue();
+		output.writeUInt32(1, type.toIntValue());
+		if (value == null) {
+			output.writeBool(2, true);
+			return;
+		}
+		switch (type) {
+			case Boolean:
+				output.writeBool(7, (Boolean) value);
+				break;
+			case DateTime:
+				output.writeUInt64(4, ((Date) value).getTime());
+				break;
+			case Double:
+				output.writeDouble(6, (Double) value);
+				break;
+			case Float:
+				output.writeFloat(5, (Float) value);
+				break;
+			case Int8:
+			case Int16:
+			case Int32:
+			case UInt8:
+			case UInt16:
+				output.writeUInt32(3, intValue(type, value));
+				break;
+			case Int64:
+			case UInt32:
+			case UInt64:
+				output.writeUInt64(4, longValue(type, value));
+				break;
+			case String:
+			case Text:
+				output.writeString(8, (String) value);
+				break;
+			case PropertySet:
+				writePropertySet(sizes, output, 9, (PropertySet) value);
+				break;
+			default:
+				// Only PropertySetList remains since the sizing pass rejected everything else
+				writeMessageHeader(output, 10, sizes.next());
+				for (Object obj : (List<?>) value) {
+					writePropertySet(sizes, output, 1, (PropertySet) obj);
+				}
+		}
+	}
+
+	private void writeDataSet(Sizes sizes, CodedOutputStream output, DataSet dataSet) throws Exception {
+		writeMessageHeader(output, 17, sizes.next());
+		output.writeUInt64(1, dataSet.getNumOfColumns());
+		List<String> columnNames = dataSet.getColumnNames();
+		if (columnNames != null) {
+			for (String name : columnNames) {
+				output.writeString(2, name);
+			}
+		}
+		List<DataSetDataType> columnTypes = dataSet.getTypes();
+		if (columnTypes != null) {
+			for (DataSetDataType type : columnTypes) {
+				output.writeUInt32(3, type.toIntValue());
+			}
+		}
+		if (dataSet instanceof ColumnarDataSet && ((ColumnarDataSet) dataSet).isColumnar()) {
+			ColumnarDataSet columnarDataSet = (ColumnarDataSet) dataSet;
+			int numOfColumns = (int) columnarDataSet.getNumOfColumns();
+			for (int row = 0; numOfColumns > 0 && row < columnarDataSet.getRowCount(); row++) {
+				writeMessageHeader(output, 4, sizes.next());
+				for (int column = 0; column < numOfColumns; column++) {
+					writeDataSetValue(output, columnarDataSet, row, column);
+				}
+			}
+			return;
+		}
+		List<Row> rows = dataSet.getRows();
+		if (rows != null) {
+			for (Row row : rows) {
+				List<Value<?>> values = row.getValues();
+				if (values != null && !values.isEmpty()) {
+					writeMessageHeader(output, 4, sizes.next());
+					for (Value<?> value : values) {
+						writeDataSetValue(output, value);
+					}
+				}
+			}
+		}
+	}
+
+	private void writeDataSetValue(CodedOutputStream output, ColumnarDataSet dataSet, int row, int column)
+			throws IOException {
+		writeMessageHeader(output, 1, sizeOfDataSetValue(dataSet, row, column));
+		if (dataSet.isNull(row, column)) {
+			return;
+		}
+		switch (dataSet.getColumnType(column)) {
+			case Int8:
+			case Int16:
+			case Int32:
+			case UInt8:
+			case UInt16:
+				output.writeUInt32(1, columnIntValue(dataSet, row, column));
+				break;
+			case Int64:
+			case UInt32:
+			case UInt64:
+			case DateTime:
+				output.writeUInt64(2, dataSet.getLong(row, column));
+				break;
+			case Float:
+				output.writeFloat(3, dataSet.getFloat(row, column));
+				break;
+			case Double:
+				output.writeDouble(4, dataSet.getDouble(row, column));
+				break;
+			case Boolean:
+				output.writeBool(5, dataSet.getBoolean(row, column));
+				break;
+			default:
+				// String and Text
+				output.writeString(6, dataSet.getString(row, column));
+		}
+	}
+
+	private void writeDataSetValue(CodedOutputStream output, Value<?> value) throws Exception {
+		writeMessageHeader(output, 1, sizeOfDataSetValue(value));
+		DataSetDataType type = value.getType();
+		Object object = value.getValue();
+		if (object == null) {
+			return;
+		}
+		switch (type) {
+			case Int8:
+			case Int16:
+			case Int32:
+			case UInt8:
+			case UInt16:
+				output.writeUInt32(1, intValue(type, object));
+				break;
+			case Int64:
+			case UInt32:
+			case UInt64:
+				output.writeUInt64(2, longValue(type, object));
+				break;
+			case Float:
+				output.writeFloat(3, (Float) object);
+				break;
+			case Double:
+				output.writeDouble(4, (Double) object);
+				break;
+			case Boolean:
+				output.writeBool(5, toBoolean(object));
+				break;
+			case String:
+			case Text:
+				output.writeString(6, (String) object);
+				break;
+			default:
+				// Only DateTime remains since the sizing pass rejected everything else
+				output.writeUInt64(2, ((Date) object).getTime());
+		}
+	}
+
+	private void writeTemplate(Sizes sizes, CodedOutputStream output, Template template, boolean stripDataTypes)
+			throws Exception {
+		writeMessageHeader(output, 18, sizes.next());
+		if (template.getVersion() != null) {
+			output.writeString(1, template.getVersion());
+		}
+		if (template.getMetrics() != null) {
+			for (Metric metric : template.getMetrics()) {
+				writeMetric(sizes, output, 2, metric, stripDataTypes);
+			}
+		}
+		if (template.getParameters() != null) {
+			for (Parameter parameter : template.getParameters()) {
+				writeParameter(sizes, output, parameter);
+			}
+		}
+		if (template.getTemplateRef() != null) {
+			output.writeString(4, template.getTemplateRef());
+		}
+		output.writeBool(5, template.isDefinition());
+	}
+
+	private void writeParameter(Sizes sizes, CodedOutputStream output, Parameter parameter) throws IOException {
+		writeMessageHeader(output, 3, sizes.next());
+		ParameterDataType type = parameter.getType();
+		output.writeString(1, parameter.getName());
+		output.writeUInt32(2, type.toIntValue());
+		Object value = parameterValue(parameter);
+		if (value == null) {
+			return;
+		}
+		switch (type) {
+			case Boolean:
+				output.writeBool(7, toBoolean(value));
+				break;
+			case DateTime:
+				output.writeUInt64(4, ((Date) value).getTime());
+				break;
+			case Double:
+				output.writeDouble(6, (Double) value);
+				break;
+			case Float:
+				output.writeFloat(5, (Float) value);
+				break;
+			case Int8:
+			case Int16:
+			case Int32:
+			case UInt8:
+			case UInt16:
+				output.writeUInt32(3, intValue(type, value));
+				break;
+			case Int64:
+			case UInt32:
+			case UInt64:
+				output.writeUInt64(4, longValue(type, value));
+				break;
+			default:
+				// Only String and Text remain since the sizing pass rejected everything else
+				output.writeString(8, (String) value);
+		}
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------
+	// Helpers
+	// ---------------------------------------------------------------------------------------------------------------
+
+	private static int computeMessageSize(int field, int size) {
+		return CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+	}
+
+	private static void writeMessageHeader(CodedOutputStream output, int field, int size) throws IOException {
+		output.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+		output.writeUInt32NoTag(size);
+	}
+
+	private static boolean hasMetaData(Metric metric) {
+		return metric.getMetaData() != null
+				|| (metric.getDataType() == MetricDataType.File && metric.getValue() != null);
+	}
+
+	/**
+	 * Returns the file name to encode in the MetaData. A file name set on the {@link MetaData} takes precedence over
+	 * the one of a {@link File} value.
+	 */
+	private static String fileName(Metric metric) {
+		if (metric.getMetaData() != null && metric.getMetaData().getFileName() != null) {
+			return metric.getMetaData().getFileName();
+		}
+		if (metric.getDataType() == MetricDataType.File && metric.getValue() != null) {
+			return ((File) metric.getValue()).getFileName();
+		}
+		return null;
+	}
+
+	private static Object parameterValue(Parameter parameter) {
+		Object value = parameter.getValue();
+		return parameter.getType() == ParameterDataType.String && value == null ? "" : value;
+	}
+
+	/**
+	 * Converts the value of the 32 bit integer types sharing the 'int_value' field
+	 */
+	private static int intValue(Enum<?> type, Object value) {
+		switch (type.name()) {
+			case "Int8":
+				return (Byte) value;
+			case "Int16":
+				return (Short) value;
+			case "UInt8":
+				return Short.toUnsignedInt((Short) value);
+			default:
+				// Int32 and UInt16
+				return (Integer) value;
+		}
+	}
+
+	/**
+	 * Converts the value of a {@link Metric} of one of the types sharing the 'int_value' field without boxing it
+	 */
+	private static int metricIntValue(Metric metric) {
+		long value = metric.getLongValue();
+		return metric.getDataType() == MetricDataType.UInt8 ? Short.toUnsignedInt((short) value) : (int) value;
+	}
+
+	/**
+	 * Converts the value of a {@link Metric} of one of the types sharing the 'long_value' field without boxing it
+	 */
+	private static long metricLongValue(Metric metric) {
+		if (metric.getDataType() == MetricDataType.UInt64) {
+			return bigIntegerToUnsignedLong((BigInteger) metric.getValue());
+		}
+		return metric.getLongValue();
+	}
+
+	/**
+	 * Converts the value of a {@link ColumnarDataSet} int column to its 'int_value' field
+	 */
+	private static int columnIntValue(ColumnarDataSet dataSet, int row, int column) {
+		int value = dataSet.getInt(row, column);
+		return dataSet.getColumnType(column) == DataSetDataType.UInt8 ? Short.toUnsignedInt((short) value) : value;
+	}
+
+	/**
+	 * Converts the value of the 64 bit integer types sharing the 'long_value' field
+	 */
+	private static long longValue(Enum<?> type, Object value) {
+		switch (type.name()) {
+			case "UInt32":
+				// Parameters carry UInt32 values as BigIntegers
+				return value instanceof BigInteger
+						? Long.valueOf(Long.toUnsignedString(((BigInteger) value).longValue()))
+						: (Long) value;
+			case "UInt64":
+				return bigIntegerToUnsignedLong((BigInteger) value);
+			default:
+				// Int64
+				return (Long) value;
+		}
+	}
+
+	private static boolean toBoolean(Object value) {
+		if (value instanceof Integer) {
+			return ((Integer) value).intValue() != 0;
+		} else if (value instanceof Long) {
+			return ((Long) value).longValue() != 0;
+		} else if (value instanceof Float) {
+			return ((Float) value).floatValue() != 0;
+		} else if (value instanceof Double) {
+			return ((Double) value).doubleValue() != 0;
+		} else if (value instanceof Short) {
+			return ((Short) value).shortValue() != 0;
+		} else if (value instanceof Byte) {
+			return ((Byte) value).byteValue() != 0;
+		} else if (value instanceof String) {
+			return Boolean.parseBoolean(value.toString());
+		}
+		return (Boolean) value;
+	}
+
+	/**
+	 * The lengths of the nested messages of a payload in the order they are written. Pooled per thread.
+	 */
+	private static final class Sizes {
+		private static final int INITIAL_SIZES = 64;
+
+		private int[] sizes = new int[INITIAL_SIZES];
+		private int count;
+		private int cursor;
+
+		private void reset() {
+			count = 0;
+			cursor = 0;
+		}
+
+		/*
+		 * Called once a payload is done with so one very large payload does not pin a large array to the thread
+		 */
+		private void release() {
+			if (sizes.length > MAX_POOLED_SIZES) {
+				sizes = new int[INITIAL_SIZES];
+			}
+		}
+
+		private int reserve() {
+			if (count == sizes.length) {
+				sizes = Arrays.copyOf(sizes, count * 2);
+			}
+			return count++;
+		}
+
+		private int set(int slot, int size) {
+			sizes[slot] = size;
+			return size;
+		}
+
+		private int next() {
+			return sizes[cursor++];
+		}
+	}
+}
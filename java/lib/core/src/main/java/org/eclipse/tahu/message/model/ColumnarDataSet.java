@@ -0,0 +1,869 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message.model;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tahu.SparkplugException;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A {@link DataSet} that stores each column in a primitive array instead of a {@link Value} per cell. String and Text
+ * columns store an index in to a per column dictionary of the distinct strings.
+ *
+ * Values are appended in row order with the typed append methods. The column storage by {@link DataSetDataType} is:
+ * <ul>
+ * <li>Int8, Int16, UInt8, UInt16 and Int32 - int, see {@link #getInt(int, int)}</li>
+ * <li>Int64, UInt32, UInt64 and DateTime - long, see {@link #getLong(int, int)}. UInt64 values are the raw unsigned 64
+ * bits and DateTime values are epoch milliseconds.</li>
+ * <li>Float - float, Double - double and Boolean - boolean</li>
+ * <li>String and Text - String, see {@link #getString(int, int)}</li>
+ * </ul>
+ *
+ * Rows can be appended with {@link #addRow(Row)} and read with the typed getters while the values are held in
+ * columns. Any other change through the {@link DataSet} API, and {@link #getRows()} as the returned {@link Row}s may be
+ * modified, first converts the {@link ColumnarDataSet} to a row based {@link DataSet} which it then behaves exactly
+ * like. The typed getters and append methods keep working after the conversion. {@link #isColumnar()} returns
+ * whether the values are still held in columns.
+ */
+public class ColumnarDataSet extends DataSet {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final int columnCount;
+	private final DataSetDataType[] columnTypes;
+
+	// The column storage, all null once converted to rows
+	private Object[] columns;
+	private StringDictionary[] dictionaries;
+	private long[][] nulls;
+
+	private int capacity;
+	private int rowCount;
+	private int nextColumn;
+
+	// The values of a partly appended row once converted to rows
+	private List<Value<?>> pendingValues;
+
+	/**
+	 * Constructor
+	 *
+	 * @param columnNames a {@link List} of column names in the {@link ColumnarDataSet}
+	 * @param types a {@link List} of {@link DataSetDataType}s for the columns
+	 * @param initialCapacity the number of rows to allocate space for up front
+	 * @throws SparkplugException if the number of names and types differ or a type is not supported
+	 */
+	public ColumnarDataSet(List<String> columnNames, List<DataSetDataType> types, int initialCapacity)
+			throws SparkplugException {
+		super(columnNames.size(), new ArrayList<String>(columnNames),
+				Collections.unmodifiableList(new ArrayList<DataSetDataType>(types)), null);
+		if (columnNames.size() != types.size()) {
+			throw new SparkplugException("Invalid number of columns in data set types: " + types.size()
+					+ " vs expected: " + columnNames.size());
+		}
+		this.columnCount = types.size();
+		this.columnTypes = types.toArray(new DataSetDataType[columnCount]);
+		this.capacity = Math.max(initialCapacity, 1);
+		this.columns = new Object[columnCount];
+		this.dictionaries = new StringDictionary[columnCount];
+		this.nulls = new long[columnCount][];
+		for (int i = 0; i < columnCount; i++) {
+			switch (columnTypes[i]) {
+				case Int8:
+				case Int16:
+				case Int32:
+				case UInt8:
+				case UInt16:
+					columns[i] = new int[capacity];
+					break;
+				case Int64:
+				case UInt32:
+				case UInt64:
+				case DateTime:
+					columns[i] = new long[capacity];
+					break;
+				case Float:
+					columns[i] = new float[capacity];
+					break;
+				case Double:
+					columns[i] = new double[capacity];
+					break;
+				case Boolean:
+					columns[i] = new boolean[capacity];
+					break;
+				case String:
+				case Text:
+					columns[i] = new int[capacity];
+					dictionaries[i] = new StringDictionary();
+					break;
+				default:
+					throw new SparkplugException("Unsupported DataSetDataType for column " + i + ": " + columnTypes[i]);
+			}
+			nulls[i] = new long[(capacity + 63) >>> 6];
+		}
+	}
+
+	/**
+	 * Returns the number of complete rows in the {@link ColumnarDataSet}
+	 *
+	 * @return the number of complete rows
+	 */
+	@JsonIgnore
+	public int getRowCount() {
+		return columns != null ? rowCount : super.getRows().size();
+	}
+
+	/**
+	 * Returns true if the values are still held in columns, or false once the {@link ColumnarDataSet} has been
+	 * converted to rows
+	 *
+	 * @return true if the values are held in columns, otherwise false
+	 */
+	@JsonIgnore
+	public boolean isColumnar() {
+		return columns != null;
+	}
+
+	/**
+	 * Returns the {@link DataSetDataType} of a column
+	 *
+	 * @param column the column index
+	 * @return the {@link DataSetDataType} of the column
+	 */
+	public DataSetDataType getColumnType(int column) {
+		return columns != null ? columnTypes[column] : getTypes().get(column);
+	}
+
+	/**
+	 * Returns true if the value at the supplied row and column is null
+	 *
+	 * @param row the row index
+	 * @param column the column index
+	 * @return true if the value is null, otherwise false
+	 */
+	public boolean isNull(int row, int column) {
+		if (columns == null) {
+			return rowValue(row, column) == null;
+		}
+		return (nulls[column][row >>> 6] & (1L << row)) != 0;
+	}
+
+	/**
+	 * Returns the value of an Int8, Int16, UInt8, UInt16 or Int32 column
+	 *
+	 * @param row the row index
+	 * @param column the column index
+	 * @return the value or 0 if it is null
+	 */
+	public int getInt(int row, int column) {
+		if (columns == null) {
+			Object value = rowValue(row, column);
+			return value != null ? ((Number) value).intValue() : 0;
+		}
+		return ((int[]) columns[column])[row];
+	}
+
+	/**
+	 * Returns the value of an Int64, UInt32, UInt64 or DateTime column
+	 *
+	 * @param row the row index
+	 * @param column the column index
+	 * @return the value or 0 if it is null
+	 */
+	public long getLong(int row, int column) {
+		if (columns == null) {
+			Object value = rowValue(row, column);
+			if (value instanceof Date) {
+				return ((Date) value).getTime();
+			}
+			return value != null ? ((Number) value).longValue() : 0;
+		}
+		return ((long[]) columns[column])[row];
+	}
+
+	/**
+	 * Returns the value of a Float column
+	 *
+	 * @param row the row index
+	 * @param column the column index
+	 * @return the value or 0 if it is null
+	 */
+	public float getFloat(int row, int column) {
+		if (columns == null) {
+			Object value = rowValue(row, column);
+			return value != null ? ((Number) value).floatValue() : 0;
+		}
+		return ((float[]) columns[column])[row];
+	}
+
+	/**
+	 * Returns the value of a Double column
+	 *
+	 * @param row the row index
+	 * @param column the column index
+	 * @return the value or 0 if it is null
+	 */
+	public double getDouble(int row, int column) {
+		if (columns == null) {
+			Object value = rowValue(row, column);
+			return value != null ? ((Number) value).doubleValue() : 0;
+		}
+		return ((double[]) columns[column])[row];
+	}
+
+	/**
+	 * Returns the value of a Boolean column
+	 *
+	 * @param row the row index
+	 * @param column the column index
+	 * @return the value or false if it is null
+	 */
+	public boolean getBoolean(int row, int column) {
+		if (columns == null) {
+			Object value = rowValue(row, column);
+			return value != null ? (Boolean) value : false;
+		}
+		return ((boolean[]) columns[column])[row];
+	}
+
+	/**
+	 * Returns the value of a String or Text column
+	 *
+	 * @param row the row index
+	 * @param column the column index
+	 * @return the value or null if it is null
+	 */
+	public String getString(int row, int column) {
+		if (columns == null) {
+			return (String) rowValue(row, column);
+		}
+		return isNull(row, column) ? null : dictionaries[column].get(((int[]) columns[column])[row]);
+	}
+
+	/**
+	 * Returns the value at the supplied row and column boxed as it would be in a {@link Value}
+	 *
+	 * @param row the row index
+	 * @param column the column index
+	 * @return the boxed value or null if it is null
+	 */
+	public Object getValue(int row, int column) {
+		if (columns == null) {
+			return rowValue(row, column);
+		} else if (isNull(row, column)) {
+			return null;
+		}
+		switch (columnTypes[column]) {
+			case Int8:
+				return (byte) getInt(row, column);
+			case Int16:
+			case UInt8:
+				return (short) getInt(row, column);
+			case Int32:
+			case UInt16:
+				return getInt(row, column);
+			case Int64:
+			case UInt32:
+				return getLong(row, column);
+			case UInt64:
+				return new BigInteger(Long.toUnsignedString(getLong(row, column)));
+			case DateTime:
+				return new Date(getLong(row, column));
+			case Float:
+				return getFloat(row, column);
+			case Double:
+				return getDouble(row, column);
+			case Boolean:
+				return getBoolean(row, column);
+			default:
+				// String and Text
+				return getString(row, column);
+		}
+	}
+
+	/**
+	 * Appends the value of the next Int8, Int16, UInt8, UInt16 or Int32 column
+	 *
+	 * @param value the value to append
+	 * @return this {@link ColumnarDataSet}
+	 */
+	public ColumnarDataSet appendInt(int value) {
+		if (columns == null) {
+			return appendValue(boxInt(nextColumnType(), value));
+		}
+		((int[]) nextColumn(int[].class, false))[rowCount] = value;
+		return advance();
+	}
+
+	/**
+	 * Appends the value of the next Int64, UInt32, UInt64 or DateTime column
+	 *
+	 * @param value the value to append
+	 * @return this {@link ColumnarDataSet}
+	 */
+	public ColumnarDataSet appendLong(long value) {
+		if (columns == null) {
+			return appendValue(boxLong(nextColumnType(), value));
+		}
+		((long[]) nextColumn(long[].class, false))[rowCount] = value;
+		return advance();
+	}
+
+	/**
+	 * Appends the value of the next Float column
+	 *
+	 * @param value the value to append
+	 * @return this {@link ColumnarDataSet}
+	 */
+	public ColumnarDataSet appendFloat(float value) {
+		if (columns == null) {
+			return appendValue(value);
+		}
+		((float[]) nextColumn(float[].class, false))[rowCount] = value;
+		return advance();
+	}
+
+	/**
+	 * Appends the value of the next Double column
+	 *
+	 * @param value the value to append
+	 * @return this {@link ColumnarDataSet}
+	 */
+	public ColumnarDataSet appendDouble(double value) {
+		if (columns == null) {
+			return appendValue(value);
+		}
+		((double[]) nextColumn(double[].class, false))[rowCount] = value;
+		return advance();
+	}
+
+	/**
+	 * Appends the value of the next Boolean column
+	 *
+	 * @param value the value to append
+	 * @return this {@link ColumnarDataSet}
+	 */
+	public ColumnarDataSet appendBoolean(boolean value) {
+		if (columns == null) {
+			return appendValue(value);
+		}
+		((boolean[]) nextColumn(boolean[].class, false))[rowCount] = value;
+		return advance();
+	}
+
+	/**
+	 * Appends the value of the next String or Text column
+	 *
+	 * @param value the value to append which may be null
+	 * @return this {@link ColumnarDataSet}
+	 */
+	public ColumnarDataSet appendString(String value) {
+		if (value == null) {
+			return appendNull();
+		} else if (columns == null) {
+			return appendValue(value);
+		}
+		int[] codes = (int[]) nextColumn(int[].class, true);
+		codes[rowCount] = dictionaries[nextColumn].indexOf(value);
+		return advance();
+	}
+
+	/**
+	 * Appends a null value for the next column
+	 *
+	 * @return this {@link ColumnarDataSet}
+	 */
+	public ColumnarDataSet appendNull() {
+		if (columns == null) {
+			return appendRowValue(null);
+		}
+		ensureCapacity();
+		Object column = columns[nextColumn];
+		if (column instanceof int[]) {
+			((int[]) column)[rowCount] = 0;
+		} else if (column instanceof long[]) {
+			((long[]) column)[rowCount] = 0;
+		} else if (column instanceof float[]) {
+			((float[]) column)[rowCount] = 0;
+		} else if (column instanceof double[]) {
+			((double[]) column)[rowCount] = 0;
+		} else {
+			((boolean[]) column)[rowCount] = false;
+		}
+		nulls[nextColumn][rowCount >>> 6] |= 1L << rowCount;
+		return advance();
+	}
+
+	/**
+	 * Appends the boxed value of the next column. The value must be of the class used by the {@link Value}s of the
+	 * column's {@link DataSetDataType}.
+	 *
+	 * @param value the value to append which may be null
+	 * @return this {@link ColumnarDataSet}
+	 */
+	public ColumnarDataSet appendValue(Object value) {
+		if (value == null) {
+			return appendNull();
+		} else if (columns == null) {
+			DataSetDataType type = nextColumnType();
+			toClass(type, value, valueClass(type));
+			return appendRowValue(value);
+		}
+		ensureCapacity();
+		DataSetDataType type = columnTypes[nextColumn];
+		switch (type) {
+			case Int8:
+				return appendInt(toClass(type, value, Byte.class));
+			case Int16:
+			case UInt8:
+				return appendInt(toClass(type, value, Short.class));
+			case Int32:
+			case UInt16:
+				return appendInt(toClass(type, value, Integer.class));
+			case Int64:
+			case UInt32:
+				return appendLong(toClass(type, value, Long.class));
+			case UInt64:
+				BigInteger bigInteger = toClass(type, value, BigInteger.class);
+				return appendLong(bigInteger.longValue());
+			case DateTime:
+				return appendLong(toClass(type, value, Date.class).getTime());
+			case Float:
+				return appendFloat(toClass(type, value, Float.class));
+			case Double:
+				return appendDouble(toClass(type, value, Double.class));
+			case Boolean:
+				return appendBoolean(toClass(type, value, Boolean.class));
+			default:
+				// String and Text
+				return appendString(toClass(type, value, String.class));
+		}
+	}
+
+	/**
+	 * Returns the {@link Row}s, converting the {@link ColumnarDataSet} to rows first as they may be modified
+	 *
+	 * @return the {@link List} of {@link Row}s
+	 */
+	@Override
+	public List<Row> getRows() {
+		convertToRows();
+		return super.getRows();
+	}
+
+	@Override
+	public List<List<Object>> getRowsAsLists() {
+		if (columns == null) {
+			return super.getRowsAsLists();
+		}
+		List<List<Object>> list = new ArrayList<List<Object>>(rowCount);
+		for (int row = 0; row < rowCount; row++) {
+			List<Object> values = new ArrayList<Object>(columnCount);
+			for (int column = 0; column < columnCount; column++) {
+				values.add(getValue(row, column));
+			}
+			list.add(values);
+		}
+		return list;
+	}
+
+	/**
+	 * Appends a {@link Row} to the {@link ColumnarDataSet}. Nothing is appended if any of the values do not match the
+	 * columns.
+	 *
+	 * @param row the {@link Row} to append
+	 * @throws IllegalArgumentException if the {@link Row} does not match the columns
+	 * @throws IllegalStateException if a row is partly appended
+	 */
+	@Override
+	public void addRow(Row row) {
+		if (columns == null) {
+			super.addRow(row);
+			return;
+		} else if (nextColumn != 0) {
+			throw new IllegalStateException("Can not add a row while row " + rowCount + " is partly appended");
+		}
+		List<Value<?>> values = row.getValues();
+		if (values.size() != columnCount) {
+			throw new IllegalArgumentException(
+					"Invalid number of columns in data set row: " + values.size() + " vs expected: " + columnCount);
+		}
+		for (int column = 0; column < columnCount; column++) {
+			Object value = values.get(column).getValue();
+			if (value != null) {
+				toClass(columnTypes[column], value, valueClass(columnTypes[column]));
+			}
+		}
+		for (Value<?> value : values) {
+			appendValue(value.getValue());
+		}
+	}
+
+	@Override
+	public void addRow(int index, Row row) {
+		if (columns != null && index == rowCount) {
+			addRow(row);
+		} else {
+			convertToRows();
+			super.addRow(index, row);
+		}
+	}
+
+	@Override
+	public Row removeRow(int index) {
+		convertToRows();
+		return super.removeRow(index);
+	}
+
+	@Override
+	public boolean removeRow(Row row) {
+		convertToRows();
+		return super.removeRow(row);
+	}
+
+	/**
+	 * Sets the {@link List} of {@link Row}s, converting the {@link ColumnarDataSet} to rows first
+	 *
+	 * @param rows the {@link List} of {@link Row}s to set
+	 */
+	@Override
+	public void setRows(List<Row> rows) {
+		convertToRows();
+		super.setRows(rows);
+	}
+
+	@Override
+	public void setNumOfColumns(long numOfColumns) {
+		if (numOfColumns != getNumOfColumns()) {
+			convertToRows();
+		}
+		super.setNumOfColumns(numOfColumns);
+	}
+
+	/**
+	 * Returns the {@link DataSetDataType}s of the columns. While the values are held in columns the returned
+	 * {@link List} converts the {@link ColumnarDataSet} to rows before it is modified.
+	 *
+	 * @return the {@link List} of {@link DataSetDataType}s
+	 */
+	@Override
+	public List<DataSetDataType> getTypes() {
+		if (columns == null) {
+			return super.getTypes();
+		}
+		return new AbstractList<DataSetDataType>() {
+
+			@Override
+			public DataSetDataType get(int index) {
+				return ColumnarDataSet.super.getTypes().get(index);
+			}
+
+			@Override
+			public int size() {
+				return ColumnarDataSet.super.getTypes().size();
+			}
+
+			@Override
+			public DataSetDataType set(int index, DataSetDataType type) {
+				convertToRows();
+				return ColumnarDataSet.super.getTypes().set(index, type);
+			}
+
+			@Override
+			public void add(int index, DataSetDataType type) {
+				convertToRows();
+				ColumnarDataSet.super.getTypes().add(index, type);
+			}
+
+			@Override
+			public DataSetDataType remove(int index) {
+				convertToRows();
+				return ColumnarDataSet.super.getTypes().remove(index);
+			}
+		};
+	}
+
+	@Override
+	public void setTypes(List<DataSetDataType> types) {
+		convertToRows();
+		super.setTypes(types);
+	}
+
+	@Override
+	public void addType(DataSetDataType type) {
+		convertToRows();
+		super.addType(type);
+	}
+
+	@Override
+	public void addType(int index, DataSetDataType type) {
+		convertToRows();
+		super.addType(index, type);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("DataSet [numOfColumns=");
+		builder.append(getNumOfColumns());
+		builder.append(", columnNames=");
+		builder.append(getColumnNames());
+		builder.append(", types=");
+		builder.append(getTypes());
+		builder.append(", rows=");
+		builder.append(columns != null ? createRows() : super.getRows());
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/*
+	 * Creates the Rows from the columns
+	 */
+	private List<Row> createRows() {
+		List<Row> rows = new ArrayList<Row>(rowCount);
+		for (int row = 0; row < rowCount; row++) {
+			List<Value<?>> values = new ArrayList<Value<?>>(columnCount);
+			for (int column = 0; column < columnCount; column++) {
+				values.add(new Value<Object>(columnTypes[column], getValue(row, column)));
+			}
+			rows.add(new Row(values));
+		}
+		return rows;
+	}
+
+	/*
+	 * Moves the values from the columns in to Rows and releases the columns
+	 */
+	private void convertToRows() {
+		if (columns == null) {
+			return;
+		}
+		List<Row> rows = createRows();
+		if (nextColumn != 0) {
+			pendingValues = new ArrayList<Value<?>>(columnCount);
+			for (int column = 0; column < nextColumn; column++) {
+				pendingValues.add(new Value<Object>(columnTypes[column], getValue(rowCount, column)));
+			}
+		}
+		super.setTypes(new ArrayList<DataSetDataType>(Arrays.asList(columnTypes)));
+		super.setRows(rows);
+		columns = null;
+		dictionaries = null;
+		nulls = null;
+	}
+
+	private Object rowValue(int row, int column) {
+		return super.getRows().get(row).getValues().get(column).getValue();
+	}
+
+	private DataSetDataType nextColumnType() {
+		return super.getTypes().get(pendingValues != null ? pendingValues.size() : 0);
+	}
+
+	/*
+	 * Appends a value to the partly appended row once converted to rows
+	 */
+	private ColumnarDataSet appendRowValue(Object value) {
+		DataSetDataType type = nextColumnType();
+		if (pendingValues == null) {
+			pendingValues = new ArrayList<Value<?>>(super.getTypes().size());
+		}
+		pendingValues.add(new Value<Object>(type, value));
+		if (pendingValues.size() == super.getTypes().size()) {
+			super.addRow(new Row(pendingValues));
+			pendingValues = null;
+		}
+		return this;
+	}
+
+	private static Object boxInt(DataSetDataType type, int value) {
+		switch (type) {
+			case Int8:
+				return (byte) value;
+			case Int16:
+			case UInt8:
+				return (short) value;
+			case Int32:
+			case UInt16:
+				return value;
+			default:
+				throw new IllegalArgumentException("Can not append a int to a column of type " + type);
+		}
+	}
+
+	private static Object boxLong(DataSetDataType type, long value) {
+		switch (type) {
+			case Int64:
+			case UInt32:
+				return value;
+			case UInt64:
+				return new BigInteger(Long.toUnsignedString(value));
+			case DateTime:
+				return new Date(value);
+			default:
+				throw new IllegalArgumentException("Can not append a long to a column of type " + type);
+		}
+	}
+
+	/*
+	 * Returns the class of the values of a DataSetDataType
+	 */
+	private static Class<?> valueClass(DataSetDataType type) {
+		switch (type) {
+			case Int8:
+				return Byte.class;
+			case Int16:
+			case UInt8:
+				return Short.class;
+			case Int32:
+			case UInt16:
+				return Integer.class;
+			case Int64:
+			case UInt32:
+				return Long.class;
+			case UInt64:
+				return BigInteger.class;
+			case DateTime:
+				return Date.class;
+			case Float:
+				return Float.class;
+			case Double:
+				return Double.class;
+			case Boolean:
+				return Boolean.class;
+			default:
+				// String and Text
+				return String.class;
+		}
+	}
+
+	/*
+	 * Returns the storage of the next column after checking it is of the expected primitive array class and whether it
+	 * is a String column
+	 */
+	private Object nextColumn(Class<?> arrayClass, boolean stringColumn) {
+		ensureCapacity();
+		Object column = columns[nextColumn];
+		if (column.getClass() != arrayClass || (dictionaries[nextColumn] != null) != stringColumn) {
+			throw new IllegalArgumentException("Can not append a " + (stringColumn ? "String" : arrayClass
+					.getComponentType()) + " to column " + nextColumn + " of type " + columnTypes[nextColumn]);
+		}
+		return column;
+	}
+
+	private ColumnarDataSet advance() {
+		if (++nextColumn == columnCount) {
+			nextColumn = 0;
+			rowCount++;
+		}
+		return this;
+	}
+
+	private void ensureCapacity() {
+		if (rowCount < capacity) {
+			return;
+		}
+		capacity = capacity * 2;
+		for (int i = 0; i < columnCount; i++) {
+			Object column = columns[i];
+			if (column instanceof int[]) {
+				columns[i] = Arrays.copyOf((int[]) column, capacity);
+			} else if (column instanceof long[]) {
+				columns[i] = Arrays.copyOf((long[]) column, capacity);
+			} else if (column instanceof float[]) {
+				columns[i] = Arrays.copyOf((float[]) column, capacity);
+			} else if (column instanceof double[]) {
+				columns[i] = Arrays.copyOf((double[]) column, capacity);
+			} else {
+				columns[i] = Arrays.copyOf((boolean[]) column, capacity);
+			}
+			nulls[i] = Arrays.copyOf(nulls[i], (capacity + 63) >>> 6);
+		}
+	}
+
+	private static <T> T toClass(DataSetDataType type, Object value, Class<T> clazz) {
+		if (!clazz.isInstance(value)) {
+			throw new IllegalArgumentException("Invalid type " + value.getClass() + " for " + type);
+		}
+		return clazz.cast(value);
+	}
+
+	/*
+	 * The distinct values of a String or Text column
+	 */
+	private static class StringDictionary {
+
+		private final List<String> values = new ArrayList<String>();
+		private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+		private String get(int index) {
+			return values.get(index);
+		}
+
+		private int indexOf(String value) {
+			Integer index = indexes.get(value);
+			if (index == null) {
+				index = values.size();
+				values.add(value);
+				indexes.put(value, index);
+			}
+			return index;
+		}
+
+		private void clear() {
+			values.clear();
+			indexes.clear();
+		}
+	}
+
+	/**
+	 * A builder for creating a {@link ColumnarDataSet} instance.
+	 */
+	public static class ColumnarDataSetBuilder {
+
+		private final List<String> columnNames;
+		private final List<DataSetDataType> types;
+		private int initialCapacity;
+
+		public ColumnarDataSetBuilder() {
+			this.columnNames = new ArrayList<String>();
+			this.types = new ArrayList<DataSetDataType>();
+			this.initialCapacity = DEFAULT_CAPACITY;
+		}
+
+		public ColumnarDataSetBuilder addColumn(String columnName, DataSetDataType type) {
+			this.columnNames.add(columnName);
+			this.types.add(type);
+			return this;
+		}
+
+		public ColumnarDataSetBuilder initialCapacity(int initialCapacity) {
+			this.initialCapacity = initialCapacity;
+			return this;
+		}
+
+		public ColumnarDataSet createColumnarDataSet() throws SparkplugException {
+			return new ColumnarDataSet(columnNames, types, initialCapacity);
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A small {@link Map} of property names to {@link PropertyValue}s held in parallel arrays in insertion order. Most
+ * {@link PropertySet}s hold only a few properties, often just the Quality, so a linear scan is cheaper than hashing
+ * and the map needs no per entry objects. The position of the Quality property is tracked so
+ * {@link #getQuality()} does not search for it.
+ *
+ * Instances are not thread safe.
+ */
+public final class CompactPropertyMap extends AbstractMap<String, PropertyValue> {
+
+	private static final int DEFAULT_CAPACITY = 2;
+
+	private String[] keys;
+	private PropertyValue[] values;
+	private int size;
+	private int qualityIndex = -1;
+	private int modCount;
+
+	private Set<Map.Entry<String, PropertyValue>> entrySet;
+
+	/**
+	 * Default Constructor
+	 */
+	public CompactPropertyMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity the number of properties to allocate space for
+	 */
+	public CompactPropertyMap(int capacity) {
+		keys = new String[Math.max(capacity, 1)];
+		values = new PropertyValue[keys.length];
+	}
+
+	/**
+	 * Copy Constructor
+	 *
+	 * @param map the {@link Map} to copy the properties of
+	 */
+	public CompactPropertyMap(Map<String, PropertyValue> map) {
+		this(map.size());
+		putAll(map);
+	}
+
+	/**
+	 * Returns the name of the property at an index
+	 *
+	 * @param index the index, from 0 to {@link #size()} - 1, in insertion order
+	 * @return the name of the property
+	 */
+	public String getKey(int index) {
+		checkIndex(index);
+		return keys[index];
+	}
+
+	/**
+	 * Returns the {@link PropertyValue} at an index
+	 *
+	 * @param index the index, from 0 to {@link #size()} - 1, in insertion order
+	 * @return the {@link PropertyValue}
+	 */
+	public PropertyValue getValue(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	/**
+	 * Returns the Quality {@link PropertyValue} without searching for it
+	 *
+	 * @return the Quality {@link PropertyValue}, or null if there is none
+	 */
+	public PropertyValue getQuality() {
+		return qualityIndex >= 0 ? values[qualityIndex] : null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public PropertyValue get(Object key) {
+		int index = indexOf(key);
+		return index >= 0 ? values[index] : null;
+	}
+
+	@Override
+	public PropertyValue put(String key, PropertyValue value) {
+		int index = indexOf(key);
+		if (index >= 0) {
+			PropertyValue previous = values[index];
+			values[index] = value;
+			return previous;
+		}
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		if (SparkplugMeta.QUALITY_PROP_NAME.equals(key)) {
+			qualityIndex = size;
+		}
+		keys[size] = key;
+		values[size] = value;
+		size++;
+		modCount++;
+		return null;
+	}
+
+	@Override
+	public PropertyValue remove(Object key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		PropertyValue previous = values[index];
+		removeAt(index);
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		qualityIndex = -1;
+		modCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<String, PropertyValue>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	private int indexOf(Object key) {
+		if (key == null) {
+			for (int i = 0; i < size; i++) {
+				if (keys[i] == null) {
+					return i;
+				}
+			}
+		} else {
+			for (int i = 0; i < size; i++) {
+				if (key.equals(keys[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private void removeAt(int index) {
+		int moved = size - index - 1;
+		System.arraycopy(keys, index + 1, keys, index, moved);
+		System.arraycopy(values, index + 1, values, index, moved);
+		size--;
+		keys[size] = null;
+		values[size] = null;
+		if (qualityIndex == index) {
+			qualityIndex = -1;
+		} else if (qualityIndex > index) {
+			qualityIndex--;
+		}
+		modCount++;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<String, PropertyValue>> {
+
+		@Override
+		public Iterator<Map.Entry<String, PropertyValue>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void clear() {
+			CompactPropertyMap.this.clear();
+		}
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<String, PropertyValue>> {
+		private int next;
+		private int last = -1;
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public Map.Entry<String, PropertyValue> next() {
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next >= size) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			return new Entry(last);
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeAt(last);
+			next = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	private final class Entry implements Map.Entry<String, PropertyValue> {
+		private final int index;
+
+		private Entry(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public String getKey() {
+			return keys[index];
+		}
+
+		@Override
+		public PropertyValue getValue() {
+			return values[index];
+		}
+
+		@Override
+		public PropertyValue setValue(PropertyValue value) {
+			PropertyValue previous = values[index];
+			values[index] = value;
+			return previous;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) object;
+			return Objects.equals(getKey(), entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return (getKey() == null ? 0 : getKey().hashCode()) ^ (getValue() == null ? 0 : getValue().hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
@@ -19,6 +19,7 @@ import java.util.List;
 
 import org.eclipse.tahu.SparkplugException;
 import org.eclipse.tahu.json.DataSetDeserializer;
+import org.eclipse.tahu.json.DataSetSerializer;
 import org.eclipse.tahu.message.model.Row.RowBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,10 +27,13 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * A data set that represents a table of data.
  */
+@JsonSerialize(
+		using = DataSetSerializer.class)
 @JsonDeserialize(
 		using = DataSetDeserializer.class)
 public class DataSet {
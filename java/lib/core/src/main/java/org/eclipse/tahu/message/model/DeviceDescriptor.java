@@ -17,6 +17,8 @@ public class DeviceDescriptor extends EdgeNodeDescriptor {
 
 	private final String deviceId;
 	private final String descriptorString;
+	private final int hash;
+	private final EdgeNodeDescriptor edgeNodeDescriptor;
 
 	/**
 	 * Constructor
@@ -29,6 +31,8 @@ public class DeviceDescriptor extends EdgeNodeDescriptor {
 		super(groupId, edgeNodeId);
 		this.deviceId = deviceId;
 		this.descriptorString = groupId + "/" + edgeNodeId + "/" + deviceId;
+		this.hash = descriptorString.hashCode();
+		this.edgeNodeDescriptor = null;
 	}
 
 	/**
@@ -41,6 +45,8 @@ public class DeviceDescriptor extends EdgeNodeDescriptor {
 		super(descriptorString.substring(0, descriptorString.lastIndexOf("/")));
 		this.deviceId = descriptorString.substring(descriptorString.lastIndexOf("/") + 1);
 		this.descriptorString = descriptorString;
+		this.hash = descriptorString.hashCode();
+		this.edgeNodeDescriptor = null;
 	}
 
 	/**
@@ -54,6 +60,10 @@ public class DeviceDescriptor extends EdgeNodeDescriptor {
 		super(edgeNodeDescriptor.getGroupId(), edgeNodeDescriptor.getEdgeNodeId());
 		this.deviceId = deviceId;
 		this.descriptorString = edgeNodeDescriptor.getDescriptorString() + "/" + deviceId;
+		this.hash = descriptorString.hashCode();
+		this.edgeNodeDescriptor = edgeNodeDescriptor instanceof DeviceDescriptor
+				? ((DeviceDescriptor) edgeNodeDescriptor).getEdgeNodeDescriptor()
+				: edgeNodeDescriptor;
 	}
 
 	/**
@@ -93,6 +103,9 @@ public class DeviceDescriptor extends EdgeNodeDescriptor {
 	 * @return a {@link EdgeNodeDescriptor} representing the Device's parent Edge Node Descriptor.
 	 */
 	public EdgeNodeDescriptor getEdgeNodeDescriptor() {
+		if (edgeNodeDescriptor != null) {
+			return edgeNodeDescriptor;
+		}
 		return super.getEdgeNodeDescriptor();
 	}
 
@@ -108,11 +121,14 @@ public class DeviceDescriptor extends EdgeNodeDescriptor {
 
 	@Override
 	public int hashCode() {
-		return this.getDescriptorString().hashCode();
+		return hash;
 	}
 
 	@Override
 	public boolean equals(Object object) {
+		if (object == this) {
+			return true;
+		}
 		if (object instanceof DeviceDescriptor) {
 			return this.getDescriptorString().equals(((DeviceDescriptor) object).getDescriptorString());
 		}
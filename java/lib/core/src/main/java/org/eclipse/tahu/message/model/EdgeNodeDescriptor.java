@@ -23,6 +23,7 @@ public class EdgeNodeDescriptor implements SparkplugDescriptor {
 	private final String groupId;
 	private final String edgeNodeId;
 	private final String descriptorString;
+	private final int hash;
 
 	/**
 	 * Constructor
@@ -34,6 +35,7 @@ public class EdgeNodeDescriptor implements SparkplugDescriptor {
 		this.groupId = groupId;
 		this.edgeNodeId = edgeNodeId;
 		this.descriptorString = groupId + "/" + edgeNodeId;
+		this.hash = descriptorString.hashCode();
 	}
 
 	/**
@@ -46,6 +48,7 @@ public class EdgeNodeDescriptor implements SparkplugDescriptor {
 		this.groupId = tokens[0];
 		this.edgeNodeId = tokens[1];
 		this.descriptorString = descriptorString;
+		this.hash = descriptorString.hashCode();
 	}
 
 	/**
@@ -108,11 +111,14 @@ public class EdgeNodeDescriptor implements SparkplugDescriptor {
 
 	@Override
 	public int hashCode() {
-		return this.getDescriptorString().hashCode();
+		return hash;
 	}
 
 	@Override
 	public boolean equals(Object object) {
+		if (object == this) {
+			return true;
+		}
 		if (object instanceof EdgeNodeDescriptor) {
 			return this.getDescriptorString().equals(((EdgeNodeDescriptor) object).getDescriptorString());
 		}
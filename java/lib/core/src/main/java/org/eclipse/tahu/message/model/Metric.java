@@ -41,14 +41,23 @@ import com.fasterxml.jackson.annotation.JsonSetter;
 @JsonInclude(Include.NON_NULL)
 public class Metric {
 
+	// How the value is held - numeric, DateTime and Boolean values are stored unboxed in valueBits
+	private static final byte OBJECT_VALUE = 0;
+	private static final byte LONG_VALUE = 1;
+	private static final byte DOUBLE_VALUE = 2;
+	private static final byte BOOLEAN_VALUE = 3;
+
 	@JsonProperty("name")
 	private String name;
 
 	@JsonProperty("alias")
 	private Long alias;
 
+	// Serialized as a Date through getTimestamp() and setTimestamp(Date)
 	@JsonProperty("timestamp")
-	private Date timestamp;
+	private long timestamp;
+
+	private boolean hasTimestamp;
 
 	@JsonProperty("dataType")
 	private MetricDataType dataType;
@@ -70,8 +79,17 @@ public class Metric {
 	@JsonInclude(Include.NON_EMPTY)
 	private Object value;
 
+	private byte valueKind = OBJECT_VALUE;
+
+	private long valueBits;
+
 	private Boolean isNull = null;
 
+	// Set while the value or properties are still only held as encoded bytes
+	private volatile DeferredFields deferredValue;
+
+	private volatile DeferredFields deferredProperties;
+
 	/**
 	 * Default Constructor
 	 */
@@ -102,7 +120,7 @@ public class Metric {
 		super();
 		this.name = name;
 		this.alias = alias;
-		this.timestamp = timestamp;
+		setTimestamp(timestamp);
 		this.dataType = dataType;
 		this.isHistorical = isHistorical;
 		this.isTransient = isTransient;
@@ -113,6 +131,38 @@ public class Metric {
 		this.dataType.checkType(value);
 	}
 
+	/**
+	 * Constructor for a {@link Metric} whose value and/or {@link PropertySet} are decoded by the supplied
+	 * {@link DeferredFields} on first access rather than when the {@link Metric} is created
+	 *
+	 * @param name the name of the {@link Metric}
+	 * @param alias the alias of the {@link Metric}
+	 * @param timestamp the timestamp of the {@link Metric} representing the time at which the {@link Metric} changed in
+	 *            UDT time
+	 * @param dataType the {@link MetricDataType} of the {@link Metric}
+	 * @param isHistorical whether or not this {@link Metric} is a historical value
+	 * @param isTransient whether or not this {@link Metric} is a transient value
+	 * @param metaData the {@link MetaData} assocated with this {@link Metric}
+	 * @param properties the {@link PropertySet} associated with this {@link Metric} if it is not deferred
+	 * @param value the {@link Object} value of this {@link Metric} if it is not deferred
+	 * @param deferredFields the {@link DeferredFields} to decode the deferred value and/or {@link PropertySet} with
+	 *
+	 * @throws SparkplugInvalidTypeException if the value is not deferred and is not a valid {@link Object} type for the
+	 *             supplied {@link MetricDataType}
+	 */
+	public Metric(String name, Long alias, Date timestamp, MetricDataType dataType, Boolean isHistorical,
+			Boolean isTransient, MetaData metaData, PropertySet properties, Object value,
+			DeferredFields deferredFields) throws SparkplugInvalidTypeException {
+		this(name, alias, timestamp, dataType, isHistorical, isTransient, metaData, properties, value);
+		if (deferredFields.isValueDeferred()) {
+			isNull = false;
+			deferredValue = deferredFields;
+		}
+		if (deferredFields.isPropertiesDeferred()) {
+			deferredProperties = deferredFields;
+		}
+	}
+
 	/**
 	 * Copy Constructor
 	 *
@@ -120,9 +170,15 @@ public class Metric {
 	 * @throws SparkplugInvalidTypeException if the {@link Metric} can not be copied due to an invalid {@link DataType}
 	 */
 	public Metric(Metric metric) throws SparkplugInvalidTypeException {
-		this(metric.getName(), metric.getAlias(), metric.getTimestamp(), metric.getDataType(), metric.getIsHistorical(),
+		this(metric.getName(), metric.getAlias(), null, metric.getDataType(), metric.getIsHistorical(),
 				metric.getIsTransient(), metric.getMetaData() != null ? new MetaData(metric.getMetaData()) : null,
-				metric.getProperties() != null ? new PropertySet(metric.getProperties()) : null, metric.getValue());
+				metric.getProperties() != null ? new PropertySet(metric.getProperties()) : null,
+				metric.valueKind == OBJECT_VALUE ? metric.getValue() : null);
+		this.timestamp = metric.timestamp;
+		this.hasTimestamp = metric.hasTimestamp;
+		if (metric.valueKind != OBJECT_VALUE) {
+			setPrimitiveValue(metric.valueKind, metric.valueBits);
+		}
 	}
 
 	/**
@@ -185,7 +241,7 @@ public class Metric {
 	 * @return the timestamp associated with the {@link Metric}
 	 */
 	public Date getTimestamp() {
-		return timestamp;
+		return hasTimestamp ? new Date(timestamp) : null;
 	}
 
 	/**
@@ -194,6 +250,37 @@ public class Metric {
 	 * @param timestamp the timestamp associated with the {@link Metric}
 	 */
 	public void setTimestamp(Date timestamp) {
+		this.hasTimestamp = timestamp != null;
+		this.timestamp = timestamp != null ? timestamp.getTime() : 0;
+	}
+
+	/**
+	 * Whether or not this {@link Metric} has a timestamp
+	 *
+	 * @return true if the timestamp is set, otherwise false
+	 */
+	public boolean hasTimestamp() {
+		return hasTimestamp;
+	}
+
+	/**
+	 * Gets the timestamp associated with the {@link Metric} in milliseconds since the epoch without creating a
+	 * {@link Date}
+	 *
+	 * @return the timestamp associated with the {@link Metric} or 0 if it has no timestamp
+	 */
+	@JsonIgnore
+	public long getTimestampMillis() {
+		return timestamp;
+	}
+
+	/**
+	 * Sets the timestamp associated with the {@link Metric} in milliseconds since the epoch
+	 *
+	 * @param timestamp the timestamp associated with the {@link Metric} in milliseconds since the epoch
+	 */
+	public void setTimestampMillis(long timestamp) {
+		this.hasTimestamp = true;
 		this.timestamp = timestamp;
 	}
 
@@ -241,6 +328,12 @@ public class Metric {
 	 * @return the {@link Object} value associated with the {@link Metric}
 	 */
 	public Object getValue() {
+		if (deferredValue != null) {
+			decodeDeferredValue();
+		}
+		if (valueKind != OBJECT_VALUE) {
+			return boxValue();
+		}
 		return value;
 	}
 
@@ -250,16 +343,252 @@ public class Metric {
 	 * @param value the {@link Object} value associated with the {@link Metric}
 	 */
 	public void setValue(Object value) {
+		deferredValue = null;
+		valueKind = OBJECT_VALUE;
 		this.value = value;
 		isNull = (value == null);
 	}
 
+	/**
+	 * Whether or not this {@link Metric} has a non-null value. Unlike checking {@link #getValue()} this neither boxes
+	 * nor decodes the value.
+	 *
+	 * @return true if the value is not null, otherwise false
+	 */
+	public boolean hasValue() {
+		return deferredValue != null || valueKind != OBJECT_VALUE || value != null;
+	}
+
+	/**
+	 * Gets the value of the {@link Metric} as a long without boxing it. DateTime values are returned as milliseconds
+	 * since the epoch and UInt64 values as their raw 64 bits. Floating point and Boolean values are converted and a
+	 * null value is returned as 0.
+	 *
+	 * @return the value of the {@link Metric} as a long
+	 * @throws ClassCastException if the value can not be converted to a long
+	 */
+	@JsonIgnore
+	public long getLongValue() {
+		switch (valueKind) {
+			case LONG_VALUE:
+			case BOOLEAN_VALUE:
+				return valueBits;
+			case DOUBLE_VALUE:
+				return (long) Double.longBitsToDouble(valueBits);
+			default:
+				Object value = getValue();
+				if (value == null) {
+					return 0;
+				} else if (value instanceof Number) {
+					return ((Number) value).longValue();
+				} else if (value instanceof Date) {
+					return ((Date) value).getTime();
+				} else if (value instanceof Boolean) {
+					return (Boolean) value ? 1 : 0;
+				}
+				throw new ClassCastException("Can not convert " + value.getClass().getName() + " to long");
+		}
+	}
+
+	/**
+	 * Gets the value of the {@link Metric} as a double without boxing it. Integer and Boolean values are converted and
+	 * a null value is returned as 0.
+	 *
+	 * @return the value of the {@link Metric} as a double
+	 * @throws ClassCastException if the value can not be converted to a double
+	 */
+	@JsonIgnore
+	public double getDoubleValue() {
+		switch (valueKind) {
+			case DOUBLE_VALUE:
+				return Double.longBitsToDouble(valueBits);
+			case LONG_VALUE:
+			case BOOLEAN_VALUE:
+				return valueBits;
+			default:
+				Object value = getValue();
+				if (value == null) {
+					return 0;
+				} else if (value instanceof Number) {
+					return ((Number) value).doubleValue();
+				} else if (value instanceof Boolean) {
+					return (Boolean) value ? 1 : 0;
+				}
+				throw new ClassCastException("Can not convert " + value.getClass().getName() + " to double");
+		}
+	}
+
+	/**
+	 * Gets the value of the {@link Metric} as a boolean without boxing it. Numeric values are true if they are not
+	 * zero, String values are parsed and a null value is returned as false.
+	 *
+	 * @return the value of the {@link Metric} as a boolean
+	 * @throws ClassCastException if the value can not be converted to a boolean
+	 */
+	@JsonIgnore
+	public boolean getBooleanValue() {
+		switch (valueKind) {
+			case BOOLEAN_VALUE:
+			case LONG_VALUE:
+				return valueBits != 0;
+			case DOUBLE_VALUE:
+				return Double.longBitsToDouble(valueBits) != 0;
+			default:
+				Object value = getValue();
+				if (value == null) {
+					return false;
+				} else if (value instanceof Boolean) {
+					return (Boolean) value;
+				} else if (value instanceof Number) {
+					return ((Number) value).doubleValue() != 0;
+				} else if (value instanceof String) {
+					return Boolean.parseBoolean((String) value);
+				}
+				throw new ClassCastException("Can not convert " + value.getClass().getName() + " to boolean");
+		}
+	}
+
+	/**
+	 * Sets the value of an integer or DateTime {@link Metric} without boxing it. DateTime values are milliseconds since
+	 * the epoch. Float and Double metrics store the value converted to a double and UInt64 metrics store it as the
+	 * {@link BigInteger} of the unsigned 64 bit value.
+	 *
+	 * @param value the value associated with the {@link Metric}
+	 * @throws SparkplugInvalidTypeException if the {@link MetricDataType} does not hold integers or the value does not
+	 *             fit in the {@link Object} type of an integer {@link MetricDataType}
+	 */
+	public void setLongValue(long value) throws SparkplugInvalidTypeException {
+		byte kind = valueKind(dataType);
+		if (kind == LONG_VALUE) {
+			if (!fitsObjectType(dataType, value)) {
+				throw new SparkplugInvalidTypeException("Value " + value + " is out of range for " + dataType);
+			}
+			setPrimitiveValue(LONG_VALUE, value);
+		} else if (kind == DOUBLE_VALUE) {
+			setPrimitiveValue(DOUBLE_VALUE, Double.doubleToRawLongBits(value));
+		} else if (dataType == MetricDataType.UInt64) {
+			setValue(new BigInteger(Long.toUnsignedString(value)));
+		} else {
+			throw new SparkplugInvalidTypeException(Long.class);
+		}
+	}
+
+	/**
+	 * Sets the value of a Float or Double {@link Metric} without boxing it
+	 *
+	 * @param value the value associated with the {@link Metric}
+	 * @throws SparkplugInvalidTypeException if the {@link MetricDataType} is not Float or Double
+	 */
+	public void setDoubleValue(double value) throws SparkplugInvalidTypeException {
+		if (valueKind(dataType) != DOUBLE_VALUE) {
+			throw new SparkplugInvalidTypeException(Double.class);
+		}
+		setPrimitiveValue(DOUBLE_VALUE, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Sets the value of a Boolean {@link Metric} without boxing it
+	 *
+	 * @param value the value associated with the {@link Metric}
+	 * @throws SparkplugInvalidTypeException if the {@link MetricDataType} is not Boolean
+	 */
+	public void setBooleanValue(boolean value) throws SparkplugInvalidTypeException {
+		if (valueKind(dataType) != BOOLEAN_VALUE) {
+			throw new SparkplugInvalidTypeException(Boolean.class);
+		}
+		setPrimitiveValue(BOOLEAN_VALUE, value ? 1 : 0);
+	}
+
+	private void setPrimitiveValue(byte kind, long bits) {
+		deferredValue = null;
+		value = null;
+		valueKind = kind;
+		valueBits = bits;
+		isNull = false;
+	}
+
+	private Object boxValue() {
+		switch (valueKind) {
+			case LONG_VALUE:
+				switch (dataType) {
+					case Int8:
+						return (byte) valueBits;
+					case Int16:
+					case UInt8:
+						return (short) valueBits;
+					case Int32:
+					case UInt16:
+						return (int) valueBits;
+					case DateTime:
+						return new Date(valueBits);
+					default:
+						return valueBits;
+				}
+			case DOUBLE_VALUE:
+				double doubleValue = Double.longBitsToDouble(valueBits);
+				if (dataType == MetricDataType.Float) {
+					return (float) doubleValue;
+				}
+				return doubleValue;
+			default:
+				return valueBits != 0;
+		}
+	}
+
+	/*
+	 * Returns true if the value is not changed by narrowing it to the Object type of the MetricDataType
+	 */
+	private static boolean fitsObjectType(MetricDataType dataType, long value) {
+		switch (dataType) {
+			case Int8:
+				return value == (byte) value;
+			case Int16:
+			case UInt8:
+				return value == (short) value;
+			case Int32:
+			case UInt16:
+				return value == (int) value;
+			default:
+				return true;
+		}
+	}
+
+	/*
+	 * Returns how values of the MetricDataType can be held without boxing
+	 */
+	private static byte valueKind(MetricDataType dataType) {
+		if (dataType == null) {
+			return OBJECT_VALUE;
+		}
+		switch (dataType) {
+			case Int8:
+			case Int16:
+			case Int32:
+			case Int64:
+			case UInt8:
+			case UInt16:
+			case UInt32:
+			case DateTime:
+				return LONG_VALUE;
+			case Float:
+			case Double:
+				return DOUBLE_VALUE;
+			case Boolean:
+				return BOOLEAN_VALUE;
+			default:
+				return OBJECT_VALUE;
+		}
+	}
+
 	/**
 	 * Gets the {@link PropertySet} associated with the {@link Metric}
 	 *
 	 * @return the {@link PropertySet} associated with the {@link Metric}
 	 */
 	public PropertySet getProperties() {
+		if (deferredProperties != null) {
+			decodeDeferredProperties();
+		}
 		return this.properties;
 	}
 
@@ -269,9 +598,64 @@ public class Metric {
 	 * @param metadata the {@link PropertySet} associated with the {@link Metric}
 	 */
 	public void setProperties(PropertySet properties) {
+		deferredProperties = null;
 		this.properties = properties;
 	}
 
+	/**
+	 * Whether or not the value of this {@link Metric} is still to be decoded on first access
+	 *
+	 * @return true if the value has not been decoded yet, otherwise false
+	 */
+	@JsonIgnore
+	public boolean isValueDeferred() {
+		return deferredValue != null;
+	}
+
+	/**
+	 * Sets the value of this {@link Metric} to the value of another {@link Metric} without boxing it. A value that is
+	 * still to be decoded is decoded first so the copy never holds on to the payload the other {@link Metric} was
+	 * decoded from.
+	 *
+	 * @param metric the {@link Metric} to copy the value from
+	 * @throws RuntimeException if the value of the other {@link Metric} can not be decoded
+	 */
+	public void copyValue(Metric metric) {
+		if (metric.deferredValue != null) {
+			metric.decodeDeferredValue();
+		}
+		value = metric.value;
+		valueKind = metric.valueKind;
+		valueBits = metric.valueBits;
+		isNull = metric.isNull;
+		deferredValue = null;
+	}
+
+	private synchronized void decodeDeferredValue() {
+		DeferredFields deferred = deferredValue;
+		if (deferred != null) {
+			try {
+				value = deferred.decodeValue();
+			} catch (Exception e) {
+				throw new RuntimeException("Failed to decode the value of metric name=" + name + " alias=" + alias, e);
+			}
+			deferredValue = null;
+		}
+	}
+
+	private synchronized void decodeDeferredProperties() {
+		DeferredFields deferred = deferredProperties;
+		if (deferred != null) {
+			try {
+				properties = deferred.decodeProperties();
+			} catch (Exception e) {
+				throw new RuntimeException(
+						"Failed to decode the properties of metric name=" + name + " alias=" + alias, e);
+			}
+			deferredProperties = null;
+		}
+	}
+
 	/**
 	 * Whether or not this {@link Metric} is historical
 	 *
@@ -363,8 +747,10 @@ public class Metric {
 		result = prime * result + ((isTransient == null) ? 0 : isTransient.hashCode());
 		result = prime * result + ((metaData == null) ? 0 : metaData.hashCode());
 		result = prime * result + ((name == null) ? 0 : name.hashCode());
+		PropertySet properties = getProperties();
 		result = prime * result + ((properties == null) ? 0 : properties.hashCode());
-		result = prime * result + ((timestamp == null) ? 0 : timestamp.hashCode());
+		result = prime * result + (hasTimestamp ? Long.hashCode(timestamp) : 0);
+		Object value = getValue();
 		result = prime * result + ((value == null) ? 0 : value.hashCode());
 		return result;
 	}
@@ -410,20 +796,19 @@ public class Metric {
 				return false;
 		} else if (!name.equals(other.name))
 			return false;
+		PropertySet properties = getProperties();
 		if (properties == null) {
-			if (other.properties != null)
+			if (other.getProperties() != null)
 				return false;
-		} else if (!properties.equals(other.properties))
+		} else if (!properties.equals(other.getProperties()))
 			return false;
-		if (timestamp == null) {
-			if (other.timestamp != null)
-				return false;
-		} else if (!timestamp.equals(other.timestamp))
+		if (hasTimestamp != other.hasTimestamp || timestamp != other.timestamp)
 			return false;
+		Object value = getValue();
 		if (value == null) {
-			if (other.value != null)
+			if (other.getValue() != null)
 				return false;
-		} else if (!value.equals(other.value))
+		} else if (!value.equals(other.getValue()))
 			return false;
 		return true;
 	}
@@ -436,7 +821,7 @@ public class Metric {
 		builder.append(", alias=");
 		builder.append(alias);
 		builder.append(", timestamp=");
-		builder.append(timestamp != null ? timestamp.getTime() : "null");
+		builder.append(hasTimestamp ? timestamp : "null");
 		builder.append(", dataType=");
 		builder.append(dataType);
 		builder.append(", isHistorical=");
@@ -446,8 +831,9 @@ public class Metric {
 		builder.append(", metaData=");
 		builder.append(metaData);
 		builder.append(", properties=");
-		builder.append(properties);
+		builder.append(getProperties());
 		builder.append(", value=");
+		Object value = getValue();
 		if (dataType == MetricDataType.BooleanArray) {
 			builder.append(Arrays.toString((Boolean[]) value));
 		} else if (dataType == MetricDataType.DateTimeArray) {
@@ -483,6 +869,43 @@ public class Metric {
 		return builder.toString();
 	}
 
+	/**
+	 * Decodes the value and/or {@link PropertySet} of a {@link Metric} from encoded bytes retained by a
+	 * {@link org.eclipse.tahu.message.PayloadDecoder}. Each part is decoded at most once.
+	 */
+	public interface DeferredFields {
+
+		/**
+		 * Whether or not the value of the {@link Metric} is decoded by {@link #decodeValue()}
+		 *
+		 * @return true if the value is deferred, otherwise false
+		 */
+		public boolean isValueDeferred();
+
+		/**
+		 * Whether or not the {@link PropertySet} of the {@link Metric} is decoded by {@link #decodeProperties()}
+		 *
+		 * @return true if the {@link PropertySet} is deferred, otherwise false
+		 */
+		public boolean isPropertiesDeferred();
+
+		/**
+		 * Decodes the value of the {@link Metric}
+		 *
+		 * @return the decoded value
+		 * @throws Exception if the value can not be decoded
+		 */
+		public Object decodeValue() throws Exception;
+
+		/**
+		 * Decodes the {@link PropertySet} of the {@link Metric}
+		 *
+		 * @return the decoded {@link PropertySet}
+		 * @throws Exception if the {@link PropertySet} can not be decoded
+		 */
+		public PropertySet decodeProperties() throws Exception;
+	}
+
 	/**
 	 * A builder for creating a {@link Metric} instance.
 	 */
@@ -490,24 +913,27 @@ public class Metric {
 
 		private String name;
 		private Long alias;
-		private Date timestamp;
+		private long timestamp;
+		private boolean hasTimestamp;
 		private MetricDataType dataType;
 		private Boolean isHistorical;
 		private Boolean isTransient;
 		private MetaData metaData = null;
 		private PropertySet properties = null;
 		private Object value;
+		private byte valueKind = OBJECT_VALUE;
+		private long valueBits;
 
 		public MetricBuilder(String name, MetricDataType dataType, Object value) {
 			this.name = name;
-			this.timestamp = new Date();
+			timestamp(System.currentTimeMillis());
 			this.dataType = dataType;
 			this.value = value;
 		}
 
 		public MetricBuilder(Long alias, MetricDataType dataType, Object value) {
 			this.alias = alias;
-			this.timestamp = new Date();
+			timestamp(System.currentTimeMillis());
 			this.dataType = dataType;
 			this.value = value;
 		}
@@ -515,7 +941,8 @@ public class Metric {
 		public MetricBuilder(Metric metric) throws SparkplugException {
 			this.name = metric.getName();
 			this.alias = metric.getAlias();
-			this.timestamp = metric.getTimestamp();
+			this.timestamp = metric.timestamp;
+			this.hasTimestamp = metric.hasTimestamp;
 			this.dataType = metric.getDataType();
 			this.isHistorical = metric.isHistorical();
 			this.isTransient = metric.isTransient();
@@ -536,7 +963,11 @@ public class Metric {
 							: null;
 					break;
 				default:
-					this.value = metric.getValue();
+					if (metric.valueKind != OBJECT_VALUE) {
+						primitiveValue(metric.valueKind, metric.valueBits);
+					} else {
+						this.value = metric.getValue();
+					}
 			}
 		}
 
@@ -551,6 +982,13 @@ public class Metric {
 		}
 
 		public MetricBuilder timestamp(Date timestamp) {
+			this.hasTimestamp = timestamp != null;
+			this.timestamp = timestamp != null ? timestamp.getTime() : 0;
+			return this;
+		}
+
+		public MetricBuilder timestamp(long timestamp) {
+			this.hasTimestamp = true;
 			this.timestamp = timestamp;
 			return this;
 		}
@@ -582,11 +1020,64 @@ public class Metric {
 
 		public MetricBuilder value(Object value) {
 			this.value = value;
+			this.valueKind = OBJECT_VALUE;
+			return this;
+		}
+
+		/**
+		 * Sets the value of an integer or DateTime {@link Metric} without boxing it
+		 *
+		 * @param value the value, which must fit in the {@link Object} type of the {@link MetricDataType}
+		 * @return this {@link MetricBuilder}
+		 */
+		public MetricBuilder longValue(long value) {
+			return primitiveValue(LONG_VALUE, value);
+		}
+
+		/**
+		 * Sets the value of a Float or Double {@link Metric} without boxing it
+		 *
+		 * @param value the value
+		 * @return this {@link MetricBuilder}
+		 */
+		public MetricBuilder doubleValue(double value) {
+			return primitiveValue(DOUBLE_VALUE, Double.doubleToRawLongBits(value));
+		}
+
+		/**
+		 * Sets the value of a Boolean {@link Metric} without boxing it
+		 *
+		 * @param value the value
+		 * @return this {@link MetricBuilder}
+		 */
+		public MetricBuilder booleanValue(boolean value) {
+			return primitiveValue(BOOLEAN_VALUE, value ? 1 : 0);
+		}
+
+		private MetricBuilder primitiveValue(byte valueKind, long valueBits) {
+			this.value = null;
+			this.valueKind = valueKind;
+			this.valueBits = valueBits;
 			return this;
 		}
 
 		public Metric createMetric() throws SparkplugInvalidTypeException {
-			return new Metric(name, alias, timestamp, dataType, isHistorical, isTransient, metaData, properties, value);
+			Metric metric =
+					new Metric(name, alias, null, dataType, isHistorical, isTransient, metaData, properties, value);
+			if (hasTimestamp) {
+				metric.setTimestampMillis(timestamp);
+			}
+			if (valueKind != OBJECT_VALUE) {
+				// Primitive values are only accepted by the datatypes that hold them unboxed and must fit without loss
+				if (valueKind(dataType) != valueKind) {
+					throw new SparkplugInvalidTypeException(valueKind == LONG_VALUE ? Long.class
+							: valueKind == DOUBLE_VALUE ? Double.class : Boolean.class);
+				} else if (valueKind == LONG_VALUE && !fitsObjectType(dataType, valueBits)) {
+					throw new SparkplugInvalidTypeException("Value " + valueBits + " is out of range for " + dataType);
+				}
+				metric.setPrimitiveValue(valueKind, valueBits);
+			}
+			return metric;
 		}
 	}
 }
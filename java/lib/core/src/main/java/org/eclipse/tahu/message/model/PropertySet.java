@@ -14,7 +14,6 @@
 package org.eclipse.tahu.message.model;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -34,7 +33,7 @@ public class PropertySet implements Map<String, PropertyValue> {
 	 * Default Constructor
 	 */
 	public PropertySet() {
-		this.map = new HashMap<>();
+		this.map = new CompactPropertyMap();
 	}
 
 	/**
@@ -67,6 +66,34 @@ public class PropertySet implements Map<String, PropertyValue> {
 		return this.map.get(name);
 	}
 
+	/**
+	 * Gets the Quality {@link PropertyValue}. This does not search the properties when they are held in a
+	 * {@link CompactPropertyMap}.
+	 *
+	 * @return the Quality {@link PropertyValue} or null if there is none
+	 */
+	@JsonIgnore
+	public PropertyValue getQuality() {
+		if (map instanceof CompactPropertyMap) {
+			return ((CompactPropertyMap) map).getQuality();
+		}
+		return map.get(SparkplugMeta.QUALITY_PROP_NAME);
+	}
+
+	/**
+	 * Gets the Quality code without allocating
+	 *
+	 * @param defaultQuality the quality code to return if there is no Quality or it is null
+	 *
+	 * @return the Quality code
+	 */
+	@JsonIgnore
+	public int getQualityCode(int defaultQuality) {
+		PropertyValue quality = getQuality();
+		Object value = quality != null ? quality.getValue() : null;
+		return value instanceof Number ? ((Number) value).intValue() : defaultQuality;
+	}
+
 	/**
 	 * Sets the {@link PropertyValue} for a give property name
 	 *
@@ -194,7 +221,7 @@ public class PropertySet implements Map<String, PropertyValue> {
 		private Map<String, PropertyValue> propertyMap;
 
 		public PropertySetBuilder() {
-			this.propertyMap = new HashMap<>();
+			this.propertyMap = new CompactPropertyMap();
 		}
 
 		public PropertySetBuilder(Map<String, PropertyValue> propertyMap) {
@@ -202,7 +229,7 @@ public class PropertySet implements Map<String, PropertyValue> {
 		}
 
 		public PropertySetBuilder(PropertySet propertySet) throws SparkplugInvalidTypeException {
-			this.propertyMap = new HashMap<>();
+			this.propertyMap = new CompactPropertyMap(propertySet.size());
 			for (String name : propertySet.getNames()) {
 				PropertyValue value = propertySet.getPropertyValue(name);
 				propertyMap.put(name, new PropertyValue(value.getType(), value.getValue()));
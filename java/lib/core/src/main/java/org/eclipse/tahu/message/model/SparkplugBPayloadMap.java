@@ -249,16 +249,15 @@ public class SparkplugBPayloadMap extends SparkplugBPayload {
 
 	private void handleProps(Metric existingMetric, Metric newMetric, List<Property<?>> customProperties) {
 		PropertySet props = existingMetric.getProperties();
-		if (newMetric.getProperties() != null
-				&& newMetric.getProperties().getPropertyValue(SparkplugMeta.QUALITY_PROP_NAME) != null) {
+		PropertyValue quality = newMetric.getProperties() != null ? newMetric.getProperties().getQuality() : null;
+		if (quality != null) {
 			if (props == null) {
 				props = new PropertySet();
 				existingMetric.setProperties(props);
 			}
-			props.setProperty(SparkplugMeta.QUALITY_PROP_NAME,
-					newMetric.getProperties().getPropertyValue(SparkplugMeta.QUALITY_PROP_NAME));
+			props.setProperty(SparkplugMeta.QUALITY_PROP_NAME, quality);
 		} else {
-			if (props != null) {
+			if (props != null && props.getQuality() != null) {
 				// If there is no quality - it is implied good and should be updated as such by simply removing it
 				props.remove(SparkplugMeta.QUALITY_PROP_NAME);
 			}
@@ -46,6 +46,11 @@ public class SparkplugMeta {
 	 */
 	public static final String QUALITY_PROP_NAME = "Quality";
 
+	/**
+	 * The quality code of a metric that has no quality property
+	 */
+	public static final int QUALITY_CODE_GOOD = 192;
+
 	/**
 	 * The Sparkplug 'Node Control' Metric prefix
 	 */
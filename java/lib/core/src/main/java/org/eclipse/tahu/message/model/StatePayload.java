@@ -13,11 +13,20 @@
 
 package org.eclipse.tahu.message.model;
 
+import org.eclipse.tahu.json.StatePayloadDeserializer;
+import org.eclipse.tahu.json.StatePayloadSerializer;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * A class to represent Sparkplug Host Application STATE payloads
  */
+@JsonSerialize(
+		using = StatePayloadSerializer.class)
+@JsonDeserialize(
+		using = StatePayloadDeserializer.class)
 public class StatePayload {
 
 	@JsonProperty("online")
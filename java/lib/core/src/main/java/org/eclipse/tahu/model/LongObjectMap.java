@@ -0,0 +1,224 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A map from primitive long keys to values used for Sparkplug aliases. Generated aliases are dense from zero so small
+ * non-negative keys are stored in an array indexed by the key. All other keys are stored in an open addressing table
+ * with linear probing. Neither path boxes the key.
+ *
+ * Reads are lock free and writes are serialized on the map. Entries can not be removed individually - {@link #clear()}
+ * replaces the backing arrays so concurrent readers only ever see a consistent set of entries.
+ */
+class LongObjectMap<V> {
+
+	private static final int MIN_DENSE_CAPACITY = 64;
+
+	// Keys at or beyond this always go in the sparse table, bounding the dense array at 4MB of references
+	private static final int MAX_DENSE_CAPACITY = 1 << 20;
+
+	private static final int MIN_SPARSE_CAPACITY = 16;
+
+	private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+	private volatile AtomicReferenceArray<V> dense;
+
+	private volatile SparseTable<V> sparse;
+
+	// Long.MIN_VALUE marks empty sparse slots so it is stored on its own
+	private volatile V minKeyValue;
+
+	private volatile int size;
+
+	LongObjectMap() {
+		dense = new AtomicReferenceArray<>(MIN_DENSE_CAPACITY);
+		sparse = null;
+	}
+
+	/**
+	 * Returns the value for the key or null if there is none
+	 *
+	 * @param key the key
+	 * @return the value for the key or null if there is none
+	 */
+	V get(long key) {
+		AtomicReferenceArray<V> dense = this.dense;
+		if (key >= 0 && key < dense.length()) {
+			V value = dense.get((int) key);
+			if (value != null) {
+				return value;
+			}
+		}
+		if (key == EMPTY_KEY) {
+			return minKeyValue;
+		}
+		SparseTable<V> sparse = this.sparse;
+		return sparse != null ? sparse.get(key) : null;
+	}
+
+	/**
+	 * Associates a value with the key, replacing any existing value
+	 *
+	 * @param key the key
+	 * @param value the value which must not be null
+	 */
+	synchronized void put(long key, V value) {
+		if (value == null) {
+			throw new NullPointerException("LongObjectMap does not support null values");
+		}
+		if (get(key) == null) {
+			size++;
+		}
+
+		AtomicReferenceArray<V> dense = this.dense;
+		if (key >= 0 && key < MAX_DENSE_CAPACITY && key < Math.max(dense.length() * 2L, MIN_DENSE_CAPACITY)) {
+			// The dense array is checked first on reads so any older entry for the key in the sparse table is shadowed
+			if (key >= dense.length()) {
+				AtomicReferenceArray<V> grown = new AtomicReferenceArray<>(dense.length() * 2);
+				for (int i = 0; i < dense.length(); i++) {
+					grown.lazySet(i, dense.get(i));
+				}
+				grown.set((int) key, value);
+				this.dense = grown;
+			} else {
+				dense.set((int) key, value);
+			}
+		} else if (key == EMPTY_KEY) {
+			minKeyValue = value;
+		} else {
+			SparseTable<V> sparse = this.sparse;
+			if (sparse == null) {
+				sparse = new SparseTable<>(MIN_SPARSE_CAPACITY);
+			} else if ((sparse.used + 1) * 2 > sparse.keys.length) {
+				sparse = sparse.grow();
+			}
+			sparse.put(key, value);
+			this.sparse = sparse;
+		}
+	}
+
+	/**
+	 * Removes all entries
+	 */
+	synchronized void clear() {
+		dense = new AtomicReferenceArray<>(MIN_DENSE_CAPACITY);
+		sparse = null;
+		minKeyValue = null;
+		size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < dense.length(); i++) {
+			V value = dense.get(i);
+			if (value != null) {
+				append(builder, i, value);
+			}
+		}
+		if (sparse != null) {
+			for (int i = 0; i < sparse.keys.length; i++) {
+				long key = sparse.keys[i];
+				V value = sparse.values.get(i);
+				// Skip entries shadowed by the dense array
+				if (key != EMPTY_KEY && value != null && get(key) == value) {
+					append(builder, key, value);
+				}
+			}
+		}
+		if (minKeyValue != null) {
+			append(builder, EMPTY_KEY, minKeyValue);
+		}
+		return builder.append("}").toString();
+	}
+
+	private static void append(StringBuilder builder, long key, Object value) {
+		if (builder.length() > 1) {
+			builder.append(", ");
+		}
+		builder.append(key).append("=").append(value);
+	}
+
+	/*
+	 * A linear probing table. Slots are only ever filled, never emptied, so a reader racing a put either finds the
+	 * completed entry or treats the key as absent.
+	 */
+	private static class SparseTable<V> {
+
+		private final long[] keys;
+		private final AtomicReferenceArray<V> values;
+		private final int shift;
+		private int used;
+
+		private SparseTable(int capacity) {
+			keys = new long[capacity];
+			Arrays.fill(keys, EMPTY_KEY);
+			values = new AtomicReferenceArray<>(capacity);
+			shift = Long.numberOfLeadingZeros(capacity - 1);
+		}
+
+		private int index(long key) {
+			return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+		}
+
+		private V get(long key) {
+			int mask = keys.length - 1;
+			for (int i = index(key);; i = (i + 1) & mask) {
+				long slotKey = keys[i];
+				if (slotKey == key) {
+					return values.get(i);
+				} else if (slotKey == EMPTY_KEY) {
+					return null;
+				}
+			}
+		}
+
+		private void put(long key, V value) {
+			int mask = keys.length - 1;
+			for (int i = index(key);; i = (i + 1) & mask) {
+				long slotKey = keys[i];
+				if (slotKey == key) {
+					values.set(i, value);
+					return;
+				} else if (slotKey == EMPTY_KEY) {
+					keys[i] = key;
+					values.set(i, value);
+					used++;
+					return;
+				}
+			}
+		}
+
+		private SparseTable<V> grow() {
+			SparseTable<V> grown = new SparseTable<>(keys.length * 2);
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != EMPTY_KEY) {
+					grown.put(keys[i], values.get(i));
+				}
+			}
+			return grown;
+		}
+	}
+}
@@ -20,11 +20,11 @@ import org.eclipse.tahu.message.model.MetricDataType;
 public class MetricDataTypeMap {
 
 	private final Map<String, MetricDataType> nameDataTypeMap;
-	private final Map<Long, MetricDataType> aliasDataTypeMap;
+	private final LongObjectMap<MetricDataType> aliasDataTypeMap;
 
 	public MetricDataTypeMap() {
 		nameDataTypeMap = new ConcurrentHashMap<>();
-		aliasDataTypeMap = new ConcurrentHashMap<>();
+		aliasDataTypeMap = new LongObjectMap<>();
 	}
 
 	public void addMetricDataType(String metricName, MetricDataType metricDataType) {
@@ -32,6 +32,10 @@ public class MetricDataTypeMap {
 	}
 
 	public void addMetricDataType(Long alias, MetricDataType metricDataType) {
+		addMetricDataType(alias.longValue(), metricDataType);
+	}
+
+	public void addMetricDataType(long alias, MetricDataType metricDataType) {
 		aliasDataTypeMap.put(alias, metricDataType);
 	}
 
@@ -40,6 +44,10 @@ public class MetricDataTypeMap {
 	}
 
 	public MetricDataType getMetricDataType(Long alias) {
+		return alias != null ? aliasDataTypeMap.get(alias.longValue()) : null;
+	}
+
+	public MetricDataType getMetricDataType(long alias) {
 		return aliasDataTypeMap.get(alias);
 	}
 
@@ -51,8 +59,13 @@ public class MetricDataTypeMap {
 		}
 	}
 
+	/**
+	 * Clears the map of the datatypes of all Metric names and aliases. Aliases are cleared too so an alias reused with
+	 * a different datatype after a new birth is not decoded with the datatype of its previous Metric.
+	 */
 	public void clear() {
 		nameDataTypeMap.clear();
+		aliasDataTypeMap.clear();
 	}
 
 	@Override
@@ -20,12 +20,13 @@ import org.eclipse.tahu.message.model.Metric;
 import org.eclipse.tahu.message.model.MetricDataType;
 
 /**
- * Used to track Sparkplug aliases to Metric names and Metric names to aliases
+ * Used to track Sparkplug aliases to Metric names and Metric names to aliases. Alias lookups go through a primitive
+ * {@link LongObjectMap} so they do not box the alias.
  */
 public class MetricMap {
 
 	private final Map<String, Long> metricNameToAliasMap;
-	private final Map<Long, String> aliasToMetricNameMap;
+	private final LongObjectMap<String> aliasToMetricNameMap;
 	private final MetricDataTypeMap metricDataTypeMap;
 
 	private long nextAliasIndex;
@@ -37,7 +38,7 @@ public class MetricMap {
 	 */
 	public MetricMap() {
 		metricNameToAliasMap = new ConcurrentHashMap<>();
-		aliasToMetricNameMap = new ConcurrentHashMap<>();
+		aliasToMetricNameMap = new LongObjectMap<>();
 		metricDataTypeMap = new MetricDataTypeMap();
 		nextAliasIndex = 0;
 	}
@@ -132,6 +133,16 @@ public class MetricMap {
 		return metricDataTypeMap.getMetricDataType(alias);
 	}
 
+	/**
+	 * Gets the {@link MetricDataType} of this metric
+	 *
+	 * @param alias the alias of the {@link Metric} to get the {@link MetricDataType} of
+	 * @return the {@link MetricDataType} for the supplied Metric alias
+	 */
+	public MetricDataType getMetricDataType(long alias) {
+		return metricDataTypeMap.getMetricDataType(alias);
+	}
+
 	/**
 	 * Gets the MetricDataTypeMap associated with this Edge Node
 	 *
@@ -0,0 +1,307 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.mqtt;
+
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.tahu.exception.TahuErrorCode;
+import org.eclipse.tahu.exception.TahuException;
+import org.eclipse.tahu.util.SharedScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The publish pipeline behind {@link TahuClient#asyncPublish(String, byte[], int, boolean)}. Messages wait in a
+ * bounded queue and are handed to the MQTT client while fewer than a window of them are in flight. A message leaves
+ * the window when the client reports its delivery is complete or failed, which completes its future and dispatches the
+ * next queued message. Retries wait on the {@link SharedScheduler} rather than a thread.
+ *
+ * A message holds its place in the queue capacity until the client accepts it, and a retry must take a place again,
+ * so the queue never holds more than its capacity. When the client is full of other publishes the queue waits for the
+ * next delivery to complete rather than polling.
+ *
+ * No thread is owned by the pipeline. Messages are dispatched by whichever thread enqueues a message, completes a
+ * delivery or finishes a retry delay, one at a time.
+ */
+class AsyncPublisher {
+
+	private static Logger logger = LoggerFactory.getLogger(AsyncPublisher.class.getName());
+
+	static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+	/**
+	 * The MQTT client operations used by the pipeline
+	 */
+	interface Transport {
+
+		boolean isConnected();
+
+		IMqttDeliveryToken publish(String topic, byte[] payload, int qos, boolean retained, Object userContext,
+				IMqttActionListener callback) throws MqttException;
+	}
+
+	private final String clientId;
+	private final Transport transport;
+	private final IntSupplier windowSupplier;
+	private final Deque<PendingPublish> queue = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger queueSize = new AtomicInteger();
+	private final Set<PendingPublish> inFlight = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean dispatching = new AtomicBoolean();
+	private final AtomicBoolean drainRequested = new AtomicBoolean();
+	private final IMqttActionListener failureListener = new IMqttActionListener() {
+		@Override
+		public void onSuccess(IMqttToken asyncActionToken) {
+			// Completion is handled by onDeliveryComplete
+		}
+
+		@Override
+		public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+			Object userContext = asyncActionToken.getUserContext();
+			if (userContext instanceof PendingPublish) {
+				PendingPublish pending = (PendingPublish) userContext;
+				if (inFlight.remove(pending)) {
+					retryOrFail(pending, exception);
+				}
+			}
+			drain();
+		}
+	};
+
+	private volatile int queueCapacity;
+
+	/**
+	 * Constructor
+	 *
+	 * @param clientId the ID of the client for logging
+	 * @param transport the {@link Transport} to publish with
+	 * @param windowSupplier supplies the maximum number of messages in flight, normally the max inflight of the client
+	 * @param queueCapacity the maximum number of messages waiting to be published
+	 */
+	AsyncPublisher(String clientId, Transport transport, IntSupplier windowSupplier, int queueCapacity) {
+		this.clientId = clientId;
+		this.transport = transport;
+		this.windowSupplier = windowSupplier;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Queues a message to be published
+	 *
+	 * @return a {@link CompletableFuture} completed with the delivery token once delivery is complete, or exceptionally
+	 *         once the message can not be published
+	 * @throws TahuException with {@link TahuErrorCode#RESOURCE_EXHAUSTED} if the queue is full
+	 */
+	CompletableFuture<IMqttDeliveryToken> publish(String topic, byte[] payload, int qos, boolean retained,
+			boolean retry, long retryDelay, int numAttempts) throws TahuException {
+		if (!reserve()) {
+			throw new TahuException(TahuErrorCode.RESOURCE_EXHAUSTED,
+					"Async publish queue of " + clientId + " is full with " + queueCapacity + " messages");
+		}
+		PendingPublish pending = new PendingPublish(topic, payload, qos, retained, retry, retryDelay, numAttempts);
+		queue.offerLast(pending);
+		drain();
+		return pending.future;
+	}
+
+	/**
+	 * Completes the message a delivery token was published for and dispatches the next queued message
+	 *
+	 * @param token the {@link IMqttDeliveryToken} passed to {@link TahuClient#deliveryComplete(IMqttDeliveryToken)}
+	 */
+	void onDeliveryComplete(IMqttDeliveryToken token) {
+		Object userContext = token.getUserContext();
+		if (userContext instanceof PendingPublish) {
+			PendingPublish pending = (PendingPublish) userContext;
+			if (inFlight.remove(pending)) {
+				pending.future.complete(token);
+			}
+		}
+		drain();
+	}
+
+	/**
+	 * Fails or retries the messages in flight, whose deliveries will not be reported once the client is closed, and
+	 * handles the queued messages
+	 */
+	void onClientClosed() {
+		for (PendingPublish pending : inFlight) {
+			if (inFlight.remove(pending)) {
+				retryOrFail(pending, new TahuException(TahuErrorCode.INTERNAL_ERROR, "MQTT client closed"));
+			}
+		}
+		drain();
+	}
+
+	/**
+	 * Dispatches queued messages while the window allows. Messages queued while the client is not connected are
+	 * retried or failed. A call made while another thread is dispatching is picked up by that thread once it is done.
+	 */
+	void drain() {
+		drainRequested.set(true);
+		while (drainRequested.get() && dispatching.compareAndSet(false, true)) {
+			try {
+				drainRequested.set(false);
+				dispatch();
+			} finally {
+				dispatching.set(false);
+			}
+		}
+	}
+
+	/*
+	 * Hands queued messages to the client until the window is full, the queue is empty or the client is full of other
+	 * publishes. In the last case the next delivery to complete calls drain() again.
+	 */
+	private void dispatch() {
+		PendingPublish pending;
+		while (!isWindowFull() && (pending = queue.pollFirst()) != null) {
+			if (!transport.isConnected()) {
+				queueSize.decrementAndGet();
+				retryOrFail(pending, new TahuException(TahuErrorCode.INTERNAL_ERROR, "MQTT client not connected"));
+				continue;
+			}
+
+			inFlight.add(pending);
+			try {
+				logger.debug("{}: Publishing on {}, Payload size = {}", clientId, pending.topic,
+						pending.payload.length);
+				transport.publish(pending.topic, pending.payload, pending.qos, pending.retained, pending,
+						failureListener);
+				queueSize.decrementAndGet();
+			} catch (MqttException e) {
+				if (e.getReasonCode() == MqttException.REASON_CODE_MAX_INFLIGHT && inFlight.remove(pending)) {
+					// Other publishes fill the client - keep the place in the queue until one of them completes
+					queue.offerFirst(pending);
+					return;
+				}
+				queueSize.decrementAndGet();
+				if (inFlight.remove(pending)) {
+					retryOrFail(pending, e);
+				}
+			} catch (Exception e) {
+				queueSize.decrementAndGet();
+				if (inFlight.remove(pending)) {
+					retryOrFail(pending, e);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Takes a place in the queue, returning false if the queue is full
+	 */
+	private boolean reserve() {
+		int size;
+		do {
+			size = queueSize.get();
+			if (size >= queueCapacity) {
+				return false;
+			}
+		} while (!queueSize.compareAndSet(size, size + 1));
+		return true;
+	}
+
+	private void retryOrFail(PendingPublish pending, Throwable cause) {
+		pending.attempts++;
+		if (pending.retry && pending.attempts < pending.numAttempts) {
+			logger.debug("{}: Retrying publish on {} in {}ms after attempt {} failed: {}", clientId, pending.topic,
+					pending.retryDelay, pending.attempts, cause.getMessage());
+			SharedScheduler.schedule(() -> {
+				if (!reserve()) {
+					logger.error("{}: Failed to retry publish on {} - the queue is full with {} messages", clientId,
+							pending.topic, queueCapacity);
+					pending.future.completeExceptionally(new TahuException(TahuErrorCode.RESOURCE_EXHAUSTED,
+							"Async publish queue of " + clientId + " is full with " + queueCapacity + " messages"));
+					return;
+				}
+				queue.offerLast(pending);
+				drain();
+			}, pending.retryDelay, TimeUnit.MILLISECONDS);
+		} else {
+			if (pending.retry) {
+				logger.error("{}: Failed to publish message on {} after {} attempts", clientId, pending.topic,
+						pending.attempts);
+			} else {
+				logger.error("{}: Failed to publish on {}", clientId, pending.topic, cause);
+			}
+			pending.future.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * Returns true if the maximum number of messages are in flight, in which case further messages are queued
+	 *
+	 * @return true if the window is full, otherwise false
+	 */
+	boolean isWindowFull() {
+		return inFlight.size() >= Math.max(1, windowSupplier.getAsInt());
+	}
+
+	int getQueueSize() {
+		return queueSize.get();
+	}
+
+	int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/*
+	 * A message waiting to be published or in flight. Identity equality is used for the in flight set.
+	 */
+	private static final class PendingPublish {
+		private final String topic;
+		private final byte[] payload;
+		private final int qos;
+		private final boolean retained;
+		private final boolean retry;
+		private final long retryDelay;
+		private final int numAttempts;
+		private final CompletableFuture<IMqttDeliveryToken> future = new CompletableFuture<>();
+
+		// Only updated by one thread at a time as the message moves through the pipeline
+		private int attempts;
+
+		private PendingPublish(String topic, byte[] payload, int qos, boolean retained, boolean retry,
+				long retryDelay, int numAttempts) {
+			this.topic = topic;
+			this.payload = payload;
+			this.qos = qos;
+			this.retained = retained;
+			this.retry = retry;
+			this.retryDelay = retryDelay;
+			this.numAttempts = numAttempts;
+		}
+	}
+}
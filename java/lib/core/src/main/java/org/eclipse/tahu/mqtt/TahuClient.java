@@ -20,6 +20,8 @@ import java.util.Date;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.paho.client.mqttv3.IMqttActionListener;
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
@@ -34,12 +36,11 @@ import org.eclipse.paho.client.mqttv3.MqttSecurityException;
 import org.eclipse.paho.client.mqttv3.internal.NetworkModuleService;
 import org.eclipse.tahu.exception.TahuErrorCode;
 import org.eclipse.tahu.exception.TahuException;
+import org.eclipse.tahu.json.JsonCodec;
 import org.eclipse.tahu.message.model.StatePayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
  * An Custom MQTT client.
  */
@@ -116,6 +117,11 @@ public class TahuClient implements MqttCallbackExtended {
 	 */
 	private int maxInFlightMessages = 10;
 
+	/*
+	 * Queues async publishes and keeps up to maxInFlightMessages of them in flight
+	 */
+	private final AsyncPublisher asyncPublisher;
+
 	/*
 	 * The maximum number of topics per individual subscribe message.
 	 */
@@ -129,8 +135,8 @@ public class TahuClient implements MqttCallbackExtended {
 	private double totalDowntime;
 	private int connectionCount = 0; // # of Edge Nodes connected to this MQTT Client's Broker
 	private boolean doLatencyCheck = false;
-	private long numMesgsArrived = 0;
-	private long lastNumMesgsArrived = 0;
+	private final AtomicLong numMesgsArrived = new AtomicLong();
+	private final AtomicLong lastNumMesgsArrived = new AtomicLong();
 
 	private boolean disconnectInProgress = false;
 
@@ -161,6 +167,22 @@ public class TahuClient implements MqttCallbackExtended {
 		this.renewDisconnectTime();
 		this.renewOnlineDate();
 		this.renewOfflineDate();
+		this.asyncPublisher = new AsyncPublisher(String.valueOf(clientId), new AsyncPublisher.Transport() {
+			@Override
+			public boolean isConnected() {
+				return TahuClient.this.isConnected();
+			}
+
+			@Override
+			public IMqttDeliveryToken publish(String topic, byte[] payload, int qos, boolean retained,
+					Object userContext, IMqttActionListener callback) throws MqttException {
+				MqttAsyncClient mqttClient = client;
+				if (mqttClient == null) {
+					throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+				}
+				return mqttClient.publish(topic, payload, qos, retained, userContext, callback);
+			}
+		}, this::getMaxInflightMessages, AsyncPublisher.DEFAULT_QUEUE_CAPACITY);
 	}
 
 	public TahuClient(final MqttClientId clientId, final MqttServerName mqttServerName,
@@ -216,19 +238,18 @@ public class TahuClient implements MqttCallbackExtended {
 	}
 
 	public long getNumMesgsArrived() {
-		return numMesgsArrived;
+		return numMesgsArrived.get();
 	}
 
 	public long getMesgsArrivedDelta() {
 		// Returns the number of messages arrived since last called.
-		long delta = numMesgsArrived - lastNumMesgsArrived;
-		lastNumMesgsArrived = numMesgsArrived;
-		return delta;
+		long current = numMesgsArrived.get();
+		return current - lastNumMesgsArrived.getAndSet(current);
 	}
 
 	public void clearMesgArrivedCount() {
-		numMesgsArrived = 0;
-		lastNumMesgsArrived = 0;
+		numMesgsArrived.set(0);
+		lastNumMesgsArrived.set(0);
 	}
 
 	public void setMaxInflightMessages(int max) {
@@ -461,15 +482,73 @@ public class TahuClient implements MqttCallbackExtended {
 		}
 	}
 
-	public void asyncPublish(String topic, byte[] payload, int qos, boolean retained) throws TahuException {
-		Thread t = new Thread(new AsyncPublisher(topic, payload, qos, retained, false, 0, 0));
-		t.start();
+	/**
+	 * Queues a message to be published without waiting. Messages are published in order while fewer than
+	 * {@link #getMaxInflightMessages()} are in flight and fail if the client is not connected when their turn comes.
+	 *
+	 * @param topic the topic to publish on
+	 * @param payload the payload to publish
+	 * @param qos the QoS to publish with
+	 * @param retained true if the message should be retained
+	 * @return a {@link CompletableFuture} completed with the delivery token once delivery is complete, or exceptionally
+	 *         if the message can not be published
+	 * @throws TahuException with {@link TahuErrorCode#RESOURCE_EXHAUSTED} if the async publish queue is full
+	 */
+	public CompletableFuture<IMqttDeliveryToken> asyncPublish(String topic, byte[] payload, int qos, boolean retained)
+			throws TahuException {
+		return asyncPublisher.publish(topic, payload, qos, retained, false, 0, 0);
+	}
+
+	/**
+	 * Queues a message to be published without waiting, retrying while the client is not connected
+	 *
+	 * @param topic the topic to publish on
+	 * @param payload the payload to publish
+	 * @param qos the QoS to publish with
+	 * @param retained true if the message should be retained
+	 * @param retry true if failed attempts should be retried
+	 * @param retryDelay the delay in milliseconds before retrying
+	 * @param numAttempts the maximum number of attempts
+	 * @return a {@link CompletableFuture} completed with the delivery token once delivery is complete, or exceptionally
+	 *         if the message can not be published
+	 * @throws TahuException with {@link TahuErrorCode#RESOURCE_EXHAUSTED} if the async publish queue is full
+	 */
+	public CompletableFuture<IMqttDeliveryToken> asyncPublish(String topic, byte[] payload, int qos, boolean retained,
+			boolean retry, long retryDelay, int numAttempts) throws TahuException {
+		return asyncPublisher.publish(topic, payload, qos, retained, retry, retryDelay, numAttempts);
+	}
+
+	/**
+	 * Returns true if {@link #getMaxInflightMessages()} async publishes are in flight, in which case further async
+	 * publishes are queued. Publishers can use this to slow down before the queue fills.
+	 *
+	 * @return true if the async publish window is full, otherwise false
+	 */
+	public boolean isAsyncPublishWindowFull() {
+		return asyncPublisher.isWindowFull();
+	}
+
+	/**
+	 * Returns the number of async publishes waiting for the window
+	 *
+	 * @return the number of queued async publishes
+	 */
+	public int getAsyncPublishQueueSize() {
+		return asyncPublisher.getQueueSize();
+	}
+
+	public int getAsyncPublishQueueCapacity() {
+		return asyncPublisher.getQueueCapacity();
 	}
 
-	public void asyncPublish(String topic, byte[] payload, int qos, boolean retained, boolean retry, long retryDelay,
-			int numAttempts) throws TahuException {
-		Thread t = new Thread(new AsyncPublisher(topic, payload, qos, retained, retry, retryDelay, numAttempts));
-		t.start();
+	/**
+	 * Sets the maximum number of async publishes that can wait for the window before
+	 * {@link #asyncPublish(String, byte[], int, boolean)} throws
+	 *
+	 * @param capacity the capacity of the async publish queue
+	 */
+	public void setAsyncPublishQueueCapacity(int capacity) {
+		asyncPublisher.setQueueCapacity(capacity);
 	}
 
 	/**
@@ -616,6 +695,9 @@ public class TahuClient implements MqttCallbackExtended {
 
 		// Trigger the connection lost event on the callback client
 		getCallback().connectionLost(getMqttServerName(), getMqttServerUrl(), getClientId(), cause);
+
+		// Retry or fail any queued async publishes
+		asyncPublisher.drain();
 	}
 
 	@Override
@@ -628,12 +710,15 @@ public class TahuClient implements MqttCallbackExtended {
 				logger.debug("{}: Delivery complete for {}", getClientId(), token.getMessageId());
 			}
 		}
+
+		// Complete any async publish and make room for the next
+		asyncPublisher.onDeliveryComplete(token);
 	}
 
 	@Override
 	public void messageArrived(String topic, MqttMessage mqttMessage) throws Exception {
 		logger.debug("{}: MQTT message arrived on topic {}", getClientId(), topic);
-		numMesgsArrived++;
+		numMesgsArrived.incrementAndGet();
 		getCallback().messageArrived(getMqttServerName(), getMqttServerUrl(), getClientId(), topic, mqttMessage);
 	}
 
@@ -729,9 +814,8 @@ public class TahuClient implements MqttCallbackExtended {
 							*/
 							if (useSparkplugStatePayload) {
 								try {
-									ObjectMapper mapper = new ObjectMapper();
 									StatePayload statePayload = new StatePayload(false, new Date().getTime());
-									byte[] payload = mapper.writeValueAsString(statePayload).getBytes();
+									byte[] payload = JsonCodec.toStateBytes(statePayload);
 									lwtDeliveryToken = publish(lwtTopic, payload, lwtQoS, lwtRetain);
 								} catch (Exception e) {
 									logger.error("{}: Failed to publish the LWT message on {}", getClientId(), lwtTopic,
@@ -764,6 +848,7 @@ public class TahuClient implements MqttCallbackExtended {
 					throw new TahuException(TahuErrorCode.INTERNAL_ERROR, e);
 				} finally {
 					client = null;
+					asyncPublisher.onClientClosed();
 					state.setInProgress(false);
 					disconnectInProgress = false;
 					lwtDeliveryToken = null;
@@ -889,6 +974,7 @@ public class TahuClient implements MqttCallbackExtended {
 					logger.error("{}: Error while disconnecting client", getClientId(), e);
 				} finally {
 					client = null;
+					asyncPublisher.onClientClosed();
 				}
 			}
 
@@ -914,10 +1000,9 @@ public class TahuClient implements MqttCallbackExtended {
 				if (lwtTopic != null) {
 					logger.debug("{}: Setting WILL on {} with retain {}", getClientId(), lwtTopic, lwtRetain);
 					if (useSparkplugStatePayload) {
-						ObjectMapper mapper = new ObjectMapper();
 						lastStateDeathPayloadTimestamp = new Date().getTime();
 						StatePayload statePayload = new StatePayload(false, lastStateDeathPayloadTimestamp);
-						byte[] payload = mapper.writeValueAsString(statePayload).getBytes();
+						byte[] payload = JsonCodec.toStateBytes(statePayload);
 						connectOptions.setWill(lwtTopic, payload, MqttOperatorDefs.QOS1, lwtRetain);
 					} else {
 						connectOptions.setWill(lwtTopic, lwtPayload, MqttOperatorDefs.QOS1, lwtRetain);
@@ -1055,63 +1140,6 @@ public class TahuClient implements MqttCallbackExtended {
 		}
 	}
 
-	private class AsyncPublisher implements Runnable {
-
-		private String topic;
-		private byte[] payload;
-		private int qos;
-		private boolean retained;
-
-		// Retry params
-		private boolean retry = false;
-		private long retryDelay;
-		private int numAttempts;
-
-		public AsyncPublisher(String topic, byte[] payload, int qos, boolean retained, boolean retry, long retryDelay,
-				int numAttempts) {
-			this.topic = topic;
-			this.payload = payload;
-			this.qos = qos;
-			this.retained = retained;
-			this.retry = retry;
-			this.retryDelay = retryDelay;
-			this.numAttempts = numAttempts;
-		}
-
-		@Override
-		public void run() {
-			try {
-				if (retry) {
-					for (int i = 0; i < numAttempts; i++) {
-						if (client == null || !client.isConnected()) {
-							Thread.sleep(retryDelay);
-						} else {
-							logger.debug("{}: Publishing on {}, Payload size = {}", getClientId(), topic,
-									payload.length);
-							client.publish(topic, payload, qos, retained);
-						}
-					}
-
-					logger.error("{}: Failed to publish message on {} after {} attempts", getClientId(), topic,
-							numAttempts);
-					throw new TahuException(TahuErrorCode.INTERNAL_ERROR,
-							"Failed to publish message on " + topic + " after " + numAttempts + " attempts");
-				} else {
-					if (client == null) {
-						throw new TahuException(TahuErrorCode.INTERNAL_ERROR, "MQTT client is null");
-					} else if (client.isConnected()) {
-						logger.debug("{}: Publishing on {}, Payload size = {}", getClientId(), topic, payload.length);
-						client.publish(topic, payload, qos, retained);
-					} else {
-						throw new TahuException(TahuErrorCode.INTERNAL_ERROR, "MQTT client not connected");
-					}
-				}
-			} catch (Exception e) {
-				logger.error("{}: Failed to publish", getClientId(), e);
-			}
-		}
-	}
-
 	private void shutdownConnectionMonitorThread() {
 		if (connectionMonitorThread == null) {
 			logger.debug("{}: Not shutting down ConnectionMonitorThread - its null", getClientId());
@@ -1325,6 +1353,9 @@ public class TahuClient implements MqttCallbackExtended {
 
 			firstConnection = false;
 		}
+
+		// Publish any async messages queued while connecting
+		asyncPublisher.drain();
 	}
 
 	/**
@@ -1344,9 +1375,8 @@ public class TahuClient implements MqttCallbackExtended {
 				logger.debug("{}: Publishing BIRTH on {} with retain {}", getClientId(), birthTopic, birthRetain);
 				if (useSparkplugStatePayload) {
 					try {
-						ObjectMapper mapper = new ObjectMapper();
 						StatePayload statePayload = new StatePayload(true, lastStateDeathPayloadTimestamp);
-						byte[] payload = mapper.writeValueAsString(statePayload).getBytes();
+						byte[] payload = JsonCodec.toStateBytes(statePayload);
 						publish(birthTopic, payload, MqttOperatorDefs.QOS1, birthRetain);
 					} catch (Exception e) {
 						logger.error("{}: Failed to publish the BIRTH message on {}", getClientId(), birthTopic, e);
@@ -0,0 +1,526 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses and decompresses Sparkplug payload bodies with DEFLATE (zlib) and GZIP. Each thread reuses its own
+ * {@link Deflater}s, {@link Inflater}s and output buffer so no native zlib state is created per call.
+ *
+ * DEFLATE supports a preset dictionary - see {@link #createDictionary(Iterable)}. Both sides must use the same
+ * dictionary. The zlib header identifies the dictionary so inflating with a missing or different one fails rather than
+ * producing garbage.
+ */
+public class CompressionEngine {
+
+	// The DEFLATE window - dictionary bytes beyond this can never be referenced
+	public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+	private static final int MIN_BUFFER_SIZE = 256;
+
+	// Larger buffers are handed back to the garbage collector after use rather than being held by the thread
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+	private static final int GZIP_HEADER_SIZE = 10;
+	private static final int GZIP_TRAILER_SIZE = 8;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	// Metric.name is field 1 with the length delimited wire type
+	private static final int METRIC_NAME_TAG = 0x0A;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final int level;
+
+	private final ThreadLocal<Codecs> codecs = ThreadLocal.withInitial(() -> new Codecs());
+
+	/**
+	 * Constructor using the default zlib compression level
+	 */
+	public CompressionEngine() {
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param level the compression level from 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}
+	 */
+	public CompressionEngine(int level) {
+		if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		this.level = level;
+	}
+
+	/**
+	 * Gets the compression level
+	 *
+	 * @return the compression level
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Compresses bytes in the zlib format
+	 *
+	 * @param bytes the bytes to compress
+	 * @return the compressed bytes
+	 */
+	public byte[] deflate(byte[] bytes) {
+		return deflate(bytes, null);
+	}
+
+	/**
+	 * Compresses bytes in the zlib format using a preset dictionary
+	 *
+	 * @param bytes the bytes to compress
+	 * @param dictionary the preset dictionary or null for none
+	 * @return the compressed bytes
+	 */
+	public byte[] deflate(byte[] bytes, byte[] dictionary) {
+		Codecs codecs = this.codecs.get();
+		int length = deflate(codecs, codecs.deflater(), bytes, 0, bytes.length, dictionary, 0);
+		return codecs.result(length);
+	}
+
+	/**
+	 * Decompresses bytes in the zlib format
+	 *
+	 * @param bytes the bytes to decompress
+	 * @return the decompressed bytes
+	 * @throws DataFormatException if the bytes are not valid zlib data or require a preset dictionary
+	 */
+	public byte[] inflate(byte[] bytes) throws DataFormatException {
+		return inflate(bytes, null);
+	}
+
+	/**
+	 * Decompresses bytes in the zlib format that may have been compressed with a preset dictionary
+	 *
+	 * @param bytes the bytes to decompress
+	 * @param dictionary the preset dictionary or null for none
+	 * @return the decompressed bytes
+	 * @throws DataFormatException if the bytes are not valid zlib data or the dictionary does not match
+	 */
+	public byte[] inflate(byte[] bytes, byte[] dictionary) throws DataFormatException {
+		Codecs codecs = this.codecs.get();
+		Inflater inflater = codecs.inflater();
+		int length = inflate(codecs, inflater, bytes, 0, bytes.length, dictionary, 0, bytes.length * 4);
+		if (inflater.getRemaining() > 0) {
+			throw new DataFormatException("Trailing data after the compressed data");
+		}
+		return codecs.result(length);
+	}
+
+	/**
+	 * Compresses bytes in the GZIP format
+	 *
+	 * @param bytes the bytes to compress
+	 * @return the compressed bytes
+	 */
+	public byte[] gzip(byte[] bytes) {
+		Codecs codecs = this.codecs.get();
+		byte[] buffer = codecs.buffer(GZIP_HEADER_SIZE + deflateBound(bytes.length) + GZIP_TRAILER_SIZE);
+		// The same header GZIPOutputStream writes
+		writeShortLE(buffer, 0, GZIP_MAGIC);
+		buffer[2] = Deflater.DEFLATED;
+		Arrays.fill(buffer, 3, GZIP_HEADER_SIZE, (byte) 0);
+		int length = deflate(codecs, codecs.rawDeflater(), bytes, 0, bytes.length, null, GZIP_HEADER_SIZE);
+
+		codecs.crc.reset();
+		codecs.crc.update(bytes, 0, bytes.length);
+		buffer = codecs.ensureCapacity(length + GZIP_TRAILER_SIZE);
+		writeIntLE(buffer, length, (int) codecs.crc.getValue());
+		writeIntLE(buffer, length + 4, bytes.length);
+		return codecs.result(length + GZIP_TRAILER_SIZE);
+	}
+
+	/**
+	 * Decompresses bytes in the GZIP format. Concatenated GZIP members are decompressed one after the other.
+	 *
+	 * @param bytes the bytes to decompress
+	 * @return the decompressed bytes
+	 * @throws DataFormatException if the bytes are not valid GZIP data
+	 */
+	public byte[] gunzip(byte[] bytes) throws DataFormatException {
+		Codecs codecs = this.codecs.get();
+		Inflater inflater = codecs.rawInflater();
+		int offset = 0;
+		int length = 0;
+		do {
+			offset = skipGzipHeader(bytes, offset);
+			int memberStart = length;
+			length = inflate(codecs, inflater, bytes, offset, bytes.length - offset, null, length,
+					(bytes.length - offset) * 4);
+			offset = bytes.length - inflater.getRemaining();
+			if (bytes.length - offset < GZIP_TRAILER_SIZE) {
+				throw new DataFormatException("Unexpected end of GZIP data");
+			}
+
+			codecs.crc.reset();
+			codecs.crc.update(codecs.buffer, memberStart, length - memberStart);
+			if (readIntLE(bytes, offset) != (int) codecs.crc.getValue()) {
+				throw new DataFormatException("Corrupt GZIP trailer - CRC32 mismatch");
+			}
+			if (readIntLE(bytes, offset + 4) != length - memberStart) {
+				throw new DataFormatException("Corrupt GZIP trailer - size mismatch");
+			}
+			offset += GZIP_TRAILER_SIZE;
+		} while (offset < bytes.length);
+		return codecs.result(length);
+	}
+
+	/**
+	 * Compresses the remaining bytes of the source buffer in the zlib format in to the destination buffer. Either
+	 * buffer may be direct. The positions of both buffers are advanced past the bytes read and written.
+	 *
+	 * @param source the bytes to compress
+	 * @param destination the buffer to write the compressed bytes to - see {@link #deflateBound(int)}
+	 * @param dictionary the preset dictionary or null for none
+	 * @throws BufferOverflowException if the compressed bytes do not fit in the destination buffer
+	 */
+	public void deflate(ByteBuffer source, ByteBuffer destination, byte[] dictionary) {
+		Codecs codecs = this.codecs.get();
+		int length = source.remaining();
+		int compressedLength;
+		if (source.hasArray()) {
+			compressedLength = deflate(codecs, codecs.deflater(), source.array(),
+					source.arrayOffset() + source.position(), length, dictionary, 0);
+		} else {
+			byte[] input = codecs.input(length);
+			source.duplicate().get(input, 0, length);
+			compressedLength = deflate(codecs, codecs.deflater(), input, 0, length, dictionary, 0);
+		}
+		if (compressedLength > destination.remaining()) {
+			codecs.release();
+			throw new BufferOverflowException();
+		}
+		destination.put(codecs.buffer, 0, compressedLength);
+		source.position(source.position() + length);
+		codecs.release();
+	}
+
+	/**
+	 * Decompresses the remaining bytes of the source buffer in the zlib format in to the destination buffer. Either
+	 * buffer may be direct. The positions of both buffers are advanced past the bytes read and written.
+	 *
+	 * @param source the bytes to decompress
+	 * @param destination the buffer to write the decompressed bytes to
+	 * @param dictionary the preset dictionary or null for none
+	 * @throws DataFormatException if the bytes are not valid zlib data or the dictionary does not match
+	 * @throws BufferOverflowException if the decompressed bytes do not fit in the destination buffer
+	 */
+	public void inflate(ByteBuffer source, ByteBuffer destination, byte[] dictionary) throws DataFormatException {
+		Codecs codecs = this.codecs.get();
+		Inflater inflater = codecs.inflater();
+		int length = source.remaining();
+		int inflatedLength;
+		if (source.hasArray()) {
+			inflatedLength = inflate(codecs, inflater, source.array(), source.arrayOffset() + source.position(),
+					length, dictionary, 0, destination.remaining());
+		} else {
+			byte[] input = codecs.input(length);
+			source.duplicate().get(input, 0, length);
+			inflatedLength = inflate(codecs, inflater, input, 0, length, dictionary, 0, destination.remaining());
+		}
+		if (inflatedLength > destination.remaining()) {
+			codecs.release();
+			throw new BufferOverflowException();
+		}
+		destination.put(codecs.buffer, 0, inflatedLength);
+		source.position(source.position() + length - inflater.getRemaining());
+		codecs.release();
+	}
+
+	/**
+	 * Releases the native zlib state and buffers held for the calling thread. They are recreated if the thread uses
+	 * this {@link CompressionEngine} again.
+	 */
+	public void releaseThreadResources() {
+		codecs.get().end();
+		codecs.remove();
+	}
+
+	/**
+	 * Returns the largest number of bytes the zlib format can compress the given number of bytes to
+	 *
+	 * @param length the number of uncompressed bytes
+	 * @return the upper bound of the compressed length
+	 */
+	public static int deflateBound(int length) {
+		// zlib's compressBound() plus the dictionary id
+		return length + (length >> 12) + (length >> 14) + (length >> 25) + 13 + 4;
+	}
+
+	/**
+	 * Creates a preset dictionary from metric names, typically those of an Edge Node's NBIRTH. Each name is written as
+	 * it appears in an encoded Metric so the compressor can match the field tag and length too. DEFLATE can only
+	 * reference the last {@link #MAX_DICTIONARY_SIZE} bytes so the names are truncated from the front, and the names
+	 * given last - which are matched with the shortest distances - should be the most frequently published.
+	 *
+	 * @param metricNames the metric names
+	 * @return the preset dictionary
+	 */
+	public static byte[] createDictionary(Iterable<String> metricNames) {
+		ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+		for (String metricName : metricNames) {
+			if (metricName == null || metricName.isEmpty()) {
+				continue;
+			}
+			byte[] nameBytes = metricName.getBytes(StandardCharsets.UTF_8);
+			dictionary.write(METRIC_NAME_TAG);
+			int length = nameBytes.length;
+			while ((length & ~0x7F) != 0) {
+				dictionary.write((length & 0x7F) | 0x80);
+				length >>>= 7;
+			}
+			dictionary.write(length);
+			dictionary.write(nameBytes, 0, nameBytes.length);
+		}
+		byte[] bytes = dictionary.toByteArray();
+		return bytes.length > MAX_DICTIONARY_SIZE
+				? Arrays.copyOfRange(bytes, bytes.length - MAX_DICTIONARY_SIZE, bytes.length)
+				: bytes;
+	}
+
+	/**
+	 * Deflates in to the thread's buffer starting at the given offset and returns the end of the compressed bytes
+	 */
+	private int deflate(Codecs codecs, Deflater deflater, byte[] input, int offset, int length, byte[] dictionary,
+			int outputOffset) {
+		deflater.reset();
+		if (dictionary != null) {
+			deflater.setDictionary(dictionary);
+		}
+		deflater.setInput(input, offset, length);
+		deflater.finish();
+
+		byte[] buffer = codecs.ensureCapacity(outputOffset + deflateBound(length));
+		int count = outputOffset;
+		while (!deflater.finished()) {
+			if (count == buffer.length) {
+				buffer = codecs.ensureCapacity(count + 1);
+			}
+			count += deflater.deflate(buffer, count, buffer.length - count);
+		}
+		// Drop the reference to the input
+		deflater.setInput(EMPTY);
+		return count;
+	}
+
+	/**
+	 * Inflates in to the thread's buffer starting at the given offset and returns the end of the decompressed bytes.
+	 * The inflater is left holding any unused input so the caller can locate trailing data.
+	 */
+	private int inflate(Codecs codecs, Inflater inflater, byte[] input, int offset, int length, byte[] dictionary,
+			int outputOffset, int expectedLength) throws DataFormatException {
+		inflater.reset();
+		inflater.setInput(input, offset, length);
+
+		byte[] buffer = codecs.ensureCapacity(outputOffset + Math.max(expectedLength, MIN_BUFFER_SIZE));
+		int count = outputOffset;
+		while (!inflater.finished()) {
+			if (count == buffer.length) {
+				buffer = codecs.ensureCapacity(count + 1);
+			}
+			int inflated = inflater.inflate(buffer, count, buffer.length - count);
+			if (inflated == 0 && !inflater.finished()) {
+				if (inflater.needsDictionary()) {
+					if (dictionary == null) {
+						throw new DataFormatException("The compressed data requires a preset dictionary");
+					}
+					try {
+						inflater.setDictionary(dictionary);
+					} catch (IllegalArgumentException e) {
+						throw new DataFormatException("The preset dictionary does not match the compressed data");
+					}
+				} else if (inflater.needsInput()) {
+					throw new DataFormatException("Unexpected end of compressed data");
+				}
+			}
+			count += inflated;
+		}
+		return count;
+	}
+
+	private static int skipGzipHeader(byte[] bytes, int offset) throws DataFormatException {
+		if (bytes.length - offset < GZIP_HEADER_SIZE || readShortLE(bytes, offset) != GZIP_MAGIC) {
+			throw new DataFormatException("Not in GZIP format");
+		}
+		if (bytes[offset + 2] != Deflater.DEFLATED) {
+			throw new DataFormatException("Unsupported GZIP compression method");
+		}
+		int flags = bytes[offset + 3] & 0xFF;
+		int position = offset + GZIP_HEADER_SIZE;
+		try {
+			if ((flags & FEXTRA) != 0) {
+				position += 2 + readShortLE(bytes, position);
+			}
+			// The file name and comment are zero terminated
+			if ((flags & FNAME) != 0) {
+				while (bytes[position++] != 0) {
+					continue;
+				}
+			}
+			if ((flags & FCOMMENT) != 0) {
+				while (bytes[position++] != 0) {
+					continue;
+				}
+			}
+			if ((flags & FHCRC) != 0) {
+				position += 2;
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new DataFormatException("Unexpected end of GZIP header");
+		}
+		if (position > bytes.length) {
+			throw new DataFormatException("Unexpected end of GZIP header");
+		}
+		return position;
+	}
+
+	private static int readShortLE(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8);
+	}
+
+	private static int readIntLE(byte[] bytes, int offset) {
+		return readShortLE(bytes, offset) | (readShortLE(bytes, offset + 2) << 16);
+	}
+
+	private static void writeShortLE(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) value;
+		bytes[offset + 1] = (byte) (value >>> 8);
+	}
+
+	private static void writeIntLE(byte[] bytes, int offset, int value) {
+		writeShortLE(bytes, offset, value);
+		writeShortLE(bytes, offset + 2, value >>> 16);
+	}
+
+	/**
+	 * The zlib state and buffers of one thread
+	 */
+	private final class Codecs {
+		private Deflater deflater;
+		private Deflater rawDeflater;
+		private Inflater inflater;
+		private Inflater rawInflater;
+		private final CRC32 crc = new CRC32();
+		private byte[] buffer = new byte[MIN_BUFFER_SIZE];
+		private byte[] input = EMPTY;
+
+		private Deflater deflater() {
+			if (deflater == null) {
+				deflater = new Deflater(level);
+			}
+			return deflater;
+		}
+
+		private Deflater rawDeflater() {
+			if (rawDeflater == null) {
+				rawDeflater = new Deflater(level, true);
+			}
+			return rawDeflater;
+		}
+
+		private Inflater inflater() {
+			if (inflater == null) {
+				inflater = new Inflater();
+			}
+			return inflater;
+		}
+
+		private Inflater rawInflater() {
+			if (rawInflater == null) {
+				rawInflater = new Inflater(true);
+			}
+			return rawInflater;
+		}
+
+		private byte[] buffer(int capacity) {
+			if (buffer.length < capacity) {
+				buffer = new byte[capacity];
+			}
+			return buffer;
+		}
+
+		private byte[] ensureCapacity(int capacity) {
+			if (buffer.length < capacity) {
+				buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+			}
+			return buffer;
+		}
+
+		private byte[] input(int capacity) {
+			if (input.length < capacity) {
+				input = new byte[capacity];
+			}
+			return input;
+		}
+
+		/**
+		 * Copies the first bytes of the buffer out and releases oversized buffers
+		 */
+		private byte[] result(int length) {
+			byte[] result = Arrays.copyOf(buffer, length);
+			release();
+			return result;
+		}
+
+		private void release() {
+			if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+				buffer = new byte[MIN_BUFFER_SIZE];
+			}
+			if (input.length > MAX_RETAINED_BUFFER_SIZE) {
+				input = EMPTY;
+			}
+			if (inflater != null) {
+				inflater.setInput(EMPTY);
+			}
+			if (rawInflater != null) {
+				rawInflater.setInput(EMPTY);
+			}
+		}
+
+		private void end() {
+			if (deflater != null) {
+				deflater.end();
+			}
+			if (rawDeflater != null) {
+				rawDeflater.end();
+			}
+			if (inflater != null) {
+				inflater.end();
+			}
+			if (rawInflater != null) {
+				rawInflater.end();
+			}
+		}
+	}
+}
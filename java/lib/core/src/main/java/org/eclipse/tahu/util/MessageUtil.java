@@ -21,8 +21,7 @@ import java.util.Date;
 import java.util.List;
 
 import org.eclipse.tahu.SparkplugException;
-import org.eclipse.tahu.json.DeserializerModifier;
-import org.eclipse.tahu.json.DeserializerModule;
+import org.eclipse.tahu.json.JsonCodec;
 import org.eclipse.tahu.message.model.Message;
 import org.eclipse.tahu.message.model.Message.MessageBuilder;
 import org.eclipse.tahu.message.model.Metric;
@@ -33,7 +32,7 @@ import org.eclipse.tahu.message.model.Topic;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 /**
  * Utilities for Sparkplug Message handling.
@@ -149,8 +148,7 @@ public class MessageUtil {
 	 * @throws JsonProcessingException
 	 */
 	public static String toJsonString(Message message) throws JsonProcessingException {
-		ObjectMapper mapper = new ObjectMapper();
-		return mapper.writeValueAsString(message);
+		return JsonCodec.getWriter().writeValueAsString(message);
 	}
 
 	/**
@@ -162,9 +160,7 @@ public class MessageUtil {
 	 * @throws JsonProcessingException
 	 */
 	public static String toJsonString(Message message, DateFormat dateFormat) throws JsonProcessingException {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.setDateFormat(dateFormat);
-		return mapper.writeValueAsString(message);
+		return JsonCodec.getWriter(dateFormat).writeValueAsString(message);
 	}
 
 	/**
@@ -189,9 +185,7 @@ public class MessageUtil {
 	 */
 	public static Message fromJsonString(String jsonString, boolean excludeSeqNum)
 			throws JsonParseException, JsonMappingException, IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.registerModule(new DeserializerModule(new DeserializerModifier()));
-		Message message = mapper.readValue(jsonString, Message.class);
+		Message message = JsonCodec.getReader(Message.class).readValue(jsonString);
 		if (excludeSeqNum) {
 			message.getPayload().setSeq(null);
 			return message;
@@ -201,64 +195,40 @@ public class MessageUtil {
 	}
 
 	/**
-	 * Divides a {@link Message} instance into one or more instances based on the maximum JSON encoded size. This method
-	 * does not do an initial encoding/check on the size of the passed in message before it divides it in two.
+	 * Divides a {@link Message} instance into one or more instances based on the maximum JSON encoded size. The JSON
+	 * encoded size of each metric is computed once and the metrics are packed in order in to as few {@link Message}s
+	 * as possible, each no more than maxBytes when encoded as UTF-8.
 	 * 
 	 * @param message the {@link Message} instance to divide
 	 * @param maxBytes the maximum bytes per {@link Message} instance
 	 * @return a {@link Collection} of {@link Message} instances
+	 * @throws SparkplugException if a single metric does not fit in the maximum size
 	 * @throws JsonProcessingException
 	 */
 	public static Collection<Message> divideJsonMessageByBytes(Message message, int maxBytes)
 			throws SparkplugException, JsonProcessingException {
-		Collection<Message> messages = new ArrayList<Message>();
-		divideAndAddMessages(messages, message, maxBytes);
-		return messages;
-	}
-
-	/*
-	 * Recursively divides {@link Message} instances and adds them to the {@link Collection} once they are under the
-	 * maximum size.
-	 */
-	private static void divideAndAddMessages(Collection<Message> messages, Message message, int maxBytes)
-			throws SparkplugException, JsonProcessingException {
 		Topic topic = message.getTopic();
 		SparkplugBPayload payload = message.getPayload();
-		List<Metric> metrics = payload.getMetrics();
-		final int metricCount = message.getPayload().getMetricCount();
-		final int size = toJsonString(message).getBytes().length;
+		ObjectWriter writer = JsonCodec.getWriter();
 
-		// Check if the message can be divided
-		if (metricCount <= 1) {
-			String errorMessage = null;
-			if (metricCount == 1) {
-				errorMessage = "Cannot divide SparkplugBPayload with one metric: "
-						+ message.getPayload().getMetrics().get(0).getName();
-			} else {
-				errorMessage = "Cannot divide SparkplugBPayload with " + metricCount + " metrics";
+		// The size of the message with an empty metrics array, which each metric and separating comma is added to
+		SparkplugBPayload emptyPayload = new SparkplugBPayloadBuilder().setTimestamp(payload.getTimestamp())
+				.setUuid(payload.getUuid()).setSeq(payload.getSeq()).createPayload();
+		int baseSize = writer.writeValueAsBytes(new MessageBuilder(topic, emptyPayload).build()).length;
+		List<Metric> metrics = payload.getMetrics();
+		int[] metricSizes = new int[metrics.size()];
+		for (int i = 0; i < metricSizes.length; i++) {
+			if (metrics.get(i) != null) {
+				metricSizes[i] = writer.writeValueAsBytes(metrics.get(i)).length;
 			}
-			throw new SparkplugException(errorMessage);
 		}
 
-		int newMessageCount = size / maxBytes + ((size % maxBytes > 0) ? 1 : 0);
-		int metricsPerMessageCount = metricCount / newMessageCount + ((metricCount % newMessageCount > 0) ? 1 : 0);
-		int index = 0;
-
-		while (index < metricCount) {
-			int toIndex = metricCount < (index + metricsPerMessageCount) ? metricCount : index + metricsPerMessageCount;
-			// build a new Message with the payload containing the next subset (count) of metrics
-			Message newMessage = new MessageBuilder(topic,
-					new SparkplugBPayloadBuilder().setTimestamp(payload.getTimestamp()).setUuid(payload.getUuid())
-							.setSeq(payload.getSeq()).addMetrics(new ArrayList<Metric>(metrics.subList(index, toIndex)))
-							.createPayload()).build();
-			String jsonMessage = toJsonString(newMessage);
-			if (jsonMessage.getBytes().length < maxBytes) {
-				messages.add(newMessage);
-			} else {
-				divideAndAddMessages(messages, newMessage, maxBytes);
-			}
-			index += metricsPerMessageCount;
+		Collection<Message> messages = new ArrayList<Message>();
+		for (SparkplugBPayload dividedPayload : PayloadUtil.divideMetrics(payload, baseSize, metricSizes, 1,
+				maxBytes)) {
+			messages.add(new MessageBuilder(topic, dividedPayload).build());
 		}
+		return messages;
 	}
 
 //	public static void main(String[] args) throws Exception {
@@ -13,18 +13,16 @@
 
 package org.eclipse.tahu.util;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 import org.eclipse.tahu.SparkplugException;
-import org.eclipse.tahu.json.DeserializerModifier;
-import org.eclipse.tahu.json.DeserializerModule;
+import org.eclipse.tahu.json.JsonCodec;
 import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
 import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadEncoder;
 import org.eclipse.tahu.message.model.Metric;
 import org.eclipse.tahu.message.model.Metric.MetricBuilder;
 import org.eclipse.tahu.message.model.MetricDataType;
@@ -37,7 +35,6 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Utilities for Sparkplug Payload handling.
@@ -50,6 +47,45 @@ public class PayloadUtil {
 
 	public static final String METRIC_ALGORITHM = "algorithm";
 
+	private static volatile CompressionEngine compressionEngine = new CompressionEngine();
+
+	/**
+	 * Gets the {@link CompressionEngine} used to compress and decompress payloads
+	 *
+	 * @return the {@link CompressionEngine} used to compress and decompress payloads
+	 */
+	public static CompressionEngine getCompressionEngine() {
+		return compressionEngine;
+	}
+
+	/**
+	 * Sets the {@link CompressionEngine} used to compress and decompress payloads, for example to change the
+	 * compression level
+	 *
+	 * @param compressionEngine the {@link CompressionEngine} to use
+	 */
+	public static void setCompressionEngine(CompressionEngine compressionEngine) {
+		PayloadUtil.compressionEngine = compressionEngine;
+	}
+
+	/**
+	 * Creates a preset DEFLATE dictionary from the metric names of a birth payload. An Edge Node and Host Application
+	 * that both derive the dictionary from the same NBIRTH can then compress and decompress the following data
+	 * payloads with it, which makes compressing small payloads worthwhile.
+	 *
+	 * @param birthPayload the birth {@link SparkplugBPayload}
+	 * @return the preset dictionary
+	 */
+	public static byte[] createDictionary(SparkplugBPayload birthPayload) {
+		List<String> metricNames = new ArrayList<>();
+		if (birthPayload.getMetrics() != null) {
+			for (Metric metric : birthPayload.getMetrics()) {
+				metricNames.add(metric.getName());
+			}
+		}
+		return CompressionEngine.createDictionary(metricNames);
+	}
+
 	/**
 	 * Serializes a {@link SparkplugBPayload} instance in to a JSON string.
 	 * 
@@ -58,8 +94,7 @@ public class PayloadUtil {
 	 * @throws JsonProcessingException
 	 */
 	public static String toJsonString(SparkplugBPayload payload) throws JsonProcessingException {
-		ObjectMapper mapper = new ObjectMapper();
-		return mapper.writeValueAsString(payload);
+		return JsonCodec.getWriter().writeValueAsString(payload);
 	}
 
 	/**
@@ -71,9 +106,7 @@ public class PayloadUtil {
 	 */
 	public static SparkplugBPayload fromJsonString(String jsonString)
 			throws JsonParseException, JsonMappingException, IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.registerModule(new DeserializerModule(new DeserializerModifier()));
-		return mapper.readValue(jsonString, SparkplugBPayload.class);
+		return JsonCodec.getReader(SparkplugBPayload.class).readValue(jsonString);
 	}
 
 	/**
@@ -86,6 +119,21 @@ public class PayloadUtil {
 	 */
 	public static SparkplugBPayload decompress(SparkplugBPayload payload, MetricDataTypeMap metricDataTypeMap)
 			throws Exception {
+		return decompress(payload, metricDataTypeMap, null);
+	}
+
+	/**
+	 * Returns a decompressed {@link SparkplugBPayload} instance from an existing payload that may have been compressed
+	 * with a preset dictionary. Will return the original payload if not compressed payload exists.
+	 *
+	 * @param payload the possibly compressed {@link SparkplugBPayload}
+	 * @param metricDataTypeMap the {@link MetricDataTypeMap} to be used in decoding
+	 * @param dictionary the preset dictionary - see {@link #createDictionary(SparkplugBPayload)} - or null for none
+	 * @return the decompressed {@link SparkplugBPayload}
+	 * @throws Exception if the payload can not be decompressed or decoded
+	 */
+	public static SparkplugBPayload decompress(SparkplugBPayload payload, MetricDataTypeMap metricDataTypeMap,
+			byte[] dictionary) throws Exception {
 		if (UUID_COMPRESSED.equals(payload.getUuid())) {
 			logger.trace("Decompressing payload");
 			SparkplugBPayloadDecoder decoder = new SparkplugBPayloadDecoder();
@@ -103,10 +151,10 @@ public class PayloadUtil {
 
 			switch (config.getAlgorithm()) {
 				case GZIP:
-					decompressedBytes = GZipUtil.decompress(payload.getBody());
+					decompressedBytes = compressionEngine.gunzip(payload.getBody());
 					break;
 				case DEFLATE:
-					decompressedBytes = inflateBytes(payload.getBody());
+					decompressedBytes = compressionEngine.inflate(payload.getBody(), dictionary);
 					break;
 				default:
 					throw new SparkplugException("Unknown or unsupported algorithm " + config.getAlgorithm());
@@ -148,6 +196,23 @@ public class PayloadUtil {
 	 */
 	public static SparkplugBPayload compress(SparkplugBPayload payload, CompressionAlgorithm algorithm,
 			boolean stripDataTypes) throws IOException, SparkplugException {
+		return compress(payload, algorithm, stripDataTypes, null);
+	}
+
+	/**
+	 * Compresses a {@link SparkplugBPayload} in to the body of a new payload
+	 *
+	 * @param payload the {@link SparkplugBPayload} to compress
+	 * @param algorithm the {@link CompressionAlgorithm} to use
+	 * @param stripDataTypes whether or not to strip the datatypes from the metrics
+	 * @param dictionary the preset dictionary - see {@link #createDictionary(SparkplugBPayload)} - or null for none.
+	 *            Only supported with {@link CompressionAlgorithm#DEFLATE}.
+	 * @return the compressed {@link SparkplugBPayload}
+	 * @throws IOException if the payload can not be encoded
+	 * @throws SparkplugException if the payload can not be compressed
+	 */
+	public static SparkplugBPayload compress(SparkplugBPayload payload, CompressionAlgorithm algorithm,
+			boolean stripDataTypes, byte[] dictionary) throws IOException, SparkplugException {
 		logger.trace("Compressing payload");
 		SparkplugBPayloadEncoder encoder = new SparkplugBPayloadEncoder();
 		// Encode bytes
@@ -159,15 +224,13 @@ public class PayloadUtil {
 		// Switch over compression algorithm
 		switch (algorithm) {
 			case GZIP:
-				try {
-					compressed = GZipUtil.compress(encoded);
-				} catch (Exception e) {
-					logger.error("Failed to GZIP the payload");
-					throw new SparkplugException("Failed to GZIP the payload", e);
+				if (dictionary != null) {
+					throw new SparkplugException("A preset dictionary is only supported with DEFLATE");
 				}
+				compressed = compressionEngine.gzip(encoded);
 				break;
 			case DEFLATE:
-				compressed = deflateBytes(encoded);
+				compressed = compressionEngine.deflate(encoded, dictionary);
 				break;
 			default:
 				throw new SparkplugException("Unknown or unsupported algorithm " + algorithm);
@@ -178,6 +241,63 @@ public class PayloadUtil {
 				.addMetric(algorithmMetric).createPayload();
 	}
 
+	/**
+	 * Divides a {@link SparkplugBPayload} in to one or more payloads that each encode to no more than the supplied
+	 * number of bytes. The encoded size of each metric is computed once and the metrics are packed in order in to as
+	 * few payloads as possible. Each payload keeps the timestamp, seq and UUID of the original.
+	 *
+	 * @param payload the {@link SparkplugBPayload} to divide
+	 * @param stripDataTypes whether or not the datatypes will be stripped when the payloads are encoded
+	 * @param maxBytes the maximum encoded size of each payload, for example the maximum packet size of the MQTT Server
+	 *            less the fixed header and topic
+	 * @return the payloads in metric order
+	 * @throws SparkplugException if a single metric does not fit in the maximum size
+	 */
+	public static List<SparkplugBPayload> divideByEncodedSize(SparkplugBPayload payload, boolean stripDataTypes,
+			int maxBytes) throws SparkplugException {
+		SparkplugBStreamingPayloadEncoder encoder = new SparkplugBStreamingPayloadEncoder();
+		int baseSize = encoder.getSerializedSize(copyWithMetrics(payload, new ArrayList<Metric>()), stripDataTypes);
+		return divideMetrics(payload, baseSize, encoder.getSerializedMetricSizes(payload, stripDataTypes), 0, maxBytes);
+	}
+
+	/*
+	 * Packs the metrics of a payload in to payloads of no more than maxBytes in one pass. The size of a payload is the
+	 * base size plus the size of each of its metrics and a separator between each pair of metrics.
+	 */
+	static List<SparkplugBPayload> divideMetrics(SparkplugBPayload payload, int baseSize, int[] metricSizes,
+			int separatorSize, int maxBytes) throws SparkplugException {
+		List<Metric> metrics = payload.getMetrics();
+		List<SparkplugBPayload> payloads = new ArrayList<SparkplugBPayload>();
+		List<Metric> chunk = new ArrayList<Metric>();
+		long size = baseSize;
+		for (int i = 0; i < metricSizes.length; i++) {
+			Metric metric = metrics.get(i);
+			if (metric == null) {
+				continue;
+			}
+			if (!chunk.isEmpty() && size + separatorSize + metricSizes[i] > maxBytes) {
+				payloads.add(copyWithMetrics(payload, chunk));
+				chunk = new ArrayList<Metric>();
+				size = baseSize;
+			}
+			size += (chunk.isEmpty() ? 0 : separatorSize) + metricSizes[i];
+			if (size > maxBytes) {
+				throw new SparkplugException("Cannot divide SparkplugBPayload - the metric " + metric.getName()
+						+ " does not fit in " + maxBytes + " bytes");
+			}
+			chunk.add(metric);
+		}
+		if (!chunk.isEmpty() || payloads.isEmpty()) {
+			payloads.add(copyWithMetrics(payload, chunk));
+		}
+		return payloads;
+	}
+
+	private static SparkplugBPayload copyWithMetrics(SparkplugBPayload payload, List<Metric> metrics) {
+		return new SparkplugBPayloadBuilder().setTimestamp(payload.getTimestamp()).setUuid(payload.getUuid())
+				.setSeq(payload.getSeq()).addMetrics(metrics).createPayload();
+	}
+
 	/**
 	 * Compresses a byte array using DEFLATE compression algorithm.
 	 * 
@@ -186,19 +306,7 @@ public class PayloadUtil {
 	 * @throws IOException
 	 */
 	protected static byte[] deflateBytes(byte[] bytes) throws IOException {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length);
-		Deflater deflater = new Deflater();
-		deflater.setInput(bytes);
-		deflater.finish();
-
-		byte[] buffer = new byte[1024];
-		while (!deflater.finished()) {
-			int count = deflater.deflate(buffer);
-			baos.write(buffer, 0, count);
-		}
-		baos.close();
-
-		return baos.toByteArray();
+		return compressionEngine.deflate(bytes);
 	}
 
 	/**
@@ -210,17 +318,7 @@ public class PayloadUtil {
 	 * @throws DataFormatException
 	 */
 	protected static byte[] inflateBytes(byte[] bytes) throws IOException, DataFormatException {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length);
-		Inflater inflater = new Inflater();
-		inflater.setInput(bytes);
-
-		byte[] buffer = new byte[1024];
-		while (!inflater.finished()) {
-			int count = inflater.inflate(buffer);
-			baos.write(buffer, 0, count);
-		}
-		baos.close();
-		return baos.toByteArray();
+		return compressionEngine.inflate(bytes);
 	}
 
 	private static class CompressionConfig {
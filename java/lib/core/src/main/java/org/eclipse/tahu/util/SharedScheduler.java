@@ -0,0 +1,132 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.util;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A scheduler shared by all Edge and Host clients in the JVM for short delayed tasks such as rebirth debouncing and
+ * response timeouts. It replaces a {@link java.util.Timer}, and so a thread, per Edge Node with a small fixed pool of
+ * daemon threads. Cancelled tasks are removed from the queue immediately so a large number of pending and cancelled
+ * timeouts costs only memory for the live ones.
+ *
+ * Tasks run on the shared threads and must be short. Tasks that block, for example on MQTT I/O, must be scheduled with
+ * {@link #scheduleBlocking(Runnable, long, TimeUnit)} which runs them on a separate pool that grows as needed. A task
+ * that throws is logged and does not affect other tasks or later runs of itself.
+ */
+public class SharedScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(SharedScheduler.class.getName());
+
+	private static final int POOL_SIZE = 2;
+
+	private static final long BLOCKING_KEEP_ALIVE_SECONDS = 60;
+
+	private static final ScheduledThreadPoolExecutor EXECUTOR;
+
+	// Runs the blocking tasks handed over by the scheduler threads, with idle threads ending after a minute
+	private static final ThreadPoolExecutor BLOCKING_EXECUTOR;
+
+	static {
+		EXECUTOR = new ScheduledThreadPoolExecutor(POOL_SIZE, daemonThreadFactory("TahuSharedScheduler-"));
+		EXECUTOR.setRemoveOnCancelPolicy(true);
+		EXECUTOR.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		BLOCKING_EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE, BLOCKING_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), daemonThreadFactory("TahuSharedBlocking-"));
+	}
+
+	private SharedScheduler() {
+	}
+
+	/**
+	 * Schedules a task to run once after a delay
+	 *
+	 * @param task the task to run
+	 * @param delay the delay
+	 * @param unit the {@link TimeUnit} of the delay
+	 * @return a {@link ScheduledFuture} that can be used to cancel the task
+	 */
+	public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		return EXECUTOR.schedule(wrap(task), delay, unit);
+	}
+
+	/**
+	 * Schedules a task that may block to run once after a delay. The scheduler only hands the task over to a separate
+	 * pool when it is due, so it never holds up the other scheduled tasks.
+	 *
+	 * @param task the task to run
+	 * @param delay the delay
+	 * @param unit the {@link TimeUnit} of the delay
+	 * @return a {@link ScheduledFuture} that can be used to cancel the task until it is handed over
+	 */
+	public static ScheduledFuture<?> scheduleBlocking(Runnable task, long delay, TimeUnit unit) {
+		Runnable wrapped = wrap(task);
+		return EXECUTOR.schedule(() -> BLOCKING_EXECUTOR.execute(wrapped), delay, unit);
+	}
+
+	/**
+	 * Schedules a task to run repeatedly with a fixed delay between the end of one run and the start of the next
+	 *
+	 * @param task the task to run
+	 * @param initialDelay the delay before the first run
+	 * @param delay the delay between runs
+	 * @param unit the {@link TimeUnit} of the delays
+	 * @return a {@link ScheduledFuture} that can be used to cancel the task
+	 */
+	public static ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay,
+			TimeUnit unit) {
+		return EXECUTOR.scheduleWithFixedDelay(wrap(task), initialDelay, delay, unit);
+	}
+
+	/**
+	 * Returns the number of tasks waiting to run
+	 *
+	 * @return the number of tasks waiting to run
+	 */
+	public static int getPendingTaskCount() {
+		return EXECUTOR.getQueue().size();
+	}
+
+	private static ThreadFactory daemonThreadFactory(String prefix) {
+		AtomicInteger threadCount = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/*
+	 * Logs a failure rather than letting it cancel a repeating task
+	 */
+	private static Runnable wrap(Runnable task) {
+		return () -> {
+			try {
+				task.run();
+			} catch (Throwable t) {
+				logger.error("Scheduled task failed", t);
+			}
+		};
+	}
+}
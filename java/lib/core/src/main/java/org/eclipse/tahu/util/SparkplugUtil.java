@@ -28,16 +28,14 @@ public class SparkplugUtil {
 
 	public static int getQualityCode(Metric metric) {
 		PropertySet propertySet = metric.getProperties();
-		logger.trace("Getting properties for {} with value: {}", metric.getName(),
-				(propertySet != null && propertySet.getPropertyMap() != null)
-						? propertySet.getPropertyMap().toString()
-						: "null");
-		if (propertySet != null && propertySet.getPropertyValue("Quality") != null) {
-			return (int) propertySet.getPropertyValue("Quality").getValue();
+		// The PropertySet is only converted to a String if trace logging is enabled
+		logger.trace("Getting properties for {} with value: {}", metric.getName(), propertySet);
+		if (propertySet != null && propertySet.getQuality() != null) {
+			return propertySet.getQualityCode(SparkplugMeta.QUALITY_CODE_GOOD);
 		}
 
 		logger.trace("No incoming quality for {} - assuming good", metric.getName());
-		return 192;
+		return SparkplugMeta.QUALITY_CODE_GOOD;
 	}
 
 	public static Long getBdSequenceNumber(SparkplugBPayload payload) throws Exception {
@@ -0,0 +1,123 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket rate limiter. The bucket holds up to a number of tokens and is refilled at a fixed rate, so it allows
+ * a burst of up to its capacity and then a steady rate.
+ *
+ * {@link #tryAcquire()} takes a token only if one is available. {@link #reserve()} always takes a token, going into
+ * debt if the bucket is empty, and returns how long the caller must wait before using it. Reserving spreads a burst of
+ * requests out at the refill rate rather than dropping them.
+ *
+ * Instances are thread safe.
+ */
+public class TokenBucket {
+
+	private final int capacity;
+	private final double nanosPerToken;
+	private final LongSupplier nanoClock;
+
+	private double tokens;
+	private long lastRefillNanos;
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity the maximum number of tokens, which is also the initial number of tokens
+	 * @param tokensPerSecond the rate at which tokens are added
+	 */
+	public TokenBucket(int capacity, double tokensPerSecond) {
+		this(capacity, tokensPerSecond, System::nanoTime);
+	}
+
+	TokenBucket(int capacity, double tokensPerSecond, LongSupplier nanoClock) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		if (!(tokensPerSecond > 0)) {
+			throw new IllegalArgumentException("Invalid rate: " + tokensPerSecond);
+		}
+		this.capacity = capacity;
+		this.nanosPerToken = 1_000_000_000d / tokensPerSecond;
+		this.nanoClock = nanoClock;
+		this.tokens = capacity;
+		this.lastRefillNanos = nanoClock.getAsLong();
+	}
+
+	/**
+	 * Takes a token if one is available
+	 *
+	 * @return true if a token was taken, otherwise false
+	 */
+	public synchronized boolean tryAcquire() {
+		refill();
+		if (tokens >= 1) {
+			tokens -= 1;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Takes a token, going into debt if none is available
+	 *
+	 * @return the number of nanoseconds to wait before using the token, or 0 if it can be used now
+	 */
+	public synchronized long reserve() {
+		refill();
+		tokens -= 1;
+		return tokens >= 0 ? 0L : (long) Math.ceil(-tokens * nanosPerToken);
+	}
+
+	/**
+	 * Returns the number of tokens currently available
+	 *
+	 * @return the number of tokens currently available, which is negative while reserved tokens are owed
+	 */
+	public synchronized double getAvailableTokens() {
+		refill();
+		return tokens;
+	}
+
+	/**
+	 * Returns the maximum number of tokens
+	 *
+	 * @return the maximum number of tokens
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the rate at which tokens are added
+	 *
+	 * @return the number of tokens added per second
+	 */
+	public double getTokensPerSecond() {
+		return 1_000_000_000d / nanosPerToken;
+	}
+
+	private void refill() {
+		long now = nanoClock.getAsLong();
+		long elapsed = now - lastRefillNanos;
+		if (elapsed > 0) {
+			tokens = Math.min(capacity, tokens + elapsed / nanosPerToken);
+			lastRefillNanos = now;
+		}
+	}
+}
@@ -13,33 +13,58 @@
 
 package org.eclipse.tahu.util;
 
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.tahu.SparkplugParsingException;
+import org.eclipse.tahu.json.JsonCodec;
 import org.eclipse.tahu.message.model.MessageType;
 import org.eclipse.tahu.message.model.Topic;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Provides utility methods for handling Sparkplug MQTT message topics.
  */
 public class TopicUtil {
 
-	private static final Map<String, String[]> SPLIT_TOPIC_CACHE = new HashMap<String, String[]>();
+	/**
+	 * The maximum number of entries held by each of the topic caches
+	 */
+	public static final int MAX_CACHED_TOPICS = 10000;
+
+	private static final Map<String, String[]> SPLIT_TOPIC_CACHE = new ConcurrentHashMap<>();
+
+	private static final Map<String, Topic> PARSED_TOPIC_CACHE = new ConcurrentHashMap<>();
+
+	private static final MessageType[] MESSAGE_TYPES = MessageType.values();
 
 	public static String[] getSplitTopic(String topic) {
 		String[] splitTopic = SPLIT_TOPIC_CACHE.get(topic);
 		if (splitTopic == null) {
 			splitTopic = topic.split("/");
-			SPLIT_TOPIC_CACHE.put(topic, splitTopic);
+			cache(SPLIT_TOPIC_CACHE, topic, splitTopic);
 		}
 
 		return splitTopic;
 	}
 
+	/*
+	 * Adds an entry to a cache, evicting an arbitrary entry first if the cache is full. ConcurrentHashMap iteration
+	 * order follows the key hashes so this approximates random eviction without tracking recency.
+	 */
+	private static <V> void cache(Map<String, V> cache, String key, V value) {
+		if (cache.size() >= MAX_CACHED_TOPICS) {
+			Iterator<String> it = cache.keySet().iterator();
+			if (it.hasNext()) {
+				it.next();
+				it.remove();
+			}
+		}
+		cache.put(key, value);
+	}
+
 	/**
 	 * Serializes a {@link Topic} instance in to a JSON string.
 	 * 
@@ -48,8 +73,7 @@ public class TopicUtil {
 	 * @throws JsonProcessingException
 	 */
 	public static String toJsonString(Topic topic) throws JsonProcessingException {
-		ObjectMapper mapper = new ObjectMapper();
-		return mapper.writeValueAsString(topic);
+		return JsonCodec.getWriter().writeValueAsString(topic);
 	}
 
 	/**
@@ -60,7 +84,100 @@ public class TopicUtil {
 	 * @throws SparkplugParsingException if an error occurs while parsing
 	 */
 	public static Topic parseTopic(String topic) throws SparkplugParsingException {
-		return parseTopic(TopicUtil.getSplitTopic(topic));
+		Topic parsedTopic = PARSED_TOPIC_CACHE.get(topic);
+		if (parsedTopic == null) {
+			parsedTopic = parseTopicString(topic);
+			cache(PARSED_TOPIC_CACHE, topic, parsedTopic);
+		}
+		return parsedTopic;
+	}
+
+	/*
+	 * Parses a topic string the same way as parseTopic(String[]) but locates the tokens with indexOf rather than
+	 * splitting the topic into an array.
+	 */
+	@SuppressWarnings("incomplete-switch")
+	private static Topic parseTopicString(String topic) throws SparkplugParsingException {
+		// String.split drops trailing empty tokens
+		int end = topic.length();
+		while (end > 0 && topic.charAt(end - 1) == '/') {
+			end--;
+		}
+
+		// The start of each token plus the end of the last one
+		int[] starts = new int[6];
+		int length = 0;
+		int start = 0;
+		while (length < 6) {
+			starts[length++] = start;
+			int slash = topic.indexOf('/', start);
+			if (slash < 0 || slash >= end) {
+				break;
+			}
+			start = slash + 1;
+		}
+		if (length == 6) {
+			// Count the remaining tokens for the error message
+			for (int i = starts[5]; i < end; i++) {
+				if (topic.charAt(i) == '/') {
+					length++;
+				}
+			}
+			throw new SparkplugParsingException("Invalid number of topic elements: " + length);
+		}
+		starts[length] = end + 1;
+
+		if (length == 3 && tokenEquals(topic, starts, 1, MessageType.STATE.toString())) {
+			return new Topic(token(topic, starts, 0), token(topic, starts, 2), MessageType.STATE);
+		}
+
+		if (length < 4 || length > 5) {
+			throw new SparkplugParsingException("Invalid number of topic elements: " + length);
+		}
+
+		MessageType type = null;
+		for (MessageType messageType : MESSAGE_TYPES) {
+			if (tokenEquals(topic, starts, 2, messageType.name())) {
+				type = messageType;
+				break;
+			}
+		}
+		if (type == null) {
+			throw new SparkplugParsingException("Invalid message type: " + token(topic, starts, 2));
+		}
+
+		if (length == 4) {
+			// A node topic
+			switch (type) {
+				case NBIRTH:
+				case NCMD:
+				case NDATA:
+				case NDEATH:
+				case NRECORD:
+					return new Topic(token(topic, starts, 0), token(topic, starts, 1), token(topic, starts, 3), type);
+			}
+		} else {
+			// A device topic
+			switch (type) {
+				case DBIRTH:
+				case DCMD:
+				case DDATA:
+				case DDEATH:
+				case DRECORD:
+					return new Topic(token(topic, starts, 0), token(topic, starts, 1), token(topic, starts, 3),
+							token(topic, starts, 4), type);
+			}
+		}
+		throw new SparkplugParsingException("Invalid number of topic elements " + length + " for topic type " + type);
+	}
+
+	private static String token(String topic, int[] starts, int index) {
+		return topic.substring(starts[index], starts[index + 1] - 1);
+	}
+
+	private static boolean tokenEquals(String topic, int[] starts, int index, String value) {
+		int tokenLength = starts[index + 1] - 1 - starts[index];
+		return tokenLength == value.length() && topic.regionMatches(starts[index], value, 0, tokenLength);
 	}
 
 	/**
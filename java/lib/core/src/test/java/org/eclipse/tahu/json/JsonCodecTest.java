@@ -0,0 +1,75 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.eclipse.tahu.message.model.DataSet;
+import org.eclipse.tahu.message.model.DataSet.DataSetBuilder;
+import org.eclipse.tahu.message.model.DataSetDataType;
+import org.eclipse.tahu.message.model.Row.RowBuilder;
+import org.eclipse.tahu.message.model.StatePayload;
+import org.eclipse.tahu.message.model.Value;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+
+/**
+ * Unit tests for the {@link JsonCodec} and the streaming serializers.
+ */
+public class JsonCodecTest {
+
+	@Test
+	public void testStatePayload() throws Exception {
+		byte[] bytes = JsonCodec.toStateBytes(new StatePayload(true, 1700000000000L));
+		assertThat(new String(bytes, StandardCharsets.UTF_8))
+				.isEqualTo("{\"online\":true,\"timestamp\":1700000000000}");
+		assertThat(JsonCodec.toStateBytes(new StatePayload())).isEqualTo(
+				"{\"online\":null,\"timestamp\":null}".getBytes(StandardCharsets.UTF_8));
+
+		StatePayload statePayload =
+				JsonCodec.fromStateBytes("{ \"timestamp\" : 5, \"online\" : false }".getBytes(StandardCharsets.UTF_8));
+		assertThat(statePayload.isOnline()).isFalse();
+		assertThat(statePayload.getTimestamp()).isEqualTo(5L);
+		assertThat(JsonCodec.fromStateBytes("{}".getBytes(StandardCharsets.UTF_8)).isOnline()).isNull();
+
+		assertThatThrownBy(() -> JsonCodec.fromStateBytes("{\"online\":true,\"other\":1}".getBytes()))
+				.isInstanceOf(UnrecognizedPropertyException.class);
+		assertThat(JsonCodec.getReader(StatePayload.class)).isSameAs(JsonCodec.getReader(StatePayload.class));
+	}
+
+	@Test
+	public void testDateFormat() throws Exception {
+		DataSet dataSet = new DataSetBuilder(2).addColumnName("Date").addColumnName("Short")
+				.addType(DataSetDataType.DateTime).addType(DataSetDataType.Int16)
+				.addRow(new RowBuilder().addValue(new Value<Date>(DataSetDataType.DateTime, new Date(0)))
+						.addValue(new Value<Short>(DataSetDataType.Int16, (short) -3)).createRow())
+				.createDataSet();
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+		assertThat(JsonCodec.getWriter(dateFormat).writeValueAsString(dataSet))
+				.startsWith("{\"rows\":[[\"1970-01-01\",-3]]");
+		String json = JsonCodec.getWriter().writeValueAsString(dataSet);
+		assertThat(json).startsWith("{\"rows\":[[0,-3]]");
+		DataSet decoded = JsonCodec.getReader(DataSet.class).readValue(json);
+		assertThat(decoded.getRows().get(0).getValues().get(1).getValue()).isEqualTo((short) -3);
+	}
+}
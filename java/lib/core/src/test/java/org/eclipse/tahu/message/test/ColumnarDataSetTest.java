@@ -0,0 +1,252 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tahu.json.JsonCodec;
+
+import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
+import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadDecoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadEncoder;
+import org.eclipse.tahu.message.model.ColumnarDataSet;
+import org.eclipse.tahu.message.model.ColumnarDataSet.ColumnarDataSetBuilder;
+import org.eclipse.tahu.message.model.DataSet;
+import org.eclipse.tahu.message.model.DataSet.DataSetBuilder;
+import org.eclipse.tahu.message.model.DataSetDataType;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.Row;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugBPayload.SparkplugBPayloadBuilder;
+import org.eclipse.tahu.message.model.Value;
+import org.eclipse.tahu.util.PayloadUtil;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Verifies a {@link ColumnarDataSet} is encoded and decoded the same as the equivalent row based {@link DataSet}
+ */
+public class ColumnarDataSetTest {
+
+	private static final DataSetDataType[] TYPES = { DataSetDataType.Int8, DataSetDataType.Int16,
+			DataSetDataType.Int32, DataSetDataType.Int64, DataSetDataType.UInt8, DataSetDataType.UInt16,
+			DataSetDataType.UInt32, DataSetDataType.UInt64, DataSetDataType.Float, DataSetDataType.Double,
+			DataSetDataType.Boolean, DataSetDataType.String, DataSetDataType.DateTime, DataSetDataType.Text };
+
+	private static List<Object> rowValues(int i) {
+		if (i % 7 == 3) {
+			return Arrays.asList(new Object[TYPES.length]);
+		}
+		return Arrays.asList((byte) -i, (short) (i * 100), i * -70000, i * -1L << 40, (short) (i % 256),
+				i * 1000, 4000000000L + i, new BigInteger("18446744073709551615").subtract(BigInteger.valueOf(i)),
+				i * 1.5f, i * -2.25, i % 2 == 0, "s" + (i % 3), new Date(1700000000000L + i), "text" + i);
+	}
+
+	private static DataSet createRowDataSet(int numOfRows) throws Exception {
+		DataSetBuilder builder = new DataSetBuilder(TYPES.length);
+		for (int c = 0; c < TYPES.length; c++) {
+			builder.addColumnName("c" + c).addType(TYPES[c]);
+		}
+		for (int i = 0; i < numOfRows; i++) {
+			List<Value<?>> values = new ArrayList<Value<?>>();
+			List<Object> rowValues = rowValues(i);
+			for (int c = 0; c < TYPES.length; c++) {
+				values.add(new Value<Object>(TYPES[c], rowValues.get(c)));
+			}
+			builder.addRow(new Row(values));
+		}
+		return builder.createDataSet();
+	}
+
+	private static ColumnarDataSet createColumnarDataSet(int numOfRows) throws Exception {
+		ColumnarDataSetBuilder builder = new ColumnarDataSetBuilder().initialCapacity(2);
+		for (int c = 0; c < TYPES.length; c++) {
+			builder.addColumn("c" + c, TYPES[c]);
+		}
+		ColumnarDataSet dataSet = builder.createColumnarDataSet();
+		for (int i = 0; i < numOfRows; i++) {
+			if (i % 7 == 3) {
+				for (int c = 0; c < TYPES.length; c++) {
+					dataSet.appendNull();
+				}
+			} else {
+				List<Object> rowValues = rowValues(i);
+				dataSet.appendInt((byte) -i).appendInt((short) (i * 100)).appendInt(i * -70000)
+						.appendLong(i * -1L << 40).appendInt(i % 256).appendInt(i * 1000).appendLong(4000000000L + i)
+						.appendLong(((BigInteger) rowValues.get(7)).longValue()).appendFloat(i * 1.5f)
+						.appendDouble(i * -2.25).appendBoolean(i % 2 == 0).appendString("s" + (i % 3))
+						.appendLong(1700000000000L + i).appendValue("text" + i);
+			}
+		}
+		return dataSet;
+	}
+
+	private static SparkplugBPayload createPayload(DataSet dataSet) throws Exception {
+		return new SparkplugBPayloadBuilder().setTimestamp(new Date(1700000000000L)).setSeq(1L)
+				.addMetric(new MetricBuilder("DataSet", MetricDataType.DataSet, dataSet)
+						.timestamp(new Date(1700000000000L)).createMetric())
+				.createPayload();
+	}
+
+	@Test
+	public void testEncodeMatchesRowDataSet() throws Exception {
+		byte[] expected = new SparkplugBPayloadEncoder().getBytes(createPayload(createRowDataSet(50)), false);
+		SparkplugBPayload payload = createPayload(createColumnarDataSet(50));
+
+		assertThat(new SparkplugBPayloadEncoder().getBytes(payload, false)).isEqualTo(expected);
+		assertThat(new SparkplugBStreamingPayloadEncoder().getBytes(payload, false)).isEqualTo(expected);
+	}
+
+	@Test
+	public void testDecodeToColumns() throws Exception {
+		DataSet rowDataSet = createRowDataSet(50);
+		byte[] bytes = new SparkplugBPayloadEncoder().getBytes(createPayload(rowDataSet), false);
+
+		Object value = new SparkplugBStreamingPayloadDecoder().buildFromByteArray(bytes, null).getMetrics().get(0)
+				.getValue();
+		assertThat(value).isInstanceOf(ColumnarDataSet.class);
+		ColumnarDataSet dataSet = (ColumnarDataSet) value;
+		assertThat(dataSet.getRowCount()).isEqualTo(50);
+		assertThat(dataSet.getColumnNames()).isEqualTo(rowDataSet.getColumnNames());
+		assertThat(dataSet.getTypes()).isEqualTo(rowDataSet.getTypes());
+		assertThat(dataSet.getRows()).isEqualTo(rowDataSet.getRows());
+		assertThat(dataSet.toString()).isEqualTo(rowDataSet.toString());
+		assertThat(dataSet.getString(4, 11)).isEqualTo("s1");
+		assertThat(dataSet.isNull(3, 11)).isTrue();
+
+		// The row based decoder sees the same data
+		DataSet decoded = (DataSet) new SparkplugBPayloadDecoder()
+				.buildFromByteArray(new SparkplugBStreamingPayloadEncoder().getBytes(createPayload(dataSet), false),
+						null)
+				.getMetrics().get(0).getValue();
+		assertThat(decoded.getRows()).isEqualTo(rowDataSet.getRows());
+	}
+
+	@Test
+	public void testRowAdapter() throws Exception {
+		ColumnarDataSet dataSet = createColumnarDataSet(0);
+		DataSet rowDataSet = createRowDataSet(5);
+		for (Row row : rowDataSet.getRows()) {
+			dataSet.addRow(row);
+		}
+		dataSet.addRow(5, rowDataSet.getRows().get(1));
+
+		// Appending rows and reading them through the typed getters keeps the values in columns
+		assertThat(dataSet.isColumnar()).isTrue();
+		assertThat(dataSet.getRowCount()).isEqualTo(6);
+		assertThat(dataSet.getRowsAsLists().get(5)).isEqualTo(rowDataSet.getRowsAsLists().get(1));
+		assertThat(dataSet.getValue(4, 2)).isEqualTo(-280000);
+
+		// A row that does not match the columns is not partly appended
+		List<Value<?>> badValues = new ArrayList<Value<?>>(rowDataSet.getRows().get(2).getValues());
+		badValues.set(TYPES.length - 1, new Value<Object>(DataSetDataType.Text, 5));
+		assertThatThrownBy(() -> dataSet.addRow(new Row(badValues))).isInstanceOf(IllegalArgumentException.class);
+		assertThat(dataSet.getRowCount()).isEqualTo(6);
+		assertThat(dataSet.isColumnar()).isTrue();
+		assertThatThrownBy(() -> dataSet.appendString("wrong")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> dataSet.appendValue(1)).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(new DataSetBuilder(dataSet).createDataSet().getRows().subList(0, 5))
+				.isEqualTo(rowDataSet.getRows());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testConvertToRows() throws Exception {
+		DataSet rowDataSet = createRowDataSet(5);
+
+		// Changes made through the Rows are kept
+		ColumnarDataSet dataSet = createColumnarDataSet(5);
+		((Value<Object>) dataSet.getRows().get(0).getValues().get(2)).setValue(42);
+		assertThat(dataSet.isColumnar()).isFalse();
+		assertThat(dataSet.getInt(0, 2)).isEqualTo(42);
+		assertThat(dataSet.getRows().get(1)).isEqualTo(rowDataSet.getRows().get(1));
+
+		// Rows can be inserted and removed like any DataSet
+		dataSet = createColumnarDataSet(5);
+		Row removed = dataSet.removeRow(1);
+		assertThat(removed).isEqualTo(rowDataSet.getRows().get(1));
+		dataSet.addRow(0, removed);
+		assertThat(dataSet.removeRow(rowDataSet.getRows().get(4))).isTrue();
+		assertThat(dataSet.getRows()).containsExactly(rowDataSet.getRows().get(1), rowDataSet.getRows().get(0),
+				rowDataSet.getRows().get(2), rowDataSet.getRows().get(3));
+
+		// The typed appends keep working once converted, including a partly appended row
+		dataSet = createColumnarDataSet(3);
+		dataSet.appendInt(-3).appendInt(300);
+		dataSet.removeRow(0);
+		dataSet.appendInt(-210000).appendLong(-3L << 40).appendInt(3).appendInt(3000).appendLong(4000000003L)
+				.appendLong(-4).appendFloat(4.5f).appendDouble(-6.75).appendBoolean(false).appendString("s0")
+				.appendLong(1700000000003L).appendValue("text3");
+		assertThat(dataSet.getRowCount()).isEqualTo(3);
+		assertThat(dataSet.getRowsAsLists().get(2)).containsExactly((byte) -3, (short) 300, -210000, -3L << 40,
+				(short) 3, 3000, 4000000003L, new BigInteger("18446744073709551612"), 4.5f, -6.75, false, "s0",
+				new Date(1700000000003L), "text3");
+
+		// The columns can be changed like any DataSet
+		dataSet = createColumnarDataSet(2);
+		dataSet.addColumnName("extra");
+		dataSet.getTypes().add(DataSetDataType.Int32);
+		dataSet.setNumOfColumns(TYPES.length + 1);
+		for (Row row : dataSet.getRows()) {
+			row.addValue(new Value<Object>(DataSetDataType.Int32, 7));
+		}
+		assertThat(dataSet.getTypes()).hasSize(TYPES.length + 1);
+		assertThat(dataSet.getColumnNames()).hasSize(TYPES.length + 1);
+		assertThat(dataSet.getInt(1, TYPES.length)).isEqualTo(7);
+
+		// Converted DataSets are encoded from their Rows
+		byte[] expected = new SparkplugBPayloadEncoder().getBytes(createPayload(rowDataSet), false);
+		dataSet = createColumnarDataSet(5);
+		dataSet.getRows();
+		assertThat(new SparkplugBStreamingPayloadEncoder().getBytes(createPayload(dataSet), false))
+				.isEqualTo(expected);
+	}
+
+	@Test
+	public void testJson() throws Exception {
+		DataSet rowDataSet = createRowDataSet(10);
+
+		// The same JSON the bean serializer wrote before DataSet had its own serializer
+		Map<String, Object> legacy = new LinkedHashMap<String, Object>();
+		legacy.put("rows", rowDataSet.getRowsAsLists());
+		legacy.put("numberOfColumns", rowDataSet.getNumOfColumns());
+		legacy.put("columnNames", rowDataSet.getColumnNames());
+		legacy.put("types", rowDataSet.getTypes());
+		String json = new ObjectMapper().writeValueAsString(legacy);
+
+		assertThat(JsonCodec.getWriter().writeValueAsString(rowDataSet)).isEqualTo(json);
+		assertThat(JsonCodec.getWriter().writeValueAsString(createColumnarDataSet(10))).isEqualTo(json);
+
+		DataSet decoded = JsonCodec.getReader(DataSet.class).readValue(json);
+		assertThat(decoded.toString()).isEqualTo(rowDataSet.toString());
+		assertThat(JsonCodec.getWriter().writeValueAsString(decoded)).isEqualTo(json);
+
+		SparkplugBPayload payload = createPayload(createColumnarDataSet(10));
+		String payloadJson = PayloadUtil.toJsonString(payload);
+		assertThat(PayloadUtil.toJsonString(PayloadUtil.fromJsonString(payloadJson))).isEqualTo(payloadJson);
+	}
+}
@@ -0,0 +1,205 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.eclipse.tahu.SparkplugInvalidTypeException;
+import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
+import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadDecoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadEncoder;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugBPayload.SparkplugBPayloadBuilder;
+import org.eclipse.tahu.util.PayloadUtil;
+import org.testng.annotations.Test;
+
+/**
+ * Verifies the unboxed value and timestamp storage of a {@link Metric}
+ */
+public class MetricValueTest {
+
+	private static final long TIMESTAMP = 1700000000000L;
+
+	private static SparkplugBPayload createPayload(boolean primitive) throws Exception {
+		SparkplugBPayloadBuilder builder = new SparkplugBPayloadBuilder().setTimestamp(new Date(TIMESTAMP)).setSeq(0L);
+		if (primitive) {
+			builder.addMetric(new MetricBuilder("Int8", MetricDataType.Int8, null).longValue(-5).timestamp(TIMESTAMP)
+					.createMetric())
+					.addMetric(new MetricBuilder("UInt8", MetricDataType.UInt8, null).longValue(200)
+							.timestamp(TIMESTAMP).createMetric())
+					.addMetric(new MetricBuilder("UInt32", MetricDataType.UInt32, null).longValue(4000000000L)
+							.timestamp(TIMESTAMP).createMetric())
+					.addMetric(new MetricBuilder("Float", MetricDataType.Float, null).doubleValue(1.5F)
+							.timestamp(TIMESTAMP).createMetric())
+					.addMetric(new MetricBuilder("Double", MetricDataType.Double, null).doubleValue(-2.25D)
+							.timestamp(TIMESTAMP).createMetric())
+					.addMetric(new MetricBuilder("Boolean", MetricDataType.Boolean, null).booleanValue(true)
+							.timestamp(TIMESTAMP).createMetric())
+					.addMetric(new MetricBuilder("DateTime", MetricDataType.DateTime, null).longValue(TIMESTAMP)
+							.timestamp(TIMESTAMP).createMetric());
+		} else {
+			builder.addMetric(new MetricBuilder("Int8", MetricDataType.Int8, Byte.valueOf((byte) -5))
+					.timestamp(new Date(TIMESTAMP)).createMetric())
+					.addMetric(new MetricBuilder("UInt8", MetricDataType.UInt8, Short.valueOf((short) 200))
+							.timestamp(new Date(TIMESTAMP)).createMetric())
+					.addMetric(new MetricBuilder("UInt32", MetricDataType.UInt32, Long.valueOf(4000000000L))
+							.timestamp(new Date(TIMESTAMP)).createMetric())
+					.addMetric(new MetricBuilder("Float", MetricDataType.Float, Float.valueOf(1.5F))
+							.timestamp(new Date(TIMESTAMP)).createMetric())
+					.addMetric(new MetricBuilder("Double", MetricDataType.Double, Double.valueOf(-2.25D))
+							.timestamp(new Date(TIMESTAMP)).createMetric())
+					.addMetric(new MetricBuilder("Boolean", MetricDataType.Boolean, Boolean.TRUE)
+							.timestamp(new Date(TIMESTAMP)).createMetric())
+					.addMetric(new MetricBuilder("DateTime", MetricDataType.DateTime, new Date(TIMESTAMP))
+							.timestamp(new Date(TIMESTAMP)).createMetric());
+		}
+		return builder.createPayload();
+	}
+
+	@Test
+	public void testBoxedAdapters() throws Exception {
+		SparkplugBPayload primitive = createPayload(true);
+		SparkplugBPayload boxed = createPayload(false);
+
+		assertThat(primitive.getMetrics()).isEqualTo(boxed.getMetrics());
+		assertThat(primitive.getMetrics().get(0).getValue()).isEqualTo((byte) -5);
+		assertThat(primitive.getMetrics().get(1).getValue()).isEqualTo((short) 200);
+		assertThat(primitive.getMetrics().get(3).getValue()).isEqualTo(1.5F);
+		assertThat(primitive.getMetrics().get(6).getValue()).isEqualTo(new Date(TIMESTAMP));
+		assertThat(primitive.getMetrics().get(6).getTimestamp()).isEqualTo(new Date(TIMESTAMP));
+		assertThat(PayloadUtil.toJsonString(primitive)).isEqualTo(PayloadUtil.toJsonString(boxed));
+
+		// The primitive accessors work for boxed values too
+		assertThat(boxed.getMetrics().get(2).getLongValue()).isEqualTo(4000000000L);
+		assertThat(boxed.getMetrics().get(4).getDoubleValue()).isEqualTo(-2.25D);
+		assertThat(boxed.getMetrics().get(5).getBooleanValue()).isTrue();
+		assertThat(boxed.getMetrics().get(6).getTimestampMillis()).isEqualTo(TIMESTAMP);
+	}
+
+	@Test
+	public void testEncodeAndDecode() throws Exception {
+		byte[] expected = new SparkplugBPayloadEncoder().getBytes(createPayload(false), false);
+		assertThat(new SparkplugBPayloadEncoder().getBytes(createPayload(true), false)).isEqualTo(expected);
+		assertThat(new SparkplugBStreamingPayloadEncoder().getBytes(createPayload(true), false)).isEqualTo(expected);
+
+		SparkplugBPayload decoded = new SparkplugBStreamingPayloadDecoder().buildFromByteArray(expected, null);
+		assertThat(decoded.getMetrics())
+				.isEqualTo(new SparkplugBPayloadDecoder().buildFromByteArray(expected, null).getMetrics());
+		assertThat(decoded.getMetrics().get(1).getLongValue()).isEqualTo(200);
+		assertThat(decoded.getMetrics().get(6).getLongValue()).isEqualTo(TIMESTAMP);
+	}
+
+	@Test
+	public void testSetAndCopy() throws Exception {
+		Metric metric = new MetricBuilder("Int32", MetricDataType.Int32, 1).createMetric();
+		metric.setLongValue(-70000);
+		assertThat(metric.getValue()).isEqualTo(-70000);
+		assertThat(metric.isNull()).isFalse();
+
+		Metric copy = new MetricBuilder("Int32", MetricDataType.Int32, null).createMetric();
+		assertThat(copy.hasValue()).isFalse();
+		copy.copyValue(metric);
+		assertThat(copy.getLongValue()).isEqualTo(-70000);
+		assertThat(new Metric(metric)).isEqualTo(metric);
+
+		// Values a datatype can not hold unboxed are checked as Objects
+		metric.setValue(null);
+		assertThat(metric.hasValue()).isFalse();
+		assertThatThrownBy(() -> new MetricBuilder("String", MetricDataType.String, 5).createMetric())
+				.isInstanceOf(SparkplugInvalidTypeException.class);
+	}
+
+	@Test
+	public void testUInt64() throws Exception {
+		// UInt64 values are held as the BigInteger of the unsigned value so they can be encoded
+		Metric metric = new MetricBuilder("UInt64", MetricDataType.UInt64, BigInteger.ONE).createMetric();
+		metric.setLongValue(-1L);
+		assertThat(metric.getValue()).isEqualTo(new BigInteger("18446744073709551615"));
+		metric.setLongValue(5L);
+		assertThat(metric.getValue()).isEqualTo(BigInteger.valueOf(5L));
+
+		metric.setLongValue(-1L);
+		SparkplugBPayload payload = new SparkplugBPayloadBuilder(0L).setTimestamp(new Date(TIMESTAMP))
+				.addMetric(metric).createPayload();
+		byte[] expected = new SparkplugBPayloadEncoder().getBytes(payload, false);
+		assertThat(new SparkplugBStreamingPayloadEncoder().getBytes(payload, false)).isEqualTo(expected);
+		assertThat(new SparkplugBPayloadDecoder().buildFromByteArray(expected, null).getMetrics().get(0).getValue())
+				.isEqualTo(new BigInteger("18446744073709551615"));
+	}
+
+	@Test
+	public void testWrongTypeSetters() throws Exception {
+		// The primitive setters only accept the datatypes that can hold their values and leave the value alone
+		Metric string = new MetricBuilder("String", MetricDataType.String, "a").createMetric();
+		assertThatThrownBy(() -> string.setLongValue(5)).isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThatThrownBy(() -> string.setDoubleValue(1.5)).isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThatThrownBy(() -> string.setBooleanValue(true)).isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThat(string.getValue()).isEqualTo("a");
+
+		Metric template = new MetricBuilder("Template", MetricDataType.Template, null).createMetric();
+		assertThatThrownBy(() -> template.setLongValue(5)).isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThat(template.getValue()).isNull();
+
+		Metric int32 = new MetricBuilder("Int32", MetricDataType.Int32, 1).createMetric();
+		assertThatThrownBy(() -> int32.setDoubleValue(1.5)).isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThatThrownBy(() -> int32.setBooleanValue(true)).isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThat(int32.getValue()).isEqualTo(1);
+
+		Metric bool = new MetricBuilder("Boolean", MetricDataType.Boolean, false).createMetric();
+		assertThatThrownBy(() -> bool.setLongValue(1)).isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThat(bool.getValue()).isEqualTo(false);
+
+		// Integers are converted for Float and Double metrics
+		Metric dbl = new MetricBuilder("Double", MetricDataType.Double, 0.5).createMetric();
+		dbl.setLongValue(3);
+		assertThat(dbl.getValue()).isEqualTo(3.0D);
+	}
+
+	@Test
+	public void testPrimitiveValueChecks() throws Exception {
+		// int literals are boxed as Integers exactly as they always were
+		assertThat(new MetricBuilder("Int32", MetricDataType.Int32, 5).createMetric().getValue()).isEqualTo(5);
+		assertThatThrownBy(() -> new MetricBuilder("Int64", MetricDataType.Int64, 5).createMetric())
+				.isInstanceOf(SparkplugInvalidTypeException.class);
+
+		// Primitive values must match the datatype and fit in its Object type
+		assertThat(new MetricBuilder("Int8", MetricDataType.Int8, null).longValue(-128).createMetric().getValue())
+				.isEqualTo((byte) -128);
+		assertThatThrownBy(() -> new MetricBuilder("Int8", MetricDataType.Int8, null).longValue(300).createMetric())
+				.isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThatThrownBy(
+				() -> new MetricBuilder("UInt16", MetricDataType.UInt16, null).longValue(1L << 32).createMetric())
+						.isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThatThrownBy(() -> new MetricBuilder("String", MetricDataType.String, null).longValue(5).createMetric())
+				.isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThatThrownBy(
+				() -> new MetricBuilder("Int32", MetricDataType.Int32, null).doubleValue(1.5).createMetric())
+						.isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThatThrownBy(
+				() -> new MetricBuilder("Double", MetricDataType.Double, null).booleanValue(true).createMetric())
+						.isInstanceOf(SparkplugInvalidTypeException.class);
+
+		Metric metric = new MetricBuilder("Int16", MetricDataType.Int16, null).longValue(1).createMetric();
+		assertThatThrownBy(() -> metric.setLongValue(40000)).isInstanceOf(SparkplugInvalidTypeException.class);
+		assertThat(metric.getValue()).isEqualTo((short) 1);
+	}
+}
@@ -0,0 +1,126 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
+import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadDecoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadEncoder;
+import org.eclipse.tahu.message.model.CompactPropertyMap;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.PropertyDataType;
+import org.eclipse.tahu.message.model.PropertySet;
+import org.eclipse.tahu.message.model.PropertySet.PropertySetBuilder;
+import org.eclipse.tahu.message.model.PropertyValue;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugBPayload.SparkplugBPayloadBuilder;
+import org.eclipse.tahu.message.model.SparkplugMeta;
+import org.eclipse.tahu.util.SparkplugUtil;
+import org.testng.annotations.Test;
+
+/**
+ * Verifies the {@link CompactPropertyMap} behind a {@link PropertySet}
+ */
+public class PropertySetTest {
+
+	@Test
+	public void testMapContract() throws Exception {
+		CompactPropertyMap map = new CompactPropertyMap();
+		Map<String, PropertyValue> expected = new LinkedHashMap<>();
+		for (int i = 0; i < 5; i++) {
+			PropertyValue value = new PropertyValue(PropertyDataType.Int32, i);
+			assertThat(map.put("p" + i, value)).isNull();
+			expected.put("p" + i, value);
+		}
+		PropertyValue replacement = new PropertyValue(PropertyDataType.String, "x");
+		assertThat(map.put("p1", replacement)).isEqualTo(expected.put("p1", replacement));
+		assertThat(map.remove("p2")).isEqualTo(expected.remove("p2"));
+		assertThat(map.remove("missing")).isNull();
+
+		assertThat(map).isEqualTo(expected);
+		assertThat(map.hashCode()).isEqualTo(expected.hashCode());
+		assertThat(map.keySet()).containsExactly("p0", "p1", "p3", "p4");
+		assertThat(map.getKey(1)).isEqualTo("p1");
+		assertThat(map.getValue(1)).isSameAs(replacement);
+
+		Iterator<Map.Entry<String, PropertyValue>> iterator = map.entrySet().iterator();
+		iterator.next();
+		iterator.remove();
+		assertThat(iterator.next().getKey()).isEqualTo("p1");
+		assertThat(map).hasSize(3).doesNotContainKey("p0");
+
+		map.clear();
+		assertThat(map).isEmpty();
+	}
+
+	@Test
+	public void testQuality() throws Exception {
+		PropertySet propertySet = new PropertySet();
+		propertySet.setProperty("engUnit", new PropertyValue(PropertyDataType.String, "C"));
+		assertThat(propertySet.getQuality()).isNull();
+		assertThat(propertySet.getQualityCode(SparkplugMeta.QUALITY_CODE_GOOD))
+				.isEqualTo(SparkplugMeta.QUALITY_CODE_GOOD);
+
+		propertySet.setProperty("description", new PropertyValue(PropertyDataType.String, "Temperature"));
+		propertySet.setProperty(SparkplugMeta.QUALITY_PROP_NAME, new PropertyValue(PropertyDataType.Int32, 500));
+		assertThat(propertySet.getQualityCode(SparkplugMeta.QUALITY_CODE_GOOD)).isEqualTo(500);
+
+		// The Quality slot follows the property as earlier properties are removed
+		propertySet.removeProperty("engUnit");
+		assertThat(propertySet.getQuality().getValue()).isEqualTo(500);
+		propertySet.removeProperty(SparkplugMeta.QUALITY_PROP_NAME);
+		assertThat(propertySet.getQuality()).isNull();
+
+		// Maps supplied to the builder are still supported
+		PropertySet hashed = new PropertySetBuilder(new LinkedHashMap<>())
+				.addProperty(SparkplugMeta.QUALITY_PROP_NAME, new PropertyValue(PropertyDataType.Int32, 0))
+				.createPropertySet();
+		assertThat(hashed.getQualityCode(SparkplugMeta.QUALITY_CODE_GOOD)).isEqualTo(0);
+	}
+
+	@Test
+	public void testEncodeDecode() throws Exception {
+		PropertySet propertySet = new PropertySetBuilder()
+				.addProperty(SparkplugMeta.QUALITY_PROP_NAME, new PropertyValue(PropertyDataType.Int32, 500))
+				.addProperty("engUnit", new PropertyValue(PropertyDataType.String, "C"))
+				.addProperty("nested", new PropertyValue(PropertyDataType.PropertySet, new PropertySetBuilder()
+						.addProperty("low", new PropertyValue(PropertyDataType.Double, 1.5)).createPropertySet()))
+				.createPropertySet();
+		SparkplugBPayload payload = new SparkplugBPayloadBuilder().setTimestamp(new Date(1000L))
+				.addMetric(new MetricBuilder("m", MetricDataType.Int32, 1).properties(propertySet).createMetric())
+				.createPayload();
+
+		byte[] bytes = new SparkplugBStreamingPayloadEncoder().getBytes(payload, false);
+		assertThat(bytes).isEqualTo(new SparkplugBPayloadEncoder().getBytes(payload, false));
+
+		for (SparkplugBPayload decoded : new SparkplugBPayload[] {
+				new SparkplugBPayloadDecoder().buildFromByteArray(bytes, null),
+				new SparkplugBStreamingPayloadDecoder().buildFromByteArray(bytes, null) }) {
+			Metric metric = decoded.getMetrics().get(0);
+			assertThat(metric.getProperties().getPropertyMap()).isInstanceOf(CompactPropertyMap.class);
+			assertThat(metric.getProperties().keySet()).containsExactly(SparkplugMeta.QUALITY_PROP_NAME, "engUnit",
+					"nested");
+			assertThat(SparkplugUtil.getQualityCode(metric)).isEqualTo(500);
+		}
+	}
+}
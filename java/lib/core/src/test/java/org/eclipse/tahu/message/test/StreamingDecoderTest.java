@@ -0,0 +1,292 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.tahu.message.PayloadHeader;
+import org.eclipse.tahu.message.PayloadVisitor;
+import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
+import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadDecoder;
+import org.eclipse.tahu.message.model.DataSet.DataSetBuilder;
+import org.eclipse.tahu.message.model.DataSetDataType;
+import org.eclipse.tahu.message.model.File;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.MetaData.MetaDataBuilder;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.Parameter;
+import org.eclipse.tahu.message.model.ParameterDataType;
+import org.eclipse.tahu.message.model.PropertyDataType;
+import org.eclipse.tahu.message.model.PropertySet.PropertySetBuilder;
+import org.eclipse.tahu.message.model.PropertyValue;
+import org.eclipse.tahu.message.model.Row.RowBuilder;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugBPayload.SparkplugBPayloadBuilder;
+import org.eclipse.tahu.message.model.Template.TemplateBuilder;
+import org.eclipse.tahu.message.model.Value;
+import org.eclipse.tahu.model.MetricDataTypeMap;
+import org.eclipse.tahu.util.PayloadUtil;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Verifies the {@link SparkplugBStreamingPayloadDecoder} produces the same payloads as the
+ * {@link SparkplugBPayloadDecoder}
+ */
+public class StreamingDecoderTest {
+
+	static SparkplugBPayload createPayload() throws Exception {
+		Date now = new Date(1700000000000L);
+		return new SparkplugBPayloadBuilder().setTimestamp(now).setSeq(12L).setUuid("uuid").setBody(new byte[] { 1, 2 })
+				.addMetric(new MetricBuilder("Int8", MetricDataType.Int8, (byte) -5).alias(1L).timestamp(now)
+						.createMetric())
+				.addMetric(new MetricBuilder("Int16", MetricDataType.Int16, (short) -300).timestamp(now)
+						.isHistorical(true).isTransient(false).createMetric())
+				.addMetric(new MetricBuilder("Int32", MetricDataType.Int32, -70000).timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("Int64", MetricDataType.Int64, -1L).timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("UInt32", MetricDataType.UInt32, 4000000000L).timestamp(now)
+						.createMetric())
+				.addMetric(new MetricBuilder("UInt64", MetricDataType.UInt64, new BigInteger("18446744073709551615"))
+						.timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("Float", MetricDataType.Float, 1.5F).timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("Double", MetricDataType.Double, -2.25D).timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("Boolean", MetricDataType.Boolean, true).timestamp(now)
+						.properties(new PropertySetBuilder()
+								.addProperty("Quality", new PropertyValue(PropertyDataType.Int32, 192))
+								.addProperty("Nested",
+										new PropertyValue(PropertyDataType.PropertySet,
+												new PropertySetBuilder()
+														.addProperty("Text",
+																new PropertyValue(PropertyDataType.String, "abc"))
+														.createPropertySet()))
+								.createPropertySet())
+						.createMetric())
+				.addMetric(new MetricBuilder("DateTime", MetricDataType.DateTime, now).timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("Null", MetricDataType.String, null).timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("Bytes", MetricDataType.Bytes, new byte[] { 0, 1, 2, 3 }).timestamp(now)
+						.createMetric())
+				.addMetric(new MetricBuilder("File", MetricDataType.File, new File("f.bin", new byte[] { 9, 8 }))
+						.metaData(new MetaDataBuilder().fileName("f.bin").fileType("bin").createMetaData())
+						.timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("BooleanArray", MetricDataType.BooleanArray,
+						new Boolean[] { true, false, true, true, false, false, true, false, true }).timestamp(now)
+								.createMetric())
+				.addMetric(new MetricBuilder("StringArray", MetricDataType.StringArray,
+						new String[] { "日本人", "", "abc" }).timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("Int32Array", MetricDataType.Int32Array, new Integer[] { 1, -2, 3 })
+						.timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("DoubleArray", MetricDataType.DoubleArray, new Double[] { 1.0, -2.5 })
+						.timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("DataSet", MetricDataType.DataSet,
+						new DataSetBuilder(2).addColumnName("Ints").addColumnName("Strings")
+								.addType(DataSetDataType.Int32).addType(DataSetDataType.String)
+								.addRow(new RowBuilder().addValue(new Value<Integer>(DataSetDataType.Int32, 1))
+										.addValue(new Value<String>(DataSetDataType.String, "a")).createRow())
+								.addRow(new RowBuilder().addValue(new Value<Integer>(DataSetDataType.Int32, null))
+										.addValue(new Value<String>(DataSetDataType.String, null)).createRow())
+								.createDataSet()).timestamp(now).createMetric())
+				.addMetric(new MetricBuilder("Template", MetricDataType.Template,
+						new TemplateBuilder().version("v1").templateRef("Def").definition(false)
+								.addParameter(new Parameter("Param", ParameterDataType.Int32, 7))
+								.addMetric(new MetricBuilder("Child", MetricDataType.Int32, 5).timestamp(now)
+										.createMetric())
+								.createTemplate()).timestamp(now).createMetric())
+				.createPayload();
+	}
+
+	private JsonNode toJsonTree(SparkplugBPayload payload) throws Exception {
+		// Compare as trees since PropertySet iteration order is not defined
+		return new ObjectMapper().readTree(PayloadUtil.toJsonString(payload));
+	}
+
+	@Test
+	public void testMatchesProtobufDecoder() throws Exception {
+		byte[] bytes = new SparkplugBPayloadEncoder().getBytes(createPayload(), false);
+
+		SparkplugBPayload expected = new SparkplugBPayloadDecoder().buildFromByteArray(bytes, null);
+		SparkplugBPayload actual = new SparkplugBStreamingPayloadDecoder().buildFromByteArray(bytes, null);
+
+		assertThat(actual.getMetrics().size()).isEqualTo(expected.getMetrics().size());
+		assertThat(toJsonTree(actual)).isEqualTo(toJsonTree(expected));
+	}
+
+	@Test
+	public void testLazyDecoding() throws Exception {
+		byte[] bytes = new SparkplugBPayloadEncoder().getBytes(createPayload(), false);
+
+		SparkplugBPayload expected = new SparkplugBStreamingPayloadDecoder().buildFromByteArray(bytes, null);
+		SparkplugBPayload actual = new SparkplugBStreamingPayloadDecoder(true).buildFromByteArray(bytes, null);
+
+		Map<String, Metric> metrics = new LinkedHashMap<String, Metric>();
+		for (Metric metric : actual.getMetrics()) {
+			metrics.put(metric.getName(), metric);
+		}
+		assertThat(metrics.get("Int32").isValueDeferred()).isFalse();
+		assertThat(metrics.get("Null").isValueDeferred()).isFalse();
+		assertThat(metrics.get("Null").isNull()).isTrue();
+		for (String name : new String[] { "Bytes", "File", "BooleanArray", "DataSet", "Template" }) {
+			assertThat(metrics.get(name).isValueDeferred()).as(name).isTrue();
+			assertThat(metrics.get(name).isNull()).as(name).isFalse();
+		}
+
+		// Reading one value leaves the others deferred
+		assertThat(metrics.get("Template").getValue().toString())
+				.isEqualTo(expected.getMetrics().get(18).getValue().toString());
+		assertThat(metrics.get("Template").isValueDeferred()).isFalse();
+		assertThat(metrics.get("DataSet").isValueDeferred()).isTrue();
+		assertThat(metrics.get("Boolean").getProperties().getPropertyMap())
+				.containsOnlyKeys("Quality", "Nested");
+
+		assertThat(toJsonTree(actual)).isEqualTo(toJsonTree(expected));
+		assertThat(metrics.get("DataSet").isValueDeferred()).isFalse();
+		assertThat(metrics.get("Int32")).isEqualTo(expected.getMetrics().get(2));
+	}
+
+	@Test
+	public void testCopiedLazyValue() throws Exception {
+		byte[] bytes = new SparkplugBPayloadEncoder().getBytes(createPayload(), false);
+		WeakReference<byte[]> payloadBytes = new WeakReference<>(bytes);
+		SparkplugBPayload payload = new SparkplugBStreamingPayloadDecoder(true).buildFromByteArray(bytes, null);
+		bytes = null;
+
+		// The copy is decoded up front rather than sharing the deferred value and the payload bytes behind it
+		Metric source = payload.getMetrics().stream().filter(metric -> "DataSet".equals(metric.getName()))
+				.findFirst().get();
+		assertThat(source.isValueDeferred()).isTrue();
+		Metric copy = new MetricBuilder("DataSet", MetricDataType.DataSet, null).createMetric();
+		copy.copyValue(source);
+		assertThat(copy.isValueDeferred()).isFalse();
+		assertThat(copy.getValue()).isEqualTo(source.getValue());
+
+		// Once the payload is gone the cached copy does not keep its bytes alive
+		payload = null;
+		source = null;
+		for (int i = 0; i < 50 && payloadBytes.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertThat(payloadBytes.get()).isNull();
+		assertThat(copy.getValue()).isNotNull();
+	}
+
+	@Test
+	public void testStrippedDataTypes() throws Exception {
+		SparkplugBPayload payload = new SparkplugBPayloadBuilder().setSeq(1L)
+				.addMetric(new MetricBuilder("Int8", MetricDataType.Int8, (byte) -5).alias(1L).createMetric())
+				.addMetric(new MetricBuilder(2L, MetricDataType.Double, -2.25D).createMetric())
+				.addMetric(new MetricBuilder("Template", MetricDataType.Template,
+						new TemplateBuilder().version("v1").templateRef("Def").definition(false)
+								.addMetric(new MetricBuilder("Child", MetricDataType.Int32, 5).createMetric())
+								.createTemplate()).createMetric())
+				.createPayload();
+		byte[] bytes = new SparkplugBPayloadEncoder().getBytes(payload, true);
+
+		MetricDataTypeMap metricDataTypeMap = new MetricDataTypeMap();
+		metricDataTypeMap.addMetricDataType("Int8", MetricDataType.Int8);
+		metricDataTypeMap.addMetricDataType(2L, MetricDataType.Double);
+		metricDataTypeMap.addMetricDataType("Template", MetricDataType.Template);
+		metricDataTypeMap.addMetricDataType("Template/Child", MetricDataType.Int32);
+
+		SparkplugBPayload expected = new SparkplugBPayloadDecoder().buildFromByteArray(bytes, metricDataTypeMap);
+		SparkplugBPayload actual = new SparkplugBStreamingPayloadDecoder().buildFromByteArray(bytes, metricDataTypeMap);
+
+		assertThat(toJsonTree(actual)).isEqualTo(toJsonTree(expected));
+		assertThat(actual.getMetrics().get(0).getValue()).isEqualTo((byte) -5);
+		assertThat(actual.getMetrics().get(1).getValue()).isEqualTo(-2.25D);
+	}
+
+	@Test
+	public void testPeekHeader() throws Exception {
+		byte[] bytes = new SparkplugBPayloadEncoder().getBytes(createPayload(), false);
+		PayloadHeader header = SparkplugBStreamingPayloadDecoder.peekHeader(bytes);
+		assertThat(header.getTimestamp()).isEqualTo(new Date(1700000000000L));
+		assertThat(header.getSeq()).isEqualTo(12L);
+
+		header = SparkplugBStreamingPayloadDecoder.peekHeader(new byte[0]);
+		assertThat(header.getTimestamp()).isNull();
+		assertThat(header.getSeq()).isNull();
+	}
+
+	@Test
+	public void testVisitor() throws Exception {
+		byte[] bytes = new SparkplugBPayloadEncoder().getBytes(createPayload(), false);
+		SparkplugBPayload expected = new SparkplugBPayloadDecoder().buildFromByteArray(bytes, null);
+
+		Map<String, Object> values = new LinkedHashMap<>();
+		long[] header = new long[3];
+		new SparkplugBStreamingPayloadDecoder().visit(bytes, null, new PayloadVisitor() {
+
+			@Override
+			public void onPayloadStart(long timestamp, long seq) {
+				header[0] = timestamp;
+				header[1] = seq;
+			}
+
+			@Override
+			public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, long value) {
+				values.put(name, value);
+			}
+
+			@Override
+			public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, double value) {
+				values.put(name, value);
+			}
+
+			@Override
+			public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, boolean value) {
+				values.put(name, value);
+			}
+
+			@Override
+			public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, Object value) {
+				values.put(name, value);
+			}
+
+			@Override
+			public void onNullMetric(long alias, String name, MetricDataType dataType, long timestamp) {
+				values.put(name, null);
+			}
+
+			@Override
+			public void onPayloadComplete() {
+				header[2] = 1;
+			}
+		});
+
+		assertThat(header).containsExactly(1700000000000L, 12L, 1L);
+		assertThat(values.keySet()).hasSize(expected.getMetrics().size());
+		assertThat(values.get("Int8")).isEqualTo(-5L);
+		assertThat(values.get("UInt32")).isEqualTo(4000000000L);
+		assertThat(values.get("UInt64")).isEqualTo(-1L);
+		assertThat(values.get("Float")).isEqualTo(1.5D);
+		assertThat(values.get("Boolean")).isEqualTo(true);
+		assertThat(values.get("DateTime")).isEqualTo(1700000000000L);
+		assertThat(values).containsEntry("Null", null);
+		for (Metric metric : expected.getMetrics()) {
+			if (metric.getValue() instanceof String || metric.getValue() instanceof Object[]) {
+				assertThat(values.get(metric.getName())).isEqualTo(metric.getValue());
+			}
+		}
+	}
+}
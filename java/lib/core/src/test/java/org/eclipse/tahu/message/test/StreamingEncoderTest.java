@@ -0,0 +1,114 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.message.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadEncoder;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.testng.annotations.Test;
+
+/**
+ * Verifies the {@link SparkplugBStreamingPayloadEncoder} produces the same bytes as the
+ * {@link SparkplugBPayloadEncoder}
+ */
+public class StreamingEncoderTest {
+
+	@Test
+	public void testMatchesProtobufEncoder() throws Exception {
+		SparkplugBPayload payload = StreamingDecoderTest.createPayload();
+		SparkplugBStreamingPayloadEncoder encoder = new SparkplugBStreamingPayloadEncoder();
+
+		assertThat(encoder.getBytes(payload, false))
+				.isEqualTo(new SparkplugBPayloadEncoder().getBytes(payload, false));
+		assertThat(encoder.getBytes(payload, true)).isEqualTo(new SparkplugBPayloadEncoder().getBytes(payload, true));
+	}
+
+	@Test
+	public void testWriteToBuffer() throws Exception {
+		SparkplugBPayload payload = StreamingDecoderTest.createPayload();
+		SparkplugBStreamingPayloadEncoder encoder = new SparkplugBStreamingPayloadEncoder();
+		byte[] expected = new SparkplugBPayloadEncoder().getBytes(payload, false);
+
+		byte[] array = new byte[expected.length + 10];
+		assertThat(encoder.writeTo(payload, false, array, 10)).isEqualTo(expected.length);
+		assertThat(ByteBuffer.wrap(array, 10, expected.length)).isEqualTo(ByteBuffer.wrap(expected));
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length + 10);
+		buffer.position(5);
+		assertThat(encoder.writeTo(payload, false, buffer)).isEqualTo(expected.length);
+		assertThat(buffer.position()).isEqualTo(5 + expected.length);
+		buffer.flip().position(5);
+		assertThat(buffer).isEqualTo(ByteBuffer.wrap(expected));
+	}
+
+	@Test
+	public void testMetricBytes() throws Exception {
+		SparkplugBPayload payload = StreamingDecoderTest.createPayload();
+		SparkplugBStreamingPayloadEncoder encoder = new SparkplugBStreamingPayloadEncoder();
+		SparkplugBPayload withoutMetrics = new SparkplugBPayload(payload.getTimestamp(), new ArrayList<>(),
+				payload.getSeq(), payload.getUuid(), payload.getBody());
+		byte[] header = encoder.getBytes(new SparkplugBPayload(payload.getTimestamp(), new ArrayList<>()), false);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(header);
+		for (Metric metric : payload.getMetrics()) {
+			out.write(encoder.getMetricBytes(metric, false));
+		}
+		byte[] trailer = encoder.getBytes(withoutMetrics, false);
+		out.write(trailer, header.length, trailer.length - header.length);
+		assertThat(out.toByteArray()).isEqualTo(encoder.getBytes(payload, false));
+	}
+
+	@Test
+	public void testLargePayloadDoesNotPinScratch() throws Exception {
+		SparkplugBStreamingPayloadEncoder encoder = new SparkplugBStreamingPayloadEncoder();
+		List<Metric> metrics = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			metrics.add(new MetricBuilder("Metric " + i, MetricDataType.Int32, i).createMetric());
+		}
+		SparkplugBPayload large = new SparkplugBPayload(new Date(), metrics);
+		assertThat(encoder.getBytes(large, false)).isEqualTo(new SparkplugBPayloadEncoder().getBytes(large, false));
+		assertThat(getPooledSizes()).isLessThanOrEqualTo(4096);
+
+		// The scratch grows again as needed after being dropped
+		SparkplugBPayload payload = StreamingDecoderTest.createPayload();
+		assertThat(encoder.getBytes(payload, false))
+				.isEqualTo(new SparkplugBPayloadEncoder().getBytes(payload, false));
+		assertThat(encoder.getBytes(large, false)).isEqualTo(new SparkplugBPayloadEncoder().getBytes(large, false));
+	}
+
+	/*
+	 * Returns the length of the sizes array pooled by the current thread
+	 */
+	private static int getPooledSizes() throws Exception {
+		Field sizesField = SparkplugBStreamingPayloadEncoder.class.getDeclaredField("SIZES");
+		sizesField.setAccessible(true);
+		Object sizes = ((ThreadLocal<?>) sizesField.get(null)).get();
+		Field arrayField = sizes.getClass().getDeclaredField("sizes");
+		arrayField.setAccessible(true);
+		return ((int[]) arrayField.get(sizes)).length;
+	}
+}
@@ -0,0 +1,125 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the primitive alias maps.
+ */
+public class LongObjectMapTest {
+
+	@Test
+	public void testDenseAndSparseKeys() throws Exception {
+		LongObjectMap<String> map = new LongObjectMap<>();
+		Map<Long, String> expected = new HashMap<>();
+
+		// Generated aliases followed by arbitrary ones from a third party Edge Node
+		for (long alias = 0; alias < 5000; alias++) {
+			expected.put(alias, "dense" + alias);
+		}
+		Random random = new Random(1234);
+		for (int i = 0; i < 5000; i++) {
+			long alias = random.nextLong();
+			expected.put(alias, "sparse" + alias);
+		}
+		expected.put(Long.MIN_VALUE, "min");
+		expected.put(Long.MAX_VALUE, "max");
+		expected.put(-1L, "negative");
+		for (Map.Entry<Long, String> entry : expected.entrySet()) {
+			map.put(entry.getKey(), entry.getValue());
+		}
+
+		assertThat(map.size()).isEqualTo(expected.size());
+		for (Map.Entry<Long, String> entry : expected.entrySet()) {
+			assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+		}
+		assertThat(map.get(5000)).isNull();
+		assertThat(map.get(Long.MIN_VALUE + 1)).isNull();
+
+		// Replacing an existing key does not change the size
+		map.put(7, "replaced");
+		map.put(Long.MAX_VALUE, "replaced");
+		assertThat(map.get(7)).isEqualTo("replaced");
+		assertThat(map.get(Long.MAX_VALUE)).isEqualTo("replaced");
+		assertThat(map.size()).isEqualTo(expected.size());
+
+		map.clear();
+		assertThat(map.isEmpty()).isTrue();
+		assertThat(map.get(7)).isNull();
+		assertThat(map.get(Long.MIN_VALUE)).isNull();
+	}
+
+	@Test
+	public void testSparseKeyMovingToDenseRange() throws Exception {
+		LongObjectMap<String> map = new LongObjectMap<>();
+
+		// Too far beyond the dense array to grow it, so it lands in the sparse table
+		map.put(1000, "old");
+		for (long alias = 0; alias <= 1000; alias++) {
+			if (alias != 1000) {
+				map.put(alias, "dense" + alias);
+			}
+		}
+		map.put(1000, "new");
+
+		assertThat(map.get(1000)).isEqualTo("new");
+		assertThat(map.size()).isEqualTo(1001);
+		assertThat(map.toString()).contains("1000=new").doesNotContain("1000=old");
+	}
+
+	@Test
+	public void testMetricMap() throws Exception {
+		MetricMap metricMap = new MetricMap();
+		assertThat(metricMap.addGeneratedAlias("First", MetricDataType.Int32)).isEqualTo(0L);
+		metricMap.addAlias("Second", 1L << 40, MetricDataType.Double);
+
+		assertThat(metricMap.getMetricName(0)).isEqualTo("First");
+		assertThat(metricMap.getMetricName(1L << 40)).isEqualTo("Second");
+		assertThat(metricMap.getAlias("Second")).isEqualTo(1L << 40);
+		assertThat(metricMap.getMetricDataType(1L << 40)).isEqualTo(MetricDataType.Double);
+		assertThat(metricMap.getMetricDataType((Long) null)).isNull();
+
+		metricMap.clear();
+		assertThat(metricMap.getMetricName(1L << 40)).isNull();
+		assertThat(metricMap.getMetricDataType(1L << 40)).isNull();
+		assertThat(metricMap.getMetricDataTypeMap().isEmpty()).isTrue();
+	}
+
+	@Test
+	public void testMetricDataTypeMap() throws Exception {
+		MetricDataTypeMap metricDataTypeMap = new MetricDataTypeMap();
+		metricDataTypeMap.addMetricDataType("First", MetricDataType.Int32);
+		metricDataTypeMap.addMetricDataType(7L, MetricDataType.Double);
+		assertThat(metricDataTypeMap.getMetricDataType("First")).isEqualTo(MetricDataType.Int32);
+		assertThat(metricDataTypeMap.getMetricDataType(Long.valueOf(7L))).isEqualTo(MetricDataType.Double);
+
+		// Both the names and the aliases are cleared
+		metricDataTypeMap.clear();
+		assertThat(metricDataTypeMap.getMetricDataType("First")).isNull();
+		assertThat(metricDataTypeMap.getMetricDataType(7L)).isNull();
+		assertThat(metricDataTypeMap.isEmpty()).isTrue();
+
+		// A reused alias takes the datatype of its new Metric
+		metricDataTypeMap.addMetricDataType(7L, MetricDataType.String);
+		assertThat(metricDataTypeMap.getMetricDataType(7L)).isEqualTo(MetricDataType.String);
+	}
+}
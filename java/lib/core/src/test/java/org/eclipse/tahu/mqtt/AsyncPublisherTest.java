@@ -0,0 +1,206 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.mqtt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.tahu.exception.TahuErrorCode;
+import org.eclipse.tahu.exception.TahuException;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the {@link AsyncPublisher} behind {@link TahuClient#asyncPublish(String, byte[], int, boolean)}
+ */
+public class AsyncPublisherTest {
+
+	@Test
+	public void testWindow() throws Exception {
+		FakeTransport transport = new FakeTransport();
+		AsyncPublisher publisher = new AsyncPublisher("test", transport, () -> 2, 100);
+
+		List<CompletableFuture<IMqttDeliveryToken>> futures = new CopyOnWriteArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			futures.add(publisher.publish("topic/" + i, new byte[] { (byte) i }, 0, false, false, 0, 0));
+		}
+		assertThat(transport.topics).containsExactly("topic/0", "topic/1");
+		assertThat(publisher.isWindowFull()).isTrue();
+		assertThat(publisher.getQueueSize()).isEqualTo(3);
+
+		// Each completed delivery completes its future and dispatches the next message in order
+		publisher.onDeliveryComplete(transport.tokens.get(1));
+		assertThat(futures.get(1)).isCompletedWithValue(transport.tokens.get(1));
+		assertThat(futures.get(0)).isNotDone();
+		assertThat(transport.topics).containsExactly("topic/0", "topic/1", "topic/2");
+		for (int i = 0; i < 5; i++) {
+			publisher.onDeliveryComplete(transport.tokens.get(i == 1 ? 0 : i));
+		}
+		assertThat(transport.topics).hasSize(5);
+		assertThat(futures).allMatch(future -> future.isDone() && !future.isCompletedExceptionally());
+		assertThat(publisher.getInFlightCount()).isZero();
+		assertThat(publisher.getQueueSize()).isZero();
+	}
+
+	@Test
+	public void testQueueCapacity() throws Exception {
+		FakeTransport transport = new FakeTransport();
+		AsyncPublisher publisher = new AsyncPublisher("test", transport, () -> 1, 2);
+		for (int i = 0; i < 3; i++) {
+			publisher.publish("topic", new byte[0], 0, false, false, 0, 0);
+		}
+		assertThatThrownBy(() -> publisher.publish("topic", new byte[0], 0, false, false, 0, 0))
+				.isInstanceOf(TahuException.class)
+				.matches(e -> ((TahuException) e).getTahuErrorCode() == TahuErrorCode.RESOURCE_EXHAUSTED);
+
+		publisher.onDeliveryComplete(transport.tokens.get(0));
+		publisher.publish("topic", new byte[0], 0, false, false, 0, 0);
+		assertThat(publisher.getQueueSize()).isEqualTo(2);
+	}
+
+	@Test
+	public void testNotConnected() throws Exception {
+		FakeTransport transport = new FakeTransport();
+		transport.connected = false;
+		AsyncPublisher publisher = new AsyncPublisher("test", transport, () -> 10, 100);
+
+		// Fails immediately without retries
+		CompletableFuture<IMqttDeliveryToken> failed = publisher.publish("topic", new byte[0], 0, false, false, 0, 0);
+		assertThat(failed).isCompletedExceptionally();
+
+		// Retries until connected
+		CompletableFuture<IMqttDeliveryToken> retried = publisher.publish("retry", new byte[0], 1, false, true, 10, 50);
+		Thread.sleep(30);
+		assertThat(retried).isNotDone();
+		transport.connected = true;
+		waitFor(() -> !transport.tokens.isEmpty());
+		assertThat(transport.topics).containsExactly("retry");
+		publisher.onDeliveryComplete(transport.tokens.get(0));
+		assertThat(retried.get(5, TimeUnit.SECONDS)).isSameAs(transport.tokens.get(0));
+
+		// Gives up after the number of attempts
+		transport.connected = false;
+		CompletableFuture<IMqttDeliveryToken> exhausted = publisher.publish("retry", new byte[0], 1, false, true, 1, 3);
+		assertThatThrownBy(() -> exhausted.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(TahuException.class);
+	}
+
+	@Test
+	public void testClientFailures() throws Exception {
+		FakeTransport transport = new FakeTransport();
+		AsyncPublisher publisher = new AsyncPublisher("test", transport, () -> 10, 100);
+
+		// A client that is full of other publishes holds the queue until a delivery completes, without polling
+		transport.rejection = MqttException.REASON_CODE_MAX_INFLIGHT;
+		CompletableFuture<IMqttDeliveryToken> held = publisher.publish("held", new byte[0], 1, false, false, 0, 0);
+		assertThat(held).isNotDone();
+		assertThat(publisher.getQueueSize()).isEqualTo(1);
+		Thread.sleep(50);
+		assertThat(transport.attempts.get()).isEqualTo(1);
+		transport.rejection = 0;
+		publisher.onDeliveryComplete(new MqttDeliveryToken("test"));
+		assertThat(transport.topics).containsExactly("held");
+		assertThat(publisher.getQueueSize()).isZero();
+
+		// A failed delivery fails the future and frees the window
+		transport.callbacks.get(0).onFailure(transport.tokens.get(0),
+				new MqttException(MqttException.REASON_CODE_CONNECTION_LOST));
+		assertThat(held).isCompletedExceptionally();
+		assertThat(publisher.getInFlightCount()).isZero();
+
+		// Closing the client fails the messages in flight
+		CompletableFuture<IMqttDeliveryToken> closed = publisher.publish("closed", new byte[0], 1, false, false, 0, 0);
+		publisher.onClientClosed();
+		assertThat(closed).isCompletedExceptionally();
+		assertThat(publisher.getInFlightCount()).isZero();
+	}
+
+	@Test
+	public void testCapacityWhileHeld() throws Exception {
+		FakeTransport transport = new FakeTransport();
+		AsyncPublisher publisher = new AsyncPublisher("test", transport, () -> 10, 1);
+
+		// A message waiting for a retry gives up its place in the queue
+		transport.connected = false;
+		CompletableFuture<IMqttDeliveryToken> retried =
+				publisher.publish("retry", new byte[0], 1, false, true, 100, 5);
+		assertThat(publisher.getQueueSize()).isZero();
+
+		// A message held by a full client keeps its place so the queue stays within its capacity
+		transport.connected = true;
+		transport.rejection = MqttException.REASON_CODE_MAX_INFLIGHT;
+		publisher.publish("held", new byte[0], 1, false, false, 0, 0);
+		assertThat(publisher.getQueueSize()).isEqualTo(1);
+		assertThatThrownBy(() -> publisher.publish("full", new byte[0], 0, false, false, 0, 0))
+				.isInstanceOf(TahuException.class)
+				.matches(e -> ((TahuException) e).getTahuErrorCode() == TahuErrorCode.RESOURCE_EXHAUSTED);
+
+		// The retry can not take a place in the full queue so it fails
+		assertThatThrownBy(() -> retried.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(TahuException.class)
+				.matches(e -> ((TahuException) e.getCause()).getTahuErrorCode() == TahuErrorCode.RESOURCE_EXHAUSTED);
+		assertThat(publisher.getQueueSize()).isEqualTo(1);
+	}
+
+	/*
+	 * Waits for messages dispatched by the retry scheduler
+	 */
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	private static class FakeTransport implements AsyncPublisher.Transport {
+		private final List<String> topics = new CopyOnWriteArrayList<>();
+		private final List<MqttDeliveryToken> tokens = new CopyOnWriteArrayList<>();
+		private final List<IMqttActionListener> callbacks = new CopyOnWriteArrayList<>();
+		private volatile boolean connected = true;
+		private volatile int rejection;
+		private final AtomicInteger attempts = new AtomicInteger();
+
+		@Override
+		public boolean isConnected() {
+			return connected;
+		}
+
+		@Override
+		public IMqttDeliveryToken publish(String topic, byte[] payload, int qos, boolean retained, Object userContext,
+				IMqttActionListener callback) throws MqttException {
+			attempts.incrementAndGet();
+			if (rejection != 0) {
+				throw new MqttException(rejection);
+			}
+			MqttDeliveryToken token = new MqttDeliveryToken("test");
+			token.setUserContext(userContext);
+			topics.add(topic);
+			tokens.add(token);
+			callbacks.add(callback);
+			return token;
+		}
+	}
+}
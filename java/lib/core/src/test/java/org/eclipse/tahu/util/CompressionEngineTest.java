@@ -0,0 +1,148 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugBPayload.SparkplugBPayloadBuilder;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the CompressionEngine.
+ */
+public class CompressionEngineTest {
+
+	private static byte[] createBytes(int length) {
+		// Compressible but not trivially so
+		byte[] bytes = new byte[length];
+		Random random = new Random(length);
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) ('a' + random.nextInt(8));
+		}
+		return bytes;
+	}
+
+	private static byte[] readAll(java.io.InputStream input) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int count;
+		while ((count = input.read(buffer)) != -1) {
+			output.write(buffer, 0, count);
+		}
+		return output.toByteArray();
+	}
+
+	@Test
+	public void testDeflateAndGzipInterop() throws Exception {
+		CompressionEngine engine = new CompressionEngine(9);
+		for (int length : new int[] { 0, 1, 100, 5000, 3 * 1024 * 1024 }) {
+			byte[] bytes = createBytes(length);
+
+			byte[] deflated = engine.deflate(bytes);
+			assertThat(readAll(new InflaterInputStream(new ByteArrayInputStream(deflated)))).isEqualTo(bytes);
+			assertThat(engine.inflate(deflated)).isEqualTo(bytes);
+
+			byte[] gzipped = engine.gzip(bytes);
+			assertThat(readAll(new GZIPInputStream(new ByteArrayInputStream(gzipped)))).isEqualTo(bytes);
+			ByteArrayOutputStream gzipStream = new ByteArrayOutputStream();
+			try (GZIPOutputStream output = new GZIPOutputStream(gzipStream)) {
+				output.write(bytes);
+			}
+			assertThat(engine.gunzip(gzipStream.toByteArray())).isEqualTo(bytes);
+		}
+
+		// Concatenated members
+		byte[] first = engine.gzip(createBytes(10));
+		byte[] second = engine.gzip(createBytes(20));
+		ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+		concatenated.write(first);
+		concatenated.write(second);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(createBytes(10));
+		expected.write(createBytes(20));
+		assertThat(engine.gunzip(concatenated.toByteArray())).isEqualTo(expected.toByteArray());
+
+		byte[] truncated = engine.deflate(createBytes(5000));
+		assertThatThrownBy(() -> engine.inflate(java.util.Arrays.copyOf(truncated, truncated.length / 2)))
+				.isInstanceOf(DataFormatException.class);
+		assertThatThrownBy(() -> engine.gunzip(new byte[] { 1, 2, 3 })).isInstanceOf(DataFormatException.class);
+		assertThatThrownBy(() -> new CompressionEngine(10)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testByteBuffers() throws Exception {
+		CompressionEngine engine = new CompressionEngine();
+		byte[] bytes = createBytes(10000);
+		ByteBuffer source = ByteBuffer.allocateDirect(bytes.length);
+		source.put(bytes).flip();
+		ByteBuffer compressed = ByteBuffer.allocateDirect(CompressionEngine.deflateBound(bytes.length));
+
+		engine.deflate(source, compressed, null);
+		assertThat(source.hasRemaining()).isFalse();
+		compressed.flip();
+
+		ByteBuffer inflated = ByteBuffer.allocate(bytes.length);
+		engine.inflate(compressed.duplicate(), inflated, null);
+		assertThat(inflated.array()).isEqualTo(bytes);
+
+		assertThatThrownBy(() -> engine.inflate(compressed.duplicate(), ByteBuffer.allocate(10), null))
+				.isInstanceOf(BufferOverflowException.class);
+	}
+
+	@Test
+	public void testDictionary() throws Exception {
+		SparkplugBPayloadBuilder birth = new SparkplugBPayloadBuilder().setSeq(0L);
+		for (int i = 0; i < 50; i++) {
+			birth.addMetric(new MetricBuilder("Line 4/Conveyor " + i + "/Motor Temperature", MetricDataType.Double,
+					(double) i).createMetric());
+		}
+		byte[] dictionary = PayloadUtil.createDictionary(birth.createPayload());
+
+		SparkplugBPayload data = new SparkplugBPayloadBuilder().setSeq(1L).setTimestamp(new Date())
+				.addMetric(new MetricBuilder("Line 4/Conveyor 17/Motor Temperature", MetricDataType.Double, 71.5)
+						.createMetric())
+				.createPayload();
+
+		SparkplugBPayload plain = PayloadUtil.compress(data, CompressionAlgorithm.DEFLATE, false);
+		SparkplugBPayload withDictionary = PayloadUtil.compress(data, CompressionAlgorithm.DEFLATE, false, dictionary);
+		assertThat(withDictionary.getBody().length).isLessThan(plain.getBody().length);
+
+		SparkplugBPayload decompressed = PayloadUtil.decompress(withDictionary, null, dictionary);
+		assertThat(new SparkplugBPayloadEncoder().getBytes(decompressed, false))
+				.isEqualTo(new SparkplugBPayloadEncoder().getBytes(data, false));
+
+		assertThatThrownBy(() -> PayloadUtil.decompress(withDictionary, null))
+				.isInstanceOf(DataFormatException.class);
+		assertThatThrownBy(() -> PayloadUtil.decompress(withDictionary, null, new byte[] { 1, 2, 3 }))
+				.isInstanceOf(DataFormatException.class);
+		assertThat(CompressionEngine.createDictionary(java.util.Collections.nCopies(5000, "Some/Metric/Name")))
+				.hasSize(CompressionEngine.MAX_DICTIONARY_SIZE);
+	}
+}
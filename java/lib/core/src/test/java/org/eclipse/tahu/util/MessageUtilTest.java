@@ -15,11 +15,16 @@ package org.eclipse.tahu.util;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 import org.eclipse.tahu.message.model.Message;
 import org.eclipse.tahu.message.model.Message.MessageBuilder;
 import org.eclipse.tahu.message.model.MessageType;
+import org.eclipse.tahu.message.model.Metric;
 import org.eclipse.tahu.message.model.Metric.MetricBuilder;
 import org.eclipse.tahu.message.model.MetricDataType;
 import org.eclipse.tahu.message.model.SparkplugBPayload;
@@ -63,4 +68,28 @@ public class MessageUtilTest {
 		String jsonString = MessageUtil.toJsonString(message);
 		assertThat(jsonString).isEqualTo(expectedJson);
 	}
+
+	@Test
+	public void testDivideJsonMessageByBytes() throws Exception {
+		SparkplugBPayloadBuilder builder = new SparkplugBPayloadBuilder().setTimestamp(testTime).setSeq(3L);
+		for (int i = 0; i < 300; i++) {
+			builder.addMetric(new MetricBuilder("Motor " + i + "/Temp\u00e9rature", MetricDataType.Int64, i * 1000L)
+					.timestamp(testTime).createMetric());
+		}
+		Message message =
+				new MessageBuilder(new Topic("spBv1.0", "G1", "E1", "D1", MessageType.DBIRTH), builder.createPayload())
+						.build();
+
+		Collection<Message> messages = MessageUtil.divideJsonMessageByBytes(message, 2000);
+		assertThat(messages.size()).isGreaterThan(1);
+		List<Metric> metrics = new ArrayList<Metric>();
+		for (Message divided : messages) {
+			assertThat(divided.getTopic()).isEqualTo(message.getTopic());
+			assertThat(MessageUtil.toJsonString(divided).getBytes(StandardCharsets.UTF_8).length)
+					.isLessThanOrEqualTo(2000);
+			metrics.addAll(divided.getPayload().getMetrics());
+		}
+		assertThat(metrics).isEqualTo(message.getPayload().getMetrics());
+		assertThat(MessageUtil.divideJsonMessageByBytes(message, Integer.MAX_VALUE)).hasSize(1);
+	}
 }
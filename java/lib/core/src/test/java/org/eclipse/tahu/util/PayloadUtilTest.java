@@ -14,11 +14,15 @@
 package org.eclipse.tahu.util;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
+import org.eclipse.tahu.SparkplugException;
+import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
 import org.eclipse.tahu.message.model.Metric;
 import org.eclipse.tahu.message.model.Metric.MetricBuilder;
 import org.eclipse.tahu.message.model.MetricDataType;
@@ -91,4 +95,39 @@ public class PayloadUtilTest {
 		}
 
 	}
+
+	@Test
+	public void testDivideByEncodedSize() throws Exception {
+		SparkplugBPayloadBuilder builder = new SparkplugBPayloadBuilder().setTimestamp(testTime).setSeq(7L);
+		for (int i = 0; i < 500; i++) {
+			builder.addMetric(i % 3 == 0
+					? new MetricBuilder("Device/String " + i, MetricDataType.String, "value " + i * i).createMetric()
+					: new MetricBuilder("Device/Double " + i, MetricDataType.Double, i * 1.5).createMetric());
+		}
+		SparkplugBPayload payload = builder.createPayload();
+		SparkplugBPayloadEncoder encoder = new SparkplugBPayloadEncoder();
+
+		List<SparkplugBPayload> payloads = PayloadUtil.divideByEncodedSize(payload, false, 1000);
+		assertThat(payloads.size()).isGreaterThan(1);
+		List<Metric> metrics = new ArrayList<Metric>();
+		for (int i = 0; i < payloads.size(); i++) {
+			SparkplugBPayload divided = payloads.get(i);
+			assertThat(encoder.getBytes(divided, false).length).isLessThanOrEqualTo(1000);
+			assertThat(divided.getSeq()).isEqualTo(7L);
+			assertThat(divided.getTimestamp()).isEqualTo(testTime);
+			if (i + 1 < payloads.size()) {
+				// Packed greedily - the next metric would not have fit
+				SparkplugBPayload larger = new SparkplugBPayloadBuilder().setTimestamp(testTime).setSeq(7L)
+						.addMetrics(divided.getMetrics()).addMetric(payloads.get(i + 1).getMetrics().get(0))
+						.createPayload();
+				assertThat(encoder.getBytes(larger, false).length).isGreaterThan(1000);
+			}
+			metrics.addAll(divided.getMetrics());
+		}
+		assertThat(metrics).isEqualTo(payload.getMetrics());
+
+		assertThat(PayloadUtil.divideByEncodedSize(payload, true, Integer.MAX_VALUE)).hasSize(1);
+		assertThatThrownBy(() -> PayloadUtil.divideByEncodedSize(payload, false, 20))
+				.isInstanceOf(SparkplugException.class);
+	}
 }
@@ -0,0 +1,111 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the {@link TokenBucket} and {@link SharedScheduler}
+ */
+public class TokenBucketTest {
+
+	@Test
+	public void testBurstAndRefill() throws Exception {
+		AtomicLong clock = new AtomicLong();
+		TokenBucket bucket = new TokenBucket(3, 10, clock::get);
+
+		// The full burst is available and then nothing
+		for (int i = 0; i < 3; i++) {
+			assertThat(bucket.tryAcquire()).isTrue();
+		}
+		assertThat(bucket.tryAcquire()).isFalse();
+
+		// One token every 100ms, capped at the capacity
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+		assertThat(bucket.tryAcquire()).isTrue();
+		assertThat(bucket.tryAcquire()).isFalse();
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		assertThat(bucket.getAvailableTokens()).isEqualTo(3);
+	}
+
+	@Test
+	public void testReserve() throws Exception {
+		AtomicLong clock = new AtomicLong();
+		TokenBucket bucket = new TokenBucket(2, 10, clock::get);
+
+		// Reservations beyond the burst are spread out at the refill rate
+		assertThat(bucket.reserve()).isEqualTo(0);
+		assertThat(bucket.reserve()).isEqualTo(0);
+		assertThat(bucket.reserve()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+		assertThat(bucket.reserve()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+		assertThat(bucket.tryAcquire()).isFalse();
+
+		// The debt is paid back before new tokens are available
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+		assertThat(bucket.tryAcquire()).isFalse();
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+		assertThat(bucket.tryAcquire()).isTrue();
+	}
+
+	@Test
+	public void testSharedScheduler() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		SharedScheduler.schedule(() -> {
+			throw new IllegalStateException("Expected");
+		}, 1, TimeUnit.MILLISECONDS);
+		SharedScheduler.schedule(latch::countDown, 10, TimeUnit.MILLISECONDS);
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// Cancelled tasks are removed from the queue
+		int pending = SharedScheduler.getPendingTaskCount();
+		ScheduledFuture<?> future = SharedScheduler.schedule(() -> {
+		}, 1, TimeUnit.HOURS);
+		assertThat(SharedScheduler.getPendingTaskCount()).isEqualTo(pending + 1);
+		future.cancel(false);
+		assertThat(SharedScheduler.getPendingTaskCount()).isEqualTo(pending);
+	}
+
+	@Test
+	public void testBlockingTasksDoNotHoldUpTheScheduler() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch blocked = new CountDownLatch(3);
+		for (int i = 0; i < 3; i++) {
+			SharedScheduler.scheduleBlocking(() -> {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, 1, TimeUnit.MILLISECONDS);
+		}
+		try {
+			// More blocked tasks than scheduler threads and short tasks still run
+			assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+			CountDownLatch latch = new CountDownLatch(1);
+			SharedScheduler.schedule(latch::countDown, 1, TimeUnit.MILLISECONDS);
+			assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			release.countDown();
+		}
+	}
+}
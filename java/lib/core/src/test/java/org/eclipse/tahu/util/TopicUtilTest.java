@@ -0,0 +1,68 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.eclipse.tahu.SparkplugParsingException;
+import org.eclipse.tahu.message.model.Topic;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for TopicUtil.
+ */
+public class TopicUtilTest {
+
+	@DataProvider
+	public Object[][] validTopics() throws Exception {
+		return new Object[][] { { "spBv1.0/Group/NBIRTH/Edge" }, { "spBv1.0/Group/DDATA/Edge/Device" },
+				{ "spBv1.0/STATE/HostId" }, { "spBv1.0/Group/NDATA/Edge/" }, { "spBv1.0//NCMD/Edge" } };
+	}
+
+	@Test(
+			dataProvider = "validTopics")
+	public void testParseTopic(String topicString) throws Exception {
+		Topic expected = TopicUtil.parseTopic(topicString.split("/"));
+		Topic actual = TopicUtil.parseTopic(topicString);
+
+		assertThat(actual.toString()).isEqualTo(expected.toString());
+		assertThat(actual.getSparkplugDescriptor()).isEqualTo(expected.getSparkplugDescriptor());
+		assertThat(actual.getHostApplicationId()).isEqualTo(expected.getHostApplicationId());
+		assertThat(TopicUtil.parseTopic(topicString)).isSameAs(actual);
+	}
+
+	@DataProvider
+	public Object[][] invalidTopics() throws Exception {
+		return new Object[][] { { "spBv1.0/Group/NBIRTH" }, { "spBv1.0/Group/NBIRTH/Edge/Device" },
+				{ "spBv1.0/Group/DDATA/Edge" }, { "spBv1.0/Group/BOGUS/Edge" }, { "spBv1.0/Group/DDATA/Edge/Dev/X" },
+				{ "spBv1.0/Group/DDATA/Edge/Dev/X/Y/Z" } };
+	}
+
+	@Test(
+			dataProvider = "invalidTopics")
+	public void testParseInvalidTopic(String topicString) throws Exception {
+		String expectedMessage = null;
+		try {
+			TopicUtil.parseTopic(topicString.split("/"));
+		} catch (SparkplugParsingException e) {
+			expectedMessage = e.getMessage();
+		}
+
+		assertThat(expectedMessage).isNotNull();
+		assertThatThrownBy(() -> TopicUtil.parseTopic(topicString)).isInstanceOf(SparkplugParsingException.class)
+				.hasMessage(expectedMessage);
+	}
+}
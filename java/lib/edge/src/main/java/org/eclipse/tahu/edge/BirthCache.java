@@ -0,0 +1,313 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.edge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tahu.SparkplugInvalidTypeException;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadEncoder;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.PropertySet;
+import org.eclipse.tahu.message.model.PropertyValue;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugMeta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * A cache of the encoded NBIRTH and DBIRTH payloads of an Edge Node so they can be published again without rebuilding
+ * and re-encoding them.
+ *
+ * Each BIRTH is held as the encoded bytes of each of its metrics. The metric values are kept current by
+ * {@link #update(String, List)} with the metrics of every DATA message, which marks the changed metrics so only those
+ * are encoded again when the BIRTH is next requested. The timestamp, seq and bdSeq are written fresh every time and
+ * everything else is copied as is, including the aliases.
+ *
+ * A BIRTH is dropped from the cache when it can no longer be kept current, for example when a DATA message carries a
+ * Template, and must then be rebuilt and put again.
+ */
+public class BirthCache {
+
+	private static Logger logger = LoggerFactory.getLogger(BirthCache.class.getName());
+
+	private static final SparkplugBStreamingPayloadEncoder PAYLOAD_ENCODER = new SparkplugBStreamingPayloadEncoder();
+
+	private final Object cacheLock = new Object();
+
+	private CachedBirth nodeBirth;
+
+	private final Map<String, CachedBirth> deviceBirths = new LinkedHashMap<>();
+
+	/**
+	 * Caches an NBIRTH. All cached DBIRTHs are cleared as the Devices must be born again after the Edge Node.
+	 *
+	 * @param payload the NBIRTH {@link SparkplugBPayload} with aliases already assigned
+	 * @throws IOException if the payload can not be encoded
+	 */
+	public void putNodeBirth(SparkplugBPayload payload) throws IOException {
+		CachedBirth cachedBirth = new CachedBirth(payload);
+		synchronized (cacheLock) {
+			deviceBirths.clear();
+			nodeBirth = cachedBirth;
+		}
+	}
+
+	/**
+	 * Caches a DBIRTH
+	 *
+	 * @param deviceId the Device ID
+	 * @param payload the DBIRTH {@link SparkplugBPayload} with aliases already assigned
+	 * @throws IOException if the payload can not be encoded
+	 */
+	public void putDeviceBirth(String deviceId, SparkplugBPayload payload) throws IOException {
+		CachedBirth cachedBirth = new CachedBirth(payload);
+		synchronized (cacheLock) {
+			deviceBirths.put(deviceId, cachedBirth);
+		}
+	}
+
+	/**
+	 * Removes the cached DBIRTH of a Device
+	 *
+	 * @param deviceId the Device ID
+	 */
+	public void removeDeviceBirth(String deviceId) {
+		synchronized (cacheLock) {
+			deviceBirths.remove(deviceId);
+		}
+	}
+
+	/**
+	 * Clears the cached NBIRTH and all of the cached DBIRTHs
+	 */
+	public void clear() {
+		synchronized (cacheLock) {
+			nodeBirth = null;
+			deviceBirths.clear();
+		}
+	}
+
+	/**
+	 * Returns true if an NBIRTH is cached
+	 *
+	 * @return true if an NBIRTH is cached, otherwise false
+	 */
+	public boolean hasNodeBirth() {
+		synchronized (cacheLock) {
+			return nodeBirth != null;
+		}
+	}
+
+	/**
+	 * Returns the Device IDs with a cached DBIRTH in the order they were put
+	 *
+	 * @return the Device IDs
+	 */
+	public List<String> getDeviceIds() {
+		synchronized (cacheLock) {
+			return new ArrayList<>(deviceBirths.keySet());
+		}
+	}
+
+	/**
+	 * Updates the cached BIRTH of the Edge Node or a Device with the metrics of a DATA message. Metrics are matched by
+	 * name, so this must be called before names are replaced with aliases. Metrics that are not in the BIRTH are
+	 * ignored.
+	 *
+	 * @param deviceId the Device ID for a DDATA, or null for an NDATA
+	 * @param metrics the DATA {@link Metric}s
+	 */
+	public void update(String deviceId, List<Metric> metrics) {
+		synchronized (cacheLock) {
+			CachedBirth cachedBirth = deviceId == null ? nodeBirth : deviceBirths.get(deviceId);
+			if (cachedBirth != null && !cachedBirth.update(metrics)) {
+				logger.debug("Dropping the cached BIRTH for {}", deviceId != null ? deviceId : "the Edge Node");
+				if (deviceId == null) {
+					clear();
+				} else {
+					deviceBirths.remove(deviceId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the encoded NBIRTH
+	 *
+	 * @param timestamp the timestamp of the NBIRTH
+	 * @param seq the seq of the NBIRTH
+	 * @param bdSeq the bdSeq of the current session, or null to keep the cached bdSeq
+	 * @return the encoded NBIRTH, or null if no NBIRTH is cached
+	 * @throws IOException if the payload can not be encoded
+	 */
+	public byte[] getNodeBirthBytes(long timestamp, long seq, Long bdSeq) throws IOException {
+		synchronized (cacheLock) {
+			if (nodeBirth == null) {
+				return null;
+			}
+			if (bdSeq != null) {
+				nodeBirth.setBdSeq(bdSeq);
+			}
+			return nodeBirth.getBytes(timestamp, seq);
+		}
+	}
+
+	/**
+	 * Returns the encoded DBIRTH of a Device
+	 *
+	 * @param deviceId the Device ID
+	 * @param timestamp the timestamp of the DBIRTH
+	 * @param seq the seq of the DBIRTH
+	 * @return the encoded DBIRTH, or null if no DBIRTH is cached for the Device
+	 * @throws IOException if the payload can not be encoded
+	 */
+	public byte[] getDeviceBirthBytes(String deviceId, long timestamp, long seq) throws IOException {
+		synchronized (cacheLock) {
+			CachedBirth cachedBirth = deviceBirths.get(deviceId);
+			return cachedBirth != null ? cachedBirth.getBytes(timestamp, seq) : null;
+		}
+	}
+
+	/**
+	 * A BIRTH held as the encoded bytes of each of its metrics
+	 */
+	private static final class CachedBirth {
+		private final Metric[] metrics;
+		private final byte[][] metricBytes;
+		private final Map<String, Integer> indexes;
+		private final BitSet changed;
+		private final String uuid;
+		private final byte[] body;
+		private int metricsSize;
+
+		private CachedBirth(SparkplugBPayload payload) throws IOException {
+			List<Metric> payloadMetrics = new ArrayList<>(payload.getMetrics().size());
+			for (Metric metric : payload.getMetrics()) {
+				if (metric != null) {
+					payloadMetrics.add(metric);
+				}
+			}
+			metrics = new Metric[payloadMetrics.size()];
+			metricBytes = new byte[metrics.length][];
+			indexes = new HashMap<>();
+			changed = new BitSet(metrics.length);
+			for (int i = 0; i < metrics.length; i++) {
+				try {
+					metrics[i] = new Metric(payloadMetrics.get(i));
+				} catch (SparkplugInvalidTypeException e) {
+					throw new IOException("Failed to copy metric: " + payloadMetrics.get(i).getName(), e);
+				}
+				metricBytes[i] = PAYLOAD_ENCODER.getMetricBytes(metrics[i], false);
+				metricsSize += metricBytes[i].length;
+				if (metrics[i].getName() != null) {
+					indexes.put(metrics[i].getName(), i);
+				}
+			}
+			uuid = payload.getUuid();
+			body = payload.getBody();
+		}
+
+		/*
+		 * Returns false if the BIRTH can no longer be kept current
+		 */
+		private boolean update(List<Metric> dataMetrics) {
+			for (Metric dataMetric : dataMetrics) {
+				if (dataMetric == null || dataMetric.getName() == null) {
+					continue;
+				}
+				Integer index = indexes.get(dataMetric.getName());
+				if (index == null) {
+					continue;
+				}
+				Metric metric = metrics[index];
+				if (metric.getDataType() != dataMetric.getDataType()
+						|| dataMetric.getDataType() == MetricDataType.Template) {
+					// Template DATA may only carry the members that changed
+					return false;
+				}
+				metric.copyValue(dataMetric);
+				if (dataMetric.hasTimestamp()) {
+					metric.setTimestampMillis(dataMetric.getTimestampMillis());
+				}
+				updateQuality(metric, dataMetric);
+				changed.set(index);
+			}
+			return true;
+		}
+
+		private void setBdSeq(long bdSeq) throws IOException {
+			Integer index = indexes.get(SparkplugMeta.SPARKPLUG_BD_SEQUENCE_NUMBER_KEY);
+			if (index != null && (metrics[index].isNull() || metrics[index].getLongValue() != bdSeq)) {
+				try {
+					metrics[index].setLongValue(bdSeq);
+				} catch (SparkplugInvalidTypeException e) {
+					throw new IOException("Invalid bdSeq metric in the cached NBIRTH", e);
+				}
+				changed.set(index);
+			}
+		}
+
+		private byte[] getBytes(long timestamp, long seq) throws IOException {
+			for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+				byte[] bytes = PAYLOAD_ENCODER.getMetricBytes(metrics[i], false);
+				metricsSize += bytes.length - metricBytes[i].length;
+				metricBytes[i] = bytes;
+			}
+			changed.clear();
+
+			int size = CodedOutputStream.computeUInt64Size(1, timestamp) + metricsSize
+					+ CodedOutputStream.computeUInt64Size(3, seq);
+			if (uuid != null) {
+				size += CodedOutputStream.computeStringSize(4, uuid);
+			}
+			if (body != null) {
+				size += CodedOutputStream.computeByteArraySize(5, body);
+			}
+			byte[] bytes = new byte[size];
+			CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+			output.writeUInt64(1, timestamp);
+			for (byte[] encodedMetric : metricBytes) {
+				output.writeRawBytes(encodedMetric);
+			}
+			output.writeUInt64(3, seq);
+			if (uuid != null) {
+				output.writeString(4, uuid);
+			}
+			if (body != null) {
+				output.writeByteArray(5, body);
+			}
+			output.checkNoSpaceLeft();
+			return bytes;
+		}
+
+		private static void updateQuality(Metric metric, Metric dataMetric) {
+			PropertyValue quality = dataMetric.getProperties() != null ? dataMetric.getProperties().getQuality() : null;
+			if (quality != null) {
+				if (metric.getProperties() == null) {
+					metric.setProperties(new PropertySet());
+				}
+				metric.getProperties().setProperty(SparkplugMeta.QUALITY_PROP_NAME, quality);
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.edge;
+
+/**
+ * An absolute and percent deadband for a numeric metric. A new value is only reported when it differs from the last
+ * reported value by more than both the absolute deadband and the percent deadband of the last reported value.
+ */
+public final class Deadband {
+
+	/**
+	 * No deadband - every change is reported
+	 */
+	public static final Deadband NONE = new Deadband(0, 0);
+
+	private final double absolute;
+	private final double percent;
+
+	/**
+	 * Constructor
+	 *
+	 * @param absolute the absolute deadband in the units of the metric, or 0 for none
+	 * @param percent the deadband as a percentage of the last reported value, or 0 for none
+	 */
+	public Deadband(double absolute, double percent) {
+		if (!(absolute >= 0) || !(percent >= 0)) {
+			throw new IllegalArgumentException("Deadbands must not be negative: " + absolute + ", " + percent + "%");
+		}
+		this.absolute = absolute;
+		this.percent = percent;
+	}
+
+	/**
+	 * Returns the absolute deadband in the units of the metric
+	 *
+	 * @return the absolute deadband
+	 */
+	public double getAbsolute() {
+		return absolute;
+	}
+
+	/**
+	 * Returns the deadband as a percentage of the last reported value
+	 *
+	 * @return the percent deadband
+	 */
+	public double getPercent() {
+		return percent;
+	}
+
+	/**
+	 * Returns true if the change from the last reported value to the new value is outside of this deadband
+	 *
+	 * @param lastValue the last reported value
+	 * @param value the new value
+	 * @return true if the new value should be reported, otherwise false
+	 */
+	public boolean isExceeded(double lastValue, double value) {
+		double delta = Math.abs(value - lastValue);
+		return delta > absolute && delta > Math.abs(lastValue) * percent / 100;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Deadband [absolute=");
+		builder.append(absolute);
+		builder.append(", percent=");
+		builder.append(percent);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -17,14 +17,15 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.tahu.SparkplugInvalidTypeException;
 import org.eclipse.tahu.edge.api.MetricHandler;
 import org.eclipse.tahu.exception.TahuException;
-import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
+import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadEncoder;
 import org.eclipse.tahu.message.model.DeviceDescriptor;
 import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
 import org.eclipse.tahu.message.model.MessageType;
@@ -44,6 +45,8 @@ import org.eclipse.tahu.mqtt.MqttClientId;
 import org.eclipse.tahu.mqtt.MqttOperatorDefs;
 import org.eclipse.tahu.mqtt.RandomStartupDelay;
 import org.eclipse.tahu.mqtt.TahuClient;
+import org.eclipse.tahu.util.SharedScheduler;
+import org.eclipse.tahu.util.SparkplugUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +54,8 @@ public class EdgeClient implements Runnable {
 
 	private static Logger logger = LoggerFactory.getLogger(EdgeClient.class.getName());
 
+	private static final SparkplugBStreamingPayloadEncoder PAYLOAD_ENCODER = new SparkplugBStreamingPayloadEncoder();
+
 	private final List<MqttServerDefinition> mqttServerDefinitions;
 	private final ClientCallback callback;
 
@@ -64,18 +69,24 @@ public class EdgeClient implements Runnable {
 
 	private TahuClient tahuClient;
 
+	private volatile ReportByExceptionFilter reportByExceptionFilter;
+
+	private volatile BirthCache birthCache;
+
 	private final Object clientLock = new Object();
 
 	private int seq;
 
+	private Long bdSeq; // The bdSeq of the NDEATH registered with the current connection
+
 	private int currentMqttClientIndex;
 
 	// Tracking variables
 	private volatile boolean stayRunning;
 	private boolean connectedToPrimaryHost; // Whether or not this client is connected to Primary Host ID
 	private Long lastStatePayloadTimestamp;
-	private Timer primaryHostIdResponseTimer; // The Primary Host ID response timer
-	private Timer rebirthDelayTimer; // A Timer used to prevent multiple rebirth requests while the timer is running
+	private ScheduledFuture<?> primaryHostIdResponseTimer; // The Primary Host ID response timeout
+	private volatile ScheduledFuture<?> rebirthDelayTimer; // Prevents multiple rebirth requests while it is pending
 
 	public EdgeClient(MetricHandler metricHandler, EdgeNodeDescriptor edgeNodeDescriptor, List<String> deviceIds,
 			String primaryHostId, boolean useAliases, Long rebirthDebounceDelay,
@@ -125,6 +136,37 @@ public class EdgeClient implements Runnable {
 		return connectedToPrimaryHost;
 	}
 
+	public ReportByExceptionFilter getReportByExceptionFilter() {
+		return reportByExceptionFilter;
+	}
+
+	/**
+	 * Sets the {@link ReportByExceptionFilter} that NDATA and DDATA payloads are passed through before they are
+	 * published. DATA messages with no changed metrics are not published.
+	 *
+	 * @param reportByExceptionFilter the {@link ReportByExceptionFilter}, or null to publish every metric
+	 */
+	public void setReportByExceptionFilter(ReportByExceptionFilter reportByExceptionFilter) {
+		this.reportByExceptionFilter = reportByExceptionFilter;
+	}
+
+	public BirthCache getBirthCache() {
+		return birthCache;
+	}
+
+	/**
+	 * Sets the {@link BirthCache} that NBIRTH and DBIRTH payloads are cached in as they are published. Once an NBIRTH
+	 * is cached, Rebirth requests and reconnects republish the cached BIRTHs with a new timestamp, seq and bdSeq and
+	 * the current metric values instead of calling {@link MetricHandler#publishBirthSequence()}.
+	 * The cached DBIRTH of a Device is removed when {@link #publishDeviceDeath(String)} is called for it, but not by
+	 * the DDEATHs published on disconnect so the Devices are born again on the next connect.
+	 *
+	 * @param birthCache the {@link BirthCache}, or null to always rebuild the BIRTHs
+	 */
+	public void setBirthCache(BirthCache birthCache) {
+		this.birthCache = birthCache;
+	}
+
 	public void disconnect(boolean publishLwt) {
 		synchronized (clientLock) {
 			logger.debug("{} Attempting to disconnect from target server",
@@ -133,7 +175,7 @@ public class EdgeClient implements Runnable {
 			// Cancel the primaryHostId if it is running
 			if (primaryHostIdResponseTimer != null) {
 				logger.debug("Cancelling the primary host ID timer");
-				primaryHostIdResponseTimer.cancel();
+				primaryHostIdResponseTimer.cancel(false);
 				primaryHostIdResponseTimer = null;
 			}
 			connectedToPrimaryHost = false;
@@ -147,7 +189,7 @@ public class EdgeClient implements Runnable {
 					if (publishLwt) {
 						for (String deviceId : deviceStatusMap.keySet()) {
 							// Publish all of the DDEATHs since we're shutting down cleanly
-							publishDeviceDeath(deviceId);
+							publishDeviceDeath(deviceId, false);
 						}
 
 						tahuClient.disconnect(50, 50, true, true, false);
@@ -175,7 +217,21 @@ public class EdgeClient implements Runnable {
 		if (payload.getMetric("Node Control/Rebirth") == null) {
 			payload.addMetric(new MetricBuilder("Node Control/Rebirth", MetricDataType.Boolean, false).createMetric());
 		}
+		if (reportByExceptionFilter != null) {
+			reportByExceptionFilter.birth(null, payload);
+		}
 
+		BirthCache cache = birthCache;
+		if (cache != null) {
+			try {
+				cache.putNodeBirth(payload);
+				publishCachedNodeBirth(cache, payload.getTimestamp(), false);
+				return;
+			} catch (Exception e) {
+				logger.error("Failed to cache the NBIRTH - publishing it uncached", e);
+				cache.clear();
+			}
+		}
 		publishSparkplugMessage(
 				new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, edgeNodeDescriptor, MessageType.NBIRTH), payload, 0,
 				false);
@@ -183,6 +239,20 @@ public class EdgeClient implements Runnable {
 
 	public void publishNodeData(SparkplugBPayload payload) {
 		if (connectedToPrimaryHost) {
+			ReportByExceptionFilter filter = reportByExceptionFilter;
+			List<String> metricNames = null;
+			if (filter != null) {
+				payload = filter.filter(null, payload);
+				if (payload.getMetrics().isEmpty()) {
+					logger.trace("No metrics have changed - not publishing NDATA");
+					return;
+				}
+				metricNames = getMetricNames(payload);
+			}
+			if (birthCache != null) {
+				birthCache.update(null, payload.getMetrics());
+			}
+
 			if (metricMap != null) {
 				// Aliasing is enabled so replace metric names with aliases
 				for (Metric metric : payload.getMetrics()) {
@@ -191,9 +261,11 @@ public class EdgeClient implements Runnable {
 				}
 			}
 
-			publishSparkplugMessage(
+			if (publishSparkplugMessage(
 					new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, edgeNodeDescriptor, MessageType.NDATA), payload,
-					0, false);
+					0, false) && filter != null) {
+				filter.reported(null, metricNames, payload.getMetrics());
+			}
 		}
 	}
 
@@ -204,14 +276,42 @@ public class EdgeClient implements Runnable {
 				metric.setAlias(metricMap.addGeneratedAlias(metric.getName(), metric.getDataType()));
 			}
 		}
+		if (reportByExceptionFilter != null) {
+			reportByExceptionFilter.birth(deviceId, payload);
+		}
 
+		BirthCache cache = birthCache;
+		if (cache != null) {
+			try {
+				cache.putDeviceBirth(deviceId, payload);
+				publishCachedDeviceBirth(cache, deviceId, payload.getTimestamp());
+				return;
+			} catch (Exception e) {
+				logger.error("Failed to cache the DBIRTH for {} - publishing it uncached", deviceId, e);
+				cache.removeDeviceBirth(deviceId);
+			}
+		}
 		publishSparkplugMessage(new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX,
 				new DeviceDescriptor(edgeNodeDescriptor, deviceId), MessageType.DBIRTH), payload, 0, false);
-		deviceStatusMap.put(deviceId, new Boolean(true));
+		deviceStatusMap.put(deviceId, Boolean.TRUE);
 	}
 
 	public void publishDeviceData(String deviceId, SparkplugBPayload payload) {
 		if (connectedToPrimaryHost) {
+			ReportByExceptionFilter filter = reportByExceptionFilter;
+			List<String> metricNames = null;
+			if (filter != null) {
+				payload = filter.filter(deviceId, payload);
+				if (payload.getMetrics().isEmpty()) {
+					logger.trace("No metrics have changed - not publishing DDATA for {}", deviceId);
+					return;
+				}
+				metricNames = getMetricNames(payload);
+			}
+			if (birthCache != null) {
+				birthCache.update(deviceId, payload.getMetrics());
+			}
+
 			if (metricMap != null && deviceStatusMap.get(deviceId) != null
 					&& deviceStatusMap.get(deviceId).booleanValue()) {
 				// Aliasing is enabled so replace metric names with aliases
@@ -221,34 +321,143 @@ public class EdgeClient implements Runnable {
 				}
 			}
 
-			publishSparkplugMessage(new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX,
-					new DeviceDescriptor(edgeNodeDescriptor, deviceId), MessageType.DDATA), payload, 0, false);
+			if (publishSparkplugMessage(new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX,
+					new DeviceDescriptor(edgeNodeDescriptor, deviceId), MessageType.DDATA), payload, 0, false)
+					&& filter != null) {
+				filter.reported(deviceId, metricNames, payload.getMetrics());
+			}
 		}
 	}
 
+	/*
+	 * Returns the names of the metrics so they can be recorded as reported once they are replaced with aliases
+	 */
+	private static List<String> getMetricNames(SparkplugBPayload payload) {
+		List<Metric> metrics = payload.getMetrics();
+		List<String> metricNames = new ArrayList<>(metrics.size());
+		for (Metric metric : metrics) {
+			metricNames.add(metric != null ? metric.getName() : null);
+		}
+		return metricNames;
+	}
+
 	public void publishDeviceDeath(String deviceId) {
+		publishDeviceDeath(deviceId, true);
+	}
+
+	/*
+	 * Publishes a DDEATH and removes the cached DBIRTH of the Device if evictBirth is true
+	 */
+	private void publishDeviceDeath(String deviceId, boolean evictBirth) {
 		SparkplugBPayloadMapBuilder payloadBuilder = new SparkplugBPayloadMapBuilder();
 		payloadBuilder.setTimestamp(new Date());
 		publishSparkplugMessage(new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX,
 				new DeviceDescriptor(edgeNodeDescriptor, deviceId), MessageType.DDEATH), payloadBuilder.createPayload(),
 				0, false);
 		deviceStatusMap.put(deviceId, new Boolean(false));
+		if (reportByExceptionFilter != null) {
+			reportByExceptionFilter.clear(deviceId);
+		}
+		BirthCache cache = birthCache;
+		if (evictBirth && cache != null) {
+			cache.removeDeviceBirth(deviceId);
+		}
+	}
+
+	/*
+	 * Returns the bdSeq of an encoded NDEATH payload, or null if it has none
+	 */
+	private static Long getBdSeq(byte[] deathPayloadBytes) {
+		try {
+			SparkplugBPayload deathPayload = new SparkplugBPayloadDecoder().buildFromByteArray(deathPayloadBytes, null);
+			return SparkplugUtil.getBdSequenceNumber(deathPayload);
+		} catch (Exception e) {
+			logger.warn("Failed to decode the bdSeq of the NDEATH", e);
+			return null;
+		}
 	}
 
-	private void publishSparkplugMessage(Topic topic, SparkplugBPayload payload, int qos, boolean retained) {
+	/*
+	 * Publishes the cached NBIRTH followed by all of the cached DBIRTHs. Returns false if no NBIRTH is cached or the
+	 * cached BIRTHs could not be published, in which case they must be rebuilt.
+	 */
+	private boolean publishCachedBirthSequence() {
+		BirthCache cache = birthCache;
+		if (cache == null || !cache.hasNodeBirth()) {
+			return false;
+		}
+		logger.debug("Publishing the cached BIRTHs for {}", edgeNodeDescriptor);
+		Date timestamp = new Date();
+		try {
+			publishCachedNodeBirth(cache, timestamp, true);
+			for (String deviceId : cache.getDeviceIds()) {
+				publishCachedDeviceBirth(cache, deviceId, timestamp);
+			}
+			return true;
+		} catch (Exception e) {
+			logger.error("Failed to publish the cached BIRTHs - rebuilding them", e);
+			cache.clear();
+			synchronized (clientLock) {
+				seq = 0;
+			}
+			return false;
+		}
+	}
+
+	private void publishCachedNodeBirth(BirthCache cache, Date timestamp, boolean patchBdSeq) throws Exception {
+		Topic topic = new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, edgeNodeDescriptor, MessageType.NBIRTH);
+		synchronized (clientLock) {
+			int previousSeq = seq;
+			try {
+				byte[] bytes = cache.getNodeBirthBytes(
+						timestamp != null ? timestamp.getTime() : System.currentTimeMillis(), getNextSeqNum(),
+						patchBdSeq ? bdSeq : null);
+				tahuClient.publish(topic.toString(), bytes, 0, false);
+			} catch (Exception e) {
+				// Give the seq back so the uncached BIRTH is published with the same seq
+				seq = previousSeq;
+				throw e;
+			}
+		}
+	}
+
+	private void publishCachedDeviceBirth(BirthCache cache, String deviceId, Date timestamp) throws Exception {
+		Topic topic = new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX,
+				new DeviceDescriptor(edgeNodeDescriptor, deviceId), MessageType.DBIRTH);
+		synchronized (clientLock) {
+			int previousSeq = seq;
+			try {
+				byte[] bytes = cache.getDeviceBirthBytes(deviceId,
+						timestamp != null ? timestamp.getTime() : System.currentTimeMillis(), getNextSeqNum());
+				tahuClient.publish(topic.toString(), bytes, 0, false);
+			} catch (Exception e) {
+				// Give the seq back so the uncached BIRTH is published with the same seq
+				seq = previousSeq;
+				throw e;
+			}
+		}
+		deviceStatusMap.put(deviceId, Boolean.TRUE);
+	}
+
+	/*
+	 * Publishes a Sparkplug message and returns true if it was handed to the MQTT client
+	 */
+	private boolean publishSparkplugMessage(Topic topic, SparkplugBPayload payload, int qos, boolean retained) {
 		synchronized (clientLock) {
 			try {
 				payload.setSeq(getNextSeqNum());
 				if (topic.isType(MessageType.DCMD) || topic.isType(MessageType.DDATA) || topic.isType(MessageType.NCMD)
 						|| topic.isType(MessageType.NDATA)) {
-					tahuClient.publish(topic.toString(), new SparkplugBPayloadEncoder().getBytes(payload, true), qos,
+					tahuClient.publish(topic.toString(), PAYLOAD_ENCODER.getBytes(payload, true), qos,
 							retained);
 				} else {
-					tahuClient.publish(topic.toString(), new SparkplugBPayloadEncoder().getBytes(payload, false), qos,
+					tahuClient.publish(topic.toString(), PAYLOAD_ENCODER.getBytes(payload, false), qos,
 							retained);
 				}
+				return true;
 			} catch (Exception e) {
 				logger.error("Failed to publish message on topic={}", topic, e);
+				return false;
 			}
 		}
 	}
@@ -354,12 +563,12 @@ public class EdgeClient implements Runnable {
 							connectedToPrimaryHost = false;
 							// Start a timer to run while we wait for a response;
 							if (primaryHostIdResponseTimer != null) {
-								primaryHostIdResponseTimer.cancel();
+								primaryHostIdResponseTimer.cancel(false);
 								primaryHostIdResponseTimer = null;
 							}
-							primaryHostIdResponseTimer = new Timer(
-									String.format("PrimaryHostIdResponseTimer-%s", edgeNodeDescriptor.toString()));
-							primaryHostIdResponseTimer.schedule(new PrimaryHostIdResponseTask(), 30000);
+							// The timeout disconnects, which blocks on MQTT I/O
+							primaryHostIdResponseTimer = SharedScheduler.scheduleBlocking(
+									new PrimaryHostIdResponseTask(), 30000, TimeUnit.MILLISECONDS);
 
 							// Subscribe to the STATE topic for primary host ID notifications
 							String subHostTopic = SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX + "/" + primaryHostId;
@@ -368,7 +577,7 @@ public class EdgeClient implements Runnable {
 								logger.error("Failed to subscribe to '{}'", subHostTopic);
 								// Cancel the timer and disconnect
 								if (primaryHostIdResponseTimer != null) {
-									primaryHostIdResponseTimer.cancel();
+									primaryHostIdResponseTimer.cancel(false);
 									primaryHostIdResponseTimer = null;
 								}
 								disconnect(true);
@@ -414,6 +623,7 @@ public class EdgeClient implements Runnable {
 							deathPayloadBytes);
 					return false;
 				}
+				bdSeq = getBdSeq(deathPayloadBytes);
 
 				currentMqttClientIndex++;
 				if (currentMqttClientIndex >= mqttServerDefinitions.size()) {
@@ -499,7 +709,9 @@ public class EdgeClient implements Runnable {
 		try {
 			logger.debug("Publishing BIRTH for {}", edgeNodeDescriptor);
 			seq = 0;
-			metricHandler.publishBirthSequence();
+			if (!publishCachedBirthSequence()) {
+				metricHandler.publishBirthSequence();
+			}
 		} catch (Exception e) {
 			logger.error("Failed to publish birth - BAILING", e);
 			stayRunning = false;
@@ -532,7 +744,7 @@ public class EdgeClient implements Runnable {
 				if (statePayload.isOnline() && !connectedToPrimaryHost) {
 					logger.info("Critical/Primary app is online - cancelling disconnect timer");
 					if (primaryHostIdResponseTimer != null) {
-						primaryHostIdResponseTimer.cancel();
+						primaryHostIdResponseTimer.cancel(false);
 						primaryHostIdResponseTimer = null;
 					}
 					handleOnlineTransition("STATE CHANGE");
@@ -563,27 +775,28 @@ public class EdgeClient implements Runnable {
 			} else if (rebirthDelayTimer == null) {
 				logger.info("Processing {} request", isRebirth ? "Rebirth" : "Birth");
 				seq = 0;
-				metricHandler.publishBirthSequence();
+				if (!publishCachedBirthSequence()) {
+					metricHandler.publishBirthSequence();
+				}
 				long randomDelay = randomStartupDelay != null ? randomStartupDelay.getRandomDelay() : 0L;
-				rebirthDelayTimer = new Timer(String.format("RebirthDelayTimer-%s", edgeNodeDescriptor.toString()));
 				logger.debug("Setting RebirthDelayTimer to {}ms", randomDelay + rebirthDebounceDelay);
-				rebirthDelayTimer.schedule(new RebirthDelayTask(), randomDelay + rebirthDebounceDelay);
+				rebirthDelayTimer = SharedScheduler.schedule(new RebirthDelayTask(), randomDelay + rebirthDebounceDelay,
+						TimeUnit.MILLISECONDS);
 			} else {
 				logger.info("Rebirth request but just issued a rebirth - ignoring");
 			}
 		}
 	}
 
-	private class PrimaryHostIdResponseTask extends TimerTask {
+	private class PrimaryHostIdResponseTask implements Runnable {
 		public void run() {
 			logger.error("Failed to validate the Primary Host is online");
 			disconnect(true);
 		}
 	}
 
-	private class RebirthDelayTask extends TimerTask {
+	private class RebirthDelayTask implements Runnable {
 		public void run() {
-			rebirthDelayTimer.cancel();
 			rebirthDelayTimer = null;
 		}
 	}
@@ -0,0 +1,313 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.edge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.PropertyValue;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugBPayload.SparkplugBPayloadBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Report by exception for Edge Node and Device DATA messages. The last reported value and quality of every metric is
+ * tracked from the BIRTH onwards and {@link #filter(String, SparkplugBPayload)} removes the metrics that have not
+ * changed since they were last reported. Numeric metrics only count as changed when they move outside of their
+ * {@link Deadband}. A change in quality or a change to or from null is always reported.
+ *
+ * Filtering does not record anything. Once the filtered payload has been published its metrics are recorded with
+ * {@link #reported(String, SparkplugBPayload)} so a change that fails to publish is compared against again and
+ * reported on the next DATA message.
+ *
+ * Metrics are tracked by name, so payloads must be filtered before names are replaced with aliases.
+ */
+public class ReportByExceptionFilter {
+
+	private static Logger logger = LoggerFactory.getLogger(ReportByExceptionFilter.class.getName());
+
+	// The key used for the Edge Node's own metrics - a Device ID is never empty
+	private static final String EDGE_NODE_KEY = "";
+
+	private final Deadband defaultDeadband;
+
+	private final Map<String, Map<String, Deadband>> deadbands;
+
+	private final Map<String, Map<String, ReportedValue>> reportedValues;
+
+	/**
+	 * Constructor with no deadband by default - every change is reported
+	 */
+	public ReportByExceptionFilter() {
+		this(Deadband.NONE);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param defaultDeadband the {@link Deadband} for numeric metrics that do not have their own
+	 */
+	public ReportByExceptionFilter(Deadband defaultDeadband) {
+		this.defaultDeadband = Objects.requireNonNull(defaultDeadband);
+		this.deadbands = new ConcurrentHashMap<>();
+		this.reportedValues = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Sets the {@link Deadband} of a numeric metric
+	 *
+	 * @param deviceId the Device ID of the metric, or null for an Edge Node metric
+	 * @param metricName the name of the metric
+	 * @param deadband the {@link Deadband}, or null to use the default
+	 */
+	public void setDeadband(String deviceId, String metricName, Deadband deadband) {
+		Map<String, Deadband> deviceDeadbands =
+				deadbands.computeIfAbsent(key(deviceId), k -> new ConcurrentHashMap<>());
+		if (deadband == null) {
+			deviceDeadbands.remove(metricName);
+		} else {
+			deviceDeadbands.put(metricName, deadband);
+		}
+	}
+
+	/**
+	 * Records the metrics of a BIRTH as reported, replacing anything previously reported for the Edge Node or Device.
+	 * An NBIRTH also clears all of the Devices as they must be born again.
+	 *
+	 * @param deviceId the Device ID for a DBIRTH, or null for an NBIRTH
+	 * @param payload the BIRTH {@link SparkplugBPayload}
+	 */
+	public void birth(String deviceId, SparkplugBPayload payload) {
+		if (deviceId == null) {
+			reportedValues.clear();
+		}
+		Map<String, ReportedValue> values = new HashMap<>();
+		for (Metric metric : payload.getMetrics()) {
+			if (metric != null && metric.getName() != null) {
+				ReportedValue reportedValue = new ReportedValue();
+				reportedValue.update(metric);
+				values.put(metric.getName(), reportedValue);
+			}
+		}
+		reportedValues.put(key(deviceId), values);
+	}
+
+	/**
+	 * Clears everything reported for a Device, for example when it dies
+	 *
+	 * @param deviceId the Device ID
+	 */
+	public void clear(String deviceId) {
+		reportedValues.remove(key(deviceId));
+	}
+
+	/**
+	 * Clears everything reported for the Edge Node and all of its Devices
+	 */
+	public void clear() {
+		reportedValues.clear();
+	}
+
+	/**
+	 * Returns a payload with only the metrics that have changed since they were last reported. Metrics without a name
+	 * and metrics that have not been born are always included. Nothing is recorded as reported until
+	 * {@link #reported(String, SparkplugBPayload)} is called.
+	 *
+	 * @param deviceId the Device ID for a DDATA, or null for an NDATA
+	 * @param payload the DATA {@link SparkplugBPayload}
+	 * @return the payload itself if every metric changed, otherwise a new payload with the changed metrics which may
+	 *         be empty
+	 */
+	public SparkplugBPayload filter(String deviceId, SparkplugBPayload payload) {
+		String key = key(deviceId);
+		Map<String, ReportedValue> values = reportedValues.computeIfAbsent(key, k -> new HashMap<>());
+		Map<String, Deadband> deviceDeadbands = deadbands.get(key);
+		List<Metric> metrics = payload.getMetrics();
+		List<Metric> changedMetrics = new ArrayList<>(metrics.size());
+		synchronized (values) {
+			for (Metric metric : metrics) {
+				if (metric == null) {
+					continue;
+				}
+				ReportedValue reportedValue = metric.getName() != null ? values.get(metric.getName()) : null;
+				if (reportedValue != null) {
+					Deadband deadband = deviceDeadbands != null ? deviceDeadbands.get(metric.getName()) : null;
+					if (!reportedValue.isChanged(metric, deadband != null ? deadband : defaultDeadband)) {
+						continue;
+					}
+				}
+				changedMetrics.add(metric);
+			}
+		}
+
+		logger.trace("Reporting {} of {} metrics", changedMetrics.size(), metrics.size());
+		if (changedMetrics.size() == metrics.size()) {
+			return payload;
+		}
+		return new SparkplugBPayloadBuilder().setTimestamp(payload.getTimestamp()).setUuid(payload.getUuid())
+				.setBody(payload.getBody()).addMetrics(changedMetrics).createPayload();
+	}
+
+	/**
+	 * Records the metrics of a DATA payload as reported. Call this once the payload returned by
+	 * {@link #filter(String, SparkplugBPayload)} has been published, before names are replaced with aliases.
+	 *
+	 * @param deviceId the Device ID for a DDATA, or null for an NDATA
+	 * @param payload the published DATA {@link SparkplugBPayload}
+	 */
+	public void reported(String deviceId, SparkplugBPayload payload) {
+		List<Metric> metrics = payload.getMetrics();
+		List<String> metricNames = new ArrayList<>(metrics.size());
+		for (Metric metric : metrics) {
+			metricNames.add(metric != null ? metric.getName() : null);
+		}
+		reported(deviceId, metricNames, metrics);
+	}
+
+	/**
+	 * Records the metrics of a DATA payload as reported once their names have been replaced with aliases
+	 *
+	 * @param deviceId the Device ID for a DDATA, or null for an NDATA
+	 * @param metricNames the names of the metrics, in the same order as the metrics
+	 * @param metrics the published {@link Metric}s
+	 */
+	public void reported(String deviceId, List<String> metricNames, List<Metric> metrics) {
+		Map<String, ReportedValue> values = reportedValues.computeIfAbsent(key(deviceId), k -> new HashMap<>());
+		synchronized (values) {
+			for (int i = 0; i < metrics.size(); i++) {
+				Metric metric = metrics.get(i);
+				String metricName = metricNames.get(i);
+				if (metric == null || metricName == null) {
+					continue;
+				}
+				values.computeIfAbsent(metricName, k -> new ReportedValue()).update(metric);
+			}
+		}
+	}
+
+	private static String key(String deviceId) {
+		return deviceId != null ? deviceId : EDGE_NODE_KEY;
+	}
+
+	private static Object quality(Metric metric) {
+		if (metric.getProperties() == null) {
+			return null;
+		}
+		PropertyValue quality = metric.getProperties().getQuality();
+		return quality != null ? quality.getValue() : null;
+	}
+
+	private static boolean isNumeric(MetricDataType dataType) {
+		switch (dataType) {
+			case Int8:
+			case Int16:
+			case Int32:
+			case Int64:
+			case UInt8:
+			case UInt16:
+			case UInt32:
+			case UInt64:
+			case Float:
+			case Double:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * The last reported value of a metric. Numeric, DateTime and Boolean values are held unboxed.
+	 */
+	private static final class ReportedValue {
+		private MetricDataType dataType;
+		private boolean isNull;
+		private long bits;
+		private double doubleValue;
+		private Object value;
+		private Object quality;
+
+		private void update(Metric metric) {
+			dataType = metric.getDataType();
+			isNull = metric.isNull();
+			quality = quality(metric);
+			value = null;
+			if (isNull) {
+				return;
+			}
+			switch (dataType) {
+				case Float:
+				case Double:
+					doubleValue = metric.getDoubleValue();
+					bits = Double.doubleToLongBits(doubleValue);
+					break;
+				case DateTime:
+				case Boolean:
+					bits = metric.getLongValue();
+					break;
+				default:
+					if (isNumeric(dataType)) {
+						bits = metric.getLongValue();
+						doubleValue = metric.getDoubleValue();
+					} else {
+						value = metric.getValue();
+					}
+			}
+		}
+
+		private boolean isChanged(Metric metric, Deadband deadband) {
+			if (dataType != metric.getDataType() || isNull != metric.isNull()
+					|| !Objects.equals(quality, quality(metric))) {
+				return true;
+			} else if (isNull) {
+				return false;
+			}
+			switch (dataType) {
+				case Float:
+				case Double:
+					double newDoubleValue = metric.getDoubleValue();
+					if (Double.doubleToLongBits(newDoubleValue) == bits) {
+						return false;
+					}
+					return Double.isNaN(newDoubleValue) || Double.isNaN(doubleValue)
+							|| deadband.isExceeded(doubleValue, newDoubleValue);
+				case DateTime:
+				case Boolean:
+					return metric.getLongValue() != bits;
+				case String:
+				case Text:
+				case UUID:
+					return !Objects.equals(value, metric.getValue());
+				case Bytes:
+					return !Arrays.equals((byte[]) value, (byte[]) metric.getValue());
+				default:
+					if (isNumeric(dataType)) {
+						return metric.getLongValue() != bits
+								&& deadband.isExceeded(doubleValue, metric.getDoubleValue());
+					} else if (value instanceof Object[] && metric.getValue() instanceof Object[]) {
+						return !Arrays.equals((Object[]) value, (Object[]) metric.getValue());
+					}
+					// DataSets, Templates and Files are always reported
+					return true;
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.edge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.PropertyDataType;
+import org.eclipse.tahu.message.model.PropertySet;
+import org.eclipse.tahu.message.model.PropertySet.PropertySetBuilder;
+import org.eclipse.tahu.message.model.PropertyValue;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugBPayload.SparkplugBPayloadBuilder;
+import org.eclipse.tahu.message.model.SparkplugMeta;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the {@link BirthCache}
+ */
+public class BirthCacheTest {
+
+	private static final Date BIRTH_TIME = new Date(1000L);
+
+	@Test
+	public void testNodeBirth() throws Exception {
+		BirthCache cache = new BirthCache();
+		cache.putNodeBirth(new SparkplugBPayloadBuilder().setTimestamp(BIRTH_TIME).setUuid("uuid")
+				.addMetric(new MetricBuilder(SparkplugMeta.SPARKPLUG_BD_SEQUENCE_NUMBER_KEY, MetricDataType.Int64,
+						3L).createMetric())
+				.addMetric(new MetricBuilder("Temperature", MetricDataType.Double, 20.5).createMetric())
+				.addMetric(new MetricBuilder("Status", MetricDataType.String, "OK").createMetric()).createPayload());
+		assertThat(cache.hasNodeBirth()).isTrue();
+
+		// The timestamp, seq and bdSeq are written fresh and everything else is copied
+		SparkplugBPayload birth = decode(cache.getNodeBirthBytes(5000L, 0, 4L));
+		assertThat(birth.getTimestamp()).isEqualTo(new Date(5000L));
+		assertThat(birth.getSeq()).isEqualTo(0L);
+		assertThat(birth.getUuid()).isEqualTo("uuid");
+		assertThat(metric(birth, SparkplugMeta.SPARKPLUG_BD_SEQUENCE_NUMBER_KEY).getValue()).isEqualTo(4L);
+		assertThat(metric(birth, "Temperature").getValue()).isEqualTo(20.5);
+
+		// DATA values are carried into the next BIRTH and unknown metrics are ignored
+		cache.update(null,
+				Arrays.asList(new MetricBuilder("Temperature", MetricDataType.Double, 21.0).createMetric(),
+						new MetricBuilder("Unknown", MetricDataType.Int32, 1).createMetric()));
+		birth = decode(cache.getNodeBirthBytes(6000L, 1, null));
+		assertThat(birth.getSeq()).isEqualTo(1L);
+		assertThat(metric(birth, SparkplugMeta.SPARKPLUG_BD_SEQUENCE_NUMBER_KEY).getValue()).isEqualTo(4L);
+		assertThat(metric(birth, "Temperature").getValue()).isEqualTo(21.0);
+		assertThat(metric(birth, "Status").getValue()).isEqualTo("OK");
+		assertThat(metric(birth, "Unknown")).isNull();
+	}
+
+	@Test
+	public void testQuality() throws Exception {
+		BirthCache cache = new BirthCache();
+		cache.putNodeBirth(new SparkplugBPayloadBuilder().setTimestamp(BIRTH_TIME)
+				.addMetric(new MetricBuilder("Temperature", MetricDataType.Double, 20.5).createMetric())
+				.createPayload());
+
+		// A DATA metric with a Quality sets it
+		cache.update(null, Collections.singletonList(new MetricBuilder("Temperature", MetricDataType.Double, 21.0)
+				.properties(quality(500)).createMetric()));
+		assertThat(metric(decode(cache.getNodeBirthBytes(6000L, 1, null)), "Temperature").getProperties()
+				.getQualityCode(-1)).isEqualTo(500);
+
+		// A DATA metric without a Quality keeps the cached one
+		cache.update(null, Collections
+				.singletonList(new MetricBuilder("Temperature", MetricDataType.Double, 22.0).createMetric()));
+		Metric metric = metric(decode(cache.getNodeBirthBytes(7000L, 2, null)), "Temperature");
+		assertThat(metric.getValue()).isEqualTo(22.0);
+		assertThat(metric.getProperties().getQualityCode(-1)).isEqualTo(500);
+	}
+
+	@Test
+	public void testDeviceBirths() throws Exception {
+		BirthCache cache = new BirthCache();
+		cache.putNodeBirth(new SparkplugBPayloadBuilder().setTimestamp(BIRTH_TIME).createPayload());
+		cache.putDeviceBirth("D1", new SparkplugBPayloadBuilder().setTimestamp(BIRTH_TIME)
+				.addMetric(new MetricBuilder("Level", MetricDataType.Int32, 1).createMetric()).createPayload());
+		cache.putDeviceBirth("D2", new SparkplugBPayloadBuilder().setTimestamp(BIRTH_TIME)
+				.addMetric(new MetricBuilder("Level", MetricDataType.Int32, 2).createMetric()).createPayload());
+		assertThat(cache.getDeviceIds()).containsExactly("D1", "D2");
+
+		cache.update("D2",
+				Collections.singletonList(new MetricBuilder("Level", MetricDataType.Int32, 7).createMetric()));
+		assertThat(metric(decode(cache.getDeviceBirthBytes("D1", 6000L, 1)), "Level").getValue()).isEqualTo(1);
+		assertThat(metric(decode(cache.getDeviceBirthBytes("D2", 6000L, 2)), "Level").getValue()).isEqualTo(7);
+
+		cache.removeDeviceBirth("D1");
+		assertThat(cache.getDeviceIds()).containsExactly("D2");
+		assertThat(cache.getDeviceBirthBytes("D1", 6000L, 1)).isNull();
+
+		// A Template DATA can not be merged so the DBIRTH is dropped
+		cache.update("D2", Collections.singletonList(new MetricBuilder("Level", MetricDataType.Template, null)
+				.createMetric()));
+		assertThat(cache.getDeviceIds()).isEmpty();
+
+		// A new NBIRTH clears the DBIRTHs
+		cache.putDeviceBirth("D3", new SparkplugBPayloadBuilder().setTimestamp(BIRTH_TIME).createPayload());
+		cache.putNodeBirth(new SparkplugBPayloadBuilder().setTimestamp(BIRTH_TIME).createPayload());
+		assertThat(cache.getDeviceIds()).isEmpty();
+		cache.clear();
+		assertThat(cache.hasNodeBirth()).isFalse();
+		assertThat(cache.getNodeBirthBytes(6000L, 0, null)).isNull();
+	}
+
+	private static PropertySet quality(int quality) throws Exception {
+		return new PropertySetBuilder()
+				.addProperty(SparkplugMeta.QUALITY_PROP_NAME, new PropertyValue(PropertyDataType.Int32, quality))
+				.createPropertySet();
+	}
+
+	private static Metric metric(SparkplugBPayload payload, String name) {
+		for (Metric metric : payload.getMetrics()) {
+			if (name.equals(metric.getName())) {
+				return metric;
+			}
+		}
+		return null;
+	}
+
+	private static SparkplugBPayload decode(byte[] bytes) throws Exception {
+		return new SparkplugBPayloadDecoder().buildFromByteArray(bytes, null);
+	}
+}
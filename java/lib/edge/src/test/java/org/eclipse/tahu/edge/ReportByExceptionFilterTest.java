@@ -0,0 +1,124 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.edge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugBPayload.SparkplugBPayloadBuilder;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the {@link ReportByExceptionFilter} and {@link Deadband}
+ */
+public class ReportByExceptionFilterTest {
+
+	private static final Date TIMESTAMP = new Date(1000L);
+
+	@Test
+	public void testFilter() throws Exception {
+		ReportByExceptionFilter filter = new ReportByExceptionFilter();
+		filter.birth(null, payload(temperature(20.5), status("OK")));
+
+		// Unchanged metrics are removed and changed ones are kept
+		SparkplugBPayload filtered = filter.filter(null, payload(temperature(20.5), status("Fault")));
+		assertThat(names(filtered)).containsExactly("Status");
+		filter.reported(null, filtered);
+		assertThat(filter.filter(null, payload(temperature(20.5), status("Fault"))).getMetrics()).isEmpty();
+
+		// Every metric of a payload that changed completely is reported as is
+		SparkplugBPayload payload = payload(temperature(21.5), status("OK"));
+		assertThat(filter.filter(null, payload)).isSameAs(payload);
+
+		// Devices are tracked separately from the Edge Node and metrics that were not born are always reported
+		filter.birth("D1", payload(temperature(20.5)));
+		assertThat(names(filter.filter("D1", payload(temperature(20.5), status("OK"))))).containsExactly("Status");
+	}
+
+	@Test
+	public void testRecordedOnlyOnceReported() throws Exception {
+		ReportByExceptionFilter filter = new ReportByExceptionFilter();
+		filter.birth(null, payload(temperature(20.5)));
+
+		// A change that was never reported, for example because the publish failed, is reported again
+		assertThat(names(filter.filter(null, payload(temperature(21.5))))).containsExactly("Temperature");
+		assertThat(names(filter.filter(null, payload(temperature(21.5))))).containsExactly("Temperature");
+
+		// Metrics are recorded by the names they had before being replaced with aliases
+		SparkplugBPayload filtered = filter.filter(null, payload(temperature(21.5)));
+		List<String> metricNames = new ArrayList<>(names(filtered));
+		for (Metric metric : filtered.getMetrics()) {
+			metric.setAlias(1L);
+			metric.setName(null);
+		}
+		filter.reported(null, metricNames, filtered.getMetrics());
+		assertThat(filter.filter(null, payload(temperature(21.5))).getMetrics()).isEmpty();
+	}
+
+	@Test
+	public void testDeadband() throws Exception {
+		ReportByExceptionFilter filter = new ReportByExceptionFilter(new Deadband(1.0, 0));
+		filter.birth(null, payload(temperature(20.0)));
+
+		// Changes inside the deadband are compared to the last reported value so they can not creep
+		assertThat(filter.filter(null, payload(temperature(20.6))).getMetrics()).isEmpty();
+		assertThat(filter.filter(null, payload(temperature(20.9))).getMetrics()).isEmpty();
+		SparkplugBPayload filtered = filter.filter(null, payload(temperature(21.2)));
+		assertThat(names(filtered)).containsExactly("Temperature");
+		filter.reported(null, filtered);
+		assertThat(filter.filter(null, payload(temperature(21.5))).getMetrics()).isEmpty();
+
+		// A metric's own deadband replaces the default
+		filter.setDeadband(null, "Temperature", Deadband.NONE);
+		assertThat(names(filter.filter(null, payload(temperature(21.5))))).containsExactly("Temperature");
+
+		// Both the absolute and the percent deadband must be exceeded
+		Deadband deadband = new Deadband(1.0, 10);
+		assertThat(deadband.isExceeded(100, 105)).isFalse();
+		assertThat(deadband.isExceeded(100, 111)).isTrue();
+		assertThat(deadband.isExceeded(5, 5.8)).isFalse();
+		assertThat(deadband.isExceeded(5, 6.5)).isTrue();
+		assertThatThrownBy(() -> new Deadband(-1, 0)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static SparkplugBPayload payload(Metric... metrics) {
+		return new SparkplugBPayloadBuilder().setTimestamp(TIMESTAMP).addMetrics(Arrays.asList(metrics))
+				.createPayload();
+	}
+
+	private static Metric temperature(double value) throws Exception {
+		return new MetricBuilder("Temperature", MetricDataType.Double, value).createMetric();
+	}
+
+	private static Metric status(String value) throws Exception {
+		return new MetricBuilder("Status", MetricDataType.String, value).createMetric();
+	}
+
+	private static List<String> names(SparkplugBPayload payload) {
+		List<String> names = new ArrayList<>();
+		for (Metric metric : payload.getMetrics()) {
+			names.add(metric.getName());
+		}
+		return names;
+	}
+}
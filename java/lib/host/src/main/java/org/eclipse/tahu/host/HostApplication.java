@@ -19,7 +19,9 @@ import java.util.Map;
 
 import org.eclipse.tahu.exception.TahuErrorCode;
 import org.eclipse.tahu.exception.TahuException;
+import org.eclipse.tahu.host.HostExecutorConfig.HostExecutorConfigBuilder;
 import org.eclipse.tahu.host.api.HostApplicationEventHandler;
+import org.eclipse.tahu.host.manager.EdgeNodeManager;
 import org.eclipse.tahu.host.seq.SequenceReorderManager;
 import org.eclipse.tahu.message.PayloadDecoder;
 import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
@@ -51,6 +53,29 @@ public class HostApplication implements CommandPublisher {
 	public HostApplication(HostApplicationEventHandler eventHandler, String hostId, List<String> sparkplugSubscriptons,
 			List<MqttServerDefinition> mqttServerDefinitions, RandomStartupDelay randomStartupDelay,
 			PayloadDecoder<SparkplugBPayload> payloadDecoder) {
+		this(eventHandler, hostId, sparkplugSubscriptons, mqttServerDefinitions, randomStartupDelay, payloadDecoder,
+				new HostExecutorConfigBuilder().createHostExecutorConfig());
+	}
+
+	/**
+	 * Creates a Host Application with a custom {@link HostExecutorConfig} controlling how many workers handle incoming
+	 * messages, how far they may fall behind and what happens when they do.
+	 */
+	public HostApplication(HostApplicationEventHandler eventHandler, String hostId, List<String> sparkplugSubscriptons,
+			List<MqttServerDefinition> mqttServerDefinitions, RandomStartupDelay randomStartupDelay,
+			PayloadDecoder<SparkplugBPayload> payloadDecoder, HostExecutorConfig executorConfig) {
+		this(eventHandler, hostId, sparkplugSubscriptons, mqttServerDefinitions, randomStartupDelay, payloadDecoder,
+				executorConfig, EdgeNodeManager.getInstance());
+	}
+
+	/**
+	 * Creates a Host Application that tracks Edge Nodes and Devices in its own {@link EdgeNodeManager} rather than the
+	 * shared instance, so several Host Applications in one JVM do not share or contend on that state.
+	 */
+	public HostApplication(HostApplicationEventHandler eventHandler, String hostId, List<String> sparkplugSubscriptons,
+			List<MqttServerDefinition> mqttServerDefinitions, RandomStartupDelay randomStartupDelay,
+			PayloadDecoder<SparkplugBPayload> payloadDecoder, HostExecutorConfig executorConfig,
+			EdgeNodeManager edgeNodeManager) {
 		logger.info("Creating the Host Application");
 
 		if (hostId != null) {
@@ -65,9 +90,9 @@ public class HostApplication implements CommandPublisher {
 		this.randomStartupDelay = randomStartupDelay;
 
 		SequenceReorderManager sequenceReorderManager = SequenceReorderManager.getInstance();
-		sequenceReorderManager.init(eventHandler, this, payloadDecoder, 5000L);
-		this.tahuHostCallback =
-				new TahuHostCallback(eventHandler, this, sequenceReorderManager, payloadDecoder, hostId);
+		sequenceReorderManager.init(eventHandler, this, payloadDecoder, 5000L, edgeNodeManager);
+		this.tahuHostCallback = new TahuHostCallback(eventHandler, this, sequenceReorderManager, payloadDecoder, hostId,
+				executorConfig, edgeNodeManager);
 	}
 
 	public HostApplication(HostApplicationEventHandler eventHandler, String hostId, List<String> sparkplugSubscriptons,
@@ -199,6 +224,17 @@ public class HostApplication implements CommandPublisher {
 		return hostId;
 	}
 
+	/**
+	 * Sets the limit on the rate of rebirth requests this Host Application sends to all Edge Nodes
+	 *
+	 * @param burst the number of rebirth requests that can be sent without delay
+	 * @param ratePerSecond the steady rate of rebirth requests per second
+	 * @see TahuPayloadHandler#setRebirthRequestLimit(int, double)
+	 */
+	public void setRebirthRequestLimit(int burst, double ratePerSecond) {
+		tahuHostCallback.setRebirthRequestLimit(burst, ratePerSecond);
+	}
+
 	@Override
 	public void publishCommand(Topic topic, SparkplugBPayload payload) throws Exception {
 		for (MqttServerName mqttServerName : tahuClients.keySet()) {
@@ -0,0 +1,152 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host;
+
+/**
+ * Configures how the {@link TahuHostCallback} hands incoming Sparkplug B messages off to worker threads. Messages from
+ * the same Edge Node are always handled in order on a single worker.
+ */
+public class HostExecutorConfig {
+
+	public static final int DEFAULT_NUM_OF_PARTITIONS = 100;
+
+	public static final int DEFAULT_QUEUE_CAPACITY = Integer.MAX_VALUE;
+
+	/**
+	 * What to do with an incoming message when the queue of its worker is full
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * Block the MQTT client callback thread until there is space, pushing back on the MQTT Server
+		 */
+		BLOCK,
+
+		/**
+		 * Discard the oldest queued message of the worker to make room for the new one
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Discard the new message and request a rebirth from its Edge Node since its state is now unknown
+		 */
+		REQUEST_REBIRTH;
+	}
+
+	private final int numOfPartitions;
+	private final int queueCapacity;
+	private final OverflowPolicy overflowPolicy;
+	private final boolean useVirtualThreads;
+
+	public HostExecutorConfig(int numOfPartitions, int queueCapacity, OverflowPolicy overflowPolicy,
+			boolean useVirtualThreads) {
+		if (numOfPartitions < 1) {
+			throw new IllegalArgumentException("The number of partitions must be at least 1");
+		}
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("The queue capacity must be at least 1");
+		}
+		this.numOfPartitions = numOfPartitions;
+		this.queueCapacity = queueCapacity;
+		this.overflowPolicy = overflowPolicy != null ? overflowPolicy : OverflowPolicy.BLOCK;
+		this.useVirtualThreads = useVirtualThreads;
+	}
+
+	/**
+	 * Returns the number of single threaded workers Edge Nodes are hashed across when not using virtual threads
+	 *
+	 * @return the number of partitions
+	 */
+	public int getNumOfPartitions() {
+		return numOfPartitions;
+	}
+
+	/**
+	 * Returns the maximum number of messages queued per worker
+	 *
+	 * @return the queue capacity
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Returns whether each Edge Node gets its own ordered mailbox drained by a virtual thread. Requires Java 21 or
+	 * later, otherwise the partitioned platform thread workers are used.
+	 *
+	 * @return true if virtual threads should be used
+	 */
+	public boolean isUseVirtualThreads() {
+		return useVirtualThreads;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("HostExecutorConfig [numOfPartitions=");
+		builder.append(numOfPartitions);
+		builder.append(", queueCapacity=");
+		builder.append(queueCapacity);
+		builder.append(", overflowPolicy=");
+		builder.append(overflowPolicy);
+		builder.append(", useVirtualThreads=");
+		builder.append(useVirtualThreads);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * A builder for creating a {@link HostExecutorConfig} instance. Unset values keep the historical behavior of 100
+	 * partitions with unbounded queues.
+	 */
+	public static class HostExecutorConfigBuilder {
+
+		private int numOfPartitions = DEFAULT_NUM_OF_PARTITIONS;
+		private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+		private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+		private boolean useVirtualThreads = false;
+
+		public HostExecutorConfigBuilder() {
+			super();
+		}
+
+		public HostExecutorConfigBuilder numOfPartitions(int numOfPartitions) {
+			this.numOfPartitions = numOfPartitions;
+			return this;
+		}
+
+		public HostExecutorConfigBuilder queueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+			return this;
+		}
+
+		public HostExecutorConfigBuilder overflowPolicy(OverflowPolicy overflowPolicy) {
+			this.overflowPolicy = overflowPolicy;
+			return this;
+		}
+
+		public HostExecutorConfigBuilder useVirtualThreads(boolean useVirtualThreads) {
+			this.useVirtualThreads = useVirtualThreads;
+			return this;
+		}
+
+		public HostExecutorConfig createHostExecutorConfig() {
+			return new HostExecutorConfig(numOfPartitions, queueCapacity, overflowPolicy, useVirtualThreads);
+		}
+	}
+}
@@ -16,15 +16,29 @@ package org.eclipse.tahu.host;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.tahu.host.HostExecutorConfig.HostExecutorConfigBuilder;
 import org.eclipse.tahu.host.api.HostApplicationEventHandler;
+import org.eclipse.tahu.host.manager.DescriptorRegistry;
+import org.eclipse.tahu.host.manager.EdgeNodeManager;
+import org.eclipse.tahu.host.metrics.HostMetrics;
 import org.eclipse.tahu.host.seq.SequenceReorderManager;
+import org.eclipse.tahu.json.JsonCodec;
 import org.eclipse.tahu.message.PayloadDecoder;
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.eclipse.tahu.message.model.MessageType;
 import org.eclipse.tahu.message.model.SparkplugBPayload;
 import org.eclipse.tahu.message.model.SparkplugMeta;
 import org.eclipse.tahu.message.model.StatePayload;
@@ -33,20 +47,38 @@ import org.eclipse.tahu.mqtt.MqttClientId;
 import org.eclipse.tahu.mqtt.MqttServerName;
 import org.eclipse.tahu.mqtt.MqttServerUrl;
 import org.eclipse.tahu.mqtt.TahuClient;
+import org.eclipse.tahu.util.SharedScheduler;
 import org.eclipse.tahu.util.TopicUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 public class TahuHostCallback implements ClientCallback {
 
 	private static Logger logger = LoggerFactory.getLogger(TahuHostCallback.class.getName());
 
-	private static final int DEFAULT_NUM_OF_THREADS = 100;
+	private static final String QUEUE_DEPTH_GAUGE = "executor.%s.queueDepth";
+
+	// How long a per Edge Node mailbox may sit idle before it is removed
+	private static final long MAILBOX_IDLE_TIMEOUT_MILLIS = 60000;
+
+	// How many times a full queue drops its oldest message to make room with the DROP_OLDEST OverflowPolicy
+	private static final int MAX_DROP_OLDEST_ATTEMPTS = 3;
 
+	private final HostExecutorConfig executorConfig;
+
+	// The partitioned platform thread workers - null when using per Edge Node virtual thread mailboxes
 	private final ThreadPoolExecutor[] sparkplugBExecutors;
 
+	// The per Edge Node mailboxes when using virtual threads - removed after an NDEATH or when idle
+	private final Map<EdgeNodeDescriptor, Mailbox> edgeNodeMailboxes = new ConcurrentHashMap<>();
+
+	// The ThreadFactory of the per Edge Node mailboxes - null when using partitioned platform thread workers
+	private final ThreadFactory mailboxThreadFactory;
+
+	private final ScheduledFuture<?> mailboxSweeper;
+
+	private volatile boolean shutdown;
+
 	private Map<MqttServerName, TahuClient> tahuClients;
 
 	private final boolean enableSequenceReordering;
@@ -59,48 +91,175 @@ public class TahuHostCallback implements ClientCallback {
 
 	private final PayloadDecoder<SparkplugBPayload> payloadDecoder;
 
+	private final TahuPayloadHandler payloadHandler;
+
+	private final DescriptorRegistry descriptorRegistry;
+
 	private final String hostId;
 
+	// The Host ID that the gauges are published under - made up if this Host Application has none
+	private final String metricsHostId;
+
 	public TahuHostCallback(HostApplicationEventHandler eventHandler, CommandPublisher commandPublisher,
 			SequenceReorderManager sequenceReorderManager, PayloadDecoder<SparkplugBPayload> payloadDecoder,
 			String hostId) {
+		this(eventHandler, commandPublisher, sequenceReorderManager, payloadDecoder, hostId,
+				new HostExecutorConfigBuilder().createHostExecutorConfig());
+	}
+
+	public TahuHostCallback(HostApplicationEventHandler eventHandler, CommandPublisher commandPublisher,
+			SequenceReorderManager sequenceReorderManager, PayloadDecoder<SparkplugBPayload> payloadDecoder,
+			String hostId, HostExecutorConfig executorConfig) {
+		this(eventHandler, commandPublisher, sequenceReorderManager, payloadDecoder, hostId, executorConfig,
+				EdgeNodeManager.getInstance());
+	}
+
+	/**
+	 * Creates a callback that tracks Edge Nodes and Devices in the supplied {@link EdgeNodeManager} rather than the
+	 * shared instance
+	 */
+	public TahuHostCallback(HostApplicationEventHandler eventHandler, CommandPublisher commandPublisher,
+			SequenceReorderManager sequenceReorderManager, PayloadDecoder<SparkplugBPayload> payloadDecoder,
+			String hostId, HostExecutorConfig executorConfig, EdgeNodeManager edgeNodeManager) {
+		this(eventHandler, commandPublisher, sequenceReorderManager, payloadDecoder, hostId, executorConfig,
+				edgeNodeManager, executorConfig.isUseVirtualThreads() ? createVirtualThreadFactory() : null);
+	}
+
+	/*
+	 * Creates a callback that runs a mailbox per Edge Node on the threads of the supplied ThreadFactory, or partitioned
+	 * workers if it is null
+	 */
+	TahuHostCallback(HostApplicationEventHandler eventHandler, CommandPublisher commandPublisher,
+			SequenceReorderManager sequenceReorderManager, PayloadDecoder<SparkplugBPayload> payloadDecoder,
+			String hostId, HostExecutorConfig executorConfig, EdgeNodeManager edgeNodeManager,
+			ThreadFactory mailboxThreadFactory) {
 		this.eventHandler = eventHandler;
 		this.commandPublisher = commandPublisher;
+		this.hostId = hostId;
+		this.metricsHostId = hostId != null && !hostId.trim().isEmpty() ? hostId
+				: UUID.randomUUID().toString().substring(0, 8);
+		this.payloadDecoder = payloadDecoder;
+		this.payloadHandler = new TahuPayloadHandler(eventHandler, commandPublisher, payloadDecoder, edgeNodeManager);
+		this.descriptorRegistry = edgeNodeManager.getDescriptorRegistry();
 		if (sequenceReorderManager != null) {
 			this.enableSequenceReordering = true;
 			this.sequenceReorderManager = sequenceReorderManager;
+			this.sequenceReorderManager.setPayloadHandler(payloadHandler);
+			this.sequenceReorderManager.setHostId(metricsHostId);
 			this.sequenceReorderManager.start();
 		} else {
 			this.enableSequenceReordering = false;
 			this.sequenceReorderManager = null;
 		}
-		this.payloadDecoder = payloadDecoder;
-		this.hostId = hostId;
+		this.executorConfig = executorConfig;
+		logger.info("Using {}", executorConfig);
 
-		this.sparkplugBExecutors = new ThreadPoolExecutor[DEFAULT_NUM_OF_THREADS];
-		for (int i = 0; i < DEFAULT_NUM_OF_THREADS; i++) {
-			final String uuid = UUID.randomUUID().toString().substring(0, 8);
-			this.sparkplugBExecutors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
-					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
-						@Override
-						public Thread newThread(Runnable r) {
-							final String threadName = String.format("%s-%s", "TahuHostCallback-", uuid);
-							return new Thread(r, threadName);
-						}
-					});
+		if (executorConfig.isUseVirtualThreads() && mailboxThreadFactory == null) {
+			logger.warn("Virtual threads are not available on this JVM - using {} partitioned workers",
+					executorConfig.getNumOfPartitions());
+		}
+		this.mailboxThreadFactory = mailboxThreadFactory;
+
+		if (mailboxThreadFactory == null) {
+			this.sparkplugBExecutors = new ThreadPoolExecutor[executorConfig.getNumOfPartitions()];
+			for (int i = 0; i < sparkplugBExecutors.length; i++) {
+				final String uuid = UUID.randomUUID().toString().substring(0, 8);
+				this.sparkplugBExecutors[i] = createExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						final String threadName = String.format("%s-%s", "TahuHostCallback-", uuid);
+						return new Thread(r, threadName);
+					}
+				});
+			}
+			this.mailboxSweeper = null;
+		} else {
+			this.sparkplugBExecutors = null;
+			this.mailboxSweeper = SharedScheduler.scheduleWithFixedDelay(
+					() -> removeIdleMailboxes(MAILBOX_IDLE_TIMEOUT_MILLIS), MAILBOX_IDLE_TIMEOUT_MILLIS,
+					MAILBOX_IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
 		}
+		registerQueueDepthGauges();
+	}
+
+	/*
+	 * Publishes the queue depth of each partitioned worker, or the total and deepest of the per Edge Node mailboxes
+	 */
+	private void registerQueueDepthGauges() {
+		HostMetrics hostMetrics = HostMetrics.getInstance();
+		if (sparkplugBExecutors != null) {
+			for (int i = 0; i < sparkplugBExecutors.length; i++) {
+				ThreadPoolExecutor executor = sparkplugBExecutors[i];
+				hostMetrics.registerGauge(getQueueDepthGaugeName(i), () -> executor.getQueue().size());
+			}
+		} else {
+			hostMetrics.registerGauge(getQueueDepthGaugeName("total"), () -> {
+				long total = 0;
+				for (Mailbox mailbox : edgeNodeMailboxes.values()) {
+					total += mailbox.executor.getQueue().size();
+				}
+				return total;
+			});
+			hostMetrics.registerGauge(getQueueDepthGaugeName("max"), () -> {
+				long max = 0;
+				for (Mailbox mailbox : edgeNodeMailboxes.values()) {
+					max = Math.max(max, mailbox.executor.getQueue().size());
+				}
+				return max;
+			});
+		}
+	}
+
+	private void unregisterQueueDepthGauges() {
+		HostMetrics hostMetrics = HostMetrics.getInstance();
+		if (sparkplugBExecutors != null) {
+			for (int i = 0; i < sparkplugBExecutors.length; i++) {
+				hostMetrics.unregisterGauge(getQueueDepthGaugeName(i));
+			}
+		} else {
+			hostMetrics.unregisterGauge(getQueueDepthGaugeName("total"));
+			hostMetrics.unregisterGauge(getQueueDepthGaugeName("max"));
+		}
+	}
+
+	private String getQueueDepthGaugeName(Object executor) {
+		return HostMetrics.getGaugeName(metricsHostId, String.format(QUEUE_DEPTH_GAUGE, executor));
+	}
+
+	/**
+	 * Sets the limit on the rate of rebirth requests sent to all Edge Nodes by this callback
+	 *
+	 * @param burst the number of rebirth requests that can be sent without delay
+	 * @param ratePerSecond the steady rate of rebirth requests per second
+	 * @see TahuPayloadHandler#setRebirthRequestLimit(int, double)
+	 */
+	public void setRebirthRequestLimit(int burst, double ratePerSecond) {
+		payloadHandler.setRebirthRequestLimit(burst, ratePerSecond);
 	}
 
 	@Override
 	public void shutdown() {
 		logger.info("Shutting down TahuHostCallback");
-		for (int i = 0; i < DEFAULT_NUM_OF_THREADS; i++) {
-			try {
-				sparkplugBExecutors[i].shutdownNow();
-			} catch (Exception e) {
-				logger.error("Failed to shutdown executor", e);
+		shutdown = true;
+		if (sparkplugBExecutors != null) {
+			for (ThreadPoolExecutor executor : sparkplugBExecutors) {
+				shutdownExecutor(executor);
 			}
 		}
+		if (mailboxSweeper != null) {
+			mailboxSweeper.cancel(false);
+		}
+		edgeNodeMailboxes.values().forEach(mailbox -> shutdownExecutor(mailbox.executor));
+		edgeNodeMailboxes.clear();
+		unregisterQueueDepthGauges();
+	}
+
+	private void shutdownExecutor(ThreadPoolExecutor executor) {
+		try {
+			executor.shutdownNow();
+		} catch (Exception e) {
+			logger.error("Failed to shutdown executor", e);
+		}
 	}
 
 	public void setMqttClients(Map<MqttServerName, TahuClient> tahuClients) {
@@ -139,8 +298,7 @@ public class TahuHostCallback implements ClientCallback {
 			if (topic.startsWith(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX)) {
 				if (splitTopic.length == 3 && splitTopic[1].equals("STATE")) {
 					// This is a STATE message - handle as needed
-					ObjectMapper mapper = new ObjectMapper();
-					StatePayload statePayload = mapper.readValue(new String(message.getPayload()), StatePayload.class);
+					StatePayload statePayload = JsonCodec.fromStateBytes(message.getPayload());
 					if (hostId != null && !hostId.trim().isEmpty() && splitTopic[2].equals(hostId)
 							&& !statePayload.isOnline()) {
 						// Make sure this isn't an OFFLINE message
@@ -151,30 +309,28 @@ public class TahuHostCallback implements ClientCallback {
 					}
 				} else {
 					// Get the proper executor
-					String key = splitTopic[1] + "/" + splitTopic[3];
-					int index = getThreadPoolExecutorIndex(key, DEFAULT_NUM_OF_THREADS);
-					logger.debug("Adding Sparkplug B message to ThreadPoolExecutor {} :: {}", index,
-							sparkplugBExecutors[index].getQueue().size());
-					ThreadPoolExecutor executor = sparkplugBExecutors[index];
+					Executor executor = getExecutor(server, clientId,
+							descriptorRegistry.getEdgeNodeDescriptor(splitTopic[1], splitTopic[3]),
+							MessageType.NDEATH.name().equals(splitTopic[2]));
 
 					if (enableSequenceReordering) {
 						// Sequence reordering is required
 						logger.trace("Sending the message on {} to the SequenceReorderManager", topic);
-						sequenceReorderManager.handlePayload(this, executor, topic, splitTopic, message, server,
-								clientId, arrivedTime);
+						sequenceReorderManager.handlePayload(this, executor, topic, message, server, clientId,
+								arrivedTime);
 					} else {
 						executor.execute(() -> {
 							try {
 								// No sequence reordering required - just push the message through and handle the
 								// Sparkplug B Payload
 								logger.trace("Sending the message on {} directly to the TahuPayloadHandler", topic);
-								new TahuPayloadHandler(eventHandler, commandPublisher, payloadDecoder)
-										.handlePayload(topic, splitTopic, message, server, clientId);
+								payloadHandler.handlePayload(topic, splitTopic, message, server, clientId);
 							} catch (Throwable t) {
 								logger.error("Failed to handle Sparkplug B message on topic {}", topic, t);
 							} finally {
 								// Update the message latency
 								long latency = System.nanoTime() - arrivedTime;
+								HostMetrics.getInstance().onMessageHandled(latency);
 								if (logger.isTraceEnabled()) {
 									logger.trace("Updating message processing latency {}", latency);
 								}
@@ -191,10 +347,237 @@ public class TahuHostCallback implements ClientCallback {
 	}
 
 	/*
-	 * Returns and index for the supplied key and number of ThreadPoolExecutors.
+	 * Returns the Executor that preserves the order of messages from the supplied Edge Node and applies the configured
+	 * OverflowPolicy when its worker falls behind. When the Executor is for an NDEATH the Edge Node mailbox is removed
+	 * once it has drained.
 	 */
-	private int getThreadPoolExecutorIndex(String key, int numOfThreadPoolExecutors) {
-		return Math.abs(key.hashCode() % numOfThreadPoolExecutors);
+	Executor getExecutor(MqttServerName server, MqttClientId clientId, EdgeNodeDescriptor edgeNodeDescriptor,
+			boolean nodeDeath) {
+		if (sparkplugBExecutors == null) {
+			return task -> executeInMailbox(server, clientId, edgeNodeDescriptor, task, nodeDeath);
+		}
+		int index = getThreadPoolExecutorIndex(edgeNodeDescriptor, sparkplugBExecutors.length);
+		ThreadPoolExecutor executor = sparkplugBExecutors[index];
+		logger.debug("Adding Sparkplug B message to ThreadPoolExecutor {} :: {}", index, executor.getQueue().size());
+		return task -> {
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				handleRejected(server, clientId, edgeNodeDescriptor);
+			}
+		};
+	}
+
+	/*
+	 * Queues a task in the mailbox of an Edge Node. The mailbox lock is held while queueing so a mailbox is never
+	 * removed with a task still to run, which would let the next mailbox run the Edge Node's messages out of order.
+	 */
+	private void executeInMailbox(MqttServerName server, MqttClientId clientId, EdgeNodeDescriptor edgeNodeDescriptor,
+			Runnable task, boolean removeWhenDrained) {
+		while (true) {
+			Mailbox mailbox = edgeNodeMailboxes.computeIfAbsent(edgeNodeDescriptor, k -> new Mailbox());
+			mailbox.lock.lock();
+			try {
+				if (mailbox.removed) {
+					// Removed since it was looked up - get a new one
+					continue;
+				}
+				mailbox.pending.incrementAndGet();
+				mailbox.lastUsedNanos = System.nanoTime();
+				try {
+					mailbox.executor.execute(new MailboxTask(edgeNodeDescriptor, mailbox, task, removeWhenDrained));
+				} catch (RejectedExecutionException e) {
+					mailbox.pending.decrementAndGet();
+					handleRejected(server, clientId, edgeNodeDescriptor);
+				}
+			} finally {
+				mailbox.lock.unlock();
+			}
+			if (removeWhenDrained) {
+				// The task may have finished while the lock was held and so failed to remove the mailbox itself
+				removeIfDrained(edgeNodeDescriptor, mailbox);
+			}
+			return;
+		}
+	}
+
+	private void handleRejected(MqttServerName server, MqttClientId clientId, EdgeNodeDescriptor edgeNodeDescriptor) {
+		if (shutdown) {
+			logger.debug("Not handling message from {} - TahuHostCallback is shut down", edgeNodeDescriptor);
+		} else {
+			logger.warn("Message queue for {} is full - dropping the message and requesting a rebirth",
+					edgeNodeDescriptor);
+			payloadHandler.requestRebirth(server, clientId, edgeNodeDescriptor);
+		}
+	}
+
+	/*
+	 * Removes and shuts down a mailbox if it has no queued or running tasks. Queueing holds the mailbox lock, and may
+	 * block on a full queue with the BLOCK OverflowPolicy, so the lock is only tried to never stall the worker.
+	 */
+	private void removeIfDrained(EdgeNodeDescriptor edgeNodeDescriptor, Mailbox mailbox) {
+		if (mailbox.pending.get() != 0 || !mailbox.lock.tryLock()) {
+			return;
+		}
+		try {
+			if (mailbox.pending.get() == 0 && !mailbox.removed) {
+				logger.debug("Removing the mailbox for {}", edgeNodeDescriptor);
+				mailbox.removed = true;
+				edgeNodeMailboxes.remove(edgeNodeDescriptor, mailbox);
+				mailbox.executor.shutdown();
+			}
+		} finally {
+			mailbox.lock.unlock();
+		}
+	}
+
+	/*
+	 * Returns the number of Edge Node mailboxes
+	 */
+	int getMailboxCount() {
+		return edgeNodeMailboxes.size();
+	}
+
+	/*
+	 * Removes the mailboxes of Edge Nodes that have not sent a message within the idle timeout, such as those that
+	 * went away without an NDEATH
+	 */
+	void removeIdleMailboxes(long idleTimeoutMillis) {
+		long now = System.nanoTime();
+		for (Entry<EdgeNodeDescriptor, Mailbox> entry : edgeNodeMailboxes.entrySet()) {
+			if (now - entry.getValue().lastUsedNanos >= TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis)) {
+				removeIfDrained(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/*
+	 * Returns and index for the supplied Edge Node and number of ThreadPoolExecutors. The index only depends on the
+	 * Group and Edge Node IDs, not the registry ID which changes when an Edge Node dies and is born again, so all of an
+	 * Edge Node's messages are handled by the same worker and stay in order.
+	 */
+	private int getThreadPoolExecutorIndex(EdgeNodeDescriptor edgeNodeDescriptor, int numOfThreadPoolExecutors) {
+		int hash = edgeNodeDescriptor.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), numOfThreadPoolExecutors);
+	}
+
+	/*
+	 * Creates a single threaded worker with a queue bounded by the configured capacity
+	 */
+	private ThreadPoolExecutor createExecutor(ThreadFactory threadFactory) {
+		RejectedExecutionHandler rejectedExecutionHandler;
+		switch (executorConfig.getOverflowPolicy()) {
+			case DROP_OLDEST:
+				// Other threads may refill the queue, so only a few of the oldest messages are dropped before giving up
+				// and letting the Executor from getExecutor request a rebirth
+				rejectedExecutionHandler = (r, executor) -> {
+					for (int attempt = 0; attempt < MAX_DROP_OLDEST_ATTEMPTS; attempt++) {
+						if (executor.isShutdown()) {
+							throw new RejectedExecutionException("Executor is shut down");
+						}
+						logger.warn("Message queue is full - dropping the oldest queued message");
+						Runnable oldest = executor.getQueue().poll();
+						if (oldest instanceof MailboxTask) {
+							((MailboxTask) oldest).discard();
+						}
+						if (executor.getQueue().offer(r)) {
+							return;
+						}
+					}
+					throw new RejectedExecutionException("Message queue is still full after dropping "
+							+ MAX_DROP_OLDEST_ATTEMPTS + " messages");
+				};
+				break;
+			case REQUEST_REBIRTH:
+				// The rebirth is requested by the Executor returned from getExecutor
+				rejectedExecutionHandler = new ThreadPoolExecutor.AbortPolicy();
+				break;
+			case BLOCK:
+			default:
+				rejectedExecutionHandler = (r, executor) -> {
+					if (executor.isShutdown()) {
+						throw new RejectedExecutionException("Executor is shut down");
+					}
+					try {
+						executor.getQueue().put(r);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new RejectedExecutionException(e);
+					}
+				};
+		}
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(executorConfig.getQueueCapacity()), threadFactory,
+				rejectedExecutionHandler);
+		if (threadFactory == mailboxThreadFactory) {
+			// Let idle Edge Node mailboxes release their thread
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	/*
+	 * Returns a ThreadFactory creating virtual threads or null if the JVM does not support them. Reflection is used
+	 * since the library targets Java 8.
+	 */
+	private static ThreadFactory createVirtualThreadFactory() {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "TahuHostCallback-", 0L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (Exception e) {
+			logger.debug("Virtual threads are not available", e);
+			return null;
+		}
+	}
+
+	/*
+	 * The single threaded worker of an Edge Node when using virtual threads
+	 */
+	private final class Mailbox {
+		private final ThreadPoolExecutor executor = createExecutor(mailboxThreadFactory);
+		private final ReentrantLock lock = new ReentrantLock();
+		// Tasks queued or running - only incremented while holding the lock
+		private final AtomicInteger pending = new AtomicInteger();
+		private volatile long lastUsedNanos = System.nanoTime();
+		// Guarded by the lock
+		private boolean removed;
+	}
+
+	/*
+	 * A task queued in a Mailbox that keeps its pending count
+	 */
+	private final class MailboxTask implements Runnable {
+		private final EdgeNodeDescriptor edgeNodeDescriptor;
+		private final Mailbox mailbox;
+		private final Runnable task;
+		private final boolean removeWhenDrained;
+
+		private MailboxTask(EdgeNodeDescriptor edgeNodeDescriptor, Mailbox mailbox, Runnable task,
+				boolean removeWhenDrained) {
+			this.edgeNodeDescriptor = edgeNodeDescriptor;
+			this.mailbox = mailbox;
+			this.task = task;
+			this.removeWhenDrained = removeWhenDrained;
+		}
+
+		@Override
+		public void run() {
+			try {
+				task.run();
+			} finally {
+				discard();
+			}
+		}
+
+		private void discard() {
+			mailbox.pending.decrementAndGet();
+			if (removeWhenDrained) {
+				removeIfDrained(edgeNodeDescriptor, mailbox);
+			}
+		}
 	}
 
 	@Override
@@ -14,27 +14,34 @@
 package org.eclipse.tahu.host;
 
 import java.util.Date;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.tahu.exception.TahuErrorCode;
 import org.eclipse.tahu.exception.TahuException;
+import org.eclipse.tahu.host.api.BatchHostApplicationEventHandler;
 import org.eclipse.tahu.host.api.HostApplicationEventHandler;
+import org.eclipse.tahu.host.api.MetricBatch;
+import org.eclipse.tahu.host.api.VisitingHostApplicationEventHandler;
 import org.eclipse.tahu.host.manager.EdgeNodeManager;
 import org.eclipse.tahu.host.manager.MetricManager;
 import org.eclipse.tahu.host.manager.SparkplugDevice;
 import org.eclipse.tahu.host.manager.SparkplugEdgeNode;
+import org.eclipse.tahu.host.metrics.HostMetrics;
 import org.eclipse.tahu.host.model.HostApplicationMetricMap;
 import org.eclipse.tahu.host.model.HostMetric;
 import org.eclipse.tahu.host.model.MessageContext;
 import org.eclipse.tahu.message.PayloadDecoder;
+import org.eclipse.tahu.message.PayloadHeader;
+import org.eclipse.tahu.message.PayloadVisitor;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadDecoder;
 import org.eclipse.tahu.message.model.DeviceDescriptor;
 import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.eclipse.tahu.message.model.Message;
+import org.eclipse.tahu.message.model.Message.MessageBuilder;
 import org.eclipse.tahu.message.model.MessageType;
 import org.eclipse.tahu.message.model.Metric;
 import org.eclipse.tahu.message.model.Metric.MetricBuilder;
@@ -45,7 +52,10 @@ import org.eclipse.tahu.message.model.SparkplugDescriptor;
 import org.eclipse.tahu.message.model.Topic;
 import org.eclipse.tahu.mqtt.MqttClientId;
 import org.eclipse.tahu.mqtt.MqttServerName;
+import org.eclipse.tahu.util.SharedScheduler;
 import org.eclipse.tahu.util.SparkplugUtil;
+import org.eclipse.tahu.util.TokenBucket;
+import org.eclipse.tahu.util.TopicUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,19 +63,52 @@ public class TahuPayloadHandler {
 
 	private static Logger logger = LoggerFactory.getLogger(TahuPayloadHandler.class.getName());
 
-	private static Map<EdgeNodeDescriptor, Timer> rebirthTimers = new ConcurrentHashMap<>();
+	private static final long REBIRTH_DEBOUNCE_MILLIS = 5000;
+
+	private static final SparkplugBStreamingPayloadDecoder VISITING_DECODER = new SparkplugBStreamingPayloadDecoder();
+
+	public static final int DEFAULT_REBIRTH_BURST = 100;
+
+	public static final double DEFAULT_REBIRTH_RATE = 20;
+
+	// Edge Nodes with a rebirth request in the last REBIRTH_DEBOUNCE_MILLIS mapped to the token of that request
+	private final Map<EdgeNodeDescriptor, Object> rebirthDelays = new ConcurrentHashMap<>();
+
+	// Limits the rate of rebirth NCMDs across all Edge Nodes handled by this handler
+	private volatile TokenBucket rebirthLimiter = new TokenBucket(DEFAULT_REBIRTH_BURST, DEFAULT_REBIRTH_RATE);
 
 	private final HostApplicationEventHandler eventHandler;
 
+	private final BatchHostApplicationEventHandler batchEventHandler;
+
+	private final VisitingHostApplicationEventHandler visitingEventHandler;
+
 	private final CommandPublisher commandPublisher;
 
 	private final PayloadDecoder<SparkplugBPayload> payloadDecoder;
 
+	private final EdgeNodeManager edgeNodeManager;
+
 	public TahuPayloadHandler(HostApplicationEventHandler eventHandler, CommandPublisher commandPublisher,
 			PayloadDecoder<SparkplugBPayload> payloadDecoder) {
+		this(eventHandler, commandPublisher, payloadDecoder, EdgeNodeManager.getInstance());
+	}
+
+	/**
+	 * Creates a payload handler that tracks Edge Nodes and Devices in the supplied {@link EdgeNodeManager}
+	 */
+	public TahuPayloadHandler(HostApplicationEventHandler eventHandler, CommandPublisher commandPublisher,
+			PayloadDecoder<SparkplugBPayload> payloadDecoder, EdgeNodeManager edgeNodeManager) {
 		this.eventHandler = eventHandler;
+		this.batchEventHandler = eventHandler instanceof BatchHostApplicationEventHandler
+				? (BatchHostApplicationEventHandler) eventHandler
+				: null;
+		this.visitingEventHandler = eventHandler instanceof VisitingHostApplicationEventHandler
+				? (VisitingHostApplicationEventHandler) eventHandler
+				: null;
 		this.commandPublisher = commandPublisher;
 		this.payloadDecoder = payloadDecoder;
+		this.edgeNodeManager = edgeNodeManager;
 	}
 
 	public void handlePayload(String topicString, String[] splitTopic, MqttMessage message,
@@ -74,11 +117,8 @@ public class TahuPayloadHandler {
 
 		Topic topic = null;
 		try {
-			if (splitTopic.length == 4) {
-				topic = new Topic(splitTopic[0], splitTopic[1], splitTopic[3], MessageType.valueOf(splitTopic[2]));
-			} else if (splitTopic.length == 5) {
-				topic = new Topic(splitTopic[0], splitTopic[1], splitTopic[3], splitTopic[4],
-						MessageType.valueOf(splitTopic[2]));
+			if (splitTopic.length == 4 || splitTopic.length == 5) {
+				topic = TopicUtil.parseTopic(topicString);
 			} else {
 				logger.error("Failed to handle the topic '{}'", topicString);
 				return;
@@ -87,14 +127,49 @@ public class TahuPayloadHandler {
 			logger.error("Error parsing topic", e);
 			return;
 		}
+		handlePayload(topicString, topic, message, mqttServerName, hostAppMqttClientId);
+	}
+
+	/**
+	 * Handles a payload whose {@link Topic} has already been parsed, e.g. by the
+	 * {@link org.eclipse.tahu.host.seq.SequenceReorderManager}
+	 *
+	 * @param topicString the topic the message arrived on
+	 * @param topic the parsed {@link Topic}
+	 * @param message the {@link MqttMessage} that arrived
+	 * @param mqttServerName the {@link MqttServerName} the message arrived from
+	 * @param hostAppMqttClientId the {@link MqttClientId} of the Host Application
+	 */
+	public void handlePayload(String topicString, Topic topic, MqttMessage message, MqttServerName mqttServerName,
+			MqttClientId hostAppMqttClientId) {
 		MessageType type = topic.getType();
 
+		if (visitingEventHandler != null && (type == MessageType.NDATA || type == MessageType.DDATA)) {
+			PayloadVisitor visitor = visitingEventHandler.getDataVisitor(topic.getSparkplugDescriptor());
+			if (visitor != null) {
+				try {
+					visitData(topic, message, mqttServerName, hostAppMqttClientId, visitor);
+				} catch (Exception e) {
+					logger.error("Failed to handle payload on topic: {}", topic, e);
+				}
+				return;
+			}
+		}
+
 		SparkplugBPayload payload = null;
 		try {
 			// Parse the payload
+			long decodeStart = System.nanoTime();
 			payload = payloadDecoder.buildFromByteArray(message.getPayload(), HostApplicationMetricMap.getInstance()
 					.getMetricDataTypeMap(topic.getEdgeNodeDescriptor(), topic.getSparkplugDescriptor()));
+			long decodeNanos = System.nanoTime() - decodeStart;
 			logger.trace("On topic={}: Incoming payload: {}", topic, payload);
+
+			if (!type.isCommand()) {
+				HostMetrics.getInstance().onMessage(topic.getEdgeNodeDescriptor(), type,
+						payload != null && payload.getMetrics() != null ? payload.getMetrics().size() : 0,
+						decodeNanos);
+			}
 		} catch (Exception e) {
 			logger.error("Failed to decode the payload", e);
 			return;
@@ -166,18 +241,26 @@ public class TahuPayloadHandler {
 				messageContext.getTopic().getEdgeNodeDescriptor(), messageContext.getSeqNum());
 		EdgeNodeDescriptor edgeNodeDescriptor = messageContext.getTopic().getEdgeNodeDescriptor();
 		SparkplugEdgeNode sparkplugEdgeNode =
-				EdgeNodeManager.getInstance().getSparkplugEdgeNode(messageContext.getTopic().getEdgeNodeDescriptor());
+				edgeNodeManager.getSparkplugEdgeNode(messageContext.getTopic().getEdgeNodeDescriptor());
 		if (sparkplugEdgeNode == null) {
-			sparkplugEdgeNode = EdgeNodeManager.getInstance().addSparkplugEdgeNode(edgeNodeDescriptor,
+			sparkplugEdgeNode = edgeNodeManager.addSparkplugEdgeNode(edgeNodeDescriptor,
 					messageContext.getMqttServerName(), messageContext.getHostAppMqttClientId());
 		} else {
 			// Reset the metrics
 			sparkplugEdgeNode.clearMetrics();
 		}
 
-		// Reset the alias map
-		HostApplicationMetricMap hostApplicationMetricMap = HostApplicationMetricMap.getInstance();
-		hostApplicationMetricMap.clear(sparkplugEdgeNode.getEdgeNodeDescriptor());
+		// Replace the alias map of the Edge Node and its Devices
+		try {
+			HostApplicationMetricMap.getInstance().registerNodeBirth(edgeNodeDescriptor,
+					messageContext.getPayload().getMetrics());
+		} catch (TahuException e) {
+			logger.error(e.getMessage());
+			requestRebirth(messageContext.getMqttServerName(), messageContext.getHostAppMqttClientId(),
+					messageContext.getTopic().getEdgeNodeDescriptor());
+			throw e;
+		}
+		edgeNodeManager.getDescriptorRegistry().registerEdgeNode(edgeNodeDescriptor);
 
 		// Set online
 		sparkplugEdgeNode.setOnline(true, messageContext.getPayload().getTimestamp(),
@@ -186,27 +269,15 @@ public class TahuPayloadHandler {
 		eventHandler.onNodeBirthArrived(edgeNodeDescriptor, messageContext.getMessage());
 		eventHandler.onMessage(edgeNodeDescriptor, messageContext.getMessage());
 		for (Metric metric : messageContext.getPayload().getMetrics()) {
-			if (metric.hasAlias()) {
-				// Make sure the alias doesn't already exist
-				if (hostApplicationMetricMap.aliasExists(edgeNodeDescriptor,
-						messageContext.getTopic().getSparkplugDescriptor(), metric.getAlias())) {
-					String errorMessage = "Not adding duplicated alias for edgeNode=" + edgeNodeDescriptor + " - alias="
-							+ metric.getAlias() + " and metric name=" + metric.getName() + " - with existing alias for "
-							+ hostApplicationMetricMap.getMetricName(edgeNodeDescriptor,
-									messageContext.getTopic().getSparkplugDescriptor(), metric.getAlias());
-					logger.error(errorMessage);
-
-					requestRebirth(messageContext.getMqttServerName(), messageContext.getHostAppMqttClientId(),
-							messageContext.getTopic().getEdgeNodeDescriptor());
-					throw new TahuException(TahuErrorCode.INVALID_ARGUMENT, errorMessage);
-				}
-			}
-
-			hostApplicationMetricMap.addMetric(edgeNodeDescriptor, edgeNodeDescriptor, metric.getName(), metric);
-
 			// Update the cache and notify
 			sparkplugEdgeNode.putMetric(metric.getName(), new HostMetric(metric, false));
-			eventHandler.onBirthMetric(edgeNodeDescriptor, metric);
+			if (batchEventHandler == null) {
+				eventHandler.onBirthMetric(edgeNodeDescriptor, metric);
+			}
+		}
+		if (batchEventHandler != null) {
+			batchEventHandler.onBirthMetrics(edgeNodeDescriptor,
+					MetricBatch.of(messageContext.getPayload().getMetrics()));
 		}
 		eventHandler.onNodeBirthComplete(edgeNodeDescriptor);
 	}
@@ -216,11 +287,10 @@ public class TahuPayloadHandler {
 				messageContext.getTopic().getSparkplugDescriptor(), messageContext.getSeqNum());
 		EdgeNodeDescriptor edgeNodeDescriptor = messageContext.getTopic().getEdgeNodeDescriptor();
 		DeviceDescriptor deviceDescriptor = (DeviceDescriptor) messageContext.getTopic().getSparkplugDescriptor();
-		SparkplugEdgeNode sparkplugEdgeNode = EdgeNodeManager.getInstance().getSparkplugEdgeNode(edgeNodeDescriptor);
-		SparkplugDevice sparkplugDevice =
-				EdgeNodeManager.getInstance().getSparkplugDevice(edgeNodeDescriptor, deviceDescriptor);
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNodeManager.getSparkplugEdgeNode(edgeNodeDescriptor);
+		SparkplugDevice sparkplugDevice = edgeNodeManager.getSparkplugDevice(edgeNodeDescriptor, deviceDescriptor);
 		if (sparkplugDevice == null) {
-			sparkplugDevice = EdgeNodeManager.getInstance().addSparkplugDevice(edgeNodeDescriptor, deviceDescriptor,
+			sparkplugDevice = edgeNodeManager.addSparkplugDevice(edgeNodeDescriptor, deviceDescriptor,
 					messageContext.getPayload().getTimestamp());
 		} else {
 			sparkplugDevice.clearMetrics();
@@ -228,32 +298,33 @@ public class TahuPayloadHandler {
 
 		sparkplugEdgeNode.handleSeq(messageContext.getPayload().getSeq());
 
+		// Replace the alias map of the Device
+		try {
+			HostApplicationMetricMap.getInstance().registerDeviceBirth(edgeNodeDescriptor, deviceDescriptor,
+					messageContext.getPayload().getMetrics());
+		} catch (TahuException e) {
+			logger.error(e.getMessage());
+			requestRebirth(messageContext.getMqttServerName(), messageContext.getHostAppMqttClientId(),
+					messageContext.getTopic().getEdgeNodeDescriptor());
+			throw e;
+		}
+		edgeNodeManager.getDescriptorRegistry().registerDevice(deviceDescriptor);
+
 		// Set online
 		sparkplugDevice.setOnline(true, messageContext.getPayload().getTimestamp());
 
 		eventHandler.onDeviceBirthArrived(deviceDescriptor, messageContext.getMessage());
 		eventHandler.onMessage(deviceDescriptor, messageContext.getMessage());
-		HostApplicationMetricMap hostApplicationMetricMap = HostApplicationMetricMap.getInstance();
 		for (Metric metric : messageContext.getPayload().getMetrics()) {
-			if (metric.hasAlias()) {
-				if (hostApplicationMetricMap.aliasExists(edgeNodeDescriptor, deviceDescriptor, metric.getAlias())) {
-					String errorMessage = "Not adding duplicated alias for device=" + deviceDescriptor + " - alias="
-							+ metric.getAlias() + " and metric name=" + metric.getName() + " - with existing alias for "
-							+ hostApplicationMetricMap.getMetricName(edgeNodeDescriptor, deviceDescriptor,
-									metric.getAlias());
-					logger.error(errorMessage);
-
-					requestRebirth(messageContext.getMqttServerName(), messageContext.getHostAppMqttClientId(),
-							messageContext.getTopic().getEdgeNodeDescriptor());
-					throw new TahuException(TahuErrorCode.INVALID_ARGUMENT, errorMessage);
-				}
-			}
-
-			hostApplicationMetricMap.addMetric(edgeNodeDescriptor, deviceDescriptor, metric.getName(), metric);
-
 			// Update the cache and notify
 			sparkplugDevice.putMetric(metric.getName(), new HostMetric(metric, false));
-			eventHandler.onBirthMetric(deviceDescriptor, metric);
+			if (batchEventHandler == null) {
+				eventHandler.onBirthMetric(deviceDescriptor, metric);
+			}
+		}
+		if (batchEventHandler != null) {
+			batchEventHandler.onBirthMetrics(deviceDescriptor,
+					MetricBatch.of(messageContext.getPayload().getMetrics()));
 		}
 		eventHandler.onDeviceBirthComplete(deviceDescriptor);
 	}
@@ -263,7 +334,7 @@ public class TahuPayloadHandler {
 				messageContext.getTopic().getEdgeNodeDescriptor(), messageContext.getSeqNum());
 		EdgeNodeDescriptor edgeNodeDescriptor = messageContext.getTopic().getEdgeNodeDescriptor();
 		SparkplugEdgeNode sparkplugEdgeNode =
-				EdgeNodeManager.getInstance().getSparkplugEdgeNode(messageContext.getTopic().getEdgeNodeDescriptor());
+				edgeNodeManager.getSparkplugEdgeNode(messageContext.getTopic().getEdgeNodeDescriptor());
 		if (sparkplugEdgeNode == null || !sparkplugEdgeNode.isOnline()) {
 			requestRebirth(messageContext.getMqttServerName(), messageContext.getHostAppMqttClientId(),
 					messageContext.getTopic().getEdgeNodeDescriptor());
@@ -283,8 +354,14 @@ public class TahuPayloadHandler {
 			}
 
 			// Update the metric in the cache and notify
-			sparkplugEdgeNode.updateValue(metric.getName(), metric.getValue());
-			eventHandler.onDataMetric(edgeNodeDescriptor, metric);
+			sparkplugEdgeNode.updateValue(metric.getName(), metric);
+			if (batchEventHandler == null) {
+				eventHandler.onDataMetric(edgeNodeDescriptor, metric);
+			}
+		}
+		if (batchEventHandler != null) {
+			batchEventHandler.onDataMetrics(edgeNodeDescriptor,
+					MetricBatch.of(messageContext.getPayload().getMetrics()));
 		}
 		eventHandler.onNodeDataArrived(edgeNodeDescriptor, messageContext.getMessage());
 	}
@@ -294,9 +371,8 @@ public class TahuPayloadHandler {
 				messageContext.getSeqNum());
 		EdgeNodeDescriptor edgeNodeDescriptor = messageContext.getTopic().getEdgeNodeDescriptor();
 		DeviceDescriptor deviceDescriptor = (DeviceDescriptor) messageContext.getTopic().getSparkplugDescriptor();
-		SparkplugEdgeNode sparkplugEdgeNode = EdgeNodeManager.getInstance().getSparkplugEdgeNode(edgeNodeDescriptor);
-		SparkplugDevice sparkplugDevice =
-				EdgeNodeManager.getInstance().getSparkplugDevice(edgeNodeDescriptor, deviceDescriptor);
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNodeManager.getSparkplugEdgeNode(edgeNodeDescriptor);
+		SparkplugDevice sparkplugDevice = edgeNodeManager.getSparkplugDevice(edgeNodeDescriptor, deviceDescriptor);
 		if (sparkplugDevice == null || !sparkplugEdgeNode.isOnline()) {
 			requestRebirth(messageContext.getMqttServerName(), messageContext.getHostAppMqttClientId(),
 					messageContext.getTopic().getEdgeNodeDescriptor());
@@ -316,8 +392,14 @@ public class TahuPayloadHandler {
 			}
 
 			// Update the metric in the cache and notify
-			sparkplugDevice.updateValue(metric.getName(), metric.getValue());
-			eventHandler.onDataMetric(deviceDescriptor, metric);
+			sparkplugDevice.updateValue(metric.getName(), metric);
+			if (batchEventHandler == null) {
+				eventHandler.onDataMetric(deviceDescriptor, metric);
+			}
+		}
+		if (batchEventHandler != null) {
+			batchEventHandler.onDataMetrics(deviceDescriptor,
+					MetricBatch.of(messageContext.getPayload().getMetrics()));
 		}
 		eventHandler.onDeviceDataComplete(deviceDescriptor);
 	}
@@ -326,8 +408,7 @@ public class TahuPayloadHandler {
 		Long incomingBdSeqNum = -1L;
 		EdgeNodeDescriptor edgeNodeDescriptor = messageContext.getTopic().getEdgeNodeDescriptor();
 		try {
-			SparkplugEdgeNode sparkplugEdgeNode =
-					EdgeNodeManager.getInstance().getSparkplugEdgeNode(edgeNodeDescriptor);
+			SparkplugEdgeNode sparkplugEdgeNode = edgeNodeManager.getSparkplugEdgeNode(edgeNodeDescriptor);
 			incomingBdSeqNum = SparkplugUtil.getBdSequenceNumber(messageContext.getPayload());
 			if (sparkplugEdgeNode != null && incomingBdSeqNum != null) {
 				if (sparkplugEdgeNode.isOnline()) {
@@ -342,6 +423,7 @@ public class TahuPayloadHandler {
 							staleTags(sparkplugDevice.getDeviceDescrptor(), sparkplugDevice);
 							sparkplugDevice.setOnline(false, messageContext.getPayload().getTimestamp());
 						}
+						edgeNodeManager.getDescriptorRegistry().releaseEdgeNode(edgeNodeDescriptor);
 						eventHandler.onNodeDeathComplete(edgeNodeDescriptor);
 					} else {
 						logger.error(
@@ -363,9 +445,8 @@ public class TahuPayloadHandler {
 	protected void handleDeviceDeath(MessageContext messageContext) throws TahuException {
 		EdgeNodeDescriptor edgeNodeDescriptor = messageContext.getTopic().getEdgeNodeDescriptor();
 		DeviceDescriptor deviceDescriptor = (DeviceDescriptor) messageContext.getTopic().getSparkplugDescriptor();
-		SparkplugEdgeNode sparkplugEdgeNode = EdgeNodeManager.getInstance().getSparkplugEdgeNode(edgeNodeDescriptor);
-		SparkplugDevice sparkplugDevice =
-				EdgeNodeManager.getInstance().getSparkplugDevice(edgeNodeDescriptor, deviceDescriptor);
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNodeManager.getSparkplugEdgeNode(edgeNodeDescriptor);
+		SparkplugDevice sparkplugDevice = edgeNodeManager.getSparkplugDevice(edgeNodeDescriptor, deviceDescriptor);
 		if (sparkplugDevice == null || !sparkplugEdgeNode.isOnline() || !sparkplugDevice.isOnline()) {
 			logger.error("Invalid state of the Sparkplug Device when receiving a DDEATH - "
 					+ messageContext.getTopic().getSparkplugDescriptor() + " is offline - ignoring DDEATH");
@@ -379,6 +460,7 @@ public class TahuPayloadHandler {
 			eventHandler.onMessage(deviceDescriptor, messageContext.getMessage());
 			staleTags(deviceDescriptor, sparkplugDevice);
 			sparkplugDevice.setOnline(false, messageContext.getPayload().getTimestamp());
+			edgeNodeManager.getDescriptorRegistry().releaseDevice(deviceDescriptor);
 			eventHandler.onDeviceDeathComplete(deviceDescriptor);
 		} else {
 			logger.error("Online requirements not met for {} - edgeNode={} and device={} - ignoring DDEATH",
@@ -387,19 +469,82 @@ public class TahuPayloadHandler {
 		}
 	}
 
-	private void staleTags(SparkplugDescriptor sparkplugDescriptor, MetricManager metricManager) {
-		// Stale all tags associated with this Edge Node
-		Set<String> metricNames = metricManager.getMetricNames();
-		Iterator<String> it = metricNames.iterator();
-		while (it.hasNext()) {
-			String metricName = it.next();
+	/*
+	 * Handles an NDATA or DDATA by walking its metrics into a PayloadVisitor rather than building them
+	 */
+	private void visitData(Topic topic, MqttMessage message, MqttServerName mqttServerName,
+			MqttClientId hostAppMqttClientId, PayloadVisitor visitor) throws Exception {
+		long decodeStart = System.nanoTime();
+		PayloadHeader header = SparkplugBStreamingPayloadDecoder.peekHeader(message.getPayload());
+		if (header.getSeq() == null) {
+			logger.error("Invalid payload missing sequence number: {}", topic);
+			return;
+		}
 
-			// Update the cache and notify
-			metricManager.setStale(metricName, true);
-			eventHandler.onStale(sparkplugDescriptor, metricManager.getMetric(metricName));
+		EdgeNodeDescriptor edgeNodeDescriptor = topic.getEdgeNodeDescriptor();
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNodeManager.getSparkplugEdgeNode(edgeNodeDescriptor);
+		SparkplugDevice sparkplugDevice = topic.isType(MessageType.DDATA)
+				? edgeNodeManager.getSparkplugDevice(edgeNodeDescriptor,
+						(DeviceDescriptor) topic.getSparkplugDescriptor())
+				: null;
+		if (sparkplugEdgeNode == null || !sparkplugEdgeNode.isOnline()
+				|| (topic.isType(MessageType.DDATA) && sparkplugDevice == null)) {
+			requestRebirth(mqttServerName, hostAppMqttClientId, edgeNodeDescriptor);
+			throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
+					"Invalid state of the Sparkplug " + (topic.isType(MessageType.DDATA) ? "Device" : "Edge Node")
+							+ " when receiving a " + topic.getType() + " - " + topic.getSparkplugDescriptor()
+							+ " is offline");
+		}
+
+		sparkplugEdgeNode.handleSeq(header.getSeq());
+
+		// The events get the payload timestamp and seq but not the metrics
+		Message headerMessage = new MessageBuilder(topic,
+				new SparkplugBPayloadBuilder(header.getSeq()).setTimestamp(header.getTimestamp()).createPayload())
+						.build();
+		MetricCountingVisitor countingVisitor = new MetricCountingVisitor(visitor);
+		if (sparkplugDevice != null) {
+			DeviceDescriptor deviceDescriptor = sparkplugDevice.getDeviceDescrptor();
+			eventHandler.onDeviceDataArrived(deviceDescriptor, headerMessage);
+			eventHandler.onMessage(deviceDescriptor, headerMessage);
+			VISITING_DECODER.visit(message.getPayload(), HostApplicationMetricMap.getInstance()
+					.getMetricDataTypeMap(edgeNodeDescriptor, deviceDescriptor), countingVisitor);
+			eventHandler.onDeviceDataComplete(deviceDescriptor);
+		} else {
+			eventHandler.onNodeDataArrived(edgeNodeDescriptor, headerMessage);
+			eventHandler.onMessage(edgeNodeDescriptor, headerMessage);
+			VISITING_DECODER.visit(message.getPayload(), HostApplicationMetricMap.getInstance()
+					.getMetricDataTypeMap(edgeNodeDescriptor, edgeNodeDescriptor), countingVisitor);
+			eventHandler.onNodeDataComplete(edgeNodeDescriptor);
+		}
+		HostMetrics.getInstance().onMessage(edgeNodeDescriptor, topic.getType(), countingVisitor.numOfMetrics,
+				System.nanoTime() - decodeStart);
+	}
+
+	private void staleTags(SparkplugDescriptor sparkplugDescriptor, MetricManager metricManager) {
+		// Stale all tags associated with this Edge Node or Device and notify
+		List<HostMetric> staleMetrics = metricManager.setAllStale();
+		if (batchEventHandler != null) {
+			batchEventHandler.onStaleMetrics(sparkplugDescriptor, MetricBatch.of(staleMetrics));
+		} else {
+			for (HostMetric staleMetric : staleMetrics) {
+				eventHandler.onStale(sparkplugDescriptor, staleMetric);
+			}
 		}
 	}
 
+	/**
+	 * Sets the limit on the rate of rebirth requests this handler sends to all Edge Nodes. Up to the burst size of
+	 * requests are sent at once and then further requests are delayed to the given rate, so a Host Application restart
+	 * or a broker outage ramps the rebirths of a large number of Edge Nodes rather than requesting them all at once.
+	 *
+	 * @param burst the number of rebirth requests that can be sent without delay
+	 * @param ratePerSecond the steady rate of rebirth requests per second
+	 */
+	public void setRebirthRequestLimit(int burst, double ratePerSecond) {
+		rebirthLimiter = new TokenBucket(burst, ratePerSecond);
+	}
+
 	public void requestRebirth(MqttServerName mqttServerName, MqttClientId hostAppMqttClientId,
 			EdgeNodeDescriptor edgeNodeDescriptor) {
 		requestRebirth(mqttServerName, hostAppMqttClientId, edgeNodeDescriptor, null);
@@ -408,12 +553,21 @@ public class TahuPayloadHandler {
 	public void requestRebirth(MqttServerName mqttServerName, MqttClientId hostAppMqttClientId,
 			EdgeNodeDescriptor edgeNodeDescriptor, SparkplugEdgeNode sparkplugEdgeNode) {
 		try {
-			Timer rebirthDelayTimer = rebirthTimers.get(edgeNodeDescriptor);
-			if (rebirthDelayTimer == null) {
-				logger.info("Requesting Rebirth from {}", edgeNodeDescriptor);
-				rebirthDelayTimer = new Timer();
-				rebirthTimers.put(edgeNodeDescriptor, rebirthDelayTimer);
-				rebirthDelayTimer.schedule(new RebirthDelayTask(edgeNodeDescriptor), 5000);
+			Object rebirthDelay = new Object();
+			if (rebirthDelays.putIfAbsent(edgeNodeDescriptor, rebirthDelay) == null) {
+				// Take a token for the NCMD and hold off further requests until after it is sent. Only this request's
+				// entry is removed in case it has already been replaced.
+				long limitDelayNanos = rebirthLimiter.reserve();
+				long delayMillis = TimeUnit.NANOSECONDS.toMillis(limitDelayNanos) + REBIRTH_DEBOUNCE_MILLIS;
+				SharedScheduler.schedule(() -> rebirthDelays.remove(edgeNodeDescriptor, rebirthDelay), delayMillis,
+						TimeUnit.MILLISECONDS);
+				HostMetrics.getInstance().onRebirthRequest(limitDelayNanos > 0);
+				if (limitDelayNanos > 0) {
+					logger.info("Requesting Rebirth from {} in {}ms", edgeNodeDescriptor,
+							TimeUnit.NANOSECONDS.toMillis(limitDelayNanos));
+				} else {
+					logger.info("Requesting Rebirth from {}", edgeNodeDescriptor);
+				}
 
 				// Request a rebirth
 				SparkplugBPayload cmdPayload = new SparkplugBPayloadBuilder().setTimestamp(new Date())
@@ -447,11 +601,13 @@ public class TahuPayloadHandler {
 					sparkplugEdgeNode.setMqttServerName(mqttServerName);
 					sparkplugEdgeNode.setHostAppMqttClientId(hostAppMqttClientId);
 
-					publishCommand(mqttServerName, hostAppMqttClientId, cmdTopic, cmdPayload);
+					publishRebirthCommand(mqttServerName, hostAppMqttClientId, cmdTopic, cmdPayload,
+							limitDelayNanos);
 				} else {
 					logger.debug("Current Engine MQTT Server Name for unknown Edge Node: {}", mqttServerName);
 					logger.debug("Current Engine MQTT Client ID for unknown Edge Node: {}", hostAppMqttClientId);
-					publishCommand(mqttServerName, hostAppMqttClientId, cmdTopic, cmdPayload);
+					publishRebirthCommand(mqttServerName, hostAppMqttClientId, cmdTopic, cmdPayload,
+							limitDelayNanos);
 				}
 			} else {
 				logger.debug("Not requesting Rebirth since we have in the last 5 seconds");
@@ -462,26 +618,79 @@ public class TahuPayloadHandler {
 		}
 	}
 
-	/**
-	 * A TimerTask subclass for timers on issued rebirth requests.
+	/*
+	 * Publishes a rebirth NCMD now or, if the rate limit requires it, from the shared scheduler's blocking pool after a
+	 * delay
 	 */
-	private class RebirthDelayTask extends TimerTask {
-		private EdgeNodeDescriptor edgeNodeDescriptor;
-
-		public RebirthDelayTask(EdgeNodeDescriptor edgeNodeDescriptor) {
-			this.edgeNodeDescriptor = edgeNodeDescriptor;
+	private void publishRebirthCommand(MqttServerName mqttServerName, MqttClientId hostAppMqttClientId, Topic topic,
+			SparkplugBPayload payload, long delayNanos) throws Exception {
+		if (delayNanos <= 0) {
+			publishCommand(mqttServerName, hostAppMqttClientId, topic, payload);
+			return;
 		}
-
-		public void run() {
-			if (rebirthTimers.get(edgeNodeDescriptor) != null) {
-				rebirthTimers.get(edgeNodeDescriptor).cancel();
-				rebirthTimers.remove(edgeNodeDescriptor);
+		SharedScheduler.scheduleBlocking(() -> {
+			try {
+				publishCommand(mqttServerName, hostAppMqttClientId, topic, payload);
+			} catch (Exception e) {
+				logger.error("Failed to publish Rebirth request to {}", topic.getEdgeNodeDescriptor(), e);
 			}
-		}
+		}, delayNanos, TimeUnit.NANOSECONDS);
 	}
 
 	private void publishCommand(MqttServerName mqttServerName, MqttClientId hostAppMqttClientId, Topic topic,
 			SparkplugBPayload payload) throws Exception {
 		commandPublisher.publishCommand(topic, payload);
 	}
+
+	/*
+	 * Counts the metrics passed to a PayloadVisitor for the HostMetrics
+	 */
+	private static final class MetricCountingVisitor implements PayloadVisitor {
+		private final PayloadVisitor visitor;
+		private int numOfMetrics;
+
+		private MetricCountingVisitor(PayloadVisitor visitor) {
+			this.visitor = visitor;
+		}
+
+		@Override
+		public void onPayloadStart(long timestamp, long seq) {
+			visitor.onPayloadStart(timestamp, seq);
+		}
+
+		@Override
+		public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, long value) {
+			numOfMetrics++;
+			visitor.onMetric(alias, name, dataType, timestamp, value);
+		}
+
+		@Override
+		public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, double value) {
+			numOfMetrics++;
+			visitor.onMetric(alias, name, dataType, timestamp, value);
+		}
+
+		@Override
+		public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, boolean value) {
+			numOfMetrics++;
+			visitor.onMetric(alias, name, dataType, timestamp, value);
+		}
+
+		@Override
+		public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, Object value) {
+			numOfMetrics++;
+			visitor.onMetric(alias, name, dataType, timestamp, value);
+		}
+
+		@Override
+		public void onNullMetric(long alias, String name, MetricDataType dataType, long timestamp) {
+			numOfMetrics++;
+			visitor.onNullMetric(alias, name, dataType, timestamp);
+		}
+
+		@Override
+		public void onPayloadComplete() {
+			visitor.onPayloadComplete();
+		}
+	}
 }
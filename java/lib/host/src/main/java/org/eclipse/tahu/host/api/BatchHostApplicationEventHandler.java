@@ -0,0 +1,56 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.host.api;
+
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.SparkplugDescriptor;
+
+/**
+ * An optional extension of {@link HostApplicationEventHandler} for sinks that prefer to handle all of the
+ * {@link Metric}s of a message at once, such as historians that write a whole payload in a single transaction.
+ *
+ * When the event handler of a Host Application implements this interface the batch methods are called once per
+ * message in place of {@link HostApplicationEventHandler#onBirthMetric(SparkplugDescriptor, Metric)},
+ * {@link HostApplicationEventHandler#onDataMetric(SparkplugDescriptor, Metric)} and
+ * {@link HostApplicationEventHandler#onStale(SparkplugDescriptor, Metric)}, which are then not called. The
+ * 'Arrived' and 'Complete' events are delivered as before, around the batch.
+ */
+public interface BatchHostApplicationEventHandler extends HostApplicationEventHandler {
+
+	/**
+	 * Called with all of the metrics of an NBIRTH or DBIRTH after they have been added to the metric cache
+	 *
+	 * @param sparkplugDescriptor the {@link SparkplugDescriptor} of the Edge Node or Device
+	 * @param metrics the {@link MetricBatch} of BIRTH metrics
+	 */
+	public void onBirthMetrics(SparkplugDescriptor sparkplugDescriptor, MetricBatch metrics);
+
+	/**
+	 * Called with all of the metrics of an NDATA or DDATA after their names have been resolved from their aliases and
+	 * the metric cache has been updated
+	 *
+	 * @param sparkplugDescriptor the {@link SparkplugDescriptor} of the Edge Node or Device
+	 * @param metrics the {@link MetricBatch} of DATA metrics
+	 */
+	public void onDataMetrics(SparkplugDescriptor sparkplugDescriptor, MetricBatch metrics);
+
+	/**
+	 * Called once with all of the metrics of an Edge Node or Device that have been marked stale by an NDEATH or DDEATH
+	 *
+	 * @param sparkplugDescriptor the {@link SparkplugDescriptor} of the Edge Node or Device
+	 * @param metrics the {@link MetricBatch} of the stale cached metrics
+	 */
+	public void onStaleMetrics(SparkplugDescriptor sparkplugDescriptor, MetricBatch metrics);
+}
@@ -0,0 +1,89 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.host.api;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import org.eclipse.tahu.message.model.Metric;
+
+/**
+ * The {@link Metric}s of a single Sparkplug message, or of a single stale event, delivered to a
+ * {@link BatchHostApplicationEventHandler} in one call. The metrics are held in an array in the order they appeared in
+ * the payload and may be read by index without creating an {@link java.util.Iterator}. A batch is read only.
+ */
+public final class MetricBatch extends AbstractList<Metric> {
+
+	private static final Metric[] EMPTY = new Metric[0];
+
+	private final Metric[] metrics;
+	private final int size;
+
+	/**
+	 * Constructor
+	 *
+	 * @param metrics the array of {@link Metric}s, which is not copied
+	 * @param size the number of {@link Metric}s at the start of the array that are in the batch
+	 */
+	public MetricBatch(Metric[] metrics, int size) {
+		if (size < 0 || size > metrics.length) {
+			throw new IllegalArgumentException("Invalid size " + size + " for " + metrics.length + " metrics");
+		}
+		this.metrics = metrics;
+		this.size = size;
+	}
+
+	/**
+	 * Creates a batch of the {@link Metric}s in a {@link List}
+	 *
+	 * @param metrics the {@link List} of {@link Metric}s to copy into the batch
+	 * @return the {@link MetricBatch}
+	 */
+	public static MetricBatch of(List<? extends Metric> metrics) {
+		return metrics == null || metrics.isEmpty()
+				? new MetricBatch(EMPTY, 0)
+				: new MetricBatch(metrics.toArray(new Metric[metrics.size()]), metrics.size());
+	}
+
+	@Override
+	public Metric get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return metrics[index];
+	}
+
+	/**
+	 * Returns the name of the {@link Metric} at an index
+	 *
+	 * @param index the index, from 0 to {@link #size()} - 1
+	 * @return the name of the {@link Metric}
+	 */
+	public String getName(int index) {
+		return get(index).getName();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Metric[] toArray() {
+		Metric[] copy = new Metric[size];
+		System.arraycopy(metrics, 0, copy, 0, size);
+		return copy;
+	}
+}
@@ -0,0 +1,44 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host.api;
+
+import org.eclipse.tahu.message.PayloadVisitor;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.SparkplugDescriptor;
+
+/**
+ * An optional extension of {@link HostApplicationEventHandler} for sinks that fan out NDATA and DDATA metrics and want
+ * to do so without a {@link Metric} being built for each one.
+ *
+ * When the event handler of a Host Application implements this interface and returns a {@link PayloadVisitor} for an
+ * NDATA or DDATA, the payload is walked straight off the wire into the visitor in place of
+ * {@link HostApplicationEventHandler#onDataMetric(SparkplugDescriptor, Metric)} and
+ * {@link BatchHostApplicationEventHandler#onDataMetrics}, which are then not called for that message. The sequence
+ * number is still checked and the 'Arrived' and 'Complete' events are delivered as before, around the visit.
+ *
+ * Metric names are not resolved from aliases and the metric cache of the Edge Node or Device is not updated for
+ * visited messages. The {@link org.eclipse.tahu.message.model.Message} passed to the 'Arrived' events carries the
+ * payload timestamp and seq but no metrics.
+ */
+public interface VisitingHostApplicationEventHandler extends HostApplicationEventHandler {
+
+	/**
+	 * Returns the {@link PayloadVisitor} to pass the metrics of an NDATA or DDATA to. It is called on the thread that
+	 * handles the message, once per message.
+	 *
+	 * @param sparkplugDescriptor the {@link SparkplugDescriptor} of the Edge Node or Device
+	 * @return the {@link PayloadVisitor}, or null to handle the message as {@link Metric}s
+	 */
+	public PayloadVisitor getDataVisitor(SparkplugDescriptor sparkplugDescriptor);
+}
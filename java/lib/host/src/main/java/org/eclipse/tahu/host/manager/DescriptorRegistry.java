@@ -0,0 +1,261 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host.manager;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.tahu.message.model.DeviceDescriptor;
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Canonicalizes the {@link EdgeNodeDescriptor}s and {@link DeviceDescriptor}s of the Edge Nodes and Devices known to
+ * an {@link EdgeNodeManager} so each Group/Edge Node/Device is represented by a single shared instance. Registered
+ * {@link DeviceDescriptor}s hold the registered {@link EdgeNodeDescriptor} of their parent Edge Node.
+ *
+ * Only Edge Nodes and Devices that have been born should be registered, with {@link #registerEdgeNode} and
+ * {@link #registerDevice}, and they should be released again when they die so the registry only holds the live ones.
+ * Once {@link #MAX_REGISTERED_DESCRIPTORS} of a kind are registered, new descriptors of that kind are returned
+ * unregistered.
+ */
+public class DescriptorRegistry {
+
+	private static Logger logger = LoggerFactory.getLogger(DescriptorRegistry.class.getName());
+
+	/**
+	 * The maximum number of Edge Nodes and the maximum number of Devices that will be registered
+	 */
+	public static final int MAX_REGISTERED_DESCRIPTORS = 100000;
+
+	private final Object registryLock = new Object();
+
+	// Written while holding the registryLock so lookups need no locking
+	private final ConcurrentHashMap<String, ConcurrentHashMap<String, EdgeNodeDescriptor>> edgeNodes =
+			new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<EdgeNodeDescriptor, ConcurrentHashMap<String, DeviceDescriptor>> devices =
+			new ConcurrentHashMap<>();
+
+	// Guarded by the registryLock
+	private int edgeNodeCount;
+
+	private int deviceCount;
+
+	private boolean limitLogged;
+
+	/**
+	 * Returns the registered {@link EdgeNodeDescriptor} for a Group ID and Edge Node ID, or a new unregistered one if
+	 * the Edge Node is not registered
+	 *
+	 * @param groupId the Sparkplug Group ID
+	 * @param edgeNodeId the Sparkplug Edge Node ID
+	 * @return the {@link EdgeNodeDescriptor}
+	 */
+	public EdgeNodeDescriptor getEdgeNodeDescriptor(String groupId, String edgeNodeId) {
+		EdgeNodeDescriptor edgeNodeDescriptor = lookupEdgeNode(groupId, edgeNodeId);
+		return edgeNodeDescriptor != null ? edgeNodeDescriptor : new EdgeNodeDescriptor(groupId, edgeNodeId);
+	}
+
+	/**
+	 * Returns the registered {@link DeviceDescriptor} for a Group ID, Edge Node ID and Device ID, or a new unregistered
+	 * one if the Device is not registered
+	 *
+	 * @param groupId the Sparkplug Group ID
+	 * @param edgeNodeId the Sparkplug Edge Node ID
+	 * @param deviceId the Sparkplug Device ID
+	 * @return the {@link DeviceDescriptor}
+	 */
+	public DeviceDescriptor getDeviceDescriptor(String groupId, String edgeNodeId, String deviceId) {
+		return getDeviceDescriptor(getEdgeNodeDescriptor(groupId, edgeNodeId), deviceId);
+	}
+
+	/**
+	 * Returns the registered {@link DeviceDescriptor} for a Device of an Edge Node, or a new unregistered one if the
+	 * Device is not registered
+	 *
+	 * @param edgeNodeDescriptor the {@link EdgeNodeDescriptor} of the parent Edge Node
+	 * @param deviceId the Sparkplug Device ID
+	 * @return the {@link DeviceDescriptor}
+	 */
+	public DeviceDescriptor getDeviceDescriptor(EdgeNodeDescriptor edgeNodeDescriptor, String deviceId) {
+		DeviceDescriptor deviceDescriptor = lookupDevice(edgeNodeDescriptor, deviceId);
+		return deviceDescriptor != null ? deviceDescriptor : new DeviceDescriptor(edgeNodeDescriptor, deviceId);
+	}
+
+	/**
+	 * Registers an Edge Node and returns its canonical {@link EdgeNodeDescriptor}. This should only be called for an
+	 * Edge Node that has been born.
+	 *
+	 * @param edgeNodeDescriptor any {@link EdgeNodeDescriptor} of the Edge Node
+	 * @return the registered {@link EdgeNodeDescriptor}, or an unregistered one if the registry is full
+	 */
+	public EdgeNodeDescriptor registerEdgeNode(EdgeNodeDescriptor edgeNodeDescriptor) {
+		String groupId = edgeNodeDescriptor.getGroupId();
+		String edgeNodeId = edgeNodeDescriptor.getEdgeNodeId();
+		if (groupId == null || edgeNodeId == null) {
+			return new EdgeNodeDescriptor(groupId, edgeNodeId);
+		}
+		synchronized (registryLock) {
+			EdgeNodeDescriptor registered = lookupEdgeNode(groupId, edgeNodeId);
+			if (registered == null) {
+				registered = new EdgeNodeDescriptor(groupId, edgeNodeId);
+				if (isFull(edgeNodeCount)) {
+					return registered;
+				}
+				edgeNodes.computeIfAbsent(groupId, k -> new ConcurrentHashMap<>()).put(edgeNodeId, registered);
+				edgeNodeCount++;
+			}
+			return registered;
+		}
+	}
+
+	/**
+	 * Registers a Device of a registered Edge Node and returns its canonical {@link DeviceDescriptor}. This should only
+	 * be called for a Device that has been born.
+	 *
+	 * @param deviceDescriptor any {@link DeviceDescriptor} of the Device
+	 * @return the registered {@link DeviceDescriptor}, or an unregistered one if the Edge Node is not registered or the
+	 *         registry is full
+	 */
+	public DeviceDescriptor registerDevice(DeviceDescriptor deviceDescriptor) {
+		String deviceId = deviceDescriptor.getDeviceId();
+		synchronized (registryLock) {
+			EdgeNodeDescriptor parent = lookupEdgeNode(deviceDescriptor.getGroupId(), deviceDescriptor.getEdgeNodeId());
+			if (parent == null || deviceId == null) {
+				return deviceDescriptor;
+			}
+			DeviceDescriptor registered = lookupDevice(parent, deviceId);
+			if (registered == null) {
+				registered = new DeviceDescriptor(parent, deviceId);
+				if (isFull(deviceCount)) {
+					return registered;
+				}
+				devices.computeIfAbsent(parent, k -> new ConcurrentHashMap<>()).put(deviceId, registered);
+				deviceCount++;
+			}
+			return registered;
+		}
+	}
+
+	/**
+	 * Releases a registered Edge Node and all of its registered Devices
+	 *
+	 * @param edgeNodeDescriptor any {@link EdgeNodeDescriptor} of the Edge Node
+	 * @return true if the Edge Node was registered, otherwise false
+	 */
+	public boolean releaseEdgeNode(EdgeNodeDescriptor edgeNodeDescriptor) {
+		String groupId = edgeNodeDescriptor.getGroupId();
+		String edgeNodeId = edgeNodeDescriptor.getEdgeNodeId();
+		if (groupId == null || edgeNodeId == null) {
+			return false;
+		}
+		synchronized (registryLock) {
+			ConcurrentHashMap<String, EdgeNodeDescriptor> groupEdgeNodes = edgeNodes.get(groupId);
+			EdgeNodeDescriptor registered = groupEdgeNodes != null ? groupEdgeNodes.remove(edgeNodeId) : null;
+			if (registered == null) {
+				return false;
+			}
+			if (groupEdgeNodes.isEmpty()) {
+				edgeNodes.remove(groupId);
+			}
+			ConcurrentHashMap<String, DeviceDescriptor> edgeNodeDevices = devices.remove(registered);
+			if (edgeNodeDevices != null) {
+				deviceCount -= edgeNodeDevices.size();
+			}
+			edgeNodeCount--;
+			return true;
+		}
+	}
+
+	/**
+	 * Releases a registered Device
+	 *
+	 * @param deviceDescriptor any {@link DeviceDescriptor} of the Device
+	 * @return true if the Device was registered, otherwise false
+	 */
+	public boolean releaseDevice(DeviceDescriptor deviceDescriptor) {
+		synchronized (registryLock) {
+			EdgeNodeDescriptor parent = lookupEdgeNode(deviceDescriptor.getGroupId(), deviceDescriptor.getEdgeNodeId());
+			ConcurrentHashMap<String, DeviceDescriptor> edgeNodeDevices = parent != null ? devices.get(parent) : null;
+			String deviceId = deviceDescriptor.getDeviceId();
+			DeviceDescriptor registered =
+					edgeNodeDevices != null && deviceId != null ? edgeNodeDevices.remove(deviceId) : null;
+			if (registered == null) {
+				return false;
+			}
+			if (edgeNodeDevices.isEmpty()) {
+				devices.remove(parent);
+			}
+			deviceCount--;
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the number of registered Edge Nodes
+	 *
+	 * @return the number of registered Edge Nodes
+	 */
+	public int getEdgeNodeCount() {
+		synchronized (registryLock) {
+			return edgeNodeCount;
+		}
+	}
+
+	/**
+	 * Returns the number of registered Devices
+	 *
+	 * @return the number of registered Devices
+	 */
+	public int getDeviceCount() {
+		synchronized (registryLock) {
+			return deviceCount;
+		}
+	}
+
+	private EdgeNodeDescriptor lookupEdgeNode(String groupId, String edgeNodeId) {
+		if (groupId == null || edgeNodeId == null) {
+			return null;
+		}
+		ConcurrentHashMap<String, EdgeNodeDescriptor> groupEdgeNodes = edgeNodes.get(groupId);
+		return groupEdgeNodes != null ? groupEdgeNodes.get(edgeNodeId) : null;
+	}
+
+	private DeviceDescriptor lookupDevice(EdgeNodeDescriptor edgeNodeDescriptor, String deviceId) {
+		if (deviceId == null) {
+			return null;
+		}
+		if (edgeNodeDescriptor instanceof DeviceDescriptor) {
+			edgeNodeDescriptor = ((DeviceDescriptor) edgeNodeDescriptor).getEdgeNodeDescriptor();
+		}
+		ConcurrentHashMap<String, DeviceDescriptor> edgeNodeDevices = devices.get(edgeNodeDescriptor);
+		return edgeNodeDevices != null ? edgeNodeDevices.get(deviceId) : null;
+	}
+
+	/*
+	 * Must be called while holding the registryLock
+	 */
+	private boolean isFull(int count) {
+		if (count < MAX_REGISTERED_DESCRIPTORS) {
+			return false;
+		}
+		if (!limitLogged) {
+			limitLogged = true;
+			logger.warn("More than {} descriptors registered - new descriptors will not be registered",
+					MAX_REGISTERED_DESCRIPTORS);
+		}
+		return true;
+	}
+}
@@ -26,70 +26,87 @@ import org.eclipse.tahu.mqtt.MqttServerName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Tracks the Sparkplug Edge Nodes and Devices known to a Host Application. Lookups do not take any lock and the state
+ * of each Edge Node is managed by its {@link SparkplugEdgeNode}.
+ *
+ * A shared instance is available from {@link #getInstance()}. Host Applications that should not share state with
+ * others in the same JVM can be given their own instance.
+ */
 public class EdgeNodeManager {
 
 	private static Logger logger = LoggerFactory.getLogger(EdgeNodeManager.class.getName());
 
-	private static EdgeNodeManager instance;
-
-	private Map<EdgeNodeDescriptor, SparkplugEdgeNode> edgeNodeMap;
+	private final Map<EdgeNodeDescriptor, SparkplugEdgeNode> edgeNodeMap;
 
-	private final Object lock = new Object();
+	private final DescriptorRegistry descriptorRegistry;
 
-	private EdgeNodeManager() {
+	/**
+	 * Creates an {@link EdgeNodeManager} that shares nothing with the shared instance
+	 */
+	public EdgeNodeManager() {
 		edgeNodeMap = new ConcurrentHashMap<>();
+		descriptorRegistry = new DescriptorRegistry();
 	}
 
+	/**
+	 * Returns the shared instance
+	 *
+	 * @return the shared {@link EdgeNodeManager}
+	 */
 	public static EdgeNodeManager getInstance() {
-		if (instance == null) {
-			instance = new EdgeNodeManager();
-		}
+		return InstanceHolder.INSTANCE;
+	}
 
-		return instance;
+	/**
+	 * Returns the {@link DescriptorRegistry} of the Edge Nodes and Devices born to this {@link EdgeNodeManager}
+	 *
+	 * @return the {@link DescriptorRegistry}
+	 */
+	public DescriptorRegistry getDescriptorRegistry() {
+		return descriptorRegistry;
 	}
 
 	public SparkplugEdgeNode getSparkplugEdgeNode(EdgeNodeDescriptor edgeNodeDescriptor) {
-		synchronized (lock) {
-			return edgeNodeMap.get(edgeNodeDescriptor);
-		}
+		return edgeNodeMap.get(edgeNodeDescriptor);
 	}
 
 	public SparkplugEdgeNode addSparkplugEdgeNode(EdgeNodeDescriptor edgeNodeDescriptor, MqttServerName mqttServerName,
 			MqttClientId hostAppMqttClientId) {
-		synchronized (lock) {
-			SparkplugEdgeNode sparkplugEdgeNode =
-					new SparkplugEdgeNode(edgeNodeDescriptor, mqttServerName, hostAppMqttClientId);
-			edgeNodeMap.put(edgeNodeDescriptor, sparkplugEdgeNode);
-			return sparkplugEdgeNode;
-		}
+		SparkplugEdgeNode sparkplugEdgeNode =
+				new SparkplugEdgeNode(edgeNodeDescriptor, mqttServerName, hostAppMqttClientId);
+		edgeNodeMap.put(edgeNodeDescriptor, sparkplugEdgeNode);
+		return sparkplugEdgeNode;
 	}
 
 	public SparkplugDevice getSparkplugDevice(EdgeNodeDescriptor edgeNodeDescriptor,
 			DeviceDescriptor deviceDescriptor) {
-		synchronized (lock) {
-			SparkplugEdgeNode sparkplugEdgeNode = edgeNodeMap.get(edgeNodeDescriptor);
-			if (sparkplugEdgeNode != null) {
-				return sparkplugEdgeNode.getSparkplugDevice(deviceDescriptor);
-			} else {
-				return null;
-			}
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNodeMap.get(edgeNodeDescriptor);
+		if (sparkplugEdgeNode != null) {
+			return sparkplugEdgeNode.getSparkplugDevice(deviceDescriptor);
+		} else {
+			return null;
 		}
 	}
 
 	public SparkplugDevice addSparkplugDevice(EdgeNodeDescriptor edgeNodeDescriptor, DeviceDescriptor deviceDescriptor,
 			Date onlineTimestamp) throws TahuException {
-		synchronized (lock) {
-			// Make sure there is a SparkplugEdgeNode already
-			SparkplugEdgeNode sparkplugEdgeNode = edgeNodeMap.get(edgeNodeDescriptor);
-			if (sparkplugEdgeNode == null) {
-				throw new TahuException(TahuErrorCode.INITIALIZATION_ERROR,
-						"The SparkplugEdgeNode must already exist before adding a device");
-			} else {
-				SparkplugDevice sparkplugDevice =
-						new SparkplugDevice(sparkplugEdgeNode, deviceDescriptor, onlineTimestamp);
-				sparkplugEdgeNode.addDevice(deviceDescriptor, sparkplugDevice);
-				return sparkplugDevice;
-			}
+		// Make sure there is a SparkplugEdgeNode already
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNodeMap.get(edgeNodeDescriptor);
+		if (sparkplugEdgeNode == null) {
+			throw new TahuException(TahuErrorCode.INITIALIZATION_ERROR,
+					"The SparkplugEdgeNode must already exist before adding a device");
+		} else {
+			SparkplugDevice sparkplugDevice = new SparkplugDevice(sparkplugEdgeNode, deviceDescriptor, onlineTimestamp);
+			sparkplugEdgeNode.addDevice(deviceDescriptor, sparkplugDevice);
+			return sparkplugDevice;
 		}
 	}
+
+	/*
+	 * Creates the shared instance the first time it is used
+	 */
+	private static final class InstanceHolder {
+		private static final EdgeNodeManager INSTANCE = new EdgeNodeManager();
+	}
 }
@@ -13,12 +13,15 @@
 
 package org.eclipse.tahu.host.manager;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.tahu.host.model.HostMetric;
+import org.eclipse.tahu.message.model.Metric;
 import org.eclipse.tahu.message.model.SparkplugDescriptor;
 
 public abstract class MetricManager {
@@ -54,6 +57,18 @@ public abstract class MetricManager {
 		}
 	}
 
+	// Copies the value without boxing it or decoding a deferred value
+	public void updateValue(String metricName, Metric metric) {
+		HostMetric hostMetric = metricMap.get(metricName);
+		if (hostMetric != null) {
+			if (metric != null) {
+				hostMetric.copyValue(metric);
+			} else {
+				hostMetric.setValue(null);
+			}
+		}
+	}
+
 	public void setStale(String metricName, boolean stale) {
 		HostMetric hostMetric = metricMap.get(metricName);
 		if (hostMetric != null) {
@@ -61,6 +76,20 @@ public abstract class MetricManager {
 		}
 	}
 
+	/**
+	 * Marks every cached metric stale in a single pass over the cache
+	 *
+	 * @return the {@link HostMetric}s that were marked stale
+	 */
+	public List<HostMetric> setAllStale() {
+		List<HostMetric> staleMetrics = new ArrayList<>(metricMap.size());
+		for (HostMetric hostMetric : metricMap.values()) {
+			hostMetric.setStale(true);
+			staleMetrics.add(hostMetric);
+		}
+		return staleMetrics;
+	}
+
 	public void clearMetrics() {
 		metricMap.clear();
 	}
@@ -32,9 +32,9 @@ public class SparkplugDevice extends MetricManager {
 	private final String deviceId;
 
 	// Dynamic variables
-	private boolean online;
-	private Date onlineTimestamp;
-	private Date offlineTimestamp;
+	private volatile boolean online;
+	private volatile Date onlineTimestamp;
+	private volatile Date offlineTimestamp;
 
 	SparkplugDevice(SparkplugEdgeNode sparkplugEdgeNode, String groupId, String edgeNodeId, String deviceId,
 			Date onlineTimestamp) {
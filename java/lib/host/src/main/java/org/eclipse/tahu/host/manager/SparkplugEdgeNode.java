@@ -17,6 +17,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.tahu.exception.TahuErrorCode;
 import org.eclipse.tahu.exception.TahuException;
@@ -32,6 +33,9 @@ public class SparkplugEdgeNode extends MetricManager {
 
 	private static Logger logger = LoggerFactory.getLogger(SparkplugEdgeNode.class.getName());
 
+	// The last sequence number before an NBIRTH has been received
+	private static final long NO_SEQ_NUM = -1;
+
 	// Static variables
 	private final EdgeNodeDescriptor edgeNodeDescriptor;
 	private final String groupId;
@@ -39,17 +43,9 @@ public class SparkplugEdgeNode extends MetricManager {
 	private final Map<DeviceDescriptor, SparkplugDevice> sparkplugDevices;
 
 	// Dynamic variables
-	private MqttServerName mqttServerName;
-	private MqttClientId hostAppMqttClientId;
-	private boolean online;
-	private Date onlineTimestamp;
-	private Date offlineTimestamp;
-
-	// Sequence number tracking
-	private Long birthBdSeqNum;
-	private Long lastSeqNum;
-
-	private final Object lock = new Object();
+	private volatile MqttServerName mqttServerName;
+	private volatile MqttClientId hostAppMqttClientId;
+	private final AtomicReference<State> state;
 
 	SparkplugEdgeNode(String groupId, String edgeNodeId, MqttServerName mqttServerName,
 			MqttClientId hostAppMqttClientId) {
@@ -65,6 +61,7 @@ public class SparkplugEdgeNode extends MetricManager {
 
 		this.mqttServerName = mqttServerName;
 		this.hostAppMqttClientId = hostAppMqttClientId;
+		this.state = new AtomicReference<>(new State(false, null, null, null, NO_SEQ_NUM));
 	}
 
 	@Override
@@ -113,83 +110,90 @@ public class SparkplugEdgeNode extends MetricManager {
 	}
 
 	public boolean isOnline() {
-		return online;
+		return state.get().online;
 	}
 
 	public void setOnline(boolean online, Date timestamp, Long incomingBdSeq, Long incomingSeq) throws TahuException {
-		synchronized (lock) {
-			if (online) {
-				if (timestamp == null) {
-					throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
-							"The timestamp can not be missing from an NBIRTH message");
-				}
-				if (incomingBdSeq == null) {
-					throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
-							"The bdSeq can not be missing from an NBIRTH message");
-				}
+		if (online) {
+			if (timestamp == null) {
+				throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
+						"The timestamp can not be missing from an NBIRTH message");
+			}
+			if (incomingBdSeq == null) {
+				throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
+						"The bdSeq can not be missing from an NBIRTH message");
+			}
 
-				this.online = online;
-				this.onlineTimestamp = timestamp;
-				this.birthBdSeqNum = incomingBdSeq;
-				this.lastSeqNum = incomingSeq;
-			} else {
-				if (incomingBdSeq == null) {
-					throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
-							"The bdSeq can not be missing from an NDEATH message");
-				}
+			long seq = incomingSeq != null ? incomingSeq : NO_SEQ_NUM;
+			state.updateAndGet(current -> new State(true, timestamp, current.offlineTimestamp, incomingBdSeq, seq));
+		} else {
+			if (incomingBdSeq == null) {
+				throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
+						"The bdSeq can not be missing from an NDEATH message");
+			}
 
+			State current;
+			do {
+				current = state.get();
 				// Check the bdSeq
-				if (birthBdSeqNum != incomingBdSeq) {
+				if (!incomingBdSeq.equals(current.birthBdSeqNum)) {
 					logger.debug("Mismatched bdSeq number - got {} expected {} - ignoring", incomingBdSeq,
-							birthBdSeqNum);
+							current.birthBdSeqNum);
 					return;
-				} else {
-					this.online = online;
-					this.offlineTimestamp = timestamp;
 				}
-			}
-
-			logger.info("Edge Node {} set {} at {}", edgeNodeDescriptor, online ? "online" : "offline", timestamp);
+			} while (!state.compareAndSet(current,
+					new State(false, current.onlineTimestamp, timestamp, current.birthBdSeqNum, current.lastSeqNum)));
 		}
+
+		logger.info("Edge Node {} set {} at {}", edgeNodeDescriptor, online ? "online" : "offline", timestamp);
 	}
 
 	public void forceOffline(Date timestamp) {
-		synchronized (lock) {
-			this.online = false;
-			this.offlineTimestamp = timestamp;
-		}
+		state.updateAndGet(current -> new State(false, current.onlineTimestamp, timestamp, current.birthBdSeqNum,
+				current.lastSeqNum));
 	}
 
 	public Date getOnlineTimestamp() {
-		return onlineTimestamp;
+		return state.get().onlineTimestamp;
 	}
 
 	public Date getOfflineTimestamp() {
-		return offlineTimestamp;
+		return state.get().offlineTimestamp;
 	}
 
 	public Long getBirthBdSeqNum() {
-		return birthBdSeqNum;
+		return state.get().birthBdSeqNum;
 	}
 
 	public void handleSeq(Long incomingSeq) throws TahuException {
-		synchronized (lock) {
-			if (lastSeqNum != null) {
-				lastSeqNum++;
-				if (lastSeqNum.equals(256L)) {
-					lastSeqNum = 0L;
-				}
+		long expectedSeq = state.updateAndGet(current -> current.lastSeqNum == NO_SEQ_NUM ? current
+				: new State(current.online, current.onlineTimestamp, current.offlineTimestamp, current.birthBdSeqNum,
+						(current.lastSeqNum + 1) % 256)).lastSeqNum;
+		if (expectedSeq == NO_SEQ_NUM || incomingSeq == null || expectedSeq != incomingSeq) {
+			throw new TahuException(TahuErrorCode.INVALID_ARGUMENT, "The sequence number check did not pass - expected "
+					+ (expectedSeq != NO_SEQ_NUM ? expectedSeq : null) + " but received " + incomingSeq);
+		}
+	}
 
-				if (!lastSeqNum.equals(incomingSeq)) {
-					throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
-							"The sequence number check did not pass - expected " + lastSeqNum + " but received "
-									+ incomingSeq);
-				}
-			} else {
-				throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
-						"The sequence number check did not pass - expected " + lastSeqNum + " but received "
-								+ incomingSeq);
-			}
+	/**
+	 * The online state and last sequence number of an Edge Node. Instances are immutable so a state transition, such
+	 * as an NBIRTH which also resets the sequence number, replaces the whole state at once and readers never see a
+	 * partially applied transition.
+	 */
+	private static final class State {
+		private final boolean online;
+		private final Date onlineTimestamp;
+		private final Date offlineTimestamp;
+		private final Long birthBdSeqNum;
+		private final long lastSeqNum;
+
+		private State(boolean online, Date onlineTimestamp, Date offlineTimestamp, Long birthBdSeqNum,
+				long lastSeqNum) {
+			this.online = online;
+			this.onlineTimestamp = onlineTimestamp;
+			this.offlineTimestamp = offlineTimestamp;
+			this.birthBdSeqNum = birthBdSeqNum;
+			this.lastSeqNum = lastSeqNum;
 		}
 	}
 }
@@ -0,0 +1,162 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.host.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of non-negative values, typically durations in nanoseconds, in power of two buckets. Recording
+ * a value is a few atomic increments so it can be done on every message. Percentiles are reported as the upper bound
+ * of the bucket they fall in, so they are accurate to within a factor of two.
+ *
+ * The histogram covers the interval since the last {@link #snapshotAndReset()}.
+ */
+public class Histogram {
+
+	private static final int NUM_OF_BUCKETS = 64;
+
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_OF_BUCKETS);
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value
+	 *
+	 * @param value the value, where negative values are recorded as 0
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(getBucket(value));
+		sum.add(value);
+		long currentMax;
+		while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+			// Retry until this value is recorded or a larger one is
+		}
+	}
+
+	/**
+	 * Returns a {@link Snapshot} of the values recorded since the last call and starts a new interval. Values recorded
+	 * concurrently are counted in one interval or the other.
+	 *
+	 * @return the {@link Snapshot}
+	 */
+	public Snapshot snapshotAndReset() {
+		long[] bucketCounts = new long[NUM_OF_BUCKETS];
+		long count = 0;
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			bucketCounts[i] = counts.getAndSet(i, 0);
+			count += bucketCounts[i];
+		}
+		long total = sum.sumThenReset();
+		long maxValue = max.getAndSet(0);
+		if (count == 0) {
+			return Snapshot.EMPTY;
+		}
+		return new Snapshot(count, (double) total / count, getPercentile(bucketCounts, count, 0.5, maxValue),
+				getPercentile(bucketCounts, count, 0.9, maxValue), getPercentile(bucketCounts, count, 0.99, maxValue),
+				maxValue);
+	}
+
+	/*
+	 * Bucket 0 holds 0 and bucket n holds values from 2^(n-1) to 2^n - 1
+	 */
+	private static int getBucket(long value) {
+		return 64 - Long.numberOfLeadingZeros(value);
+	}
+
+	private static long getPercentile(long[] bucketCounts, long count, double percentile, long maxValue) {
+		long rank = (long) Math.ceil(count * percentile);
+		long seen = 0;
+		for (int i = 0; i < bucketCounts.length; i++) {
+			seen += bucketCounts[i];
+			if (seen >= rank) {
+				long upperBound = i == 0 ? 0 : i == NUM_OF_BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+				return Math.min(upperBound, maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	/**
+	 * The values recorded in a {@link Histogram} over an interval
+	 */
+	public static final class Snapshot {
+
+		public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
+
+		private final long count;
+		private final double mean;
+		private final long p50;
+		private final long p90;
+		private final long p99;
+		private final long max;
+
+		public Snapshot(long count, double mean, long p50, long p90, long p99, long max) {
+			this.count = count;
+			this.mean = mean;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP90() {
+			return p90;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("Snapshot [count=");
+			builder.append(count);
+			builder.append(", mean=");
+			builder.append(mean);
+			builder.append(", p50=");
+			builder.append(p50);
+			builder.append(", p90=");
+			builder.append(p90);
+			builder.append(", p99=");
+			builder.append(p99);
+			builder.append(", max=");
+			builder.append(max);
+			builder.append("]");
+			return builder.toString();
+		}
+	}
+}
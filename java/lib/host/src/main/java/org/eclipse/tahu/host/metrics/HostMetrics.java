@@ -0,0 +1,452 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.host.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.eclipse.tahu.message.model.MessageType;
+import org.eclipse.tahu.util.SharedScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A registry of metrics describing the ingest path of a Host Application: messages and Sparkplug metrics per second by
+ * message type, decode time and end to end latency, executor queue depths, sequence reorder buffer occupancy and
+ * timeouts, rebirth requests and the busiest Edge Nodes.
+ *
+ * Recording is always on and costs a few uncontended atomic increments per message. Nothing is sampled or exported
+ * until {@link #start(long)} is called, which registers the {@link HostMetricsMXBean} with the platform MBean server
+ * and periodically passes a {@link HostMetricsSnapshot} to each {@link HostMetricsExporter}.
+ *
+ * A shared instance is available from {@link #getInstance()} and is used by the Host Application classes.
+ */
+public class HostMetrics {
+
+	private static Logger logger = LoggerFactory.getLogger(HostMetrics.class.getName());
+
+	public static final String OBJECT_NAME = "org.eclipse.tahu:type=HostMetrics";
+
+	public static final long DEFAULT_INTERVAL_MILLIS = 10000;
+
+	public static final int NUM_OF_HOT_EDGE_NODES = 10;
+
+	private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+
+	private final LongAdder[] messageCounts = new LongAdder[MESSAGE_TYPES.length];
+	private final LongAdder[] metricCounts = new LongAdder[MESSAGE_TYPES.length];
+	private final Histogram decodeTime = new Histogram();
+	private final Histogram latency = new Histogram();
+	private final LongAdder reorderTimeouts = new LongAdder();
+	private final LongAdder rebirthRequests = new LongAdder();
+	private final LongAdder rebirthRequestsDelayed = new LongAdder();
+	private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+	private final Map<EdgeNodeDescriptor, LongAdder> edgeNodeMessageCounts = new ConcurrentHashMap<>();
+	private final List<HostMetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+	private final Object lifecycleLock = new Object();
+	private ScheduledFuture<?> sampler;
+	private List<HostMetricsExporter> serviceExporters = Collections.emptyList();
+
+	// Guarded by this
+	private final long[] lastMessageCounts = new long[MESSAGE_TYPES.length];
+	private final long[] lastMetricCounts = new long[MESSAGE_TYPES.length];
+	private long lastSampleNanos;
+
+	private volatile HostMetricsSnapshot lastSnapshot;
+
+	/**
+	 * Creates a {@link HostMetrics} that shares nothing with the shared instance
+	 */
+	public HostMetrics() {
+		for (int i = 0; i < MESSAGE_TYPES.length; i++) {
+			messageCounts[i] = new LongAdder();
+			metricCounts[i] = new LongAdder();
+		}
+		lastSampleNanos = System.nanoTime();
+		lastSnapshot = sample();
+	}
+
+	/**
+	 * Returns the shared instance
+	 *
+	 * @return the shared {@link HostMetrics}
+	 */
+	public static HostMetrics getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Records a decoded message
+	 *
+	 * @param edgeNodeDescriptor the {@link EdgeNodeDescriptor} of the Edge Node that sent the message
+	 * @param messageType the {@link MessageType} of the message
+	 * @param numOfMetrics the number of Sparkplug metrics in the payload
+	 * @param decodeNanos the time taken to decode the payload in nanoseconds
+	 */
+	public void onMessage(EdgeNodeDescriptor edgeNodeDescriptor, MessageType messageType, int numOfMetrics,
+			long decodeNanos) {
+		messageCounts[messageType.ordinal()].increment();
+		metricCounts[messageType.ordinal()].add(numOfMetrics);
+		decodeTime.record(decodeNanos);
+		while (true) {
+			LongAdder edgeNodeMessageCount = edgeNodeMessageCounts.get(edgeNodeDescriptor);
+			if (edgeNodeMessageCount == null) {
+				edgeNodeMessageCount = edgeNodeMessageCounts.computeIfAbsent(edgeNodeDescriptor, k -> new LongAdder());
+			}
+			edgeNodeMessageCount.increment();
+			if (edgeNodeMessageCounts.get(edgeNodeDescriptor) == edgeNodeMessageCount) {
+				return;
+			}
+			// Removed as idle by getHotEdgeNodes before the increment could be seen - count it again in a new one
+		}
+	}
+
+	/**
+	 * Records the time from the arrival of a message to the end of its handling
+	 *
+	 * @param latencyNanos the latency in nanoseconds
+	 */
+	public void onMessageHandled(long latencyNanos) {
+		latency.record(latencyNanos);
+	}
+
+	/**
+	 * Records a sequence reorder timeout
+	 */
+	public void onReorderTimeout() {
+		reorderTimeouts.increment();
+	}
+
+	/**
+	 * Records a rebirth request sent to an Edge Node
+	 *
+	 * @param delayed true if the request was delayed by the rebirth rate limit
+	 */
+	public void onRebirthRequest(boolean delayed) {
+		rebirthRequests.increment();
+		if (delayed) {
+			rebirthRequestsDelayed.increment();
+		}
+	}
+
+	/**
+	 * Returns the name of a gauge of a Host Application. The name is prefixed with the Host ID so the gauges of Host
+	 * Applications sharing a registry do not replace each other.
+	 *
+	 * @param hostId the Host ID of the Host Application, or null for a gauge shared by all Host Applications
+	 * @param name the name of the gauge within the Host Application
+	 * @return the name of the gauge
+	 */
+	public static String getGaugeName(String hostId, String name) {
+		return hostId != null ? "host." + hostId + "." + name : name;
+	}
+
+	/**
+	 * Registers a gauge that is read each time the metrics are sampled, replacing any gauge with the same name
+	 *
+	 * @param name the name of the gauge
+	 * @param gauge the {@link LongSupplier} of the current value
+	 */
+	public void registerGauge(String name, LongSupplier gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * Removes a gauge
+	 *
+	 * @param name the name of the gauge
+	 */
+	public void unregisterGauge(String name) {
+		gauges.remove(name);
+	}
+
+	public void addExporter(HostMetricsExporter exporter) {
+		exporters.add(exporter);
+	}
+
+	public void removeExporter(HostMetricsExporter exporter) {
+		exporters.remove(exporter);
+	}
+
+	/**
+	 * Starts sampling the metrics at a fixed interval, registers the {@link HostMetricsMXBean} and loads any
+	 * {@link HostMetricsExporter}s available from the {@link ServiceLoader}. Does nothing if already started.
+	 *
+	 * @param intervalMillis the sampling interval in milliseconds
+	 */
+	public void start(long intervalMillis) {
+		synchronized (lifecycleLock) {
+			if (sampler != null) {
+				return;
+			}
+			List<HostMetricsExporter> loadedExporters = new ArrayList<>();
+			try {
+				for (HostMetricsExporter exporter : ServiceLoader.load(HostMetricsExporter.class)) {
+					logger.info("Loaded HostMetricsExporter {}", exporter.getClass().getName());
+					loadedExporters.add(exporter);
+				}
+			} catch (ServiceConfigurationError e) {
+				logger.error("Failed to load HostMetricsExporters", e);
+			}
+			serviceExporters = loadedExporters;
+
+			try {
+				MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+				ObjectName objectName = new ObjectName(OBJECT_NAME);
+				if (!mBeanServer.isRegistered(objectName)) {
+					mBeanServer.registerMBean(new HostMetricsJmx(this), objectName);
+				}
+			} catch (Exception e) {
+				logger.error("Failed to register {}", OBJECT_NAME, e);
+			}
+
+			sampler = SharedScheduler.scheduleWithFixedDelay(this::sampleAndExport, intervalMillis, intervalMillis,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops sampling the metrics and unregisters the {@link HostMetricsMXBean}. Recording continues.
+	 */
+	public void stop() {
+		synchronized (lifecycleLock) {
+			if (sampler == null) {
+				return;
+			}
+			sampler.cancel(false);
+			sampler = null;
+			serviceExporters = Collections.emptyList();
+			try {
+				MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+				ObjectName objectName = new ObjectName(OBJECT_NAME);
+				if (mBeanServer.isRegistered(objectName)) {
+					mBeanServer.unregisterMBean(objectName);
+				}
+			} catch (Exception e) {
+				logger.error("Failed to unregister {}", OBJECT_NAME, e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the most recent sample
+	 *
+	 * @return the most recent {@link HostMetricsSnapshot}
+	 */
+	public HostMetricsSnapshot getLastSnapshot() {
+		return lastSnapshot;
+	}
+
+	/**
+	 * Samples the metrics and starts a new interval. This is called periodically once started but can also be called
+	 * directly, for example by an exporter that pulls rather than being pushed to.
+	 *
+	 * @return the {@link HostMetricsSnapshot}
+	 */
+	public synchronized HostMetricsSnapshot sample() {
+		long now = System.nanoTime();
+		long intervalNanos = now - lastSampleNanos;
+		lastSampleNanos = now;
+		double intervalSeconds = intervalNanos / 1_000_000_000d;
+
+		Map<String, Long> messageTotals = new LinkedHashMap<>();
+		Map<String, Double> messageRates = new LinkedHashMap<>();
+		Map<String, Long> metricTotals = new LinkedHashMap<>();
+		Map<String, Double> metricRates = new LinkedHashMap<>();
+		for (int i = 0; i < MESSAGE_TYPES.length; i++) {
+			if (MESSAGE_TYPES[i].isCommand()) {
+				// Outbound commands are not handled
+				continue;
+			}
+			String name = MESSAGE_TYPES[i].name();
+			long messageCount = messageCounts[i].sum();
+			long metricCount = metricCounts[i].sum();
+			messageTotals.put(name, messageCount);
+			metricTotals.put(name, metricCount);
+			messageRates.put(name, getRate(messageCount - lastMessageCounts[i], intervalSeconds));
+			metricRates.put(name, getRate(metricCount - lastMetricCounts[i], intervalSeconds));
+			lastMessageCounts[i] = messageCount;
+			lastMetricCounts[i] = metricCount;
+		}
+
+		Map<String, Long> gaugeValues = new TreeMap<>();
+		for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+			try {
+				gaugeValues.put(entry.getKey(), entry.getValue().getAsLong());
+			} catch (Exception e) {
+				logger.debug("Failed to read gauge {}", entry.getKey(), e);
+			}
+		}
+
+		HostMetricsSnapshot snapshot = new HostMetricsSnapshot(System.currentTimeMillis(),
+				TimeUnit.NANOSECONDS.toMillis(intervalNanos), messageTotals, messageRates, metricTotals, metricRates,
+				decodeTime.snapshotAndReset(), latency.snapshotAndReset(), reorderTimeouts.sum(),
+				rebirthRequests.sum(), rebirthRequestsDelayed.sum(), gaugeValues,
+				getHotEdgeNodes(intervalSeconds));
+		lastSnapshot = snapshot;
+		return snapshot;
+	}
+
+	private void sampleAndExport() {
+		HostMetricsSnapshot snapshot = sample();
+		logger.debug("Sampled {}", snapshot);
+		export(exporters, snapshot);
+		export(serviceExporters, snapshot);
+	}
+
+	private void export(List<HostMetricsExporter> exporters, HostMetricsSnapshot snapshot) {
+		for (HostMetricsExporter exporter : exporters) {
+			try {
+				exporter.export(snapshot);
+			} catch (Exception e) {
+				logger.error("Failed to export HostMetrics with {}", exporter.getClass().getName(), e);
+			}
+		}
+	}
+
+	/*
+	 * Returns the busiest Edge Nodes since the last sample and forgets the idle ones
+	 */
+	private Map<String, Double> getHotEdgeNodes(double intervalSeconds) {
+		PriorityQueue<Map.Entry<EdgeNodeDescriptor, Long>> hottest =
+				new PriorityQueue<>(NUM_OF_HOT_EDGE_NODES + 1, Map.Entry.comparingByValue());
+		for (Map.Entry<EdgeNodeDescriptor, LongAdder> entry : edgeNodeMessageCounts.entrySet()) {
+			LongAdder edgeNodeMessageCount = entry.getValue();
+			long count = edgeNodeMessageCount.sumThenReset();
+			if (count == 0) {
+				// Only removed if still idle - onMessage counts again if its increment lands after the removal
+				edgeNodeMessageCounts.computeIfPresent(entry.getKey(),
+						(k, v) -> v == edgeNodeMessageCount && v.sum() == 0 ? null : v);
+				continue;
+			}
+			hottest.add(new SimpleImmutableEntry<>(entry.getKey(), count));
+			if (hottest.size() > NUM_OF_HOT_EDGE_NODES) {
+				hottest.poll();
+			}
+		}
+
+		List<Map.Entry<EdgeNodeDescriptor, Long>> sorted = new ArrayList<>(hottest);
+		sorted.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+		Map<String, Double> hotEdgeNodes = new LinkedHashMap<>();
+		for (Map.Entry<EdgeNodeDescriptor, Long> entry : sorted) {
+			hotEdgeNodes.put(entry.getKey().toString(), getRate(entry.getValue(), intervalSeconds));
+		}
+		return hotEdgeNodes;
+	}
+
+	private static double getRate(long count, double intervalSeconds) {
+		return intervalSeconds > 0 ? count / intervalSeconds : 0;
+	}
+
+	private static final class InstanceHolder {
+		private static final HostMetrics INSTANCE = new HostMetrics();
+	}
+
+	/*
+	 * Serves the last sample over JMX
+	 */
+	private static final class HostMetricsJmx implements HostMetricsMXBean {
+		private final HostMetrics hostMetrics;
+
+		private HostMetricsJmx(HostMetrics hostMetrics) {
+			this.hostMetrics = hostMetrics;
+		}
+
+		@Override
+		public long getTimestamp() {
+			return hostMetrics.getLastSnapshot().getTimestamp();
+		}
+
+		@Override
+		public long getIntervalMillis() {
+			return hostMetrics.getLastSnapshot().getIntervalMillis();
+		}
+
+		@Override
+		public Map<String, Long> getMessageCounts() {
+			return hostMetrics.getLastSnapshot().getMessageCounts();
+		}
+
+		@Override
+		public Map<String, Double> getMessageRates() {
+			return hostMetrics.getLastSnapshot().getMessageRates();
+		}
+
+		@Override
+		public Map<String, Long> getMetricCounts() {
+			return hostMetrics.getLastSnapshot().getMetricCounts();
+		}
+
+		@Override
+		public Map<String, Double> getMetricRates() {
+			return hostMetrics.getLastSnapshot().getMetricRates();
+		}
+
+		@Override
+		public Histogram.Snapshot getDecodeTime() {
+			return hostMetrics.getLastSnapshot().getDecodeTime();
+		}
+
+		@Override
+		public Histogram.Snapshot getLatency() {
+			return hostMetrics.getLastSnapshot().getLatency();
+		}
+
+		@Override
+		public long getReorderTimeouts() {
+			return hostMetrics.getLastSnapshot().getReorderTimeouts();
+		}
+
+		@Override
+		public long getRebirthRequests() {
+			return hostMetrics.getLastSnapshot().getRebirthRequests();
+		}
+
+		@Override
+		public long getRebirthRequestsDelayed() {
+			return hostMetrics.getLastSnapshot().getRebirthRequestsDelayed();
+		}
+
+		@Override
+		public Map<String, Long> getGauges() {
+			return hostMetrics.getLastSnapshot().getGauges();
+		}
+
+		@Override
+		public Map<String, Double> getHotEdgeNodes() {
+			return hostMetrics.getLastSnapshot().getHotEdgeNodes();
+		}
+	}
+}
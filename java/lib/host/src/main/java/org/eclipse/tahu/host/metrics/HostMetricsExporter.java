@@ -0,0 +1,33 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.host.metrics;
+
+/**
+ * A destination for the {@link HostMetricsSnapshot}s sampled by {@link HostMetrics}, for example a Prometheus or
+ * StatsD bridge. Exporters can be added with {@link HostMetrics#addExporter(HostMetricsExporter)} or discovered with
+ * {@link java.util.ServiceLoader} by listing the implementation class in
+ * META-INF/services/org.eclipse.tahu.host.metrics.HostMetricsExporter.
+ *
+ * Exporters are called on a shared scheduler thread and should hand off any slow work.
+ */
+public interface HostMetricsExporter {
+
+	/**
+	 * Exports a sample of the Host Application metrics
+	 *
+	 * @param snapshot the {@link HostMetricsSnapshot} for the last interval
+	 */
+	public void export(HostMetricsSnapshot snapshot);
+}
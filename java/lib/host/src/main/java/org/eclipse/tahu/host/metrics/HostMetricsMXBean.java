@@ -0,0 +1,50 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.host.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the last {@link HostMetricsSnapshot}, registered as {@value HostMetrics#OBJECT_NAME} while
+ * {@link HostMetrics} is started. Durations are in nanoseconds and rates are per second.
+ */
+public interface HostMetricsMXBean {
+
+	public long getTimestamp();
+
+	public long getIntervalMillis();
+
+	public Map<String, Long> getMessageCounts();
+
+	public Map<String, Double> getMessageRates();
+
+	public Map<String, Long> getMetricCounts();
+
+	public Map<String, Double> getMetricRates();
+
+	public Histogram.Snapshot getDecodeTime();
+
+	public Histogram.Snapshot getLatency();
+
+	public long getReorderTimeouts();
+
+	public long getRebirthRequests();
+
+	public long getRebirthRequestsDelayed();
+
+	public Map<String, Long> getGauges();
+
+	public Map<String, Double> getHotEdgeNodes();
+}
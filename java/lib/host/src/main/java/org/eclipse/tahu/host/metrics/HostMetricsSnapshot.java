@@ -0,0 +1,207 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+
+package org.eclipse.tahu.host.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable sample of the {@link HostMetrics} of a Host Application. Counts of messages, metrics, reorder timeouts
+ * and rebirth requests are totals since the {@link HostMetrics} were created, while rates, histograms and hot Edge
+ * Nodes cover only the last interval. Message and metric counts are keyed by Sparkplug message type and durations are
+ * in nanoseconds.
+ */
+public final class HostMetricsSnapshot {
+
+	private final long timestamp;
+	private final long intervalMillis;
+	private final Map<String, Long> messageCounts;
+	private final Map<String, Double> messageRates;
+	private final Map<String, Long> metricCounts;
+	private final Map<String, Double> metricRates;
+	private final Histogram.Snapshot decodeTime;
+	private final Histogram.Snapshot latency;
+	private final long reorderTimeouts;
+	private final long rebirthRequests;
+	private final long rebirthRequestsDelayed;
+	private final Map<String, Long> gauges;
+	private final Map<String, Double> hotEdgeNodes;
+
+	public HostMetricsSnapshot(long timestamp, long intervalMillis, Map<String, Long> messageCounts,
+			Map<String, Double> messageRates, Map<String, Long> metricCounts, Map<String, Double> metricRates,
+			Histogram.Snapshot decodeTime, Histogram.Snapshot latency, long reorderTimeouts, long rebirthRequests,
+			long rebirthRequestsDelayed, Map<String, Long> gauges, Map<String, Double> hotEdgeNodes) {
+		this.timestamp = timestamp;
+		this.intervalMillis = intervalMillis;
+		this.messageCounts = Collections.unmodifiableMap(messageCounts);
+		this.messageRates = Collections.unmodifiableMap(messageRates);
+		this.metricCounts = Collections.unmodifiableMap(metricCounts);
+		this.metricRates = Collections.unmodifiableMap(metricRates);
+		this.decodeTime = decodeTime;
+		this.latency = latency;
+		this.reorderTimeouts = reorderTimeouts;
+		this.rebirthRequests = rebirthRequests;
+		this.rebirthRequestsDelayed = rebirthRequestsDelayed;
+		this.gauges = Collections.unmodifiableMap(gauges);
+		this.hotEdgeNodes = Collections.unmodifiableMap(hotEdgeNodes);
+	}
+
+	/**
+	 * Returns the time the sample was taken
+	 *
+	 * @return the time the sample was taken in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns the length of the interval covered by the rates, histograms and hot Edge Nodes
+	 *
+	 * @return the length of the interval in milliseconds
+	 */
+	public long getIntervalMillis() {
+		return intervalMillis;
+	}
+
+	/**
+	 * Returns the total number of messages handled by message type
+	 *
+	 * @return the total number of messages handled by message type
+	 */
+	public Map<String, Long> getMessageCounts() {
+		return messageCounts;
+	}
+
+	/**
+	 * Returns the messages per second by message type over the interval
+	 *
+	 * @return the messages per second by message type
+	 */
+	public Map<String, Double> getMessageRates() {
+		return messageRates;
+	}
+
+	/**
+	 * Returns the total number of Sparkplug metrics handled by message type
+	 *
+	 * @return the total number of Sparkplug metrics handled by message type
+	 */
+	public Map<String, Long> getMetricCounts() {
+		return metricCounts;
+	}
+
+	/**
+	 * Returns the Sparkplug metrics per second by message type over the interval
+	 *
+	 * @return the Sparkplug metrics per second by message type
+	 */
+	public Map<String, Double> getMetricRates() {
+		return metricRates;
+	}
+
+	/**
+	 * Returns the time taken to decode payloads over the interval
+	 *
+	 * @return the {@link Histogram.Snapshot} of decode times in nanoseconds
+	 */
+	public Histogram.Snapshot getDecodeTime() {
+		return decodeTime;
+	}
+
+	/**
+	 * Returns the time from the arrival of a message to the end of its handling over the interval, including the time
+	 * spent queued and held for reordering
+	 *
+	 * @return the {@link Histogram.Snapshot} of latencies in nanoseconds
+	 */
+	public Histogram.Snapshot getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Returns the total number of times sequence reordering timed out waiting for a missing message
+	 *
+	 * @return the total number of reorder timeouts
+	 */
+	public long getReorderTimeouts() {
+		return reorderTimeouts;
+	}
+
+	/**
+	 * Returns the total number of rebirth requests sent to Edge Nodes
+	 *
+	 * @return the total number of rebirth requests
+	 */
+	public long getRebirthRequests() {
+		return rebirthRequests;
+	}
+
+	/**
+	 * Returns the total number of rebirth requests that were delayed by the rebirth rate limit
+	 *
+	 * @return the total number of delayed rebirth requests
+	 */
+	public long getRebirthRequestsDelayed() {
+		return rebirthRequestsDelayed;
+	}
+
+	/**
+	 * Returns the current values of the registered gauges, such as executor queue depths and reorder buffer occupancy
+	 *
+	 * @return the gauge values by name
+	 */
+	public Map<String, Long> getGauges() {
+		return gauges;
+	}
+
+	/**
+	 * Returns the busiest Edge Nodes over the interval, busiest first
+	 *
+	 * @return the messages per second by Edge Node
+	 */
+	public Map<String, Double> getHotEdgeNodes() {
+		return hotEdgeNodes;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("HostMetricsSnapshot [timestamp=");
+		builder.append(timestamp);
+		builder.append(", intervalMillis=");
+		builder.append(intervalMillis);
+		builder.append(", messageRates=");
+		builder.append(messageRates);
+		builder.append(", metricRates=");
+		builder.append(metricRates);
+		builder.append(", decodeTime=");
+		builder.append(decodeTime);
+		builder.append(", latency=");
+		builder.append(latency);
+		builder.append(", reorderTimeouts=");
+		builder.append(reorderTimeouts);
+		builder.append(", rebirthRequests=");
+		builder.append(rebirthRequests);
+		builder.append(", rebirthRequestsDelayed=");
+		builder.append(rebirthRequestsDelayed);
+		builder.append(", gauges=");
+		builder.append(gauges);
+		builder.append(", hotEdgeNodes=");
+		builder.append(hotEdgeNodes);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -13,9 +13,13 @@
 
 package org.eclipse.tahu.host.model;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.tahu.exception.TahuErrorCode;
+import org.eclipse.tahu.exception.TahuException;
+import org.eclipse.tahu.message.model.DeviceDescriptor;
 import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
 import org.eclipse.tahu.message.model.Metric;
 import org.eclipse.tahu.message.model.MetricDataType;
@@ -26,6 +30,16 @@ import org.eclipse.tahu.model.MetricMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The alias and {@link MetricDataType} tables of the Edge Nodes and Devices known to the Host Application.
+ *
+ * No lock is taken. Lookups read the tables of a single Edge Node or Device. The births replace and {@link #clear}
+ * removes whole tables with one {@link ConcurrentHashMap} operation, and {@link #addMetric} adds to a {@link MetricMap}
+ * which synchronizes itself. An NBIRTH replaces the Edge Node's entry, which holds the tables of the Edge Node and its
+ * Devices, so a DBIRTH or {@link #addMetric} running at the same time for the same Edge Node could land in the
+ * replaced entry. A lock around the older methods alone would not prevent that. It does not happen in the Host
+ * Application because all of the messages of an Edge Node are handled one at a time by the same executor.
+ */
 public class HostApplicationMetricMap {
 
 	private static Logger logger = LoggerFactory.getLogger(HostApplicationMetricMap.class.getName());
@@ -34,8 +48,6 @@ public class HostApplicationMetricMap {
 
 	private final Map<EdgeNodeDescriptor, Map<SparkplugDescriptor, MetricMap>> allEdgeNodeMetricMaps;
 
-	private final Object mapLock = new Object();
-
 	public static HostApplicationMetricMap getInstance() {
 		if (instance == null) {
 			instance = new HostApplicationMetricMap();
@@ -49,29 +61,95 @@ public class HostApplicationMetricMap {
 
 	public void addMetric(EdgeNodeDescriptor edgeNodeDescriptor, SparkplugDescriptor sparkplugDescriptor,
 			String metricName, Metric metric) {
-		synchronized (mapLock) {
-			Map<SparkplugDescriptor, MetricMap> edgeNodeMetricMaps =
-					allEdgeNodeMetricMaps.computeIfAbsent(edgeNodeDescriptor, (k) -> new ConcurrentHashMap<>());
-			MetricMap metricMap = edgeNodeMetricMaps.computeIfAbsent(sparkplugDescriptor, (k) -> new MetricMap());
-			metricMap.addAlias(metricName, metric.getAlias(), metric.getDataType());
-
-			if (metric.getDataType() == MetricDataType.Template && metric.getValue() != null
-					&& Template.class.isAssignableFrom(metric.getValue().getClass())) {
-				Template template = (Template) metric.getValue();
-				for (Metric childMetric : template.getMetrics()) {
-					addMetric(edgeNodeDescriptor, sparkplugDescriptor, metricName + "/" + childMetric.getName(),
-							childMetric);
-				}
+		Map<SparkplugDescriptor, MetricMap> edgeNodeMetricMaps =
+				allEdgeNodeMetricMaps.computeIfAbsent(edgeNodeDescriptor, (k) -> new ConcurrentHashMap<>());
+		MetricMap metricMap = edgeNodeMetricMaps.computeIfAbsent(sparkplugDescriptor, (k) -> new MetricMap());
+		metricMap.addAlias(metricName, metric.getAlias(), metric.getDataType());
+
+		if (metric.getDataType() == MetricDataType.Template && metric.getValue() != null
+				&& Template.class.isAssignableFrom(metric.getValue().getClass())) {
+			Template template = (Template) metric.getValue();
+			for (Metric childMetric : template.getMetrics()) {
+				addMetric(edgeNodeDescriptor, sparkplugDescriptor, metricName + "/" + childMetric.getName(),
+						childMetric);
 			}
 		}
 	}
 
-	public void clear(EdgeNodeDescriptor edgeNodeDescriptor) {
-		synchronized (mapLock) {
-			allEdgeNodeMetricMaps.remove(edgeNodeDescriptor);
+	/**
+	 * Registers the metrics of an NBIRTH. The alias and {@link MetricDataType} tables are built without holding any
+	 * lock and then replace everything registered for the Edge Node and its Devices in a single step, so lookups see
+	 * either the previous tables or the complete new ones.
+	 *
+	 * @param edgeNodeDescriptor the {@link EdgeNodeDescriptor} of the Edge Node
+	 * @param metrics the {@link Metric}s of the NBIRTH
+	 * @throws TahuException if two metrics of the NBIRTH share an alias - nothing is registered in that case
+	 */
+	public void registerNodeBirth(EdgeNodeDescriptor edgeNodeDescriptor, List<Metric> metrics) throws TahuException {
+		MetricMap metricMap = buildMetricMap(edgeNodeDescriptor, metrics);
+		Map<SparkplugDescriptor, MetricMap> edgeNodeMetricMaps = new ConcurrentHashMap<>();
+		edgeNodeMetricMaps.put(edgeNodeDescriptor, metricMap);
+		allEdgeNodeMetricMaps.put(edgeNodeDescriptor, edgeNodeMetricMaps);
+	}
+
+	/**
+	 * Registers the metrics of a DBIRTH. The alias and {@link MetricDataType} tables are built without holding any
+	 * lock and then replace everything registered for the Device in a single step.
+	 *
+	 * @param edgeNodeDescriptor the {@link EdgeNodeDescriptor} of the Edge Node the Device belongs to
+	 * @param deviceDescriptor the {@link DeviceDescriptor} of the Device
+	 * @param metrics the {@link Metric}s of the DBIRTH
+	 * @throws TahuException if two metrics of the DBIRTH share an alias - nothing is registered in that case
+	 */
+	public void registerDeviceBirth(EdgeNodeDescriptor edgeNodeDescriptor, DeviceDescriptor deviceDescriptor,
+			List<Metric> metrics) throws TahuException {
+		MetricMap metricMap = buildMetricMap(deviceDescriptor, metrics);
+		allEdgeNodeMetricMaps.computeIfAbsent(edgeNodeDescriptor, (k) -> new ConcurrentHashMap<>())
+				.put(deviceDescriptor, metricMap);
+	}
+
+	private MetricMap buildMetricMap(SparkplugDescriptor sparkplugDescriptor, List<Metric> metrics)
+			throws TahuException {
+		MetricMap metricMap = new MetricMap();
+		StringBuilder nameBuilder = new StringBuilder();
+		for (Metric metric : metrics) {
+			nameBuilder.setLength(0);
+			addToMetricMap(metricMap, sparkplugDescriptor, nameBuilder.append(metric.getName()), metric);
+		}
+		return metricMap;
+	}
+
+	/*
+	 * Adds a metric and any Template members to a MetricMap. The name builder holds the full name of the metric and
+	 * is restored to it before returning.
+	 */
+	private void addToMetricMap(MetricMap metricMap, SparkplugDescriptor sparkplugDescriptor,
+			StringBuilder nameBuilder, Metric metric) throws TahuException {
+		String metricName = nameBuilder.toString();
+		if (metric.hasAlias()) {
+			String existingName = metricMap.getMetricName(metric.getAlias());
+			if (existingName != null) {
+				throw new TahuException(TahuErrorCode.INVALID_ARGUMENT,
+						"Not adding duplicated alias for " + sparkplugDescriptor + " - alias=" + metric.getAlias()
+								+ " and metric name=" + metricName + " - with existing alias for " + existingName);
+			}
+		}
+		metricMap.addAlias(metricName, metric.getAlias(), metric.getDataType());
+
+		if (metric.getDataType() == MetricDataType.Template && metric.getValue() instanceof Template) {
+			int length = nameBuilder.length();
+			for (Metric childMetric : ((Template) metric.getValue()).getMetrics()) {
+				addToMetricMap(metricMap, sparkplugDescriptor, nameBuilder.append('/').append(childMetric.getName()),
+						childMetric);
+				nameBuilder.setLength(length);
+			}
 		}
 	}
 
+	public void clear(EdgeNodeDescriptor edgeNodeDescriptor) {
+		allEdgeNodeMetricMaps.remove(edgeNodeDescriptor);
+	}
+
 	public Long getAlias(EdgeNodeDescriptor edgeNodeDescriptor, SparkplugDescriptor sparkplugDescriptor,
 			String metricName) {
 		Map<SparkplugDescriptor, MetricMap> edgeNodeMetricMaps = allEdgeNodeMetricMaps.get(edgeNodeDescriptor);
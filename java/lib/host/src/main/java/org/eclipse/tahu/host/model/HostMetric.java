@@ -38,8 +38,12 @@ public class HostMetric extends Metric {
 	}
 
 	public HostMetric(Metric metric, boolean stale) throws SparkplugInvalidTypeException {
-		this(metric.getName(), metric.getAlias(), metric.getTimestamp(), metric.getDataType(), metric.isHistorical(),
-				metric.isTransient(), metric.getMetaData(), metric.getProperties(), metric.getValue(), stale);
+		this(metric.getName(), metric.getAlias(), null, metric.getDataType(), metric.isHistorical(),
+				metric.isTransient(), metric.getMetaData(), metric.getProperties(), null, stale);
+		if (metric.hasTimestamp()) {
+			setTimestampMillis(metric.getTimestampMillis());
+		}
+		copyValue(metric);
 	}
 
 	public boolean isStale() {
@@ -13,9 +13,10 @@
 
 package org.eclipse.tahu.host.seq;
 
+import java.util.Date;
+
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.tahu.message.model.MessageType;
-import org.eclipse.tahu.message.model.SparkplugBPayload;
 import org.eclipse.tahu.message.model.Topic;
 import org.eclipse.tahu.mqtt.MqttClientId;
 import org.eclipse.tahu.mqtt.MqttServerName;
@@ -23,23 +24,23 @@ import org.eclipse.tahu.mqtt.MqttServerName;
 public class SequenceReorderContext {
 
 	private final String topicString;
-	private final String[] splitTopic;
 	private final Topic topic;
 	private final MqttMessage message;
-	private final SparkplugBPayload payload;
+	private final Long seq;
+	private final Date timestamp;
 	private final MessageType messageType;
 	private final MqttServerName mqttServerName;
 	private final MqttClientId hostAppMqttClientId;
 	private final long arrivedTime;
 
-	public SequenceReorderContext(String topicString, Topic topic, MqttMessage message, SparkplugBPayload payload,
+	public SequenceReorderContext(String topicString, Topic topic, MqttMessage message, Long seq, Date timestamp,
 			MessageType messageType, MqttServerName mqttServerName, MqttClientId hostAppMqttClientId,
 			long arrivedTime) {
 		this.topicString = topicString;
-		this.splitTopic = topicString.split("/");
 		this.topic = topic;
 		this.message = message;
-		this.payload = payload;
+		this.seq = seq;
+		this.timestamp = timestamp;
 		this.messageType = messageType;
 		this.mqttServerName = mqttServerName;
 		this.hostAppMqttClientId = hostAppMqttClientId;
@@ -51,7 +52,7 @@ public class SequenceReorderContext {
 	}
 
 	public String[] getSplitTopic() {
-		return splitTopic;
+		return topicString.split("/");
 	}
 
 	public Topic getTopic() {
@@ -62,8 +63,22 @@ public class SequenceReorderContext {
 		return message;
 	}
 
-	public SparkplugBPayload getPayload() {
-		return payload;
+	/**
+	 * Returns the sequence number peeked from the payload
+	 *
+	 * @return the sequence number of the payload or null if not present
+	 */
+	public Long getSeq() {
+		return seq;
+	}
+
+	/**
+	 * Returns the timestamp peeked from the payload
+	 *
+	 * @return the timestamp of the payload or null if not present
+	 */
+	public Date getTimestamp() {
+		return timestamp;
 	}
 
 	public MessageType getMessageType() {
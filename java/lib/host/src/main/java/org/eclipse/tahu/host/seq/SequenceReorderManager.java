@@ -13,12 +13,13 @@
 
 package org.eclipse.tahu.host.seq;
 
-import java.util.Calendar;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.tahu.SparkplugParsingException;
@@ -28,9 +29,10 @@ import org.eclipse.tahu.host.TahuPayloadHandler;
 import org.eclipse.tahu.host.api.HostApplicationEventHandler;
 import org.eclipse.tahu.host.manager.EdgeNodeManager;
 import org.eclipse.tahu.host.manager.SparkplugEdgeNode;
-import org.eclipse.tahu.host.model.HostApplicationMetricMap;
+import org.eclipse.tahu.host.metrics.HostMetrics;
 import org.eclipse.tahu.message.PayloadDecoder;
-import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
+import org.eclipse.tahu.message.PayloadHeader;
+import org.eclipse.tahu.message.SparkplugBStreamingPayloadDecoder;
 import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
 import org.eclipse.tahu.message.model.MessageType;
 import org.eclipse.tahu.message.model.SparkplugBPayload;
@@ -45,15 +47,13 @@ public class SequenceReorderManager {
 
 	private static Logger logger = LoggerFactory.getLogger(SequenceReorderManager.class.getName());
 
-	private static SequenceReorderManager instance;
+	private static final String BUFFERED_MESSAGES_GAUGE = "reorder.bufferedMessages";
 
-	private final static long SEQUENCE_MONITOR_TIMER = 1000L;
+	private static SequenceReorderManager instance;
 
 	private final Map<EdgeNodeDescriptor, SequenceReorderMap> edgeNodeMap;
 
-	private final Object edgeNodeMapLock = new Object();
-
-	private Timer timer;
+	private volatile ScheduledExecutorService scheduler;
 
 	private HostApplicationEventHandler eventHandler;
 
@@ -61,8 +61,16 @@ public class SequenceReorderManager {
 
 	private PayloadDecoder<SparkplugBPayload> payloadDecoder;
 
+	private TahuPayloadHandler payloadHandler;
+
+	private EdgeNodeManager edgeNodeManager = EdgeNodeManager.getInstance();
+
 	private Long timeout;
 
+	private volatile String hostId;
+
+	private String bufferedMessagesGauge;
+
 	private SequenceReorderManager() {
 		this.edgeNodeMap = new ConcurrentHashMap<>();
 	}
@@ -76,74 +84,146 @@ public class SequenceReorderManager {
 
 	public void init(HostApplicationEventHandler eventHandler, CommandPublisher commandPublisher,
 			PayloadDecoder<SparkplugBPayload> payloadDecoder, Long timeout) {
+		init(eventHandler, commandPublisher, payloadDecoder, timeout, EdgeNodeManager.getInstance());
+	}
+
+	public void init(HostApplicationEventHandler eventHandler, CommandPublisher commandPublisher,
+			PayloadDecoder<SparkplugBPayload> payloadDecoder, Long timeout, EdgeNodeManager edgeNodeManager) {
 		if (eventHandler != null && timeout != null) {
 			instance.eventHandler = eventHandler;
 			instance.commandPublisher = commandPublisher;
 			instance.payloadDecoder = payloadDecoder;
+			instance.edgeNodeManager = edgeNodeManager;
+			instance.payloadHandler =
+					new TahuPayloadHandler(eventHandler, commandPublisher, payloadDecoder, edgeNodeManager);
 			instance.timeout = timeout;
 		} else {
 			logger.error("Not re-initializing the SequenceReorderManager timer");
 		}
 	}
 
-	public void start() {
-		TimerTask monitorTask = new TimerTask() {
-			public void run() {
-				synchronized (edgeNodeMapLock) {
-					edgeNodeMap.values().forEach(sequenceReorderMap -> {
-						try {
-							if (!sequenceReorderMap.isEmpty()) {
-								Calendar calendar = Calendar.getInstance();
-								calendar.add(Calendar.MILLISECOND, (int) (timeout * -1));
-								if (sequenceReorderMap.getLastUpdateTime().before(calendar.getTime())) {
-									// Timed out
-									logger.info("Timeout while reording sequence numbers on {} with {} in queue",
-											sequenceReorderMap.getEdgeNodeDescriptor(), sequenceReorderMap.size());
-									SequenceReorderContext sequenceReorderContext =
-											sequenceReorderMap.getExpiredSequenceReorderContext(timeout);
-									if (sequenceReorderContext != null) {
-										TahuPayloadHandler handler =
-												new TahuPayloadHandler(eventHandler, commandPublisher, payloadDecoder);
-										SparkplugEdgeNode edgeNode = EdgeNodeManager.getInstance()
-												.getSparkplugEdgeNode(sequenceReorderMap.getEdgeNodeDescriptor());
-
-										// Reset the map as all values are now invalid
-										sequenceReorderMap.reset();
-
-										if (edgeNode != null) {
-											logger.info("Requesting a rebirth from known edge node {}",
-													sequenceReorderMap.getEdgeNodeDescriptor());
-											edgeNode.setHostAppMqttClientId(
-													sequenceReorderContext.getHostAppMqttClientId());
-											edgeNode.setMqttServerName(sequenceReorderContext.getMqttServerName());
-											handler.requestRebirth(sequenceReorderContext.getMqttServerName(),
-													sequenceReorderContext.getHostAppMqttClientId(),
-													sequenceReorderMap.getEdgeNodeDescriptor(), edgeNode);
-										} else {
-											logger.info("Requesting a rebirth from unknown edge node {}",
-													sequenceReorderMap.getEdgeNodeDescriptor());
-											handler.requestRebirth(sequenceReorderContext.getMqttServerName(),
-													sequenceReorderContext.getHostAppMqttClientId(),
-													sequenceReorderMap.getEdgeNodeDescriptor());
-										}
-									}
-								}
-							}
-						} catch (Exception e) {
-							logger.error("Failed to handle reorder entry in monitor", e);
-						}
-					});
-				}
+	/**
+	 * Sets the {@link TahuPayloadHandler} that messages and rebirth requests are passed to, so that they share the
+	 * rebirth request limit of the {@link org.eclipse.tahu.host.TahuHostCallback} the messages arrive through
+	 *
+	 * @param payloadHandler the {@link TahuPayloadHandler}
+	 */
+	public void setPayloadHandler(TahuPayloadHandler payloadHandler) {
+		this.payloadHandler = payloadHandler;
+	}
+
+	/**
+	 * Sets the Host ID that the metrics of this {@link SequenceReorderManager} are published under. Must be called
+	 * before {@link #start()}.
+	 *
+	 * @param hostId the Host ID
+	 * @see HostMetrics#getGaugeName(String, String)
+	 */
+	public void setHostId(String hostId) {
+		this.hostId = hostId;
+	}
+
+	public synchronized void start() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "SequenceMonitorTimer"));
+		}
+		if (bufferedMessagesGauge == null) {
+			bufferedMessagesGauge = HostMetrics.getGaugeName(hostId, BUFFERED_MESSAGES_GAUGE);
+			HostMetrics.getInstance().registerGauge(bufferedMessagesGauge, this::getNumOfBufferedMessages);
+		}
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		if (bufferedMessagesGauge != null) {
+			HostMetrics.getInstance().unregisterGauge(bufferedMessagesGauge);
+			bufferedMessagesGauge = null;
+		}
+	}
+
+	/*
+	 * Returns the number of out of order messages held across all Edge Nodes. The total is not taken atomically across
+	 * Edge Nodes.
+	 */
+	private long getNumOfBufferedMessages() {
+		long total = 0;
+		for (SequenceReorderMap sequenceReorderMap : edgeNodeMap.values()) {
+			total += sequenceReorderMap.size();
+		}
+		return total;
+	}
+
+	/**
+	 * Schedules a timeout check for the {@link SequenceReorderMap} if one is not already pending. Only Edge Nodes with
+	 * stored out of order messages are ever checked. Must be called while holding the {@link SequenceReorderMap} lock.
+	 *
+	 * @param sequenceReorderMap the {@link SequenceReorderMap} to check
+	 */
+	private void scheduleTimeoutCheck(SequenceReorderMap sequenceReorderMap) {
+		ScheduledExecutorService scheduler = this.scheduler;
+		if (scheduler != null && !sequenceReorderMap.isTimeoutCheckScheduled()) {
+			// Expiry is strictly after the timeout so check just past it
+			long delay = sequenceReorderMap.getLastUpdateNanos() + TimeUnit.MILLISECONDS.toNanos(timeout)
+					- System.nanoTime() + 1;
+			try {
+				scheduler.schedule(() -> checkTimeout(sequenceReorderMap), Math.max(delay, 1L), TimeUnit.NANOSECONDS);
+				sequenceReorderMap.setTimeoutCheckScheduled(true);
+			} catch (RejectedExecutionException e) {
+				logger.debug("Not scheduling timeout check for {} - SequenceReorderManager is stopped",
+						sequenceReorderMap.getEdgeNodeDescriptor());
 			}
-		};
-		timer = new Timer("SequenceMonitorTimer");
-		timer.scheduleAtFixedRate(monitorTask, SEQUENCE_MONITOR_TIMER, SEQUENCE_MONITOR_TIMER);
+		}
 	}
 
-	public void stop() {
-		if (timer != null) {
-			timer.cancel();
-			timer = null;
+	private void checkTimeout(SequenceReorderMap sequenceReorderMap) {
+		synchronized (sequenceReorderMap) {
+			try {
+				sequenceReorderMap.setTimeoutCheckScheduled(false);
+				if (sequenceReorderMap.isEmpty()
+						|| edgeNodeMap.get(sequenceReorderMap.getEdgeNodeDescriptor()) != sequenceReorderMap) {
+					// Nothing left to reorder or the Edge Node was removed
+					return;
+				}
+
+				SequenceReorderContext sequenceReorderContext =
+						sequenceReorderMap.getExpiredSequenceReorderContext(timeout);
+				if (sequenceReorderContext == null) {
+					// Progress was made since this check was scheduled - check again relative to the last update
+					scheduleTimeoutCheck(sequenceReorderMap);
+					return;
+				}
+
+				// Timed out
+				HostMetrics.getInstance().onReorderTimeout();
+				logger.info("Timeout while reording sequence numbers on {} with {} in queue",
+						sequenceReorderMap.getEdgeNodeDescriptor(), sequenceReorderMap.size());
+				SparkplugEdgeNode edgeNode =
+						edgeNodeManager.getSparkplugEdgeNode(sequenceReorderMap.getEdgeNodeDescriptor());
+
+				// Reset the map as all values are now invalid
+				sequenceReorderMap.reset();
+
+				if (edgeNode != null) {
+					logger.info("Requesting a rebirth from known edge node {}",
+							sequenceReorderMap.getEdgeNodeDescriptor());
+					edgeNode.setHostAppMqttClientId(sequenceReorderContext.getHostAppMqttClientId());
+					edgeNode.setMqttServerName(sequenceReorderContext.getMqttServerName());
+					payloadHandler.requestRebirth(sequenceReorderContext.getMqttServerName(),
+							sequenceReorderContext.getHostAppMqttClientId(), sequenceReorderMap.getEdgeNodeDescriptor(),
+							edgeNode);
+				} else {
+					logger.info("Requesting a rebirth from unknown edge node {}",
+							sequenceReorderMap.getEdgeNodeDescriptor());
+					payloadHandler.requestRebirth(sequenceReorderContext.getMqttServerName(),
+							sequenceReorderContext.getHostAppMqttClientId(),
+							sequenceReorderMap.getEdgeNodeDescriptor());
+				}
+			} catch (Exception e) {
+				logger.error("Failed to handle reorder entry in monitor", e);
+			}
 		}
 	}
 
@@ -151,26 +231,27 @@ public class SequenceReorderManager {
 	 * This handles a {@link SparkplugBPayload} when sequence number reordering is enabled. This method will buffer
 	 * messages as they flow into MQTT Engine and reorder based on sequence numbers within a given timeout period.
 	 * 
-	 * @param engineCallback
-	 * @param executor
-	 * @param settingsAccessor
-	 * @param edgeNodesAccessor
-	 * @param topicString
-	 * @param splitTopic
-	 * @param message
-	 * @param mqttServerName
-	 * @param mqttClientId
-	 * @param arrivedTime
+	 *
+	 * Messages that are released in order are queued on the Edge Node and passed to the {@link Executor} after the
+	 * Edge Node lock is released so a full executor never holds up other threads waiting on the same Edge Node.
+	 *
+	 * @param tahuHostCallback the {@link TahuHostCallback} the message arrived on
+	 * @param executor the {@link Executor} to handle the messages of the Edge Node on
+	 * @param topicString the MQTT topic the message arrived on
+	 * @param message the {@link MqttMessage}
+	 * @param mqttServerName the {@link MqttServerName} the message arrived on
+	 * @param mqttClientId the {@link MqttClientId} of the Host Application
+	 * @param arrivedTime the {@link System#nanoTime()} the message arrived at
 	 * @throws Exception
 	 */
-	public void handlePayload(TahuHostCallback tahuHostCallback, ThreadPoolExecutor executor, final String topicString,
-			final String[] splitTopic, final MqttMessage message, final MqttServerName mqttServerName,
-			final MqttClientId mqttClientId, final long arrivedTime) throws Exception {
+	public void handlePayload(TahuHostCallback tahuHostCallback, Executor executor, final String topicString,
+			final MqttMessage message, final MqttServerName mqttServerName, final MqttClientId mqttClientId,
+			final long arrivedTime) throws Exception {
 
 		// Get the Topic and MessageType
 		Topic topic;
 		try {
-			topic = TopicUtil.parseTopic(splitTopic);
+			topic = TopicUtil.parseTopic(topicString);
 		} catch (SparkplugParsingException e) {
 			logger.error("Error parsing topic", e);
 			return;
@@ -182,90 +263,111 @@ public class SequenceReorderManager {
 			return;
 		}
 
-		// Parse the payload
-		PayloadDecoder<SparkplugBPayload> decoder = new SparkplugBPayloadDecoder();
-		SparkplugBPayload payload = decoder.buildFromByteArray(message.getPayload(), HostApplicationMetricMap
-				.getInstance().getMetricDataTypeMap(topic.getEdgeNodeDescriptor(), topic.getSparkplugDescriptor()));
+		// Only the seq and timestamp are needed for ordering - the payload is decoded once it is dispatched in order
+		PayloadHeader payload = SparkplugBStreamingPayloadDecoder.peekHeader(message.getPayload());
 		logger.trace("Incoming payload: {}", payload);
 
-		synchronized (edgeNodeMapLock) {
-			// See if the Edge Node is known and add if not
-			EdgeNodeDescriptor edgeNodeDescriptor = new EdgeNodeDescriptor(topic.getGroupId(), topic.getEdgeNodeId());
-			SequenceReorderMap sequenceReorderMap =
-					edgeNodeMap.computeIfAbsent(edgeNodeDescriptor, (k) -> new SequenceReorderMap(edgeNodeDescriptor));
+		// See if the Edge Node is known and add if not
+		EdgeNodeDescriptor edgeNodeDescriptor = topic.getEdgeNodeDescriptor();
+		SequenceReorderMap sequenceReorderMap =
+				edgeNodeMap.computeIfAbsent(edgeNodeDescriptor, (k) -> new SequenceReorderMap(edgeNodeDescriptor));
 
-			if (topic.isType(MessageType.NBIRTH)) {
-				// Reset the expected sequence number to zero
-				logger.debug("Resetting sequenceReorderMap on NBIRTH for {}", edgeNodeDescriptor);
-				sequenceReorderMap.resetSeqNum();
-			} else if (topic.isType(MessageType.NDEATH)) {
-				// Handle NDEATH immediately and return
-				handleMessage(tahuHostCallback, executor, new SequenceReorderContext(topicString, topic, message,
-						payload, messageType, mqttServerName, mqttClientId, arrivedTime));
-				return;
-			} else if (topic.isType(MessageType.NCMD) || topic.isType(MessageType.DCMD)) {
-				// Ignition NCMD and DCMD
-				return;
-			}
+		// Only messages from the same Edge Node need to be serialized
+		boolean dispatcher;
+		synchronized (sequenceReorderMap) {
+			dispatcher = releaseInOrder(sequenceReorderMap, executor, topicString, topic, messageType, payload, message,
+					mqttServerName, mqttClientId, arrivedTime);
+		}
 
-			// See if this is the next expected sequence number
-			boolean passedSeqNumCheck = false;
-			if (payload == null || payload.getSeq() == null) {
-				logger.warn("Invalid payload arrived on topic={} with {}", topic,
-						payload == null
-								? "'payload is null'"
-								: payload.getSeq() == null
-										? "'payload sequence number is null'"
-										: "sequence number is present - shouldn't have gotten here");
-			} else {
-				passedSeqNumCheck = sequenceReorderMap.liveSeqNumCheck(payload.getSeq());
+		// Pass the released messages to the executor outside of the Edge Node lock
+		if (dispatcher) {
+			Runnable dispatch;
+			while ((dispatch = sequenceReorderMap.pollDispatch()) != null) {
+				try {
+					dispatch.run();
+				} catch (Exception e) {
+					logger.error("Failed to dispatch message for {}", edgeNodeDescriptor, e);
+				}
 			}
+		}
+	}
 
-			if (passedSeqNumCheck) {
-				// Set the session state
-				if (topic.isType(MessageType.NBIRTH)) {
-					sequenceReorderMap.prune(payload.getTimestamp());
-				}
+	/*
+	 * Checks the seq of a message and queues it and any stored messages that follow it for dispatch. Must be called
+	 * while holding the lock of the SequenceReorderMap. Returns true if the caller must drain the dispatch queue.
+	 */
+	private boolean releaseInOrder(SequenceReorderMap sequenceReorderMap, Executor executor, String topicString,
+			Topic topic, MessageType messageType, PayloadHeader payload, MqttMessage message,
+			MqttServerName mqttServerName, MqttClientId mqttClientId, long arrivedTime) {
+		boolean dispatcher = false;
+		if (topic.isType(MessageType.NBIRTH)) {
+			// Reset the expected sequence number to zero
+			logger.debug("Resetting sequenceReorderMap on NBIRTH for {}", sequenceReorderMap.getEdgeNodeDescriptor());
+			sequenceReorderMap.resetSeqNum();
+		} else if (topic.isType(MessageType.NDEATH)) {
+			// Handle NDEATH immediately and return
+			return queueMessage(sequenceReorderMap, executor,
+					new SequenceReorderContext(topicString, topic, message, payload.getSeq(),
+							payload.getTimestamp(), messageType, mqttServerName, mqttClientId, arrivedTime));
+		} else if (topic.isType(MessageType.NCMD) || topic.isType(MessageType.DCMD)) {
+			// Ignition NCMD and DCMD
+			return false;
+		}
+
+		// See if this is the next expected sequence number
+		boolean passedSeqNumCheck = false;
+		if (payload == null || payload.getSeq() == null) {
+			logger.warn("Invalid payload arrived on topic={} with {}", topic,
+					payload == null
+							? "'payload is null'"
+							: payload.getSeq() == null
+									? "'payload sequence number is null'"
+									: "sequence number is present - shouldn't have gotten here");
+		} else {
+			passedSeqNumCheck = sequenceReorderMap.liveSeqNumCheck(payload.getSeq());
+		}
 
-				// This is the next expected message - process it
-				logger.debug("Handling real time message on {} with seqNum={}", topicString, payload.getSeq());
-				handleMessage(tahuHostCallback, executor, new SequenceReorderContext(topicString, topic, message,
-						payload, messageType, mqttServerName, mqttClientId, arrivedTime));
-
-				// Now check to see if there are other messages to process
-				if (!sequenceReorderMap.isEmpty()) {
-					boolean done = false;
-					long nextSeqNum = getNextSeqNum(payload.getSeq());
-					while (!done && !sequenceReorderMap.isEmpty()) {
-						SequenceReorderContext sequenceReorderContext =
-								sequenceReorderMap.storedSeqNumCheck(nextSeqNum);
-						if (sequenceReorderContext != null) {
-							// This is the next expected message - publish it
-							logger.debug("Handling stored message on {} with seqNum={}", topicString, nextSeqNum);
-							handleMessage(tahuHostCallback, executor, new SequenceReorderContext(
-//											sequenceReorderContext.getSettingsAccessor(),
-//											sequenceReorderContext.getEdgeNodesAccessor(),
-									sequenceReorderContext.getTopicString(), sequenceReorderContext.getTopic(),
-									sequenceReorderContext.getMessage(), sequenceReorderContext.getPayload(),
-									sequenceReorderContext.getMessageType(), sequenceReorderContext.getMqttServerName(),
-									sequenceReorderContext.getHostAppMqttClientId(),
-									sequenceReorderContext.getArrivedTime()));
-							nextSeqNum = getNextSeqNum(nextSeqNum);
-						} else {
-							logger.debug("Failed to find SequenceReorderContext for {} - moving on", nextSeqNum);
-							done = true;
-						}
+		if (passedSeqNumCheck) {
+			// Set the session state
+			if (topic.isType(MessageType.NBIRTH)) {
+				sequenceReorderMap.prune(payload.getTimestamp());
+			}
+
+			// This is the next expected message - process it
+			logger.debug("Handling real time message on {} with seqNum={}", topicString, payload.getSeq());
+			dispatcher = queueMessage(sequenceReorderMap, executor,
+					new SequenceReorderContext(topicString, topic, message, payload.getSeq(),
+							payload.getTimestamp(), messageType, mqttServerName, mqttClientId, arrivedTime));
+
+			// Now check to see if there are other messages to process
+			if (!sequenceReorderMap.isEmpty()) {
+				boolean done = false;
+				long nextSeqNum = getNextSeqNum(payload.getSeq());
+				while (!done && !sequenceReorderMap.isEmpty()) {
+					SequenceReorderContext sequenceReorderContext =
+							sequenceReorderMap.storedSeqNumCheck(nextSeqNum);
+					if (sequenceReorderContext != null) {
+						// This is the next expected message - publish it
+						logger.debug("Handling stored message on {} with seqNum={}", topicString, nextSeqNum);
+						dispatcher |= queueMessage(sequenceReorderMap, executor, sequenceReorderContext);
+						nextSeqNum = getNextSeqNum(nextSeqNum);
+					} else {
+						logger.debug("Failed to find SequenceReorderContext for {} - moving on", nextSeqNum);
+						done = true;
 					}
 				}
-			} else {
-				// This is not the next expected message - store it after handling session state
-				logger.debug("Storing message on {} due to out of sequence message with seqNum={} - was expecting {}",
-						topicString, payload.getSeq(), sequenceReorderMap.getNextExpectedSeqNum());
-				SequenceReorderContext sequenceReorderContext = new SequenceReorderContext(topicString, topic, message,
-						payload, messageType, mqttServerName, mqttClientId, arrivedTime);
-				sequenceReorderMap.put(payload.getSeq(), sequenceReorderContext);
 			}
+		} else {
+			// This is not the next expected message - store it after handling session state
+			logger.debug("Storing message on {} due to out of sequence message with seqNum={} - was expecting {}",
+					topicString, payload.getSeq(), sequenceReorderMap.getNextExpectedSeqNum());
+			SequenceReorderContext sequenceReorderContext = new SequenceReorderContext(topicString, topic, message,
+					payload.getSeq(), payload.getTimestamp(), messageType, mqttServerName, mqttClientId,
+					arrivedTime);
+			sequenceReorderMap.put(payload.getSeq(), sequenceReorderContext);
+			scheduleTimeoutCheck(sequenceReorderMap);
 		}
+		return dispatcher;
 	}
 
 	/**
@@ -275,9 +377,7 @@ public class SequenceReorderManager {
 	 * @param edgeNodeDescriptor the {@link EdgeNodeDescriptor} of the Edge Node to remove
 	 */
 	public void removeEdgeNode(EdgeNodeDescriptor edgeNodeDescriptor) {
-		synchronized (edgeNodeMapLock) {
-			edgeNodeMap.remove(edgeNodeDescriptor);
-		}
+		edgeNodeMap.remove(edgeNodeDescriptor);
 	}
 
 	private long getNextSeqNum(long currentSeqNum) {
@@ -288,25 +388,29 @@ public class SequenceReorderManager {
 		return nextSeqNum;
 	}
 
-	private void handleMessage(TahuHostCallback tahuHostCallback, ThreadPoolExecutor executor,
+	private boolean queueMessage(SequenceReorderMap sequenceReorderMap, Executor executor,
 			SequenceReorderContext sequenceReorderContext) {
+		return sequenceReorderMap.offerDispatch(() -> handleMessage(executor, sequenceReorderContext));
+	}
+
+	private void handleMessage(Executor executor, SequenceReorderContext sequenceReorderContext) {
 		executor.execute(() -> {
 			try {
 				// Handle the SparkplugBPayload
-				new TahuPayloadHandler(eventHandler, commandPublisher, payloadDecoder).handlePayload(
-						sequenceReorderContext.getTopicString(), sequenceReorderContext.getSplitTopic(),
+				payloadHandler.handlePayload(sequenceReorderContext.getTopicString(), sequenceReorderContext.getTopic(),
 						sequenceReorderContext.getMessage(), sequenceReorderContext.getMqttServerName(),
 						sequenceReorderContext.getHostAppMqttClientId());
 
 			} catch (Throwable t) {
 				logger.error("Failed to handle Sparkplug B message on topic {} - requesting rebirth",
 						sequenceReorderContext.getTopic(), t);
-				new TahuPayloadHandler(eventHandler, commandPublisher, payloadDecoder).requestRebirth(
-						sequenceReorderContext.getMqttServerName(), sequenceReorderContext.getHostAppMqttClientId(),
+				payloadHandler.requestRebirth(sequenceReorderContext.getMqttServerName(),
+						sequenceReorderContext.getHostAppMqttClientId(),
 						sequenceReorderContext.getTopic().getEdgeNodeDescriptor());
 			} finally {
 				// Update the message latency
 				long latency = System.nanoTime() - sequenceReorderContext.getArrivedTime();
+				HostMetrics.getInstance().onMessageHandled(latency);
 				if (logger.isTraceEnabled()) {
 					logger.trace("Updating message processing latency {}", latency);
 				}
@@ -13,36 +13,53 @@
 
 package org.eclipse.tahu.host.seq;
 
-import java.util.Calendar;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
-import org.eclipse.tahu.message.model.SparkplugBPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Holds the out of order messages of a single Edge Node. Sparkplug sequence numbers are bounded to 0..255 so the
+ * messages are stored in a fixed 256 slot ring indexed by sequence number with a bitmap of the occupied slots.
+ *
+ * The map synchronizes on itself so the {@link SequenceReorderManager} can hold it across several calls with a single
+ * lock per Edge Node.
+ */
 public class SequenceReorderMap {
 
 	private static Logger logger = LoggerFactory.getLogger(SequenceReorderMap.class.getName());
 
+	private static final int SEQ_NUM_RANGE = 256;
+
 	private final EdgeNodeDescriptor edgeNodeDescriptor;
 
-	private final Map<Long, SequenceReorderContext> sequenceMap;
+	private final SequenceReorderContext[] slots = new SequenceReorderContext[SEQ_NUM_RANGE];
+
+	private final long[] occupied = new long[SEQ_NUM_RANGE / Long.SIZE];
+
+	private int count;
 
 	private volatile long expectedSeqNum;
 
-	private volatile Date lastUpdateTime;
+	private volatile long lastUpdateNanos;
 
-	private final Object seqLock = new Object();
+	// Guarded by the SequenceReorderManager which synchronizes on this map
+	private boolean timeoutCheckScheduled;
+
+	// Messages released in order and waiting to be passed to the executor - guarded by this map
+	private final ArrayDeque<Runnable> dispatchQueue = new ArrayDeque<>();
+
+	// True while a thread is passing the dispatchQueue to the executor - guarded by this map
+	private boolean dispatching;
 
 	public SequenceReorderMap(EdgeNodeDescriptor edgeNodeDescriptor) {
 		this.edgeNodeDescriptor = edgeNodeDescriptor;
 		expectedSeqNum = 0;
-		lastUpdateTime = new Date();
-		sequenceMap = new ConcurrentSkipListMap<>();
+		lastUpdateNanos = System.nanoTime();
 	}
 
 	public EdgeNodeDescriptor getEdgeNodeDescriptor() {
@@ -53,16 +70,14 @@ public class SequenceReorderMap {
 		return expectedSeqNum;
 	}
 
-	public boolean liveSeqNumCheck(long toMatch) {
-		synchronized (seqLock) {
-			boolean match = (toMatch == expectedSeqNum);
-			logger.trace("{} in liveSeqNumCheck - expected={} to actual={}", match ? "MATCHED" : "NOT MATCHED",
-					expectedSeqNum, toMatch);
-			if (match) {
-				incrementExpectedSeqNum();
-			}
-			return match;
+	public synchronized boolean liveSeqNumCheck(long toMatch) {
+		boolean match = (toMatch == expectedSeqNum);
+		logger.trace("{} in liveSeqNumCheck - expected={} to actual={}", match ? "MATCHED" : "NOT MATCHED",
+				expectedSeqNum, toMatch);
+		if (match) {
+			incrementExpectedSeqNum();
 		}
+		return match;
 	}
 
 	/**
@@ -70,38 +85,35 @@ public class SequenceReorderMap {
 	 * and then returns the SequenceReorderConext for the message to be handled. It also removes that
 	 * SequenceReorderConext from the Map
 	 * 
-	 * @param payload the {@link SparkplugBPayload} to handle
+	 * @param toMatch the sequence number to check for
 	 * @return the SequenceReorderContext associated with the payload if the sequence number check passed, otherwise
 	 *         null is returned
 	 */
-	public SequenceReorderContext storedSeqNumCheck(long toMatch) {
-		synchronized (seqLock) {
-			SequenceReorderContext sequenceReorderContext = sequenceMap.remove(toMatch);
-			if (sequenceReorderContext != null) {
-				logger.trace("MATCHED in storedSeqNumCheck - Found stored message for {}", toMatch);
-				incrementExpectedSeqNum();
-			}
-			return sequenceReorderContext;
+	public synchronized SequenceReorderContext storedSeqNumCheck(long toMatch) {
+		if (!isValidSeqNum(toMatch)) {
+			return null;
+		}
+		SequenceReorderContext sequenceReorderContext = remove((int) toMatch);
+		if (sequenceReorderContext != null) {
+			logger.trace("MATCHED in storedSeqNumCheck - Found stored message for {}", toMatch);
+			incrementExpectedSeqNum();
 		}
+		return sequenceReorderContext;
 	}
 
-	public void resetSeqNum() {
-		synchronized (seqLock) {
-			expectedSeqNum = 0;
-		}
+	public synchronized void resetSeqNum() {
+		expectedSeqNum = 0;
 	}
 
 	/**
 	 * Increments the sequence number and wraps if required
 	 */
-	private void incrementExpectedSeqNum() {
-		synchronized (seqLock) {
-			// Update the last update time and increment
-			lastUpdateTime = new Date();
-			expectedSeqNum++;
-			if (expectedSeqNum == 256) {
-				expectedSeqNum = 0;
-			}
+	private synchronized void incrementExpectedSeqNum() {
+		// Update the last update time and increment
+		lastUpdateNanos = System.nanoTime();
+		expectedSeqNum++;
+		if (expectedSeqNum == SEQ_NUM_RANGE) {
+			expectedSeqNum = 0;
 		}
 	}
 
@@ -111,10 +123,18 @@ public class SequenceReorderMap {
 	 * @param seqNum the sequence number key
 	 * @param sequenceReorderContext the {@link SequenceReorderContext} associated with the sequence number
 	 */
-	public void put(long seqNum, SequenceReorderContext sequenceReorderContext) {
-		synchronized (seqLock) {
-			sequenceMap.put(seqNum, sequenceReorderContext);
+	public synchronized void put(long seqNum, SequenceReorderContext sequenceReorderContext) {
+		if (!isValidSeqNum(seqNum)) {
+			logger.warn("Not storing message on {} with invalid seqNum={}", sequenceReorderContext.getTopic(),
+					seqNum);
+			return;
+		}
+		int slot = (int) seqNum;
+		if (slots[slot] == null) {
+			occupied[slot >>> 6] |= 1L << slot;
+			count++;
 		}
+		slots[slot] = sequenceReorderContext;
 	}
 
 	/**
@@ -122,66 +142,139 @@ public class SequenceReorderMap {
 	 *
 	 * @param nBirthDate the {@link Date} associated with the incoming NBIRTH
 	 */
-	public void prune(Date nBirthDate) {
+	public synchronized void prune(Date nBirthDate) {
 		if (nBirthDate == null) {
 			logger.error("Attempting to prune messages from the SequenceReorderMap failed. NBIRTH timestamp is null");
 			return;
 		}
 
-		synchronized (seqLock) {
-			logger.debug("Pruning with date {}", nBirthDate);
-			Iterator<SequenceReorderContext> it = sequenceMap.values().iterator();
-			while (it.hasNext()) {
-				SequenceReorderContext sequenceReorderContext = it.next();
-				if (sequenceReorderContext != null && sequenceReorderContext.getPayload() != null
-						&& sequenceReorderContext.getPayload().getTimestamp() != null
-						&& sequenceReorderContext.getPayload().getTimestamp().before(nBirthDate)) {
-					logger.debug("Removing old message {}", sequenceReorderContext.getTopic());
-					it.remove();
-				} else {
-					logger.debug("Checked {} - not removing because {} is after {}", sequenceReorderContext.getTopic(),
-							sequenceReorderContext.getPayload().getTimestamp(), nBirthDate);
-				}
+		logger.debug("Pruning with date {}", nBirthDate);
+		for (int slot = nextOccupied(0); slot >= 0; slot = nextOccupied(slot + 1)) {
+			SequenceReorderContext sequenceReorderContext = slots[slot];
+			if (sequenceReorderContext.getTimestamp() != null
+					&& sequenceReorderContext.getTimestamp().before(nBirthDate)) {
+				logger.debug("Removing old message {}", sequenceReorderContext.getTopic());
+				remove(slot);
+			} else {
+				logger.debug("Checked {} - not removing because {} is after {}", sequenceReorderContext.getTopic(),
+						sequenceReorderContext.getTimestamp(), nBirthDate);
 			}
 		}
 	}
 
-	public void reset() {
-		synchronized (seqLock) {
-			expectedSeqNum = 0;
-			lastUpdateTime = new Date();
-			sequenceMap.clear();
+	public synchronized void reset() {
+		expectedSeqNum = 0;
+		lastUpdateNanos = System.nanoTime();
+		Arrays.fill(slots, null);
+		Arrays.fill(occupied, 0L);
+		count = 0;
+	}
+
+	/**
+	 * Returns the stored message with the lowest sequence number if no progress has been made for longer than the
+	 * timeout
+	 *
+	 * @param timeout the timeout in milliseconds
+	 * @return the expired {@link SequenceReorderContext} or null if nothing has expired
+	 */
+	public synchronized SequenceReorderContext getExpiredSequenceReorderContext(long timeout) {
+		if (count > 0 && System.nanoTime() - lastUpdateNanos > TimeUnit.MILLISECONDS.toNanos(timeout)) {
+			return slots[nextOccupied(0)];
 		}
+
+		// Didn't find an expired entry
+		return null;
 	}
 
-	public SequenceReorderContext getExpiredSequenceReorderContext(long timeout) {
-		synchronized (seqLock) {
-			if (!sequenceMap.isEmpty()) {
-				Calendar calendar = Calendar.getInstance();
-				calendar.add(Calendar.MILLISECOND, (int) (timeout * -1));
-				if (lastUpdateTime.before(calendar.getTime())) {
-					return sequenceMap.values().iterator().next();
-				}
-			}
+	public synchronized int size() {
+		return count;
+	}
 
-			// Didn't find an expired entry
-			return null;
+	public synchronized boolean isEmpty() {
+		return count == 0;
+	}
+
+	public Date getLastUpdateTime() {
+		return new Date(System.currentTimeMillis()
+				- TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastUpdateNanos));
+	}
+
+	/**
+	 * Returns the {@link System#nanoTime()} of the last time the expected sequence number advanced
+	 *
+	 * @return the {@link System#nanoTime()} of the last update
+	 */
+	public long getLastUpdateNanos() {
+		return lastUpdateNanos;
+	}
+
+	boolean isTimeoutCheckScheduled() {
+		return timeoutCheckScheduled;
+	}
+
+	void setTimeoutCheckScheduled(boolean timeoutCheckScheduled) {
+		this.timeoutCheckScheduled = timeoutCheckScheduled;
+	}
+
+	/**
+	 * Queues a released message for dispatch and claims the dispatching role if no other thread holds it
+	 *
+	 * @param dispatch the {@link Runnable} that passes the message to the executor
+	 * @return true if the caller must drain the queue with {@link #pollDispatch()}
+	 */
+	synchronized boolean offerDispatch(Runnable dispatch) {
+		dispatchQueue.add(dispatch);
+		if (dispatching) {
+			return false;
 		}
+		dispatching = true;
+		return true;
 	}
 
-	public int size() {
-		synchronized (seqLock) {
-			return sequenceMap.size();
+	/**
+	 * Takes the next queued dispatch, giving up the dispatching role when the queue is empty
+	 *
+	 * @return the next {@link Runnable} or null if the queue is drained
+	 */
+	synchronized Runnable pollDispatch() {
+		Runnable dispatch = dispatchQueue.poll();
+		if (dispatch == null) {
+			dispatching = false;
 		}
+		return dispatch;
+	}
+
+	private static boolean isValidSeqNum(long seqNum) {
+		return seqNum >= 0 && seqNum < SEQ_NUM_RANGE;
 	}
 
-	public boolean isEmpty() {
-		synchronized (seqLock) {
-			return sequenceMap.isEmpty();
+	private SequenceReorderContext remove(int slot) {
+		SequenceReorderContext sequenceReorderContext = slots[slot];
+		if (sequenceReorderContext != null) {
+			slots[slot] = null;
+			occupied[slot >>> 6] &= ~(1L << slot);
+			count--;
 		}
+		return sequenceReorderContext;
 	}
 
-	public Date getLastUpdateTime() {
-		return lastUpdateTime;
+	/**
+	 * Returns the first occupied slot at or after the given slot or -1 if there is none
+	 */
+	private int nextOccupied(int from) {
+		int word = from >>> 6;
+		if (word >= occupied.length) {
+			return -1;
+		}
+		long bits = occupied[word] & (-1L << from);
+		while (true) {
+			if (bits != 0) {
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+			if (++word == occupied.length) {
+				return -1;
+			}
+			bits = occupied[word];
+		}
 	}
 }
@@ -0,0 +1,207 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.tahu.host.HostExecutorConfig.HostExecutorConfigBuilder;
+import org.eclipse.tahu.host.HostExecutorConfig.OverflowPolicy;
+import org.eclipse.tahu.host.manager.EdgeNodeManager;
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.Topic;
+import org.eclipse.tahu.mqtt.MqttServerName;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the overflow policies and Edge Node mailboxes of the {@link TahuHostCallback}
+ */
+public class TahuHostCallbackTest {
+
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	@Test
+	public void testBlock() throws Exception {
+		RecordingCommandPublisher commandPublisher = new RecordingCommandPublisher();
+		TahuHostCallback callback = callback(OverflowPolicy.BLOCK, 1, commandPublisher, null);
+		try {
+			Executor executor = callback.getExecutor(null, null, new EdgeNodeDescriptor("G1", "Block"), false);
+			List<String> executed = new CopyOnWriteArrayList<>();
+			CountDownLatch release = blockWorker(executor, executed);
+			executor.execute(() -> executed.add("B"));
+
+			// A full queue holds up the thread queueing the message until there is room
+			Thread producer = new Thread(() -> executor.execute(() -> executed.add("C")));
+			producer.start();
+			producer.join(200);
+			assertThat(producer.isAlive()).isTrue();
+
+			release.countDown();
+			producer.join(TIMEOUT_MILLIS);
+			assertThat(producer.isAlive()).isFalse();
+			await(() -> executed.size() == 3);
+			assertThat(executed).containsExactly("A", "B", "C");
+			assertThat(commandPublisher.rebirths).isEmpty();
+		} finally {
+			callback.shutdown();
+		}
+	}
+
+	@Test
+	public void testDropOldest() throws Exception {
+		RecordingCommandPublisher commandPublisher = new RecordingCommandPublisher();
+		TahuHostCallback callback = callback(OverflowPolicy.DROP_OLDEST, 2, commandPublisher, null);
+		try {
+			Executor executor = callback.getExecutor(null, null, new EdgeNodeDescriptor("G1", "DropOldest"), false);
+			List<String> executed = new CopyOnWriteArrayList<>();
+			CountDownLatch release = blockWorker(executor, executed);
+			executor.execute(() -> executed.add("B"));
+			executor.execute(() -> executed.add("C"));
+
+			// The head of the queue is dropped and the rest keep their order
+			executor.execute(() -> executed.add("D"));
+			release.countDown();
+			await(() -> executed.size() == 3);
+			Thread.sleep(50);
+			assertThat(executed).containsExactly("A", "C", "D");
+			assertThat(commandPublisher.rebirths).isEmpty();
+		} finally {
+			callback.shutdown();
+		}
+	}
+
+	@Test
+	public void testRequestRebirth() throws Exception {
+		RecordingCommandPublisher commandPublisher = new RecordingCommandPublisher();
+		TahuHostCallback callback = callback(OverflowPolicy.REQUEST_REBIRTH, 1, commandPublisher, null);
+		try {
+			EdgeNodeDescriptor edgeNodeDescriptor = new EdgeNodeDescriptor("G1", "RequestRebirth");
+			Executor executor = callback.getExecutor(null, null, edgeNodeDescriptor, false);
+			List<String> executed = new CopyOnWriteArrayList<>();
+			CountDownLatch release = blockWorker(executor, executed);
+			executor.execute(() -> executed.add("B"));
+
+			// The message is rejected and a rebirth is requested from the Edge Node
+			executor.execute(() -> executed.add("C"));
+			assertThat(commandPublisher.rebirths).containsExactly(edgeNodeDescriptor);
+
+			release.countDown();
+			await(() -> executed.size() == 2);
+			Thread.sleep(50);
+			assertThat(executed).containsExactly("A", "B");
+		} finally {
+			callback.shutdown();
+		}
+	}
+
+	@Test
+	public void testMailboxRemoval() throws Exception {
+		TahuHostCallback callback =
+				callback(OverflowPolicy.BLOCK, 10, new RecordingCommandPublisher(), runnable -> new Thread(runnable));
+		try {
+			EdgeNodeDescriptor edgeNodeDescriptor = new EdgeNodeDescriptor("G1", "Mailbox");
+			List<String> executed = new CopyOnWriteArrayList<>();
+			callback.getExecutor(null, null, edgeNodeDescriptor, false).execute(() -> executed.add("NDATA"));
+			assertThat(callback.getMailboxCount()).isEqualTo(1);
+
+			// The mailbox is removed once the NDEATH has been handled
+			callback.getExecutor(null, null, edgeNodeDescriptor, true).execute(() -> executed.add("NDEATH"));
+			await(() -> callback.getMailboxCount() == 0);
+			assertThat(executed).containsExactly("NDATA", "NDEATH");
+
+			// A busy mailbox is never removed as idle
+			Executor executor = callback.getExecutor(null, null, edgeNodeDescriptor, false);
+			CountDownLatch release = blockWorker(executor, executed);
+			callback.removeIdleMailboxes(0);
+			assertThat(callback.getMailboxCount()).isEqualTo(1);
+
+			// A mailbox is removed once it has been idle for the timeout
+			release.countDown();
+			callback.removeIdleMailboxes(TimeUnit.MINUTES.toMillis(1));
+			assertThat(callback.getMailboxCount()).isEqualTo(1);
+			await(() -> {
+				callback.removeIdleMailboxes(0);
+				return callback.getMailboxCount() == 0;
+			});
+
+			// The next message gets a new mailbox
+			callback.getExecutor(null, null, edgeNodeDescriptor, false).execute(() -> executed.add("NBIRTH"));
+			await(() -> executed.contains("NBIRTH"));
+			assertThat(callback.getMailboxCount()).isEqualTo(1);
+		} finally {
+			callback.shutdown();
+		}
+	}
+
+	private static TahuHostCallback callback(OverflowPolicy overflowPolicy, int queueCapacity,
+			CommandPublisher commandPublisher, ThreadFactory mailboxThreadFactory) {
+		HostExecutorConfig executorConfig = new HostExecutorConfigBuilder().numOfPartitions(1)
+				.queueCapacity(queueCapacity).overflowPolicy(overflowPolicy).createHostExecutorConfig();
+		return new TahuHostCallback(null, commandPublisher, null, null, null, executorConfig, new EdgeNodeManager(),
+				mailboxThreadFactory);
+	}
+
+	/*
+	 * Occupies the worker with a message that runs until the returned latch is released
+	 */
+	private static CountDownLatch blockWorker(Executor executor, List<String> executed) throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> {
+			executed.add("A");
+			started.countDown();
+			try {
+				release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertThat(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+		return release;
+	}
+
+	private static void await(BooleanSupplier condition) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+
+	/*
+	 * Records the Edge Nodes that rebirths are requested from
+	 */
+	private static final class RecordingCommandPublisher implements CommandPublisher {
+		private final List<EdgeNodeDescriptor> rebirths = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void publishCommand(Topic topic, SparkplugBPayload payload) throws Exception {
+			rebirths.add(topic.getEdgeNodeDescriptor());
+		}
+
+		@Override
+		public void publishCommand(MqttServerName mqttServerName, Topic topic, SparkplugBPayload payload)
+				throws Exception {
+			rebirths.add(topic.getEdgeNodeDescriptor());
+		}
+	}
+}
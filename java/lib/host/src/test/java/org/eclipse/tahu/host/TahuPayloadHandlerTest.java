@@ -0,0 +1,334 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.tahu.host.api.BatchHostApplicationEventHandler;
+import org.eclipse.tahu.host.api.MetricBatch;
+import org.eclipse.tahu.host.api.VisitingHostApplicationEventHandler;
+import org.eclipse.tahu.host.manager.EdgeNodeManager;
+import org.eclipse.tahu.message.PayloadVisitor;
+import org.eclipse.tahu.message.SparkplugBPayloadDecoder;
+import org.eclipse.tahu.message.SparkplugBPayloadEncoder;
+import org.eclipse.tahu.message.model.DeviceDescriptor;
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.eclipse.tahu.message.model.Message;
+import org.eclipse.tahu.message.model.MessageType;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.SparkplugBPayload;
+import org.eclipse.tahu.message.model.SparkplugBPayload.SparkplugBPayloadBuilder;
+import org.eclipse.tahu.message.model.SparkplugDescriptor;
+import org.eclipse.tahu.message.model.SparkplugMeta;
+import org.eclipse.tahu.message.model.Topic;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the {@link TahuPayloadHandler}
+ */
+public class TahuPayloadHandlerTest {
+
+	private static final Date TIMESTAMP = new Date(1000L);
+
+	@Test
+	public void testDataVisitor() throws Exception {
+		RecordingEventHandler eventHandler = new RecordingEventHandler();
+		EdgeNodeManager edgeNodeManager = new EdgeNodeManager();
+		TahuPayloadHandler payloadHandler =
+				new TahuPayloadHandler(eventHandler, null, new SparkplugBPayloadDecoder(), edgeNodeManager);
+
+		handle(payloadHandler, MessageType.NBIRTH, new SparkplugBPayloadBuilder(0L).setTimestamp(TIMESTAMP)
+				.addMetric(new MetricBuilder(SparkplugMeta.SPARKPLUG_BD_SEQUENCE_NUMBER_KEY, MetricDataType.Int64, 0L)
+						.createMetric())
+				.addMetric(new MetricBuilder("Temperature", MetricDataType.Double, 20.5).alias(1L).createMetric())
+				.createPayload());
+		assertThat(eventHandler.dataMetrics).isEmpty();
+
+		// Metrics are visited rather than built and the alias is not resolved
+		handle(payloadHandler, MessageType.NDATA, new SparkplugBPayloadBuilder(1L).setTimestamp(TIMESTAMP)
+				.addMetric(new MetricBuilder(1L, MetricDataType.Double, 21.5).createMetric()).createPayload());
+		assertThat(eventHandler.visited).containsExactly("start 1", "1 null Double 21.5", "complete");
+		assertThat(eventHandler.dataMetrics).isEmpty();
+		assertThat(eventHandler.events).containsExactly("NBIRTH arrived", "NBIRTH complete", "NDATA arrived",
+				"NDATA complete");
+
+		// A null visitor handles the message as Metrics
+		eventHandler.visit = false;
+		handle(payloadHandler, MessageType.NDATA, new SparkplugBPayloadBuilder(2L).setTimestamp(TIMESTAMP)
+				.addMetric(new MetricBuilder(1L, MetricDataType.Double, 22.5).createMetric()).createPayload());
+		assertThat(eventHandler.dataMetrics).containsExactly("Temperature");
+
+		// The seq is still checked on visited messages
+		eventHandler.visit = true;
+		eventHandler.visited.clear();
+		handle(payloadHandler, MessageType.NDATA, new SparkplugBPayloadBuilder(9L).setTimestamp(TIMESTAMP)
+				.addMetric(new MetricBuilder(1L, MetricDataType.Double, 23.5).createMetric()).createPayload());
+		assertThat(eventHandler.visited).isEmpty();
+	}
+
+	@Test
+	public void testBatchEventHandler() throws Exception {
+		BatchRecordingEventHandler eventHandler = new BatchRecordingEventHandler();
+		handleSession(eventHandler, "BatchNode");
+
+		// One call per message with the metrics in payload order and the names resolved from the aliases
+		assertThat(eventHandler.batches).containsExactly("NBIRTH G1/BatchNode [bdSeq, Temperature, Status]",
+				"DBIRTH G1/BatchNode/D1 [Pressure, Level]", "NDATA G1/BatchNode [Status, Temperature]",
+				"DDATA G1/BatchNode/D1 [Level, Pressure]", "NSTALE G1/BatchNode [Status, Temperature, bdSeq]",
+				"DSTALE G1/BatchNode/D1 [Level, Pressure]");
+		assertThat(eventHandler.birthMetrics).isEmpty();
+		assertThat(eventHandler.dataMetrics).isEmpty();
+		assertThat(eventHandler.staleMetrics).isEmpty();
+		assertThat(eventHandler.events).containsExactly("NBIRTH arrived", "NBIRTH complete", "NDATA arrived",
+				"NDATA arrived");
+	}
+
+	@Test
+	public void testPerMetricEventHandler() throws Exception {
+		RecordingEventHandler eventHandler = new RecordingEventHandler();
+		eventHandler.visit = false;
+		handleSession(eventHandler, "PerMetricNode");
+
+		// A plain event handler is still called once per metric
+		assertThat(eventHandler.birthMetrics).containsExactly("bdSeq", "Temperature", "Status", "Pressure", "Level");
+		assertThat(eventHandler.dataMetrics).containsExactly("Status", "Temperature", "Level", "Pressure");
+		assertThat(eventHandler.staleMetrics).containsExactlyInAnyOrder("Pressure", "Level", "bdSeq", "Temperature",
+				"Status");
+	}
+
+	/*
+	 * Handles an NBIRTH, DBIRTH, NDATA, DDATA and NDEATH with data metrics in a different order to the births
+	 */
+	private static void handleSession(RecordingEventHandler eventHandler, String edgeNodeId) throws Exception {
+		TahuPayloadHandler payloadHandler =
+				new TahuPayloadHandler(eventHandler, null, new SparkplugBPayloadDecoder(), new EdgeNodeManager());
+		Metric bdSeq = new MetricBuilder(SparkplugMeta.SPARKPLUG_BD_SEQUENCE_NUMBER_KEY, MetricDataType.Int64, 7L)
+				.createMetric();
+
+		handle(payloadHandler, edgeNodeId, null, MessageType.NBIRTH,
+				new SparkplugBPayloadBuilder(0L).setTimestamp(TIMESTAMP).addMetric(bdSeq)
+						.addMetric(new MetricBuilder("Temperature", MetricDataType.Double, 20.5).alias(1L)
+								.createMetric())
+						.addMetric(new MetricBuilder("Status", MetricDataType.String, "OK").alias(2L).createMetric())
+						.createPayload());
+		handle(payloadHandler, edgeNodeId, "D1", MessageType.DBIRTH,
+				new SparkplugBPayloadBuilder(1L).setTimestamp(TIMESTAMP)
+						.addMetric(new MetricBuilder("Pressure", MetricDataType.Int32, 10).alias(1L).createMetric())
+						.addMetric(new MetricBuilder("Level", MetricDataType.Int32, 20).alias(2L).createMetric())
+						.createPayload());
+		handle(payloadHandler, edgeNodeId, null, MessageType.NDATA,
+				new SparkplugBPayloadBuilder(2L).setTimestamp(TIMESTAMP)
+						.addMetric(new MetricBuilder(2L, MetricDataType.String, "Fault").createMetric())
+						.addMetric(new MetricBuilder(1L, MetricDataType.Double, 21.5).createMetric()).createPayload());
+		handle(payloadHandler, edgeNodeId, "D1", MessageType.DDATA,
+				new SparkplugBPayloadBuilder(3L).setTimestamp(TIMESTAMP)
+						.addMetric(new MetricBuilder(2L, MetricDataType.Int32, 21).createMetric())
+						.addMetric(new MetricBuilder(1L, MetricDataType.Int32, 11).createMetric()).createPayload());
+		handle(payloadHandler, edgeNodeId, null, MessageType.NDEATH,
+				new SparkplugBPayloadBuilder().setTimestamp(TIMESTAMP).addMetric(bdSeq).createPayload());
+	}
+
+	private static void handle(TahuPayloadHandler payloadHandler, MessageType messageType, SparkplugBPayload payload)
+			throws Exception {
+		handle(payloadHandler, "E1", null, messageType, payload);
+	}
+
+	private static void handle(TahuPayloadHandler payloadHandler, String edgeNodeId, String deviceId,
+			MessageType messageType, SparkplugBPayload payload) throws Exception {
+		Topic topic = new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, "G1", edgeNodeId, deviceId, messageType);
+		payloadHandler.handlePayload(topic.toString(), topic,
+				new MqttMessage(new SparkplugBPayloadEncoder().getBytes(payload, false)), null, null);
+	}
+
+	/*
+	 * Records the batches of metrics
+	 */
+	private static final class BatchRecordingEventHandler extends RecordingEventHandler
+			implements BatchHostApplicationEventHandler {
+		private final List<String> batches = new ArrayList<>();
+
+		private BatchRecordingEventHandler() {
+			visit = false;
+		}
+
+		@Override
+		public void onBirthMetrics(SparkplugDescriptor sparkplugDescriptor, MetricBatch metrics) {
+			record(sparkplugDescriptor, "BIRTH", metrics);
+		}
+
+		@Override
+		public void onDataMetrics(SparkplugDescriptor sparkplugDescriptor, MetricBatch metrics) {
+			record(sparkplugDescriptor, "DATA", metrics);
+		}
+
+		@Override
+		public void onStaleMetrics(SparkplugDescriptor sparkplugDescriptor, MetricBatch metrics) {
+			List<String> names = new ArrayList<>();
+			for (Metric metric : metrics) {
+				names.add(metric.getName());
+			}
+			// The stale metrics come from the metric cache which is not ordered
+			names.sort(null);
+			batches.add((sparkplugDescriptor.isDeviceDescriptor() ? "DSTALE " : "NSTALE ") + sparkplugDescriptor
+					+ " " + names);
+		}
+
+		private void record(SparkplugDescriptor sparkplugDescriptor, String type, MetricBatch metrics) {
+			List<String> names = new ArrayList<>();
+			for (Metric metric : metrics) {
+				names.add(metric.getName());
+			}
+			batches.add((sparkplugDescriptor.isDeviceDescriptor() ? "D" : "N") + type + " " + sparkplugDescriptor
+					+ " " + names);
+		}
+	}
+
+	/*
+	 * Records the events, visited metrics and metric callbacks
+	 */
+	private static class RecordingEventHandler implements VisitingHostApplicationEventHandler, PayloadVisitor {
+		final List<String> events = new ArrayList<>();
+		final List<String> visited = new ArrayList<>();
+		final List<String> birthMetrics = new ArrayList<>();
+		final List<String> dataMetrics = new ArrayList<>();
+		final List<String> staleMetrics = new ArrayList<>();
+		boolean visit = true;
+
+		@Override
+		public PayloadVisitor getDataVisitor(SparkplugDescriptor sparkplugDescriptor) {
+			return visit ? this : null;
+		}
+
+		@Override
+		public void onPayloadStart(long timestamp, long seq) {
+			visited.add("start " + seq);
+		}
+
+		@Override
+		public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, long value) {
+			visited.add(alias + " " + name + " " + dataType + " " + value);
+		}
+
+		@Override
+		public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, double value) {
+			visited.add(alias + " " + name + " " + dataType + " " + value);
+		}
+
+		@Override
+		public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, boolean value) {
+			visited.add(alias + " " + name + " " + dataType + " " + value);
+		}
+
+		@Override
+		public void onMetric(long alias, String name, MetricDataType dataType, long timestamp, Object value) {
+			visited.add(alias + " " + name + " " + dataType + " " + value);
+		}
+
+		@Override
+		public void onNullMetric(long alias, String name, MetricDataType dataType, long timestamp) {
+			visited.add(alias + " " + name + " " + dataType + " null");
+		}
+
+		@Override
+		public void onPayloadComplete() {
+			visited.add("complete");
+		}
+
+		@Override
+		public void onConnect() {
+		}
+
+		@Override
+		public void onDisconnect() {
+		}
+
+		@Override
+		public void onMessage(SparkplugDescriptor sparkplugDescriptor, Message message) {
+		}
+
+		@Override
+		public void onNodeBirthArrived(EdgeNodeDescriptor edgeNodeDescriptor, Message message) {
+			events.add("NBIRTH arrived");
+		}
+
+		@Override
+		public void onNodeBirthComplete(EdgeNodeDescriptor edgeNodeDescriptor) {
+			events.add("NBIRTH complete");
+		}
+
+		@Override
+		public void onNodeDataArrived(EdgeNodeDescriptor edgeNodeDescriptor, Message message) {
+			events.add("NDATA arrived");
+		}
+
+		@Override
+		public void onNodeDataComplete(EdgeNodeDescriptor edgeNodeDescriptor) {
+			events.add("NDATA complete");
+		}
+
+		@Override
+		public void onNodeDeath(EdgeNodeDescriptor edgeNodeDescriptor, Message message) {
+		}
+
+		@Override
+		public void onNodeDeathComplete(EdgeNodeDescriptor edgeNodeDescriptor) {
+		}
+
+		@Override
+		public void onDeviceBirthArrived(DeviceDescriptor deviceDescriptor, Message message) {
+		}
+
+		@Override
+		public void onDeviceBirthComplete(DeviceDescriptor deviceDescriptor) {
+		}
+
+		@Override
+		public void onDeviceDataArrived(DeviceDescriptor deviceDescriptor, Message message) {
+		}
+
+		@Override
+		public void onDeviceDataComplete(DeviceDescriptor deviceDescriptor) {
+		}
+
+		@Override
+		public void onDeviceDeath(DeviceDescriptor deviceDescriptor, Message message) {
+		}
+
+		@Override
+		public void onDeviceDeathComplete(DeviceDescriptor deviceDescriptor) {
+		}
+
+		@Override
+		public void onBirthMetric(SparkplugDescriptor sparkplugDescriptor, Metric metric) {
+			birthMetrics.add(metric.getName());
+		}
+
+		@Override
+		public void onDataMetric(SparkplugDescriptor sparkplugDescriptor, Metric metric) {
+			dataMetrics.add(metric.getName());
+		}
+
+		@Override
+		public void onStale(SparkplugDescriptor sparkplugDescriptor, Metric metric) {
+			staleMetrics.add(metric.getName());
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.eclipse.tahu.message.model.DeviceDescriptor;
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.eclipse.tahu.message.model.Topic;
+import org.eclipse.tahu.util.TopicUtil;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the {@link DescriptorRegistry}
+ */
+public class DescriptorRegistryTest {
+
+	@Test
+	public void testEdgeNodeDescriptor() throws Exception {
+		DescriptorRegistry descriptorRegistry = new DescriptorRegistry();
+
+		// Edge Nodes are only interned once registered
+		assertThat(descriptorRegistry.getEdgeNodeDescriptor("G1", "E1"))
+				.isNotSameAs(descriptorRegistry.getEdgeNodeDescriptor("G1", "E1"));
+
+		EdgeNodeDescriptor edgeNodeDescriptor = descriptorRegistry.registerEdgeNode(new EdgeNodeDescriptor("G1", "E1"));
+		descriptorRegistry.registerEdgeNode(new EdgeNodeDescriptor("G1", "E2"));
+		assertThat(descriptorRegistry.getEdgeNodeDescriptor("G1", "E1")).isSameAs(edgeNodeDescriptor);
+		assertThat(descriptorRegistry.registerEdgeNode(edgeNodeDescriptor)).isSameAs(edgeNodeDescriptor);
+		assertThat(descriptorRegistry.getEdgeNodeCount()).isEqualTo(2);
+
+		// Registered and unregistered instances are interchangeable as map keys
+		EdgeNodeDescriptor unregistered = new EdgeNodeDescriptor("G1", "E1");
+		assertThat(unregistered).isEqualTo(edgeNodeDescriptor);
+		assertThat(unregistered.hashCode()).isEqualTo(edgeNodeDescriptor.hashCode());
+
+		// Released Edge Nodes are registered again as new instances
+		assertThat(descriptorRegistry.releaseEdgeNode(unregistered)).isTrue();
+		assertThat(descriptorRegistry.releaseEdgeNode(edgeNodeDescriptor)).isFalse();
+		assertThat(descriptorRegistry.getEdgeNodeCount()).isEqualTo(1);
+		assertThat(descriptorRegistry.getEdgeNodeDescriptor("G1", "E1")).isNotSameAs(edgeNodeDescriptor);
+		assertThat(descriptorRegistry.registerEdgeNode(edgeNodeDescriptor)).isNotSameAs(edgeNodeDescriptor)
+				.isEqualTo(edgeNodeDescriptor);
+	}
+
+	@Test
+	public void testDeviceDescriptor() throws Exception {
+		DescriptorRegistry descriptorRegistry = new DescriptorRegistry();
+
+		// Devices can only be registered under a registered Edge Node
+		DeviceDescriptor unregistered = new DeviceDescriptor("G1", "E1", "D1");
+		assertThat(descriptorRegistry.registerDevice(unregistered)).isSameAs(unregistered);
+		assertThat(descriptorRegistry.getDeviceCount()).isZero();
+
+		EdgeNodeDescriptor edgeNodeDescriptor = descriptorRegistry.registerEdgeNode(new EdgeNodeDescriptor("G1", "E1"));
+		DeviceDescriptor deviceDescriptor = descriptorRegistry.registerDevice(unregistered);
+		assertThat(deviceDescriptor).isNotSameAs(unregistered).isEqualTo(unregistered);
+		assertThat(descriptorRegistry.getDeviceDescriptor("G1", "E1", "D1")).isSameAs(deviceDescriptor);
+		assertThat(descriptorRegistry.getDeviceDescriptor(new EdgeNodeDescriptor("G1", "E1"), "D1"))
+				.isSameAs(deviceDescriptor);
+		assertThat(deviceDescriptor.getEdgeNodeDescriptor()).isSameAs(edgeNodeDescriptor);
+		assertThat(deviceDescriptor.getDescriptorString()).isEqualTo("G1/E1/D1");
+		assertThat(descriptorRegistry.getDeviceCount()).isEqualTo(1);
+
+		assertThat(descriptorRegistry.releaseDevice(unregistered)).isTrue();
+		assertThat(descriptorRegistry.getDeviceDescriptor("G1", "E1", "D1")).isNotSameAs(deviceDescriptor);
+		assertThat(descriptorRegistry.getDeviceCount()).isZero();
+
+		// Releasing the Edge Node releases its Devices
+		deviceDescriptor = descriptorRegistry.registerDevice(unregistered);
+		descriptorRegistry.registerDevice(new DeviceDescriptor(edgeNodeDescriptor, "D2"));
+		assertThat(descriptorRegistry.getDeviceCount()).isEqualTo(2);
+		descriptorRegistry.releaseEdgeNode(edgeNodeDescriptor);
+		assertThat(descriptorRegistry.getDeviceCount()).isZero();
+		assertThat(descriptorRegistry.getDeviceDescriptor("G1", "E1", "D1")).isNotSameAs(deviceDescriptor);
+	}
+
+	@Test
+	public void testScope() throws Exception {
+		// Each Host Application's EdgeNodeManager has its own registry
+		EdgeNodeManager edgeNodeManager = new EdgeNodeManager();
+		EdgeNodeDescriptor edgeNodeDescriptor =
+				edgeNodeManager.getDescriptorRegistry().registerEdgeNode(new EdgeNodeDescriptor("G1", "E1"));
+		assertThat(edgeNodeManager.getDescriptorRegistry().getEdgeNodeDescriptor("G1", "E1"))
+				.isSameAs(edgeNodeDescriptor);
+		assertThat(new EdgeNodeManager().getDescriptorRegistry().getEdgeNodeDescriptor("G1", "E1"))
+				.isNotSameAs(edgeNodeDescriptor);
+
+		// Parsing topics does not touch any registry
+		Topic topic = TopicUtil.parseTopic("spBv1.0/G1/DDATA/E1/D1");
+		assertThat(topic.getEdgeNodeDescriptor()).isNotSameAs(edgeNodeDescriptor).isEqualTo(edgeNodeDescriptor);
+	}
+}
@@ -0,0 +1,150 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tahu.exception.TahuException;
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the online state and sequence number tracking of the {@link SparkplugEdgeNode}
+ */
+public class SparkplugEdgeNodeTest {
+
+	private static final Date BIRTH_TIMESTAMP = new Date(1000L);
+
+	private static final Date DEATH_TIMESTAMP = new Date(2000L);
+
+	@Test
+	public void testBdSeq() throws Exception {
+		// bdSeq values above 127 are not cached by Long.valueOf so equal values are different instances
+		Long birthBdSeq = Long.valueOf(200L);
+		Long deathBdSeq = Long.valueOf(200L);
+		assertThat(deathBdSeq).isNotSameAs(birthBdSeq);
+
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNode();
+		sparkplugEdgeNode.setOnline(true, BIRTH_TIMESTAMP, birthBdSeq, 0L);
+		assertThat(sparkplugEdgeNode.isOnline()).isTrue();
+
+		// An NDEATH with a different bdSeq is ignored
+		sparkplugEdgeNode.setOnline(false, DEATH_TIMESTAMP, 201L, null);
+		assertThat(sparkplugEdgeNode.isOnline()).isTrue();
+
+		sparkplugEdgeNode.setOnline(false, DEATH_TIMESTAMP, deathBdSeq, null);
+		assertThat(sparkplugEdgeNode.isOnline()).isFalse();
+		assertThat(sparkplugEdgeNode.getOnlineTimestamp()).isEqualTo(BIRTH_TIMESTAMP);
+		assertThat(sparkplugEdgeNode.getOfflineTimestamp()).isEqualTo(DEATH_TIMESTAMP);
+		assertThat(sparkplugEdgeNode.getBirthBdSeqNum()).isEqualTo(200L);
+
+		assertThatThrownBy(() -> sparkplugEdgeNode.setOnline(true, BIRTH_TIMESTAMP, null, 0L))
+				.isInstanceOf(TahuException.class);
+		assertThatThrownBy(() -> sparkplugEdgeNode.setOnline(false, DEATH_TIMESTAMP, null, null))
+				.isInstanceOf(TahuException.class);
+	}
+
+	@Test
+	public void testConcurrentDeath() throws Exception {
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int i = 0; i < 50; i++) {
+				SparkplugEdgeNode sparkplugEdgeNode = edgeNode();
+				sparkplugEdgeNode.setOnline(true, BIRTH_TIMESTAMP, 300L, 0L);
+
+				// Racing NDEATHs with the same bdSeq all leave the Edge Node offline with the birth state intact
+				CyclicBarrier barrier = new CyclicBarrier(threads);
+				List<Future<?>> futures = new ArrayList<>();
+				for (int thread = 0; thread < threads; thread++) {
+					Date timestamp = new Date(DEATH_TIMESTAMP.getTime() + thread);
+					futures.add(executor.submit(() -> {
+						barrier.await();
+						sparkplugEdgeNode.setOnline(false, timestamp, 300L, null);
+						return null;
+					}));
+				}
+				for (Future<?> future : futures) {
+					future.get(10, TimeUnit.SECONDS);
+				}
+				assertThat(sparkplugEdgeNode.isOnline()).isFalse();
+				assertThat(sparkplugEdgeNode.getOnlineTimestamp()).isEqualTo(BIRTH_TIMESTAMP);
+				assertThat(sparkplugEdgeNode.getOfflineTimestamp().getTime())
+						.isBetween(DEATH_TIMESTAMP.getTime(), DEATH_TIMESTAMP.getTime() + threads - 1);
+				assertThat(sparkplugEdgeNode.getBirthBdSeqNum()).isEqualTo(300L);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// An NDEATH of the previous session does not take down the next one
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNode();
+		sparkplugEdgeNode.setOnline(true, BIRTH_TIMESTAMP, 300L, 0L);
+		sparkplugEdgeNode.setOnline(true, BIRTH_TIMESTAMP, 301L, 0L);
+		sparkplugEdgeNode.setOnline(false, DEATH_TIMESTAMP, 300L, null);
+		assertThat(sparkplugEdgeNode.isOnline()).isTrue();
+	}
+
+	@Test
+	public void testForceOffline() throws Exception {
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNode();
+		sparkplugEdgeNode.setOnline(true, BIRTH_TIMESTAMP, 5L, 0L);
+
+		// Forcing offline keeps the birth state and does not need a bdSeq
+		sparkplugEdgeNode.forceOffline(DEATH_TIMESTAMP);
+		assertThat(sparkplugEdgeNode.isOnline()).isFalse();
+		assertThat(sparkplugEdgeNode.getOnlineTimestamp()).isEqualTo(BIRTH_TIMESTAMP);
+		assertThat(sparkplugEdgeNode.getOfflineTimestamp()).isEqualTo(DEATH_TIMESTAMP);
+		assertThat(sparkplugEdgeNode.getBirthBdSeqNum()).isEqualTo(5L);
+
+		// The next NBIRTH brings it back online
+		sparkplugEdgeNode.setOnline(true, new Date(3000L), 6L, 0L);
+		assertThat(sparkplugEdgeNode.isOnline()).isTrue();
+		assertThat(sparkplugEdgeNode.getOfflineTimestamp()).isEqualTo(DEATH_TIMESTAMP);
+	}
+
+	@Test
+	public void testHandleSeq() throws Exception {
+		SparkplugEdgeNode sparkplugEdgeNode = edgeNode();
+
+		// No sequence number is expected before an NBIRTH
+		assertThatThrownBy(() -> sparkplugEdgeNode.handleSeq(0L)).isInstanceOf(TahuException.class);
+
+		// The sequence number wraps from 255 to 0
+		sparkplugEdgeNode.setOnline(true, BIRTH_TIMESTAMP, 0L, 254L);
+		sparkplugEdgeNode.handleSeq(255L);
+		sparkplugEdgeNode.handleSeq(0L);
+		sparkplugEdgeNode.handleSeq(1L);
+		assertThatThrownBy(() -> sparkplugEdgeNode.handleSeq(3L)).isInstanceOf(TahuException.class);
+		assertThatThrownBy(() -> sparkplugEdgeNode.handleSeq(null)).isInstanceOf(TahuException.class);
+
+		// An NBIRTH resets the sequence number together with the online state
+		sparkplugEdgeNode.setOnline(true, BIRTH_TIMESTAMP, 1L, 255L);
+		sparkplugEdgeNode.handleSeq(0L);
+	}
+
+	private static SparkplugEdgeNode edgeNode() {
+		return new SparkplugEdgeNode(new EdgeNodeDescriptor("G1", "E1"), null, null);
+	}
+}
@@ -0,0 +1,132 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.eclipse.tahu.message.model.MessageType;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the {@link HostMetrics} registry and the {@link HostMetricsExporter} SPI
+ */
+public class HostMetricsTest {
+
+	private static final EdgeNodeDescriptor EDGE_NODE = new EdgeNodeDescriptor("G1", "E1");
+
+	private static final EdgeNodeDescriptor OTHER_EDGE_NODE = new EdgeNodeDescriptor("G1", "E2");
+
+	@Test
+	public void testMessages() throws Exception {
+		HostMetrics hostMetrics = new HostMetrics();
+		hostMetrics.onMessage(EDGE_NODE, MessageType.NBIRTH, 10, 1000);
+		hostMetrics.onMessage(EDGE_NODE, MessageType.NDATA, 2, 1000);
+		hostMetrics.onMessage(EDGE_NODE, MessageType.NDATA, 3, 3000);
+		hostMetrics.onMessage(OTHER_EDGE_NODE, MessageType.NDATA, 1, 1000);
+		hostMetrics.onMessageHandled(5000);
+		hostMetrics.onReorderTimeout();
+		hostMetrics.onRebirthRequest(false);
+		hostMetrics.onRebirthRequest(true);
+
+		HostMetricsSnapshot snapshot = hostMetrics.sample();
+		assertThat(snapshot).isSameAs(hostMetrics.getLastSnapshot());
+		assertThat(snapshot.getMessageCounts()).containsEntry("NBIRTH", 1L).containsEntry("NDATA", 3L)
+				.doesNotContainKey("NCMD");
+		assertThat(snapshot.getMetricCounts()).containsEntry("NBIRTH", 10L).containsEntry("NDATA", 6L);
+		assertThat(snapshot.getMessageRates().get("NDATA")).isGreaterThan(0);
+		assertThat(snapshot.getDecodeTime().getCount()).isEqualTo(4);
+		assertThat(snapshot.getLatency().getCount()).isEqualTo(1);
+		assertThat(snapshot.getReorderTimeouts()).isEqualTo(1);
+		assertThat(snapshot.getRebirthRequests()).isEqualTo(2);
+		assertThat(snapshot.getRebirthRequestsDelayed()).isEqualTo(1);
+		assertThat(snapshot.getHotEdgeNodes().keySet()).containsExactly(EDGE_NODE.toString(),
+				OTHER_EDGE_NODE.toString());
+
+		// Totals carry over, histograms and the busiest Edge Nodes are per interval
+		snapshot = hostMetrics.sample();
+		assertThat(snapshot.getMessageCounts()).containsEntry("NDATA", 3L);
+		assertThat(snapshot.getMessageRates().get("NDATA")).isEqualTo(0.0);
+		assertThat(snapshot.getDecodeTime().getCount()).isEqualTo(0);
+		assertThat(snapshot.getHotEdgeNodes()).isEmpty();
+
+		// An Edge Node forgotten as idle is counted again
+		hostMetrics.onMessage(OTHER_EDGE_NODE, MessageType.NDATA, 1, 1000);
+		assertThat(hostMetrics.sample().getHotEdgeNodes().keySet()).containsExactly(OTHER_EDGE_NODE.toString());
+	}
+
+	@Test
+	public void testGauges() throws Exception {
+		HostMetrics hostMetrics = new HostMetrics();
+		String gauge = HostMetrics.getGaugeName("H1", "queueDepth");
+		assertThat(gauge).isEqualTo("host.H1.queueDepth");
+		assertThat(HostMetrics.getGaugeName("H2", "queueDepth")).isNotEqualTo(gauge);
+		assertThat(HostMetrics.getGaugeName(null, "queueDepth")).isEqualTo("queueDepth");
+
+		hostMetrics.registerGauge(gauge, () -> 7);
+		hostMetrics.registerGauge("failing", () -> {
+			throw new IllegalStateException("Failing gauge");
+		});
+		assertThat(hostMetrics.sample().getGauges()).containsOnlyKeys(gauge).containsEntry(gauge, 7L);
+
+		hostMetrics.registerGauge(gauge, () -> 8);
+		assertThat(hostMetrics.sample().getGauges()).containsEntry(gauge, 8L);
+		hostMetrics.unregisterGauge(gauge);
+		assertThat(hostMetrics.sample().getGauges()).isEmpty();
+	}
+
+	@Test
+	public void testExporters() throws Exception {
+		HostMetrics hostMetrics = new HostMetrics();
+		CountDownLatch exported = new CountDownLatch(2);
+		hostMetrics.addExporter(snapshot -> {
+			throw new IllegalStateException("Failing exporter");
+		});
+		hostMetrics.addExporter(snapshot -> exported.countDown());
+		ServiceExporter.exported = new CountDownLatch(1);
+
+		ObjectName objectName = new ObjectName(HostMetrics.OBJECT_NAME);
+		hostMetrics.start(10);
+		try {
+			// A failing exporter does not stop the others and the ServiceLoader exporter is called too
+			assertThat(exported.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(ServiceExporter.exported.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)).isTrue();
+			assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "RebirthRequests"))
+					.isEqualTo(0L);
+		} finally {
+			hostMetrics.stop();
+		}
+		assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)).isFalse();
+	}
+
+	/**
+	 * A {@link HostMetricsExporter} listed in META-INF/services
+	 */
+	public static class ServiceExporter implements HostMetricsExporter {
+
+		private static volatile CountDownLatch exported = new CountDownLatch(1);
+
+		@Override
+		public void export(HostMetricsSnapshot snapshot) {
+			exported.countDown();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+
+import org.eclipse.tahu.exception.TahuException;
+import org.eclipse.tahu.message.model.DeviceDescriptor;
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.eclipse.tahu.message.model.Metric;
+import org.eclipse.tahu.message.model.Metric.MetricBuilder;
+import org.eclipse.tahu.message.model.MetricDataType;
+import org.eclipse.tahu.message.model.Template;
+import org.eclipse.tahu.message.model.Template.TemplateBuilder;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the BIRTH registration of the {@link HostApplicationMetricMap}
+ */
+public class HostApplicationMetricMapTest {
+
+	private final HostApplicationMetricMap metricMap = HostApplicationMetricMap.getInstance();
+
+	@Test
+	public void testDuplicateAlias() throws Exception {
+		EdgeNodeDescriptor edgeNodeDescriptor = new EdgeNodeDescriptor("MapGroup", "DuplicateNode");
+		DeviceDescriptor deviceDescriptor = new DeviceDescriptor(edgeNodeDescriptor, "D1");
+		metricMap.registerNodeBirth(edgeNodeDescriptor, Arrays.asList(metric("Existing", 1L)));
+
+		// A BIRTH with a duplicated alias throws and leaves the previous tables in place
+		assertThatThrownBy(() -> metricMap.registerNodeBirth(edgeNodeDescriptor,
+				Arrays.asList(metric("First", 1L), metric("Second", 2L), metric("Third", 1L))))
+						.isInstanceOf(TahuException.class);
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, edgeNodeDescriptor, 1L)).isEqualTo("Existing");
+		assertThat(metricMap.getAlias(edgeNodeDescriptor, edgeNodeDescriptor, "Second")).isNull();
+
+		assertThatThrownBy(() -> metricMap.registerDeviceBirth(edgeNodeDescriptor, deviceDescriptor,
+				Arrays.asList(metric("First", 1L), metric("Second", 1L)))).isInstanceOf(TahuException.class);
+		assertThat(metricMap.getMetricDataTypeMap(edgeNodeDescriptor, deviceDescriptor)).isNull();
+		assertThat(metricMap.aliasExists(edgeNodeDescriptor, deviceDescriptor, 1L)).isFalse();
+	}
+
+	@Test
+	public void testNodeBirthReplacesDevices() throws Exception {
+		EdgeNodeDescriptor edgeNodeDescriptor = new EdgeNodeDescriptor("MapGroup", "RebirthNode");
+		DeviceDescriptor deviceDescriptor = new DeviceDescriptor(edgeNodeDescriptor, "D1");
+		metricMap.registerNodeBirth(edgeNodeDescriptor, Arrays.asList(metric("Old", 1L)));
+		metricMap.registerDeviceBirth(edgeNodeDescriptor, deviceDescriptor, Arrays.asList(metric("DeviceOld", 1L)));
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, deviceDescriptor, 1L)).isEqualTo("DeviceOld");
+
+		// An NBIRTH replaces the tables of the Edge Node and drops those of its Devices
+		metricMap.registerNodeBirth(edgeNodeDescriptor, Arrays.asList(metric("New", 2L)));
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, edgeNodeDescriptor, 2L)).isEqualTo("New");
+		assertThat(metricMap.getAlias(edgeNodeDescriptor, edgeNodeDescriptor, "Old")).isNull();
+		assertThat(metricMap.aliasExists(edgeNodeDescriptor, edgeNodeDescriptor, 1L)).isFalse();
+		assertThat(metricMap.getMetricDataTypeMap(edgeNodeDescriptor, deviceDescriptor)).isNull();
+
+		// A DBIRTH only replaces the tables of its Device
+		metricMap.registerDeviceBirth(edgeNodeDescriptor, deviceDescriptor, Arrays.asList(metric("DeviceNew", 3L)));
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, deviceDescriptor, 3L)).isEqualTo("DeviceNew");
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, edgeNodeDescriptor, 2L)).isEqualTo("New");
+
+		metricMap.clear(edgeNodeDescriptor);
+		assertThat(metricMap.getMetricDataTypeMap(edgeNodeDescriptor, edgeNodeDescriptor)).isNull();
+	}
+
+	@Test
+	public void testTemplateMembers() throws Exception {
+		EdgeNodeDescriptor edgeNodeDescriptor = new EdgeNodeDescriptor("MapGroup", "TemplateNode");
+		Template inner = new TemplateBuilder().templateRef("InnerType").addMetric(metric("Leaf", 3L)).createTemplate();
+		Template outer = new TemplateBuilder().templateRef("OuterType").addMetric(metric("Member", 2L))
+				.addMetric(new MetricBuilder("Inner", MetricDataType.Template, inner).alias(4L).createMetric())
+				.createTemplate();
+		Metric templateMetric =
+				new MetricBuilder("Parent", MetricDataType.Template, outer).alias(1L).createMetric();
+		metricMap.registerNodeBirth(edgeNodeDescriptor, Arrays.asList(templateMetric, metric("Sibling", 5L)));
+
+		// Members are registered under the names of their parents
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, edgeNodeDescriptor, 1L)).isEqualTo("Parent");
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, edgeNodeDescriptor, 2L)).isEqualTo("Parent/Member");
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, edgeNodeDescriptor, 4L)).isEqualTo("Parent/Inner");
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, edgeNodeDescriptor, 3L))
+				.isEqualTo("Parent/Inner/Leaf");
+		assertThat(metricMap.getMetricName(edgeNodeDescriptor, edgeNodeDescriptor, 5L)).isEqualTo("Sibling");
+		assertThat(metricMap.getDataType(edgeNodeDescriptor, edgeNodeDescriptor, "Parent/Inner"))
+				.isEqualTo(MetricDataType.Template);
+		assertThat(metricMap.getDataType(edgeNodeDescriptor, edgeNodeDescriptor, 3L)).isEqualTo(MetricDataType.Int32);
+	}
+
+	private static Metric metric(String name, long alias) throws Exception {
+		return new MetricBuilder(name, MetricDataType.Int32, 0).alias(alias).createMetric();
+	}
+}
@@ -0,0 +1,177 @@
+/********************************************************************************
+ * Copyright (c) 2023 Cirrus Link Solutions and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Cirrus Link Solutions - initial implementation
+ ********************************************************************************/
+
+package org.eclipse.tahu.host.seq;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.tahu.message.model.EdgeNodeDescriptor;
+import org.eclipse.tahu.message.model.MessageType;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the sequence number ring and the dispatch queue of the {@link SequenceReorderMap}
+ */
+public class SequenceReorderMapTest {
+
+	@Test
+	public void testWrapAround() throws Exception {
+		SequenceReorderMap sequenceReorderMap = new SequenceReorderMap(new EdgeNodeDescriptor("G1", "E1"));
+		for (int seq = 0; seq < 255; seq++) {
+			assertThat(sequenceReorderMap.liveSeqNumCheck(seq)).isTrue();
+		}
+		assertThat(sequenceReorderMap.getNextExpectedSeqNum()).isEqualTo(255);
+
+		// Messages after the wrap arrive before 255
+		SequenceReorderContext seq0 = context(0);
+		SequenceReorderContext seq1 = context(1);
+		assertThat(sequenceReorderMap.liveSeqNumCheck(0)).isFalse();
+		sequenceReorderMap.put(0, seq0);
+		sequenceReorderMap.put(1, seq1);
+		assertThat(sequenceReorderMap.storedSeqNumCheck(sequenceReorderMap.getNextExpectedSeqNum())).isNull();
+
+		// 255 wraps the expected sequence number to 0 and releases the stored messages in order
+		assertThat(sequenceReorderMap.liveSeqNumCheck(255)).isTrue();
+		assertThat(sequenceReorderMap.getNextExpectedSeqNum()).isZero();
+		assertThat(sequenceReorderMap.storedSeqNumCheck(sequenceReorderMap.getNextExpectedSeqNum())).isSameAs(seq0);
+		assertThat(sequenceReorderMap.storedSeqNumCheck(sequenceReorderMap.getNextExpectedSeqNum())).isSameAs(seq1);
+		assertThat(sequenceReorderMap.storedSeqNumCheck(sequenceReorderMap.getNextExpectedSeqNum())).isNull();
+		assertThat(sequenceReorderMap.getNextExpectedSeqNum()).isEqualTo(2);
+		assertThat(sequenceReorderMap.isEmpty()).isTrue();
+
+		// Sequence numbers outside of 0..255 are never stored
+		sequenceReorderMap.put(256, context(256));
+		sequenceReorderMap.put(-1, context(-1));
+		assertThat(sequenceReorderMap.isEmpty()).isTrue();
+		assertThat(sequenceReorderMap.storedSeqNumCheck(256)).isNull();
+	}
+
+	@Test
+	public void testGap() throws Exception {
+		SequenceReorderMap sequenceReorderMap = new SequenceReorderMap(new EdgeNodeDescriptor("G1", "E1"));
+		for (int seq = 0; seq < 62; seq++) {
+			assertThat(sequenceReorderMap.liveSeqNumCheck(seq)).isTrue();
+		}
+
+		// 62 is missing and the later messages, which span two words of the bitmap, arrive out of order
+		List<SequenceReorderContext> stored = new ArrayList<>();
+		for (long seq : new long[] { 65, 63, 64 }) {
+			assertThat(sequenceReorderMap.liveSeqNumCheck(seq)).isFalse();
+			SequenceReorderContext sequenceReorderContext = context(seq);
+			sequenceReorderMap.put(seq, sequenceReorderContext);
+			stored.add(sequenceReorderContext);
+		}
+		assertThat(sequenceReorderMap.size()).isEqualTo(3);
+		assertThat(sequenceReorderMap.storedSeqNumCheck(sequenceReorderMap.getNextExpectedSeqNum())).isNull();
+
+		// Filling the gap releases the stored messages in sequence number order
+		assertThat(sequenceReorderMap.liveSeqNumCheck(62)).isTrue();
+		List<Long> released = new ArrayList<>();
+		SequenceReorderContext sequenceReorderContext;
+		while ((sequenceReorderContext =
+				sequenceReorderMap.storedSeqNumCheck(sequenceReorderMap.getNextExpectedSeqNum())) != null) {
+			assertThat(stored).contains(sequenceReorderContext);
+			released.add(sequenceReorderContext.getSeq());
+		}
+		assertThat(released).containsExactly(63L, 64L, 65L);
+		assertThat(sequenceReorderMap.getNextExpectedSeqNum()).isEqualTo(66);
+		assertThat(sequenceReorderMap.isEmpty()).isTrue();
+	}
+
+	@Test
+	public void testDuplicate() throws Exception {
+		SequenceReorderMap sequenceReorderMap = new SequenceReorderMap(new EdgeNodeDescriptor("G1", "E1"));
+		SequenceReorderContext first = context(5);
+		SequenceReorderContext duplicate = context(5);
+
+		// A duplicate replaces the stored message and is only counted once
+		sequenceReorderMap.put(5, first);
+		sequenceReorderMap.put(5, duplicate);
+		assertThat(sequenceReorderMap.size()).isEqualTo(1);
+		assertThat(sequenceReorderMap.storedSeqNumCheck(5)).isSameAs(duplicate);
+		assertThat(sequenceReorderMap.isEmpty()).isTrue();
+		assertThat(sequenceReorderMap.storedSeqNumCheck(5)).isNull();
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		SequenceReorderMap sequenceReorderMap = new SequenceReorderMap(new EdgeNodeDescriptor("G1", "E1"));
+		SequenceReorderContext seq3 = context(3);
+		sequenceReorderMap.put(200, context(200));
+		sequenceReorderMap.put(3, seq3);
+
+		// Nothing expires until no progress has been made for longer than the timeout
+		assertThat(sequenceReorderMap.getExpiredSequenceReorderContext(60000)).isNull();
+		Thread.sleep(20);
+		assertThat(sequenceReorderMap.getExpiredSequenceReorderContext(1)).isSameAs(seq3);
+
+		// Once expired the map is reset
+		sequenceReorderMap.liveSeqNumCheck(0);
+		sequenceReorderMap.reset();
+		assertThat(sequenceReorderMap.isEmpty()).isTrue();
+		assertThat(sequenceReorderMap.getNextExpectedSeqNum()).isZero();
+		assertThat(sequenceReorderMap.getExpiredSequenceReorderContext(0)).isNull();
+		assertThat(sequenceReorderMap.storedSeqNumCheck(3)).isNull();
+	}
+
+	@Test
+	public void testPrune() throws Exception {
+		SequenceReorderMap sequenceReorderMap = new SequenceReorderMap(new EdgeNodeDescriptor("G1", "E1"));
+		SequenceReorderContext afterBirth = context(7, 2000L);
+		sequenceReorderMap.put(5, context(5, 500L));
+		sequenceReorderMap.put(130, context(130, 999L));
+		sequenceReorderMap.put(7, afterBirth);
+
+		// Only the messages older than the NBIRTH are removed
+		sequenceReorderMap.prune(new Date(1000L));
+		assertThat(sequenceReorderMap.size()).isEqualTo(1);
+		assertThat(sequenceReorderMap.storedSeqNumCheck(5)).isNull();
+		assertThat(sequenceReorderMap.storedSeqNumCheck(130)).isNull();
+		assertThat(sequenceReorderMap.storedSeqNumCheck(7)).isSameAs(afterBirth);
+	}
+
+	@Test
+	public void testDispatch() throws Exception {
+		SequenceReorderMap sequenceReorderMap = new SequenceReorderMap(new EdgeNodeDescriptor("G1", "E1"));
+		List<Integer> dispatched = new ArrayList<>();
+
+		// Only the first thread to queue a message drains the queue
+		assertThat(sequenceReorderMap.offerDispatch(() -> dispatched.add(1))).isTrue();
+		assertThat(sequenceReorderMap.offerDispatch(() -> dispatched.add(2))).isFalse();
+
+		// Messages queued while draining are drained by the same thread in order
+		Runnable dispatch = sequenceReorderMap.pollDispatch();
+		dispatch.run();
+		assertThat(sequenceReorderMap.offerDispatch(() -> dispatched.add(3))).isFalse();
+		while ((dispatch = sequenceReorderMap.pollDispatch()) != null) {
+			dispatch.run();
+		}
+		assertThat(dispatched).containsExactly(1, 2, 3);
+
+		// Once drained the next message claims the queue again
+		assertThat(sequenceReorderMap.offerDispatch(() -> dispatched.add(4))).isTrue();
+	}
+
+	private static SequenceReorderContext context(long seq) {
+		return context(seq, 1000L);
+	}
+
+	private static SequenceReorderContext context(long seq, long timestamp) {
+		return new SequenceReorderContext("spBv1.0/G1/NDATA/E1", null, null, seq, new Date(timestamp),
+				MessageType.NDATA, null, null, 0L);
+	}
+}